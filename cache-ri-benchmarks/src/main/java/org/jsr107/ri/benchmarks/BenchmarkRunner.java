@@ -0,0 +1,73 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.jsr107.ri.benchmarks;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+
+/**
+ * Runs the {@link RICacheBenchmark}s with 1, 2, 4 and so on threads up to
+ * the number of available processors, so that their scalability can be
+ * compared.
+ * <p>
+ * The arguments are those of the JMH command line, for example to choose the
+ * benchmarks and parameters to run.
+ * </p>
+ */
+public final class BenchmarkRunner {
+
+  /**
+   * Prevents an instance being created.
+   */
+  private BenchmarkRunner() {
+  }
+
+  /**
+   * Runs the benchmarks.
+   *
+   * @param args the JMH command line arguments
+   * @throws CommandLineOptionException should the arguments be invalid
+   * @throws RunnerException            should a benchmark fail
+   */
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    int processors = Runtime.getRuntime().availableProcessors();
+
+    ArrayList<Integer> threadCounts = new ArrayList<Integer>();
+    for (int threads = 1; threads < processors; threads *= 2) {
+      threadCounts.add(threads);
+    }
+    threadCounts.add(processors);
+
+    for (int threads : threadCounts) {
+      OptionsBuilder builder = new OptionsBuilder();
+      builder.parent(commandLine);
+      if (commandLine.getIncludes().isEmpty()) {
+        builder.include(RICacheBenchmark.class.getSimpleName());
+      }
+      Options options = builder.threads(threads).build();
+      new Runner(options).run();
+    }
+  }
+}
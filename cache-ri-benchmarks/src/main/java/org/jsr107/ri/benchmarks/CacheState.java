@@ -0,0 +1,175 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.jsr107.ri.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+import javax.cache.spi.CachingProvider;
+
+/**
+ * The Cache shared by the threads of a benchmark, configured by the
+ * parameters of the benchmark and populated with every key.
+ */
+@State(Scope.Benchmark)
+public class CacheState {
+
+  /**
+   * The name of the {@link CachingProvider} of the RI.
+   */
+  private static final String PROVIDER = "org.jsr107.ri.spi.RICachingProvider";
+
+  /**
+   * The number of bytes of content of the values.
+   */
+  private static final int VALUE_LENGTH = 64;
+
+  /**
+   * Whether the Cache stores values by value rather than by reference.
+   */
+  @Param({"true", "false"})
+  public boolean storeByValue;
+
+  /**
+   * Whether a synchronous listener is registered for created, updated and
+   * removed events.
+   */
+  @Param({"false", "true"})
+  public boolean listeners;
+
+  /**
+   * Whether statistics are enabled.
+   */
+  @Param({"false", "true"})
+  public boolean statistics;
+
+  /**
+   * The distribution of the keys that are accessed.
+   */
+  @Param({"UNIFORM", "ZIPFIAN"})
+  public KeyDistribution distribution;
+
+  /**
+   * The number of keys.
+   */
+  @Param({"10000"})
+  public int keyCount;
+
+  /**
+   * The keys, so that benchmarks don't measure creating them.
+   */
+  public String[] keys;
+
+  /**
+   * The values of the keys, being mutable so that a Cache that stores-by-value
+   * copies them.
+   */
+  public Payload[] values;
+
+  /**
+   * The {@link CacheManager} of the Cache.
+   */
+  private CacheManager cacheManager;
+
+  /**
+   * The Cache.
+   */
+  public Cache<String, Payload> cache;
+
+  /**
+   * Creates and populates the Cache.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    CachingProvider provider = Caching.getCachingProvider(PROVIDER);
+    cacheManager = provider.getCacheManager();
+
+    MutableConfiguration<String, Payload> configuration = new MutableConfiguration<String, Payload>()
+        .setTypes(String.class, Payload.class)
+        .setStoreByValue(storeByValue)
+        .setStatisticsEnabled(statistics);
+    if (listeners) {
+      configuration.addCacheEntryListenerConfiguration(new MutableCacheEntryListenerConfiguration<String, Payload>(
+          FactoryBuilder.factoryOf(NoOpListener.class), null, false, true));
+    }
+    cache = cacheManager.createCache("benchmark", configuration);
+
+    keys = new String[keyCount];
+    values = new Payload[keyCount];
+    for (int i = 0; i < keyCount; i++) {
+      keys[i] = "key-" + i;
+      values[i] = new Payload(i, VALUE_LENGTH);
+      cache.put(keys[i], values[i]);
+    }
+  }
+
+  /**
+   * Destroys the Cache.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    cacheManager.destroyCache("benchmark");
+    cacheManager.close();
+  }
+
+  /**
+   * A synchronous listener that does nothing, so that benchmarks measure the
+   * cost of raising and dispatching events.
+   */
+  public static class NoOpListener implements CacheEntryCreatedListener<String, Payload>,
+      CacheEntryUpdatedListener<String, Payload>, CacheEntryRemovedListener<String, Payload> {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onCreated(Iterable<CacheEntryEvent<? extends String, ? extends Payload>> events) {
+      //nothing to do
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onUpdated(Iterable<CacheEntryEvent<? extends String, ? extends Payload>> events) {
+      //nothing to do
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onRemoved(Iterable<CacheEntryEvent<? extends String, ? extends Payload>> events) {
+      //nothing to do
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.jsr107.ri.benchmarks;
+
+import java.util.Random;
+
+/**
+ * The distributions of the keys accessed by benchmarks.
+ */
+public enum KeyDistribution {
+
+  /**
+   * Every key is equally likely to be accessed.
+   */
+  UNIFORM {
+    @Override
+    int[] generate(int keyCount, int length, Random random) {
+      int[] indexes = new int[length];
+      for (int i = 0; i < length; i++) {
+        indexes[i] = random.nextInt(keyCount);
+      }
+      return indexes;
+    }
+  },
+
+  /**
+   * A few keys are accessed far more often than the others, following a
+   * Zipfian distribution with an exponent of 0.99 (as used by YCSB).  The
+   * popular keys are scattered rather than being the lowest.
+   */
+  ZIPFIAN {
+    @Override
+    int[] generate(int keyCount, int length, Random random) {
+      double zetaN = zeta(keyCount, THETA);
+      double alpha = 1.0 / (1.0 - THETA);
+      double eta = (1.0 - Math.pow(2.0 / keyCount, 1.0 - THETA)) / (1.0 - zeta(2, THETA) / zetaN);
+
+      int[] indexes = new int[length];
+      for (int i = 0; i < length; i++) {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        long rank;
+        if (uz < 1.0) {
+          rank = 0;
+        } else if (uz < 1.0 + Math.pow(0.5, THETA)) {
+          rank = 1;
+        } else {
+          rank = (long) (keyCount * Math.pow(eta * u - eta + 1.0, alpha));
+        }
+        indexes[i] = (int) ((scramble(rank) & Long.MAX_VALUE) % keyCount);
+      }
+      return indexes;
+    }
+  };
+
+  /**
+   * The exponent of the Zipfian distribution.
+   */
+  private static final double THETA = 0.99;
+
+  /**
+   * Generates a sequence of the indexes of the keys to access.
+   *
+   * @param keyCount the number of keys
+   * @param length   the length of the sequence
+   * @param random   the source of randomness
+   * @return the indexes of the keys, each from 0 (inclusive) to the number of
+   *         keys (exclusive)
+   */
+  abstract int[] generate(int keyCount, int length, Random random);
+
+  /**
+   * Computes the generalized harmonic number of a Zipfian distribution.
+   *
+   * @param n     the number of items
+   * @param theta the exponent
+   * @return the sum of 1 / i^theta for i from 1 to n
+   */
+  private static double zeta(long n, double theta) {
+    double sum = 0;
+    for (long i = 1; i <= n; i++) {
+      sum += 1.0 / Math.pow(i, theta);
+    }
+    return sum;
+  }
+
+  /**
+   * Scrambles a rank with the 64-bit FNV-1a hash of its bytes.
+   *
+   * @param rank the rank
+   * @return the hash
+   */
+  private static long scramble(long rank) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < 8; i++) {
+      hash ^= (rank >>> (i * 8)) & 0xFF;
+      hash *= 0x100000001B3L;
+    }
+    return hash;
+  }
+}
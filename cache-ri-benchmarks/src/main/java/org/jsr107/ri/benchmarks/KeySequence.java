@@ -0,0 +1,148 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.jsr107.ri.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The keys accessed by a thread of a benchmark, generated up front from the
+ * {@link KeyDistribution} of the {@link CacheState} so that benchmarks
+ * don't measure generating them.
+ */
+@State(Scope.Thread)
+public class KeySequence {
+
+  /**
+   * The length of the sequence of keys, being a power of two.
+   */
+  private static final int LENGTH = 1 << 16;
+
+  /**
+   * The number of batches of keys for the bulk operations, being a power of
+   * two.
+   */
+  private static final int BATCHES = 1 << 8;
+
+  /**
+   * The number of keys in a batch.
+   */
+  private static final int BATCH_SIZE = 16;
+
+  /**
+   * The seed of the next sequence, so that each thread accesses different
+   * keys.
+   */
+  private static int nextSeed;
+
+  /**
+   * The indexes of the keys to access.
+   */
+  private int[] indexes;
+
+  /**
+   * The position in the sequence.
+   */
+  private int position;
+
+  /**
+   * The batches of keys for getAll.
+   */
+  private List<Set<String>> keySets;
+
+  /**
+   * The batches of entries for putAll.
+   */
+  private List<Map<String, Payload>> entryMaps;
+
+  /**
+   * The next batch.
+   */
+  private int batch;
+
+  /**
+   * Generates the keys to access.
+   *
+   * @param state the {@link CacheState}
+   */
+  @Setup(Level.Trial)
+  public void setUp(CacheState state) {
+    Random random = new Random(nextSeed());
+    indexes = state.distribution.generate(state.keyCount, LENGTH, random);
+
+    keySets = new ArrayList<Set<String>>(BATCHES);
+    entryMaps = new ArrayList<Map<String, Payload>>(BATCHES);
+    for (int i = 0; i < BATCHES; i++) {
+      HashSet<String> keySet = new HashSet<String>();
+      HashMap<String, Payload> entryMap = new HashMap<String, Payload>();
+      for (int j = 0; j < BATCH_SIZE; j++) {
+        int index = next();
+        keySet.add(state.keys[index]);
+        entryMap.put(state.keys[index], state.values[index]);
+      }
+      keySets.add(keySet);
+      entryMaps.add(entryMap);
+    }
+  }
+
+  /**
+   * Obtains the index of the next key to access.
+   *
+   * @return the index of the key
+   */
+  public int next() {
+    return indexes[position++ & (LENGTH - 1)];
+  }
+
+  /**
+   * Obtains the next batch of keys.
+   *
+   * @return the keys
+   */
+  public Set<String> nextKeySet() {
+    return keySets.get(batch++ & (BATCHES - 1));
+  }
+
+  /**
+   * Obtains the next batch of entries.
+   *
+   * @return the entries
+   */
+  public Map<String, Payload> nextEntryMap() {
+    return entryMaps.get(batch++ & (BATCHES - 1));
+  }
+
+  /**
+   * Obtains the seed of a new sequence.
+   *
+   * @return the seed
+   */
+  private static synchronized int nextSeed() {
+    return nextSeed++;
+  }
+}
@@ -0,0 +1,110 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.jsr107.ri.benchmarks;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A mutable value, so that caches that store-by-value must copy it on the way
+ * in and out rather than keep it by reference as they may an immutable
+ * String.
+ */
+public class Payload implements Serializable {
+
+  /**
+   * The identity of the value.
+   */
+  private int id;
+
+  /**
+   * The content of the value.
+   */
+  private byte[] content;
+
+  /**
+   * Constructs a {@link Payload}.
+   *
+   * @param id     the identity of the value
+   * @param length the number of bytes of content
+   */
+  public Payload(int id, int length) {
+    this.id = id;
+    this.content = new byte[length];
+    Arrays.fill(content, (byte) id);
+  }
+
+  /**
+   * Gets the identity of the value.
+   *
+   * @return the identity
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Sets the identity of the value.
+   *
+   * @param id the identity
+   */
+  public void setId(int id) {
+    this.id = id;
+  }
+
+  /**
+   * Gets the content of the value.
+   *
+   * @return the content
+   */
+  public byte[] getContent() {
+    return content;
+  }
+
+  /**
+   * Sets the content of the value.
+   *
+   * @param content the content
+   */
+  public void setContent(byte[] content) {
+    this.content = content;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean equals(Object object) {
+    if (this == object) {
+      return true;
+    }
+    if (!(object instanceof Payload)) {
+      return false;
+    }
+    Payload other = (Payload) object;
+    return id == other.id && Arrays.equals(content, other.content);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int hashCode() {
+    return 31 * id + Arrays.hashCode(content);
+  }
+}
@@ -0,0 +1,161 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.jsr107.ri.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.cache.Cache;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.MutableEntry;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the hot paths of an {@link org.jsr107.ri.RICache}.
+ * <p>
+ * Each benchmark is run for every combination of the parameters of the
+ * {@link CacheState}, and with the number of threads given to JMH (see
+ * {@link BenchmarkRunner}).
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RICacheBenchmark {
+
+  /**
+   * Gets the value of a key.
+   *
+   * @param state    the {@link CacheState}
+   * @param sequence the {@link KeySequence}
+   * @return the value
+   */
+  @Benchmark
+  public Payload get(CacheState state, KeySequence sequence) {
+    return state.cache.get(state.keys[sequence.next()]);
+  }
+
+  /**
+   * Puts the value of a key, replacing the existing value.
+   *
+   * @param state    the {@link CacheState}
+   * @param sequence the {@link KeySequence}
+   */
+  @Benchmark
+  public void put(CacheState state, KeySequence sequence) {
+    int index = sequence.next();
+    state.cache.put(state.keys[index], state.values[index]);
+  }
+
+  /**
+   * Puts the value of a key if it is absent, which it never is.
+   *
+   * @param state    the {@link CacheState}
+   * @param sequence the {@link KeySequence}
+   * @return whether the value was put
+   */
+  @Benchmark
+  public boolean putIfAbsent(CacheState state, KeySequence sequence) {
+    int index = sequence.next();
+    return state.cache.putIfAbsent(state.keys[index], state.values[index]);
+  }
+
+  /**
+   * Invokes an {@link EntryProcessor} setting the value of a key.
+   *
+   * @param state    the {@link CacheState}
+   * @param sequence the {@link KeySequence}
+   * @return the previous value
+   */
+  @Benchmark
+  public Payload invoke(CacheState state, KeySequence sequence) {
+    int index = sequence.next();
+    return state.cache.invoke(state.keys[index], SetValue.INSTANCE, state.values[index]);
+  }
+
+  /**
+   * Gets the values of a batch of keys.
+   *
+   * @param state    the {@link CacheState}
+   * @param sequence the {@link KeySequence}
+   * @return the values
+   */
+  @Benchmark
+  public Map<String, Payload> getAll(CacheState state, KeySequence sequence) {
+    return state.cache.getAll(sequence.nextKeySet());
+  }
+
+  /**
+   * Puts the values of a batch of keys.
+   *
+   * @param state    the {@link CacheState}
+   * @param sequence the {@link KeySequence}
+   */
+  @Benchmark
+  public void putAll(CacheState state, KeySequence sequence) {
+    state.cache.putAll(sequence.nextEntryMap());
+  }
+
+  /**
+   * Iterates over every entry.
+   *
+   * @param state the {@link CacheState}
+   * @return the number of entries
+   */
+  @Benchmark
+  public int iterate(CacheState state) {
+    int count = 0;
+    for (Cache.Entry<String, Payload> entry : state.cache) {
+      if (entry.getValue() != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * An {@link EntryProcessor} that sets the value of an entry to its argument
+   * and returns the previous value.
+   */
+  public static class SetValue implements EntryProcessor<String, Payload, Payload>, Serializable {
+
+    /**
+     * The instance of the {@link SetValue}.
+     */
+    private static final SetValue INSTANCE = new SetValue();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Payload process(MutableEntry<String, Payload> entry, Object... arguments) {
+      Payload value = entry.getValue();
+      entry.setValue((Payload) arguments[0]);
+      return value;
+    }
+  }
+}
@@ -14,28 +14,91 @@
  *  See the License for the specific language governing permissions and
  *  limitations under the License.
  */
-
 package org.jsr107.ri;
 
-import java.util.ArrayList;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A mechanism to manage locks for a collection of objects.
+ * <p>
+ * Objects are mapped onto a fixed table of {@link ReentrantLock}s by their
+ * hash code, so that locking allocates nothing and unrelated objects rarely
+ * share a lock.  As the {@link RIInternalConverter}s preserve the hash code
+ * of a key, a key and its internal representation map to the same lock.
+ * </p>
+ * <p>
+ * As objects may share a lock, a thread that needs to hold the locks of
+ * several objects at once must acquire them using {@link #lockAll(Collection)},
+ * which orders their acquisition to avoid deadlock.
+ * </p>
+ * <p>
+ * The events raised while holding a lock are dispatched after it's released,
+ * yet in the order they were raised.  Before releasing the locks, a thread
+ * reserves a {@link Turn} on them, and once released waits for the turns
+ * reserved before it to complete before dispatching.  A thread that raises
+ * further events while taking its turn (say from a listener) dispatches them
+ * straight away within its turn, whatever their locks, as waiting for the
+ * turns of other threads that may themselves be waiting for this one would
+ * deadlock.
+ * </p>
  *
  * @param <K> the type of the object to be locked
  * @author Yannis Cosmadopoulos
  * @author Greg Luck
  */
 public final class LockManager<K> {
-  private final ConcurrentHashMap<K, ReentrantLock> locks = new ConcurrentHashMap<K, ReentrantLock>();
-  private final LockFactory lockFactory = new LockFactory();
+
+  /**
+   * The table of locks, its length being a power of two.
+   */
+  private final ReentrantLock[] locks;
+
+  /**
+   * The number of turns reserved on each lock, only changed while holding
+   * the lock.
+   */
+  private final long[] reservedTurns;
+
+  /**
+   * The number of turns completed on each lock.
+   */
+  private final AtomicLongArray completedTurns;
+
+  /**
+   * The monitors notified when a turn on each lock completes.
+   */
+  private final Object[] turnMonitors;
+
+  /**
+   * The {@link Turn} being taken by each thread.
+   */
+  private final ThreadLocal<Turn> currentTurn = new ThreadLocal<Turn>();
 
   /**
    * Constructor
+   *
+   * @param stripes the number of locks, rounded up to a power of two
+   * @throws IllegalArgumentException if the number of locks is not positive
    */
-  LockManager() {
+  LockManager(int stripes) {
+    if (stripes <= 0) {
+      throw new IllegalArgumentException("The number of lock stripes must be positive [" + stripes + "]");
+    }
+    int size = Integer.highestOneBit(Math.min(stripes, 1 << 30));
+    if (size < stripes) {
+      size <<= 1;
+    }
+    locks = new ReentrantLock[size];
+    reservedTurns = new long[size];
+    completedTurns = new AtomicLongArray(size);
+    turnMonitors = new Object[size];
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new ReentrantLock();
+      turnMonitors[i] = new Object();
+    }
   }
 
   /**
@@ -44,19 +107,7 @@ public final class LockManager<K> {
    * @param key the key
    */
   void lock(K key) {
-    ReentrantLock lock = lockFactory.getLock();
-
-    while (true) {
-      ReentrantLock oldLock = locks.putIfAbsent(key, lock);
-      if (oldLock == null) {
-        return;
-      }
-      // there was a lock
-      oldLock.lock();
-      // now we have it. Because of possibility that someone had it for remove,
-      // we don't re-use directly
-      lockFactory.release(oldLock);
-    }
+    locks[stripeOf(key)].lock();
   }
 
   /**
@@ -65,41 +116,181 @@ public final class LockManager<K> {
    * @param key the object
    */
   void unLock(K key) {
-    ReentrantLock lock = locks.remove(key);
-    lockFactory.release(lock);
+    locks[stripeOf(key)].unlock();
   }
 
   /**
-   * A factory for {@link ReentrantLock}s.
+   * Lock a collection of objects, acquiring their locks in a consistent
+   * order.
+   *
+   * @param keys the keys
    */
-  private static final class LockFactory {
-    private static final int CAPACITY = 100;
-    private static final ArrayList<ReentrantLock> LOCKS = new ArrayList<ReentrantLock>(CAPACITY);
+  void lockAll(Collection<? extends K> keys) {
+    for (int stripe : stripesOf(keys)) {
+      locks[stripe].lock();
+    }
+  }
 
-    private LockFactory() {
+  /**
+   * Unlock a collection of objects locked using {@link #lockAll(Collection)}.
+   *
+   * @param keys the keys
+   */
+  void unLockAll(Collection<? extends K> keys) {
+    int[] stripes = stripesOf(keys);
+    for (int i = stripes.length - 1; i >= 0; i--) {
+      locks[stripes[i]].unlock();
     }
+  }
+
+  /**
+   * Reserves a turn to dispatch the events of an object, which the calling
+   * thread must have locked.
+   *
+   * @param key the key
+   * @return the {@link Turn} or <code>null</code> if the events may be
+   *         dispatched straight away, as the thread is taking a turn
+   */
+  Turn reserveTurn(K key) {
+    return reserveTurn(new int[]{stripeOf(key)});
+  }
+
+  /**
+   * Reserves a turn to dispatch the events of a collection of objects, which
+   * the calling thread must have locked.
+   *
+   * @param keys the keys
+   * @return the {@link Turn} or <code>null</code> if the events may be
+   *         dispatched straight away, as the thread is taking a turn
+   */
+  Turn reserveTurn(Collection<? extends K> keys) {
+    return reserveTurn(stripesOf(keys));
+  }
 
-    private ReentrantLock getLock() {
-      ReentrantLock qLock = null;
-      synchronized (LOCKS) {
-        if (!LOCKS.isEmpty()) {
-          qLock = LOCKS.remove(0);
+  /**
+   * Waits for the turns reserved before a {@link Turn} to complete.  The
+   * calling thread must not hold any of the locks of the {@link Turn}, other
+   * than reentrantly.
+   *
+   * @param turn the {@link Turn}
+   */
+  void awaitTurn(Turn turn) {
+    for (int i = 0; i < turn.stripes.length; i++) {
+      int stripe = turn.stripes[i];
+      if (completedTurns.get(stripe) != turn.tickets[i]) {
+        boolean isInterrupted = false;
+        synchronized (turnMonitors[stripe]) {
+          while (completedTurns.get(stripe) != turn.tickets[i]) {
+            try {
+              turnMonitors[stripe].wait();
+            } catch (InterruptedException e) {
+              isInterrupted = true;
+            }
+          }
         }
+        if (isInterrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+    currentTurn.set(turn);
+  }
+
+  /**
+   * Completes a {@link Turn}, allowing the next turns on its locks to be
+   * taken.
+   *
+   * @param turn the {@link Turn}
+   */
+  void completeTurn(Turn turn) {
+    currentTurn.remove();
+    for (int stripe : turn.stripes) {
+      completedTurns.incrementAndGet(stripe);
+      synchronized (turnMonitors[stripe]) {
+        turnMonitors[stripe].notifyAll();
       }
+    }
+  }
+
+  /**
+   * Reserves a turn on locks held by the calling thread, unless it's already
+   * taking a turn.
+   *
+   * @param stripes the indexes of the locks
+   * @return the {@link Turn} or <code>null</code> if no turn is needed
+   */
+  private Turn reserveTurn(int[] stripes) {
+    if (currentTurn.get() != null) {
+      return null;
+    }
 
-      ReentrantLock lock = qLock != null ? qLock : new ReentrantLock();
-      lock.lock();
-      return lock;
+    Turn turn = new Turn(stripes);
+    for (int i = 0; i < stripes.length; i++) {
+      turn.tickets[i] = reservedTurns[stripes[i]]++;
     }
+    return turn;
+  }
 
-    private void release(ReentrantLock lock) {
-      lock.unlock();
-      synchronized (LOCKS) {
-        if (LOCKS.size() <= CAPACITY) {
-          LOCKS.add(lock);
-        }
+  /**
+   * Determines the distinct locks of a collection of objects, in the order
+   * they are acquired.
+   *
+   * @param keys the keys
+   * @return the indexes of the locks in ascending order
+   */
+  private int[] stripesOf(Collection<? extends K> keys) {
+    int[] stripes = new int[keys.size()];
+    int count = 0;
+    for (K key : keys) {
+      stripes[count++] = stripeOf(key);
+    }
+    Arrays.sort(stripes, 0, count);
+
+    int distinct = 0;
+    for (int i = 0; i < count; i++) {
+      if (distinct == 0 || stripes[distinct - 1] != stripes[i]) {
+        stripes[distinct++] = stripes[i];
       }
     }
+    return Arrays.copyOf(stripes, distinct);
   }
-}
 
+  /**
+   * Determines the lock of an object.
+   *
+   * @param key the key
+   * @return the index of the lock
+   */
+  private int stripeOf(K key) {
+    int h = key.hashCode();
+    h ^= (h >>> 20) ^ (h >>> 12);
+    h ^= (h >>> 7) ^ (h >>> 4);
+    return h & (locks.length - 1);
+  }
+
+  /**
+   * A reserved turn to dispatch the events raised while holding some locks.
+   */
+  static final class Turn {
+
+    /**
+     * The indexes of the locks.
+     */
+    private final int[] stripes;
+
+    /**
+     * The turn reserved on each of the locks.
+     */
+    private final long[] tickets;
+
+    /**
+     * Constructs a {@link Turn}.
+     *
+     * @param stripes the indexes of the locks
+     */
+    private Turn(int[] stripes) {
+      this.stripes = stripes;
+      this.tickets = new long[stripes.length];
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import javax.cache.Cache;
+import javax.cache.processor.EntryProcessor;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The asynchronous operations of an {@link RICache}, obtained with
+ * <code>cache.unwrap(RIAsyncCache.class)</code>.
+ * <p>
+ * Operations that need the {@link javax.cache.integration.CacheLoader} or
+ * {@link javax.cache.integration.CacheWriter} of the Cache are performed on
+ * the executor of the {@link RICacheManager} (see
+ * {@link RIProperties#EXECUTOR}), so that the calling thread doesn't wait for
+ * the underlying store.  Other operations are performed by the calling thread
+ * and return a future that has already completed.
+ * </p>
+ * <p>
+ * The operations return an {@link RIListenableFuture}, so that an
+ * {@link RIFutureCallback} may handle the outcome without a thread waiting
+ * for it.
+ * </p>
+ * <p>
+ * The arguments are checked, and a closed Cache detected, by the calling
+ * thread.  Failures of an operation are otherwise reported by the future, as
+ * the cause of an {@link java.util.concurrent.ExecutionException}.
+ * </p>
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @see Cache#unwrap(Class)
+ */
+public interface RIAsyncCache<K, V> {
+
+  /**
+   * Asynchronously gets an entry from the Cache.
+   *
+   * @param key the key whose associated value is to be returned
+   * @return a {@link RIListenableFuture} of the value, or of <code>null</code> if there
+   *         is none
+   * @throws NullPointerException  if the key is null
+   * @throws IllegalStateException if the Cache is closed
+   * @see Cache#get(Object)
+   */
+  RIListenableFuture<V> getAsync(K key);
+
+  /**
+   * Asynchronously gets a collection of entries from the Cache.
+   *
+   * @param keys the keys whose associated values are to be returned
+   * @return a {@link RIListenableFuture} of the values, keyed by key
+   * @throws NullPointerException  if the keys are null or contain a null
+   * @throws IllegalStateException if the Cache is closed
+   * @see Cache#getAll(Set)
+   */
+  RIListenableFuture<Map<K, V>> getAllAsync(Set<? extends K> keys);
+
+  /**
+   * Asynchronously associates a value with a key in the Cache.
+   *
+   * @param key   the key with which the value is to be associated
+   * @param value the value to be associated with the key
+   * @return a {@link RIListenableFuture} completing once the value has been put
+   * @throws NullPointerException  if the key or value is null
+   * @throws IllegalStateException if the Cache is closed
+   * @see Cache#put(Object, Object)
+   */
+  RIListenableFuture<Void> putAsync(K key, V value);
+
+  /**
+   * Asynchronously removes the mapping for a key from the Cache.
+   *
+   * @param key the key whose mapping is to be removed
+   * @return a {@link RIListenableFuture} of whether there was a mapping to remove
+   * @throws NullPointerException  if the key is null
+   * @throws IllegalStateException if the Cache is closed
+   * @see Cache#remove(Object)
+   */
+  RIListenableFuture<Boolean> removeAsync(K key);
+
+  /**
+   * Asynchronously invokes an {@link EntryProcessor} against the entry for a
+   * key.
+   *
+   * @param key            the key of the entry to process
+   * @param entryProcessor the {@link EntryProcessor} to invoke
+   * @param arguments      the additional arguments to pass to the
+   *                       {@link EntryProcessor}
+   * @param <T>            the type of the result
+   * @return a {@link RIListenableFuture} of the result of the {@link EntryProcessor}
+   * @throws NullPointerException  if the key or {@link EntryProcessor} is null
+   * @throws IllegalStateException if the Cache is closed
+   * @see Cache#invoke(Object, EntryProcessor, Object...)
+   */
+  <T> RIListenableFuture<T> invokeAsync(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments);
+}
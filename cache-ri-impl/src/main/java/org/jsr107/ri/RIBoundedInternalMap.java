@@ -0,0 +1,1064 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded implementation of a {@link RIInternalMap} that evicts entries
+ * using the Window TinyLFU policy.
+ * <p>
+ * Each entry has a weight determined by an {@link RIWeigher}, and entries are
+ * evicted once the total weight exceeds the maximum.  Bounding the number of
+ * entries is the special case where every entry weighs one.
+ * </p>
+ * <p>
+ * New entries are admitted into a small LRU "window".  Entries leaving the
+ * window become candidates for the main space, a segmented LRU made of a
+ * "probation" and a "protected" segment.  When the map is full a candidate
+ * only replaces the probation victim when a {@link RIFrequencySketch} estimates
+ * that it has been used more often, which keeps one-hit wonders and scans
+ * from flushing the frequently used entries.
+ * </p>
+ * <p>
+ * Entries are held in a {@link ConcurrentHashMap} and are read and written
+ * without waiting for the eviction policy, which is guarded by a lock.
+ * Reads are recorded in striped, lossy buffers that are drained into the
+ * policy by whichever thread acquires the lock once a buffer fills.  Writes
+ * apply their policy changes straight away when the lock is free, and are
+ * otherwise queued for the thread holding the lock to apply before releasing
+ * it.  A writer only waits for the lock should too many changes be queued.
+ * An entry is only changed while holding its own monitor, which eviction
+ * also holds, so that an entry is never evicted with a value other than its
+ * last.
+ * </p>
+ *
+ * @param <K> the type of keys stored
+ * @param <V> the type of values stored
+ */
+class RIBoundedInternalMap<K, V> implements RIInternalMap<K, V> {
+
+  /**
+   * The percentage of the maximum weight used for the admission window.
+   */
+  private static final double WINDOW_PERCENTAGE = 0.01d;
+
+  /**
+   * The percentage of the main space used for the protected segment.
+   */
+  private static final double PROTECTED_PERCENTAGE = 0.80d;
+
+  /**
+   * The frequency a candidate must exceed before it may be admitted at random
+   * when it is no more popular than the victim.  This defends against an
+   * attacker flooding the sketch with collisions of the victim.
+   */
+  private static final int WARM_FREQUENCY = 5;
+
+  /**
+   * The number of read buffers, being a power of two of at least the number
+   * of processors.
+   */
+  private static final int READ_BUFFERS =
+      Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1;
+
+  /**
+   * The number of reads each read buffer holds, being a power of two.
+   */
+  private static final int READ_BUFFER_SIZE = 16;
+
+  /**
+   * The number of queued writes beyond which writers wait for the lock to
+   * apply them.
+   */
+  private static final int MAXIMUM_PENDING_WRITES = 1024;
+
+  /**
+   * The {@link RIWeigher} for maps bounded by the number of entries.
+   */
+  private static final RIWeigher<Object, Object> SINGLETON_WEIGHER = new RIWeigher<Object, Object>() {
+    @Override
+    public int weigh(Object key, Object value) {
+      return 1;
+    }
+  };
+
+  /**
+   * The map containing the entries.
+   */
+  private final ConcurrentHashMap<K, Node<K, V>> internalMap = new ConcurrentHashMap<K, Node<K, V>>();
+
+  /**
+   * The lock guarding the eviction policy.
+   */
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  /**
+   * The buffers of reads yet to be recorded by the policy.
+   */
+  private final ReadBuffer<K, V>[] readBuffers;
+
+  /**
+   * The writes yet to be applied to the policy.
+   */
+  private final ConcurrentLinkedQueue<Write<K, V>> pendingWrites = new ConcurrentLinkedQueue<Write<K, V>>();
+
+  /**
+   * The number of writes yet to be applied to the policy.
+   */
+  private final AtomicInteger pendingWriteCount = new AtomicInteger();
+
+  /**
+   * The popularity of keys, used to decide on admission.  It's grown as the
+   * map is filled, rather than being sized for the maximum up front.
+   */
+  private final RIFrequencySketch sketch;
+
+  /**
+   * The admission window, in LRU order.
+   */
+  private final AccessOrderQueue<K, V> window = new AccessOrderQueue<K, V>();
+
+  /**
+   * The probation segment of the main space, in LRU order.
+   */
+  private final AccessOrderQueue<K, V> probation = new AccessOrderQueue<K, V>();
+
+  /**
+   * The protected segment of the main space, in LRU order.
+   */
+  private final AccessOrderQueue<K, V> protectedSegment = new AccessOrderQueue<K, V>();
+
+  /**
+   * The maximum total weight of the entries.
+   */
+  private final long maximumWeight;
+
+  /**
+   * The maximum weight of the entries in the admission window.
+   */
+  private final long maximumWindowWeight;
+
+  /**
+   * The maximum weight of the entries in the protected segment.
+   */
+  private final long maximumProtectedWeight;
+
+  /**
+   * The {@link RIWeigher} determining the weight of entries.
+   */
+  private final RIWeigher<? super K, ? super V> weigher;
+
+  /**
+   * The {@link RIEvictionListener} to notify of evictions.
+   */
+  private final RIEvictionListener<K, V> evictionListener;
+
+  /**
+   * Constructs an {@link RIBoundedInternalMap} bounded by the number of entries.
+   *
+   * @param maximumSize      the maximum number of entries
+   * @param evictionListener the {@link RIEvictionListener} to notify of evictions
+   */
+  RIBoundedInternalMap(long maximumSize, RIEvictionListener<K, V> evictionListener) {
+    this(maximumSize, SINGLETON_WEIGHER, evictionListener);
+  }
+
+  /**
+   * Constructs an {@link RIBoundedInternalMap} bounded by the weight of entries.
+   *
+   * @param maximumWeight    the maximum total weight of the entries
+   * @param weigher          the {@link RIWeigher} for entries
+   * @param evictionListener the {@link RIEvictionListener} to notify of evictions
+   */
+  RIBoundedInternalMap(long maximumWeight, RIWeigher<? super K, ? super V> weigher,
+                       RIEvictionListener<K, V> evictionListener) {
+    if (maximumWeight <= 0) {
+      throw new IllegalArgumentException("maximumWeight must be positive");
+    }
+    if (weigher == null) {
+      throw new NullPointerException("weigher can't be null");
+    }
+    this.maximumWeight = maximumWeight;
+    this.maximumWindowWeight = Math.max(1, (long) (maximumWeight * WINDOW_PERCENTAGE));
+    this.maximumProtectedWeight = (long) ((maximumWeight - maximumWindowWeight) * PROTECTED_PERCENTAGE);
+    this.weigher = weigher;
+    this.evictionListener = evictionListener;
+    this.sketch = new RIFrequencySketch(0);
+
+    //generic arrays can't be created, but the buffers only ever hold nodes of this map
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ReadBuffer<K, V>[] readBuffers = new ReadBuffer[READ_BUFFERS];
+    this.readBuffers = readBuffers;
+    for (int i = 0; i < READ_BUFFERS; i++) {
+      readBuffers[i] = new ReadBuffer<K, V>();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public V get(Object key) {
+    //noinspection SuspiciousMethodCalls
+    Node<K, V> node = internalMap.get(key);
+    if (node == null) {
+      return null;
+    }
+
+    if (!readBufferOf(Thread.currentThread()).offer(node) && evictionLock.tryLock()) {
+      //the buffer is full, so record the reads (dropping this one when another thread is)
+      try {
+        applyPendingChanges();
+      } finally {
+        unlockPolicy();
+      }
+    }
+    return node.value;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean containsKey(Object key) {
+    //noinspection SuspiciousMethodCalls
+    return internalMap.containsKey(key);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void put(K key, V value) {
+    getAndPut(key, value);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public V getAndPut(K key, V value) {
+    int weight = weigh(key, value);
+    Node<K, V> newNode = null;
+    while (true) {
+      Node<K, V> node = internalMap.get(key);
+      if (node == null) {
+        if (newNode == null) {
+          newNode = new Node<K, V>(key, value, weight);
+        }
+        if (internalMap.putIfAbsent(key, newNode) == null) {
+          applyWrite(new Write<K, V>(newNode, Write.ADD));
+          return null;
+        }
+      } else {
+        V oldValue;
+        synchronized (node) {
+          if (node.isRetired) {
+            //the entry was removed while being replaced, so add another
+            continue;
+          }
+          oldValue = node.value;
+          node.value = value;
+          node.latestWeight = weight;
+        }
+        applyWrite(new Write<K, V>(node, Write.UPDATE));
+        return oldValue;
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public V remove(Object key) {
+    //noinspection SuspiciousMethodCalls
+    Node<K, V> node = internalMap.get(key);
+    if (node == null) {
+      return null;
+    }
+    synchronized (node) {
+      if (node.isRetired) {
+        return null;
+      }
+      retire(node);
+    }
+    applyWrite(new Write<K, V>(node, Write.REMOVE));
+    return node.value;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void clear() {
+    evictionLock.lock();
+    try {
+      applyPendingChanges();
+      for (Node<K, V> node : internalMap.values()) {
+        synchronized (node) {
+          if (!node.isRetired) {
+            retire(node);
+          }
+        }
+      }
+      window.clear();
+      probation.clear();
+      protectedSegment.clear();
+      sketch.clear();
+    } finally {
+      unlockPolicy();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int size() {
+    return internalMap.size();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Iterator<Map.Entry<K, V>> iterator() {
+    return new EntryIterator(internalMap.values().iterator());
+  }
+
+  /**
+   * Applies a write to the policy, straight away when the lock is free and
+   * otherwise by queueing it for the thread holding the lock.  Should too
+   * many writes be queued the calling thread waits for the lock.
+   *
+   * @param write the {@link Write}
+   */
+  private void applyWrite(Write<K, V> write) {
+    if (evictionLock.tryLock()) {
+      try {
+        applyPendingChanges();
+        write.apply(this);
+        evictEntries();
+      } finally {
+        unlockPolicy();
+      }
+      return;
+    }
+
+    pendingWrites.add(write);
+    if (pendingWriteCount.incrementAndGet() > MAXIMUM_PENDING_WRITES) {
+      evictionLock.lock();
+    } else if (!evictionLock.tryLock()) {
+      //the thread holding the lock applies the write before releasing it
+      return;
+    }
+    try {
+      applyPendingChanges();
+      evictEntries();
+    } finally {
+      unlockPolicy();
+    }
+  }
+
+  /**
+   * Releases the lock guarding the policy, applying the writes queued while
+   * releasing it should the lock be free again.
+   */
+  private void unlockPolicy() {
+    while (true) {
+      evictionLock.unlock();
+      if (pendingWrites.isEmpty() || !evictionLock.tryLock()) {
+        return;
+      }
+      applyPendingChanges();
+      evictEntries();
+    }
+  }
+
+  /**
+   * Records the buffered reads and applies the queued writes to the policy.
+   * Must be called while holding the eviction lock.
+   */
+  private void applyPendingChanges() {
+    for (ReadBuffer<K, V> buffer : readBuffers) {
+      buffer.drainTo(this);
+    }
+    Write<K, V> write;
+    while ((write = pendingWrites.poll()) != null) {
+      pendingWriteCount.decrementAndGet();
+      write.apply(this);
+    }
+  }
+
+  /**
+   * Adds a new entry to the policy.  Must be called while holding the
+   * eviction lock.
+   *
+   * @param node the entry
+   */
+  private void onAdd(Node<K, V> node) {
+    if (node.isRetired || node.queue != Node.NONE) {
+      //the entry was removed before being added
+      return;
+    }
+    node.weight = node.latestWeight;
+    sketch.ensureCapacity(internalMap.size());
+    sketch.increment(node.key);
+    window.add(node, Node.WINDOW);
+  }
+
+  /**
+   * Updates the weight of a replaced entry and records the access.  Must be
+   * called while holding the eviction lock.
+   *
+   * @param node the replaced entry
+   */
+  private void onUpdate(Node<K, V> node) {
+    reweigh(node, node.latestWeight);
+    onAccess(node);
+  }
+
+  /**
+   * Records an access of an entry, promoting it within the policy.  Must be
+   * called while holding the eviction lock.
+   *
+   * @param node the accessed entry
+   */
+  private void onAccess(Node<K, V> node) {
+    sketch.increment(node.key);
+
+    switch (node.queue) {
+      case Node.WINDOW:
+        window.moveToBack(node);
+        break;
+
+      case Node.PROBATION:
+        probation.remove(node);
+        protectedSegment.add(node, Node.PROTECTED);
+
+        //demote the least recently used protected entries back to probation
+        while (protectedSegment.weight() > maximumProtectedWeight) {
+          Node<K, V> demoted = protectedSegment.peekFirst();
+          protectedSegment.remove(demoted);
+          probation.add(demoted, Node.PROBATION);
+        }
+        break;
+
+      case Node.PROTECTED:
+        protectedSegment.moveToBack(node);
+        break;
+
+      default:
+        //the entry has already been removed
+        break;
+    }
+  }
+
+  /**
+   * Evicts entries until the map is within its maximum weight, notifying the
+   * {@link RIEvictionListener} of each before it is removed.  Must be called
+   * while holding the eviction lock.
+   */
+  private void evictEntries() {
+    //entries overflowing the window become candidates on probation
+    Node<K, V> candidate = null;
+    while (window.weight() > maximumWindowWeight) {
+      Node<K, V> node = window.peekFirst();
+      window.remove(node);
+      probation.add(node, Node.PROBATION);
+      if (candidate == null) {
+        candidate = node;
+      }
+    }
+
+    while (window.weight() + probation.weight() + protectedSegment.weight() > maximumWeight) {
+      Node<K, V> victim = probation.peekFirst();
+      if (victim == null) {
+        victim = protectedSegment.peekFirst();
+      }
+      if (victim == null) {
+        victim = window.peekFirst();
+      }
+      if (victim == null) {
+        break;
+      }
+
+      Node<K, V> evict;
+      if (candidate == null) {
+        evict = victim;
+      } else if (victim == candidate) {
+        evict = victim;
+        candidate = candidate.next;
+      } else if (admit(candidate.key, victim.key)) {
+        evict = victim;
+      } else {
+        evict = candidate;
+        candidate = candidate.next;
+      }
+
+      synchronized (evict) {
+        if (!evict.isRetired) {
+          if (evictionListener != null) {
+            evictionListener.onEviction(evict.key, evict.value);
+          }
+          retire(evict);
+        }
+      }
+      unlink(evict);
+    }
+  }
+
+  /**
+   * Determines the read buffer used by a thread, spreading the threads over
+   * the buffers by their identity.
+   *
+   * @param thread the {@link Thread}
+   * @return the {@link ReadBuffer}
+   */
+  private ReadBuffer<K, V> readBufferOf(Thread thread) {
+    int hash = (int) ((thread.getId() * 0x9E3779B97F4A7C15L) >>> 32);
+    return readBuffers[hash & (READ_BUFFERS - 1)];
+  }
+
+  /**
+   * Removes an entry from the map, so that it may no longer be changed.  Must
+   * be called while holding the monitor of the entry.
+   *
+   * @param node the entry
+   */
+  private void retire(Node<K, V> node) {
+    node.isRetired = true;
+    internalMap.remove(node.key, node);
+  }
+
+  /**
+   * Determines if a candidate should replace a victim in the main space.
+   *
+   * @param candidateKey the key of the candidate
+   * @param victimKey    the key of the victim
+   * @return true if the victim should be evicted
+   */
+  private boolean admit(K candidateKey, K victimKey) {
+    int candidateFrequency = sketch.frequency(candidateKey);
+    int victimFrequency = sketch.frequency(victimKey);
+    if (candidateFrequency > victimFrequency) {
+      return true;
+    } else if (candidateFrequency <= WARM_FREQUENCY) {
+      return false;
+    }
+    return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+  }
+
+  /**
+   * Determines the weight of an entry.
+   *
+   * @param key   the key
+   * @param value the value
+   * @return the weight
+   * @throws IllegalArgumentException if the weight is negative
+   */
+  private int weigh(K key, V value) {
+    int weight = weigher.weigh(key, value);
+    if (weight < 0) {
+      throw new IllegalArgumentException("The weight of an entry can't be negative [" + weight + "]");
+    }
+    return weight;
+  }
+
+  /**
+   * Changes the weight of an entry, adjusting the weight of its segment.  Must
+   * be called while holding the eviction lock.
+   *
+   * @param node   the entry
+   * @param weight the new weight
+   */
+  private void reweigh(Node<K, V> node, int weight) {
+    switch (node.queue) {
+      case Node.WINDOW:
+        window.reweigh(node, weight);
+        break;
+      case Node.PROBATION:
+        probation.reweigh(node, weight);
+        break;
+      case Node.PROTECTED:
+        protectedSegment.reweigh(node, weight);
+        break;
+      default:
+        node.weight = weight;
+        break;
+    }
+  }
+
+  /**
+   * Removes an entry from the segment it belongs to.  Must be called while
+   * holding the eviction lock.
+   *
+   * @param node the entry
+   */
+  private void unlink(Node<K, V> node) {
+    switch (node.queue) {
+      case Node.WINDOW:
+        window.remove(node);
+        break;
+      case Node.PROBATION:
+        probation.remove(node);
+        break;
+      case Node.PROTECTED:
+        protectedSegment.remove(node);
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return getClass().getName() + "{size=" + size() + ", maximumWeight=" + maximumWeight + "}";
+  }
+
+  /**
+   * An {@link Iterator} over the entries that removes through the policy.
+   */
+  private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+    /**
+     * The {@link Iterator} over the entries of the internal map.
+     */
+    private final Iterator<Node<K, V>> iterator;
+
+    /**
+     * The last returned entry (so we can allow for removal).
+     */
+    private Node<K, V> lastNode;
+
+    /**
+     * Constructs an {@link EntryIterator}.
+     *
+     * @param iterator the {@link Iterator} over the entries of the internal map
+     */
+    private EntryIterator(Iterator<Node<K, V>> iterator) {
+      this.iterator = iterator;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+      return iterator.hasNext();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map.Entry<K, V> next() {
+      lastNode = iterator.next();
+      return lastNode;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove() {
+      if (lastNode == null) {
+        throw new IllegalStateException("Must progress to the next entry to remove");
+      }
+      RIBoundedInternalMap.this.remove(lastNode.key);
+      lastNode = null;
+    }
+  }
+
+  /**
+   * An entry of the map, linked into one of the segments of the policy.
+   *
+   * @param <K> the type of key
+   * @param <V> the type of value
+   */
+  private static final class Node<K, V> implements Map.Entry<K, V> {
+
+    /**
+     * The entry is not in any segment (it has been removed).
+     */
+    static final int NONE = 0;
+
+    /**
+     * The entry is in the admission window.
+     */
+    static final int WINDOW = 1;
+
+    /**
+     * The entry is in the probation segment.
+     */
+    static final int PROBATION = 2;
+
+    /**
+     * The entry is in the protected segment.
+     */
+    static final int PROTECTED = 3;
+
+    /**
+     * The key.
+     */
+    private final K key;
+
+    /**
+     * The value.
+     */
+    private volatile V value;
+
+    /**
+     * The weight of the entry as known to the policy.
+     */
+    private int weight;
+
+    /**
+     * The weight of the latest value, which the policy catches up with.
+     */
+    private volatile int latestWeight;
+
+    /**
+     * Whether the entry has been removed from the map, after which it may no
+     * longer be changed.
+     */
+    private volatile boolean isRetired;
+
+    /**
+     * The segment holding the entry.
+     */
+    private int queue;
+
+    /**
+     * The previous (less recently used) entry in the segment.
+     */
+    private Node<K, V> previous;
+
+    /**
+     * The next (more recently used) entry in the segment.
+     */
+    private Node<K, V> next;
+
+    /**
+     * Constructs a {@link Node}.
+     *
+     * @param key    the key
+     * @param value  the value
+     * @param weight the weight
+     */
+    Node(K key, V value, int weight) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+      this.latestWeight = weight;
+      this.queue = NONE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public K getKey() {
+      return key;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V getValue() {
+      return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V setValue(V value) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * A change to the map yet to be applied to the policy.
+   *
+   * @param <K> the type of key
+   * @param <V> the type of value
+   */
+  private static final class Write<K, V> {
+
+    /**
+     * An entry was added.
+     */
+    static final int ADD = 0;
+
+    /**
+     * The value of an entry was replaced.
+     */
+    static final int UPDATE = 1;
+
+    /**
+     * An entry was removed.
+     */
+    static final int REMOVE = 2;
+
+    /**
+     * The entry written.
+     */
+    private final Node<K, V> node;
+
+    /**
+     * The kind of write.
+     */
+    private final int type;
+
+    /**
+     * Constructs a {@link Write}.
+     *
+     * @param node the entry written
+     * @param type the kind of write
+     */
+    Write(Node<K, V> node, int type) {
+      this.node = node;
+      this.type = type;
+    }
+
+    /**
+     * Applies the write to the policy of a map.  Must be called while holding
+     * the eviction lock.
+     *
+     * @param map the {@link RIBoundedInternalMap}
+     */
+    void apply(RIBoundedInternalMap<K, V> map) {
+      switch (type) {
+        case ADD:
+          map.onAdd(node);
+          break;
+        case UPDATE:
+          map.onUpdate(node);
+          break;
+        default:
+          map.unlink(node);
+          break;
+      }
+    }
+  }
+
+  /**
+   * A bounded buffer of reads yet to be recorded by the policy.  Reads are
+   * dropped rather than waited for when the buffer is full or another thread
+   * is adding to it, as the policy only needs a sample of them.
+   *
+   * @param <K> the type of key
+   * @param <V> the type of value
+   */
+  private static final class ReadBuffer<K, V> {
+
+    /**
+     * The slots holding the reads, reused in turn.
+     */
+    private final AtomicReferenceArray<Node<K, V>> slots =
+        new AtomicReferenceArray<Node<K, V>>(READ_BUFFER_SIZE);
+
+    /**
+     * The number of reads added.
+     */
+    private final AtomicLong writeCount = new AtomicLong();
+
+    /**
+     * The number of reads drained, only changed while holding the eviction lock.
+     */
+    private volatile long readCount;
+
+    /**
+     * Adds a read, unless the buffer is full.
+     *
+     * @param node the entry read
+     * @return false if the buffer is full and should be drained
+     */
+    boolean offer(Node<K, V> node) {
+      long writes = writeCount.get();
+      if (writes - readCount >= READ_BUFFER_SIZE) {
+        return false;
+      }
+      if (writeCount.compareAndSet(writes, writes + 1)) {
+        slots.lazySet((int) writes & (READ_BUFFER_SIZE - 1), node);
+      }
+      return true;
+    }
+
+    /**
+     * Records the reads in the policy of a map.  Must be called while holding
+     * the eviction lock.
+     *
+     * @param map the {@link RIBoundedInternalMap}
+     */
+    void drainTo(RIBoundedInternalMap<K, V> map) {
+      long reads = readCount;
+      long writes = writeCount.get();
+      while (reads < writes) {
+        int index = (int) reads & (READ_BUFFER_SIZE - 1);
+        Node<K, V> node = slots.get(index);
+        if (node == null) {
+          //the read is yet to be published
+          break;
+        }
+        slots.lazySet(index, null);
+        map.onAccess(node);
+        reads++;
+      }
+      readCount = reads;
+    }
+  }
+
+  /**
+   * A doubly-linked list of {@link Node}s, from least to most recently used.
+   *
+   * @param <K> the type of key
+   * @param <V> the type of value
+   */
+  private static final class AccessOrderQueue<K, V> {
+
+    /**
+     * The least recently used entry.
+     */
+    private Node<K, V> first;
+
+    /**
+     * The most recently used entry.
+     */
+    private Node<K, V> last;
+
+    /**
+     * The total weight of the entries.
+     */
+    private long weight;
+
+    /**
+     * Gets the least recently used entry.
+     *
+     * @return the entry or <code>null</code> if the queue is empty
+     */
+    Node<K, V> peekFirst() {
+      return first;
+    }
+
+    /**
+     * Gets the total weight of the entries.
+     *
+     * @return the total weight
+     */
+    long weight() {
+      return weight;
+    }
+
+    /**
+     * Adds an entry as the most recently used.
+     *
+     * @param node  the entry
+     * @param queue the identity of this queue, recorded on the entry
+     */
+    void add(Node<K, V> node, int queue) {
+      node.queue = queue;
+      node.previous = last;
+      node.next = null;
+      if (last == null) {
+        first = node;
+      } else {
+        last.next = node;
+      }
+      last = node;
+      weight += node.weight;
+    }
+
+    /**
+     * Removes an entry.
+     *
+     * @param node the entry
+     */
+    void remove(Node<K, V> node) {
+      if (node.previous == null) {
+        first = node.next;
+      } else {
+        node.previous.next = node.next;
+      }
+      if (node.next == null) {
+        last = node.previous;
+      } else {
+        node.next.previous = node.previous;
+      }
+      node.previous = null;
+      node.next = null;
+      node.queue = Node.NONE;
+      weight -= node.weight;
+    }
+
+    /**
+     * Changes the weight of an entry in the queue.
+     *
+     * @param node      the entry
+     * @param newWeight the new weight of the entry
+     */
+    void reweigh(Node<K, V> node, int newWeight) {
+      weight += newWeight - node.weight;
+      node.weight = newWeight;
+    }
+
+    /**
+     * Makes an entry the most recently used.
+     *
+     * @param node the entry
+     */
+    void moveToBack(Node<K, V> node) {
+      if (node != last) {
+        int queue = node.queue;
+        remove(node);
+        add(node, queue);
+      }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    void clear() {
+      Node<K, V> node = first;
+      while (node != null) {
+        Node<K, V> next = node.next;
+        node.previous = null;
+        node.next = null;
+        node.queue = Node.NONE;
+        node = next;
+      }
+      first = null;
+      last = null;
+      weight = 0;
+    }
+  }
+}
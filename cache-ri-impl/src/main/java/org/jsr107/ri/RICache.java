@@ -20,7 +20,10 @@ package org.jsr107.ri;
 import org.jsr107.ri.event.RICacheEntryEvent;
 import org.jsr107.ri.event.RICacheEntryListenerRegistration;
 import org.jsr107.ri.event.RICacheEventDispatcher;
+import org.jsr107.ri.management.CacheHotKeysMXBean;
+import org.jsr107.ri.management.CacheLatencyMXBean;
 import org.jsr107.ri.management.MBeanServerRegistrationUtility;
+import org.jsr107.ri.management.RICacheHotKeysMXBean;
 import org.jsr107.ri.management.RICacheMXBean;
 import org.jsr107.ri.management.RICacheStatisticsMXBean;
 import org.jsr107.ri.processor.EntryProcessorEntry;
@@ -36,10 +39,12 @@ import javax.cache.configuration.Configuration;
 import javax.cache.configuration.MutableConfiguration;
 import javax.cache.event.CacheEntryCreatedListener;
 import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryListener;
 import javax.cache.event.CacheEntryRemovedListener;
 import javax.cache.event.CacheEntryUpdatedListener;
 import javax.cache.event.EventType;
 import javax.cache.expiry.Duration;
+import javax.cache.expiry.EternalExpiryPolicy;
 import javax.cache.expiry.ExpiryPolicy;
 import javax.cache.integration.CacheLoader;
 import javax.cache.integration.CacheLoaderException;
@@ -52,18 +57,32 @@ import javax.cache.processor.EntryProcessor;
 import javax.cache.processor.EntryProcessorException;
 import javax.cache.processor.EntryProcessorResult;
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -72,17 +91,24 @@ import static javax.cache.event.EventType.EXPIRED;
 import static javax.cache.event.EventType.REMOVED;
 import static javax.cache.event.EventType.UPDATED;
 import static org.jsr107.ri.management.MBeanServerRegistrationUtility.ObjectNameType.Configuration;
+import static org.jsr107.ri.management.MBeanServerRegistrationUtility.ObjectNameType.HotKeys;
+import static org.jsr107.ri.management.MBeanServerRegistrationUtility.ObjectNameType.Latency;
 import static org.jsr107.ri.management.MBeanServerRegistrationUtility.ObjectNameType.Statistics;
 
 /**
  * The reference implementation for JSR107.
  * <p>
  * This is meant to act as a proof of concept for the API. It is not threadsafe or
- * high performance and does limit
- * the size of caches or provide eviction. It therefore is not suitable for use in
+ * high performance and does not limit
+ * the size of caches or provide eviction unless a maximum size is configured
+ * using {@link RIProperties}. It therefore is not suitable for use in
  * production. Please use a
  * production implementation of the API.
  * </p>
+ * <p>
+ * Asynchronous operations are provided by unwrapping the Cache to an
+ * {@link RIAsyncCache}.
+ * </p>
  *
  * @param <K> the type of keys maintained by this map
  * @param <V> the type of mapped values*
@@ -90,7 +116,74 @@ import static org.jsr107.ri.management.MBeanServerRegistrationUtility.ObjectName
  * @author Greg Luck
  * @author Yannis Cosmadopoulos
  */
-public final class RICache<K, V> implements Cache<K, V> {
+public final class RICache<K, V> implements Cache<K, V>, RIAsyncCache<K, V> {
+
+  /**
+   * The default interval in milliseconds at which expired entries are
+   * removed.
+   *
+   * @see RIProperties#EXPIRY_INTERVAL
+   */
+  private static final long DEFAULT_EXPIRY_INTERVAL = 1000;
+
+  /**
+   * The default number of locks striping the entries of a cache.
+   *
+   * @see RIProperties#LOCK_STRIPES
+   */
+  private static final int DEFAULT_LOCK_STRIPES = 16 * Runtime.getRuntime().availableProcessors();
+
+  /**
+   * The default number of batches of events that may be queued for a
+   * listener that isn't synchronous.
+   *
+   * @see RIProperties#LISTENER_QUEUE_SIZE
+   */
+  private static final int DEFAULT_LISTENER_QUEUE_SIZE = 1024;
+
+  /**
+   * The largest number of keys expired together, with their locks held while
+   * their expiry events are dispatched.
+   */
+  private static final int EXPIRY_BATCH_SIZE = 64;
+
+  /**
+   * The default maximum number of operations a write-behind
+   * {@link CacheWriter} performs together.
+   *
+   * @see RIProperties#WRITE_BEHIND_BATCH_SIZE
+   */
+  private static final int DEFAULT_WRITE_BEHIND_BATCH_SIZE = 100;
+
+  /**
+   * The default number of times a write-behind {@link CacheWriter} retries a
+   * failed operation.
+   *
+   * @see RIProperties#WRITE_BEHIND_RETRIES
+   */
+  private static final int DEFAULT_WRITE_BEHIND_RETRIES = 3;
+
+  /**
+   * The default maximum number of operations queued by a write-behind
+   * {@link CacheWriter}.
+   *
+   * @see RIProperties#WRITE_BEHIND_QUEUE_SIZE
+   */
+  private static final int DEFAULT_WRITE_BEHIND_QUEUE_SIZE = 10000;
+
+  /**
+   * The default number of accesses of which one is sampled when tracking hot
+   * keys.
+   *
+   * @see RIProperties#HOT_KEYS_SAMPLE_RATE
+   */
+  private static final int DEFAULT_HOT_KEYS_SAMPLE_RATE = 16;
+
+  /**
+   * The time in seconds that closing the Cache waits for its asynchronous
+   * background work to complete.
+   */
+  private static final long CLOSE_TIMEOUT = 10;
 
   /**
    * The name of the {@link Cache} as used with in the scope of the
@@ -139,6 +232,18 @@ public final class RICache<K, V> implements Cache<K, V> {
    */
   private final ExpiryPolicy expiryPolicy;
 
+  /**
+   * The {@link RITimerWheel} scheduling the removal of expired entries or
+   * <code>null</code> if entries only expire when accessed.
+   */
+  private final RITimerWheel expiryWheel;
+
+  /**
+   * The periodic task removing expired entries or <code>null</code> if
+   * entries only expire when accessed.
+   */
+  private final ScheduledFuture<?> expiryTask;
+
   /**
    * The {@link org.jsr107.ri.event.RICacheEntryListenerRegistration}s for the
    * {@link Cache}.
@@ -146,6 +251,32 @@ public final class RICache<K, V> implements Cache<K, V> {
   private final CopyOnWriteArrayList<RICacheEntryListenerRegistration<K,
       V>> listenerRegistrations;
 
+  /**
+   * The mask of the classes of {@link CacheEntryListener} implemented by the
+   * registered listeners, so that events no listener would receive are not
+   * raised.
+   *
+   * @see RICacheEventDispatcher#getListenerMask(Iterable)
+   */
+  private volatile int listenerMask;
+
+  /**
+   * The mask of the classes of {@link CacheEntryListener} for which events
+   * should supply the old values of entries, so that old values no listener
+   * requires are not deserialized.
+   *
+   * @see RICacheEventDispatcher#getOldValueMask(Iterable)
+   */
+  private volatile int oldValueMask;
+
+  /**
+   * The {@link RICacheEventDispatcher} of each thread that may be reused, so
+   * that operations need not allocate one.  A nested operation, such as one
+   * made by a listener, finds none to reuse and allocates its own.
+   */
+  private final ThreadLocal<RICacheEventDispatcher<K, V>> spareDispatcher =
+      new ThreadLocal<RICacheEventDispatcher<K, V>>();
+
   /**
    * The open/closed state of the Cache.
    */
@@ -154,16 +285,78 @@ public final class RICache<K, V> implements Cache<K, V> {
   private final RICacheMXBean cacheMXBean;
   private final RICacheStatisticsMXBean statistics;
 
+  /**
+   * The management bean tracking the most often accessed keys, or
+   * <code>null</code> when hot keys are not tracked.
+   *
+   * @see RIProperties#HOT_KEYS
+   */
+  private final RICacheHotKeysMXBean hotKeys;
+
   /**
    * A {@link LockManager} to control concurrent access to cache entries.
    */
-  private final LockManager<K> lockManager = new LockManager<K>();
+  private final LockManager<K> lockManager;
+
+  /**
+   * The {@link RIClock} providing the times used to timestamp and expire
+   * entries and to measure the durations of operations.
+   */
+  private final RIClock clock;
+
+  /**
+   * The {@link ExecutorService} of the {@link RICacheManager} performing the
+   * asynchronous work of the Cache, resolved once so that submitting work
+   * doesn't contend for the {@link RICacheManager}.
+   */
+  private final ExecutorService executor;
+
+  /**
+   * The loads of the keys that are being read-through by {@link #get},
+   * keyed by internal key, so that concurrent misses share a load.  Entries
+   * are only added while holding the lock for the key.
+   */
+  private final ConcurrentHashMap<Object, InFlightLoad> loads = new ConcurrentHashMap<Object, InFlightLoad>();
+
+  /**
+   * The internal keys of the entries whose refresh has been submitted to the
+   * executor but not yet started.  A refresh is only registered as an
+   * {@link InFlightLoad} once it starts, so that a miss never waits for a
+   * task that is still queued (possibly behind the thread that missed).
+   */
+  private final ConcurrentHashMap<Object, Boolean> refreshes = new ConcurrentHashMap<Object, Boolean>();
+
+  /**
+   * The fraction of the lifetime of an entry after which reading it reloads
+   * it in the background, or zero to never refresh entries.
+   *
+   * @see RIProperties#REFRESH_AHEAD_FACTOR
+   */
+  private final double refreshAheadFactor;
+
+  /**
+   * The number of keys of a batch of {@link #invokeAll} processed in
+   * parallel, or zero to process the keys one at a time.
+   *
+   * @see RIProperties#INVOKE_ALL_BATCH_SIZE
+   */
+  private final int invokeAllBatchSize;
+
+  /**
+   * The maximum number of keys loaded together by {@link #getAll}, or zero to
+   * load all of the missing keys together.
+   *
+   * @see RIProperties#LOADER_BATCH_SIZE
+   */
+  private final int loaderBatchSize;
 
   /**
-   * An {@link ExecutorService} for the purposes of performing asynchronous
-   * background work.
+   * The asynchronous background work submitted to the {@link RICacheManager}
+   * executor that has yet to complete, so that closing the Cache can wait for
+   * it.
    */
-  private final ExecutorService executorService = Executors.newFixedThreadPool(1);
+  private final Set<Future<?>> pendingTasks =
+      Collections.newSetFromMap(new ConcurrentHashMap<Future<?>, Boolean>());
 
 
   /**
@@ -209,17 +402,52 @@ public final class RICache<K, V> implements Cache<K, V> {
     if (this.configuration.getCacheWriterFactory() != null) {
       cacheWriter = (CacheWriter<K, V>) this.configuration.getCacheWriterFactory().create();
     }
+    RISerializer serializer = this.configuration.isStoreByValue() ?
+        createSerializer(cacheManager.getProperties(), classLoader) : null;
+    RIImmutableTypes immutableTypes = this.configuration.isStoreByValue() ?
+        createImmutableTypes(cacheManager.getProperties()) : null;
+
     keyConverter = this.configuration.isStoreByValue() ?
-        new RISerializingInternalConverter<K>(classLoader) :
+        new RISerializingInternalConverter<K>(classLoader, serializer, immutableTypes) :
         new RIReferenceInternalConverter<K>();
 
     valueConverter = this.configuration.isStoreByValue() ?
-        new RISerializingInternalConverter<V>(classLoader) :
+        new RISerializingInternalConverter<V>(classLoader, serializer, immutableTypes) :
         new RIReferenceInternalConverter<V>();
 
+    executor = cacheManager.getExecutor();
+
+    long writeBehindDelay = RIProperties.getLong(cacheManager.getProperties(), cacheName,
+        RIProperties.WRITE_BEHIND_DELAY, 0);
+    if (writeBehindDelay > 0 && this.configuration.isWriteThrough() && cacheWriter != null) {
+      cacheWriter = new RIWriteBehindCacheWriter<K, V>(cacheWriter, keyConverter, valueConverter,
+          cacheManager.getScheduler(), executor, writeBehindDelay,
+          getPositiveInt(RIProperties.WRITE_BEHIND_BATCH_SIZE, DEFAULT_WRITE_BEHIND_BATCH_SIZE),
+          (int) Math.min(Integer.MAX_VALUE, RIProperties.getLong(cacheManager.getProperties(), cacheName,
+              RIProperties.WRITE_BEHIND_RETRIES, DEFAULT_WRITE_BEHIND_RETRIES)),
+          getPositiveInt(RIProperties.WRITE_BEHIND_QUEUE_SIZE, DEFAULT_WRITE_BEHIND_QUEUE_SIZE), cacheName);
+    }
+
     expiryPolicy = this.configuration.getExpiryPolicyFactory().create();
 
-    entries = new RISimpleInternalMap<Object, RICachedValue>();
+    clock = cacheManager.getClock();
+
+    lockManager = new LockManager<K>((int) Math.min(Integer.MAX_VALUE, RIProperties.getLong(
+        cacheManager.getProperties(), cacheName, RIProperties.LOCK_STRIPES, DEFAULT_LOCK_STRIPES)));
+
+    entries = createInternalMap(cacheManager.getProperties(), classLoader);
+
+    refreshAheadFactor = RIProperties.getDouble(cacheManager.getProperties(), cacheName,
+        RIProperties.REFRESH_AHEAD_FACTOR, 0);
+    if (refreshAheadFactor < 0 || refreshAheadFactor >= 1) {
+      throw new IllegalArgumentException("The property " + RIProperties.REFRESH_AHEAD_FACTOR +
+          " for the cache " + cacheName + " must be at least 0 and less than 1 but was " + refreshAheadFactor);
+    }
+
+    invokeAllBatchSize = (int) Math.min(Integer.MAX_VALUE, RIProperties.getLong(cacheManager.getProperties(),
+        cacheName, RIProperties.INVOKE_ALL_BATCH_SIZE, 0));
+    loaderBatchSize = (int) Math.min(Integer.MAX_VALUE, RIProperties.getLong(cacheManager.getProperties(),
+        cacheName, RIProperties.LOADER_BATCH_SIZE, 0));
 
     listenerRegistrations = new
         CopyOnWriteArrayList<RICacheEntryListenerRegistration<K, V>>();
@@ -231,6 +459,9 @@ public final class RICache<K, V> implements Cache<K, V> {
 
     cacheMXBean = new RICacheMXBean<K, V>(this);
     statistics = new RICacheStatisticsMXBean(this);
+    long hotKeyCount = RIProperties.getLong(cacheManager.getProperties(), cacheName, RIProperties.HOT_KEYS, 0);
+    hotKeys = hotKeyCount > 0 ? new RICacheHotKeysMXBean((int) Math.min(Integer.MAX_VALUE, hotKeyCount),
+        getPositiveInt(RIProperties.HOT_KEYS_SAMPLE_RATE, DEFAULT_HOT_KEYS_SAMPLE_RATE)) : null;
     //It's important that we set the status BEFORE we let management, statistics and listeners know about the cache.
     isClosed = false;
 
@@ -241,13 +472,207 @@ public final class RICache<K, V> implements Cache<K, V> {
     if (this.configuration.isStatisticsEnabled()) {
       setStatisticsEnabled(true);
     }
+
+    long expiryInterval = RIProperties.getLong(cacheManager.getProperties(), cacheName,
+        RIProperties.EXPIRY_INTERVAL, DEFAULT_EXPIRY_INTERVAL);
+    if (expiryInterval > 0 && !(expiryPolicy instanceof EternalExpiryPolicy)) {
+      expiryWheel = new RITimerWheel(clock.currentTimeMillis());
+      expiryTask = cacheManager.getScheduler().scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            expireEntries();
+          } catch (RuntimeException e) {
+            Logger.getLogger(getName()).log(Level.WARNING, "Problem removing expired entries", e);
+          }
+        }
+      }, expiryInterval, expiryInterval, TimeUnit.MILLISECONDS);
+    } else {
+      expiryWheel = null;
+      expiryTask = null;
+    }
+  }
+
+  /**
+   * Gets the value of a numeric property for the Cache that must be positive.
+   *
+   * @param name         the name of the property
+   * @param defaultValue the value to use when the property is not defined
+   * @return the value of the property
+   * @throws IllegalArgumentException if the value is not a positive number
+   */
+  private int getPositiveInt(String name, int defaultValue) {
+    long value = RIProperties.getLong(cacheManager.getProperties(), cacheName, name, defaultValue);
+    if (value <= 0) {
+      throw new IllegalArgumentException("The property " + name + " for the cache " + cacheName +
+          " must be positive but was " + value);
+    }
+    return (int) Math.min(Integer.MAX_VALUE, value);
+  }
+
+  /**
+   * Creates the {@link RIInternalMap} to store the cache entries, overflowing
+   * to disk when specified by the {@link RIProperties}.
+   *
+   * @param properties  the {@link RICacheManager} properties
+   * @param classLoader the ClassLoader to load an {@link RIWeigher}
+   * @return a new {@link RIInternalMap}
+   */
+  private RIInternalMap<Object, RICachedValue> createInternalMap(Properties properties,
+                                                                 ClassLoader classLoader) {
+    long overflowSize = RIProperties.getBytes(properties, cacheName, RIProperties.OVERFLOW_SIZE, 0);
+
+    RIEvictionListener<Object, RICachedValue> evictionListener = new RIEvictionListener<Object, RICachedValue>() {
+      @Override
+      public void onEviction(Object internalKey, RICachedValue cachedValue) {
+        cancelExpiry(cachedValue);
+        if (statisticsEnabled()) {
+          statistics.increaseCacheEvictions(1);
+        }
+      }
+    };
+
+    if (overflowSize <= 0) {
+      return createMemoryMap(properties, classLoader, evictionListener);
+    }
+
+    if (!configuration.isStoreByValue()) {
+      throw new IllegalArgumentException("The cache " + cacheName + " stores by reference and " +
+          "can't use the " + RIProperties.OVERFLOW_SIZE + " property");
+    }
+    RITieredInternalMap.Spill spill = new RITieredInternalMap.Spill();
+    RIInternalMap<Object, RICachedValue> primary = createMemoryMap(properties, classLoader, spill);
+    if (primary instanceof RISimpleInternalMap) {
+      throw new IllegalArgumentException("The cache " + cacheName + " must be bounded in memory " +
+          "to use the " + RIProperties.OVERFLOW_SIZE + " property");
+    }
+
+    String directory = RIProperties.getProperty(properties, cacheName, RIProperties.OVERFLOW_DIRECTORY);
+    RIMappedFile file = new RIMappedFile(directory == null ? null : new File(directory), cacheName);
+    return new RITieredInternalMap(primary, spill,
+        new RIOffHeapInternalMap(overflowSize, file, evictionListener), file);
+  }
+
+  /**
+   * Creates the {@link RIInternalMap} to store the cache entries in memory,
+   * kept off-heap or bounded when specified by the {@link RIProperties}.
+   *
+   * @param properties       the {@link RICacheManager} properties
+   * @param classLoader      the ClassLoader to load an {@link RIWeigher}
+   * @param evictionListener the {@link RIEvictionListener} to notify of evictions
+   * @return a new {@link RIInternalMap}
+   */
+  private RIInternalMap<Object, RICachedValue> createMemoryMap(Properties properties, ClassLoader classLoader,
+                                                               RIEvictionListener<Object, RICachedValue> evictionListener) {
+    long offHeapSize = RIProperties.getBytes(properties, cacheName, RIProperties.OFF_HEAP_SIZE, 0);
+    long maximumWeight = RIProperties.getBytes(properties, cacheName, RIProperties.MAXIMUM_WEIGHT, 0);
+    long maximumSize = RIProperties.getLong(properties, cacheName, RIProperties.MAXIMUM_SIZE, 0);
+
+    if (offHeapSize > 0) {
+      if (!configuration.isStoreByValue()) {
+        throw new IllegalArgumentException("The cache " + cacheName + " stores by reference and " +
+            "can't use the " + RIProperties.OFF_HEAP_SIZE + " property");
+      }
+      return new RIOffHeapInternalMap(offHeapSize, evictionListener);
+    } else if (maximumWeight > 0) {
+      return new RIBoundedInternalMap<Object, RICachedValue>(maximumWeight,
+          createWeigher(properties, classLoader), evictionListener);
+    } else if (maximumSize > 0) {
+      return new RIBoundedInternalMap<Object, RICachedValue>(maximumSize, evictionListener);
+    } else {
+      return new RISimpleInternalMap<Object, RICachedValue>();
+    }
+  }
+
+  /**
+   * Creates the {@link RIWeigher} for a cache bounded by weight.
+   *
+   * @param properties  the {@link RICacheManager} properties
+   * @param classLoader the ClassLoader to load an {@link RIWeigher}
+   * @return a new {@link RIWeigher}
+   */
+  private RIWeigher<Object, RICachedValue> createWeigher(Properties properties, ClassLoader classLoader) {
+    if (configuration.isStoreByValue()) {
+      return new RIEntryWeigher((RISerializingInternalConverter<?>) keyConverter,
+          (RISerializingInternalConverter<?>) valueConverter);
+    }
+
+    String className = RIProperties.getProperty(properties, cacheName, RIProperties.WEIGHER);
+    if (className == null) {
+      throw new IllegalArgumentException("The cache " + cacheName + " stores by reference and " +
+          "requires the " + RIProperties.WEIGHER + " property to be bounded by weight");
+    }
+    try {
+      Class<?> weigherClass = Class.forName(className, true, classLoader);
+      //the configured weigher must accept the keys and values of the cache
+      @SuppressWarnings("unchecked")
+      RIWeigher<Object, Object> weigher = (RIWeigher<Object, Object>) weigherClass.newInstance();
+      return new RIEntryWeigher(weigher);
+    } catch (Exception e) {
+      throw new CacheException("Failed to create the RIWeigher " + className, e);
+    }
+  }
+
+  /**
+   * Creates the {@link RISerializer} for a cache that stores-by-value.
+   *
+   * @param properties  the {@link RICacheManager} properties
+   * @param classLoader the ClassLoader to load an {@link RISerializer}
+   * @return a new {@link RISerializer}
+   */
+  private RISerializer createSerializer(Properties properties, ClassLoader classLoader) {
+    String className = RIProperties.getProperty(properties, cacheName, RIProperties.SERIALIZER);
+    if (className == null || className.isEmpty()) {
+      return new RICompactSerializer();
+    }
+    try {
+      Class<?> serializerClass = Class.forName(className, true, classLoader);
+      return (RISerializer) serializerClass.newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Failed to create the RISerializer " + className, e);
+    }
+  }
+
+  /**
+   * Creates the {@link RIImmutableTypes} that a cache that stores-by-value
+   * may store by reference.
+   *
+   * @param properties the {@link RICacheManager} properties
+   * @return a new {@link RIImmutableTypes} or <code>null</code> if the entries
+   *         are kept in serialized form off-heap or on disk
+   */
+  private RIImmutableTypes createImmutableTypes(Properties properties) {
+    if (RIProperties.getBytes(properties, cacheName, RIProperties.OFF_HEAP_SIZE, 0) > 0
+        || RIProperties.getBytes(properties, cacheName, RIProperties.OVERFLOW_SIZE, 0) > 0) {
+      return null;
+    }
+
+    HashSet<String> typeNames = new HashSet<String>();
+    String value = RIProperties.getProperty(properties, cacheName, RIProperties.IMMUTABLE_TYPES);
+    if (value != null) {
+      for (String typeName : value.split(",")) {
+        if (!typeName.trim().isEmpty()) {
+          typeNames.add(typeName.trim());
+        }
+      }
+    }
+    return new RIImmutableTypes(typeNames);
   }
 
   //todo concurrency
   private void createAndAddListener(CacheEntryListenerConfiguration<K, V> listenerConfiguration) {
-    RICacheEntryListenerRegistration<K, V> registration = new
-        RICacheEntryListenerRegistration<K, V>(listenerConfiguration);
+    RICacheEntryListenerRegistration<K, V> registration;
+    if (listenerConfiguration.isSynchronous()) {
+      registration = new RICacheEntryListenerRegistration<K, V>(listenerConfiguration);
+    } else {
+      int queueSize = (int) Math.min(Integer.MAX_VALUE, RIProperties.getLong(cacheManager.getProperties(),
+          cacheName, RIProperties.LISTENER_QUEUE_SIZE, DEFAULT_LISTENER_QUEUE_SIZE));
+      registration = new RICacheEntryListenerRegistration<K, V>(listenerConfiguration,
+          cacheManager.getListenerExecutor(), queueSize);
+    }
     listenerRegistrations.add(registration);
+    listenerMask = RICacheEventDispatcher.getListenerMask(listenerRegistrations);
+    oldValueMask = RICacheEventDispatcher.getOldValueMask(listenerRegistrations);
   }
 
   //todo concurrency
@@ -264,6 +689,8 @@ public final class RICache<K, V> implements Cache<K, V> {
         configuration.removeCacheEntryListenerConfiguration(cacheEntryListenerConfiguration);
       }
     }
+    listenerMask = RICacheEventDispatcher.getListenerMask(listenerRegistrations);
+    oldValueMask = RICacheEventDispatcher.getOldValueMask(listenerRegistrations);
   }
 
   /**
@@ -272,7 +699,46 @@ public final class RICache<K, V> implements Cache<K, V> {
    * @param task the {@link Runnable} to be performed
    */
   protected void submit(Runnable task) {
-    executorService.submit(task);
+    submit(Executors.callable(task));
+  }
+
+  /**
+   * Requests a {@link Callable} to be performed by the {@link RICacheManager}
+   * executor.
+   *
+   * @param task the {@link Callable} to be performed
+   * @param <T>  the type of the result
+   * @return the {@link RIListenableFuture} of the result
+   */
+  private <T> RIListenableFuture<T> submit(Callable<T> task) {
+    RIListenableFutureTask<T> future = new RIListenableFutureTask<T>(task) {
+      @Override
+      protected void done() {
+        pendingTasks.remove(this);
+        super.done();
+      }
+    };
+    pendingTasks.add(future);
+    try {
+      executor.execute(future);
+    } catch (RuntimeException e) {
+      pendingTasks.remove(future);
+      throw e;
+    }
+    return future;
+  }
+
+  /**
+   * Performs a {@link Callable} on the calling thread.
+   *
+   * @param task the {@link Callable} to be performed
+   * @param <T>  the type of the result
+   * @return the completed {@link RIListenableFuture} of the result
+   */
+  private static <T> RIListenableFuture<T> complete(Callable<T> task) {
+    RIListenableFutureTask<T> future = new RIListenableFutureTask<T>(task);
+    future.run();
+    return future;
   }
 
   /**
@@ -359,16 +825,37 @@ public final class RICache<K, V> implements Cache<K, V> {
         }
       }
 
-      //attempt to shutdown (and wait for the cache to shutdown)
-      executorService.shutdown();
-      try {
-        executorService.awaitTermination(10, TimeUnit.SECONDS);
-      } catch (InterruptedException e) {
-        throw new CacheException(e);
+      //stop removing expired entries
+      if (expiryTask != null) {
+        expiryTask.cancel(false);
+      }
+
+      //wait (for a while) for the asynchronous background work to complete
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(CLOSE_TIMEOUT);
+      for (Future<?> task : pendingTasks) {
+        try {
+          task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+          throw new CacheException(e);
+        } catch (ExecutionException e) {
+          //the task has reported its own failure
+        } catch (TimeoutException e) {
+          break;
+        }
       }
 
       //drop all entries from the cache
       entries.clear();
+
+      //release the storage of the entries
+      if (entries instanceof Closeable) {
+        try {
+          ((Closeable) entries).close();
+        } catch (IOException e) {
+          Logger.getLogger(this.getName()).log(Level.WARNING, "Problem " +
+              "closing the storage of the cache " + entries, e);
+        }
+      }
     }
   }
 
@@ -402,13 +889,8 @@ public final class RICache<K, V> implements Cache<K, V> {
       throw new NullPointerException();
     }
 
-    RICacheEventDispatcher<K, V> dispatcher = new RICacheEventDispatcher<K, V>();
-
-    V value = getValue(key, dispatcher);
-
-    dispatcher.dispatch(listenerRegistrations);
-
-    return value;
+    recordRead(key);
+    return getValue(key);
   }
 
   /**
@@ -422,17 +904,64 @@ public final class RICache<K, V> implements Cache<K, V> {
     }
     // will throw NPE if keys=null
     HashMap<K, V> map = new HashMap<K, V>(keys.size());
-
-    RICacheEventDispatcher<K, V> dispatcher = new RICacheEventDispatcher<K, V>();
-
     for (K key : keys) {
-      V value = getValue(key, dispatcher);
-      if (value != null) {
-        map.put(key, value);
+      recordRead(key);
+    }
+
+    if (!configuration.isReadThrough() || cacheLoader == null) {
+      for (K key : keys) {
+        V value = getValue(key);
+        if (value != null) {
+          map.put(key, value);
+        }
       }
+      return map;
     }
 
-    dispatcher.dispatch(listenerRegistrations);
+    long now = clock.currentTimeMillis();
+    long start = statisticsEnabled() ? clock.nanoTime() : 0;
+    try {
+      ArrayList<K> misses = new ArrayList<K>();
+      for (K key : keys) {
+        Object internalKey = keyConverter.toInternal(key);
+        RICachedValue cachedValue = entries.get(internalKey);
+        if (cachedValue != null && !cachedValue.isExpiredAt(now)) {
+          map.put(key, getHit(key, internalKey, cachedValue, now));
+        } else {
+          misses.add(key);
+        }
+      }
+
+      if (!misses.isEmpty()) {
+        //load the misses not already being loaded, and then wait for the others
+        ArrayList<K> keysToLoad = new ArrayList<K>();
+        ArrayList<InFlightLoad> loadsToComplete = new ArrayList<InFlightLoad>();
+        HashMap<K, InFlightLoad> loadsToAwait = new HashMap<K, InFlightLoad>();
+        for (K key : misses) {
+          V value = getOrLoad(key, now, keysToLoad, loadsToComplete, loadsToAwait);
+          if (value != null) {
+            map.put(key, value);
+          }
+        }
+
+        loadAll(keysToLoad, loadsToComplete, map);
+
+        for (Map.Entry<K, InFlightLoad> entry : loadsToAwait.entrySet()) {
+          if (entry.getValue().isLoadedBy(Thread.currentThread())) {
+            throw new CacheLoaderException("The CacheLoader attempted to get the key " + entry.getKey() +
+                " it is loading");
+          }
+          Object internalValue = entry.getValue().await();
+          if (internalValue != null) {
+            map.put(entry.getKey(), valueConverter.fromInternal(internalValue));
+          }
+        }
+      }
+    } finally {
+      if (statisticsEnabled()) {
+        statistics.addGetTimeNano(clock.nanoTime() - start);
+      }
+    }
 
     return map;
   }
@@ -447,10 +976,11 @@ public final class RICache<K, V> implements Cache<K, V> {
       throw new NullPointerException();
     }
 
-    long now = System.currentTimeMillis();
+    long now = clock.currentTimeMillis();
 
     lockManager.lock(key);
     try {
+      recordRead(key);
       Object internalKey = keyConverter.toInternal(key);
       RICachedValue cachedValue = entries.get(internalKey);
 
@@ -494,16 +1024,7 @@ public final class RICache<K, V> implements Cache<K, V> {
               }
             }
 
-            Map<? extends K, ? extends V> loaded;
-            try {
-              loaded = cacheLoader.loadAll(keysToLoad);
-            } catch (Exception e) {
-              if (!(e instanceof CacheLoaderException)) {
-                throw new CacheLoaderException("Exception in CacheLoader", e);
-              } else {
-                throw e;
-              }
-            }
+            Map<? extends K, ? extends V> loaded = loadAllFromCacheLoader(keysToLoad);
 
             for (K key : keysToLoad) {
               if (loaded.get(key) == null) {
@@ -531,7 +1052,7 @@ public final class RICache<K, V> implements Cache<K, V> {
    */
   @Override
   public void put(K key, V value) {
-    long start = statisticsEnabled() ? System.nanoTime() : 0;
+    long start = statisticsEnabled() ? clock.nanoTime() : 0;
     int putCount = 0;
     ensureOpen();
     if (key == null) {
@@ -544,11 +1065,13 @@ public final class RICache<K, V> implements Cache<K, V> {
     checkTypesAgainstConfiguredTypes(key, value);
 
 
+    RICacheEventDispatcher<K, V> dispatcher = acquireDispatcher();
+    LockManager.Turn turn;
     lockManager.lock(key);
     try {
-      RICacheEventDispatcher<K, V> dispatcher = new RICacheEventDispatcher<K, V>();
+      recordWrite(key);
 
-      long now = System.currentTimeMillis();
+      long now = clock.currentTimeMillis();
 
       Object internalKey = keyConverter.toInternal(key);
       Object internalValue = valueConverter.toInternal(value);
@@ -558,8 +1081,7 @@ public final class RICache<K, V> implements Cache<K, V> {
       boolean isOldEntryExpired = cachedValue != null && cachedValue.isExpiredAt(now);
 
       if (isOldEntryExpired) {
-        V expiredValue = valueConverter.fromInternal(cachedValue.get());
-        processExpiries(key, dispatcher, expiredValue);
+        processExpiries(key, internalKey, dispatcher, cachedValue);
       }
 
       if (cachedValue == null || isOldEntryExpired) {
@@ -584,16 +1106,18 @@ public final class RICache<K, V> implements Cache<K, V> {
         // check that new entry is not already expired, in which case it should
         // not be added to the cache or listeners called or writers called.
         if (cachedValue.isExpiredAt(now)) {
-          processExpiries(key, dispatcher, valueConverter.fromInternal(cachedValue.get()));
+          processExpiries(key, internalKey, dispatcher, cachedValue);
         } else {
-          entries.put(internalKey, cachedValue);
+          addEntry(internalKey, cachedValue);
           putCount++;
-          dispatcher.addEvent(CacheEntryCreatedListener.class, new RICacheEntryEvent<K, V>(this, key, value, EventType.CREATED));
+          if (isListening(CacheEntryCreatedListener.class)) {
+            dispatcher.addEvent(CacheEntryCreatedListener.class, new RICacheEntryEvent<K, V>(this, key, value, EventType.CREATED));
+          }
         }
 
       } else {
 
-        V oldValue = valueConverter.fromInternal(cachedValue.get());
+        V oldValue = getOldValue(cachedValue, CacheEntryUpdatedListener.class);
         RIEntry<K, V> entry = new RIEntry<K, V>(key, value, oldValue);
 
         writeCacheEntry(entry);
@@ -602,28 +1126,31 @@ public final class RICache<K, V> implements Cache<K, V> {
           Duration duration = expiryPolicy.getExpiryForUpdate();
           if (duration != null) {
             long expiryTime = duration.getAdjustedTime(now);
-            cachedValue.setExpiryTime(expiryTime);
+            setExpiryTime(internalKey, cachedValue, expiryTime);
           }
         } catch (Throwable t) {
           //leave the expiry time untouched when we can't determine a duration
         }
 
-        cachedValue.setInternalValue(internalValue, now);
+        setInternalValue(internalKey, cachedValue, internalValue, now);
         putCount++;
 
-        dispatcher.addEvent(CacheEntryUpdatedListener.class,
-            new RICacheEntryEvent<K, V>(this, key, value, oldValue,
-                EventType.UPDATED));
+        if (isListening(CacheEntryUpdatedListener.class)) {
+          dispatcher.addEvent(CacheEntryUpdatedListener.class,
+              new RICacheEntryEvent<K, V>(this, key, value, oldValue,
+                  EventType.UPDATED));
+        }
       }
 
-      dispatcher.dispatch(listenerRegistrations);
+      turn = reserveTurn(key, dispatcher);
 
     } finally {
       lockManager.unLock(key);
     }
+    dispatch(dispatcher, turn);
     if (statisticsEnabled() && putCount > 0) {
       statistics.increaseCachePuts(putCount);
-      statistics.addPutTimeNano(System.nanoTime() - start);
+      statistics.addPutTimeNano(clock.nanoTime() - start);
     }
   }
 
@@ -651,14 +1178,16 @@ public final class RICache<K, V> implements Cache<K, V> {
       throw new NullPointerException("null value specified for key " + key);
     }
 
-    long start = statisticsEnabled() ? System.nanoTime() : 0;
-    long now = System.currentTimeMillis();
+    long start = statisticsEnabled() ? clock.nanoTime() : 0;
+    long now = clock.currentTimeMillis();
 
     V result;
     int putCount = 0;
+    RICacheEventDispatcher<K, V> dispatcher = acquireDispatcher();
+    LockManager.Turn turn;
     lockManager.lock(key);
     try {
-      RICacheEventDispatcher<K, V> dispatcher = new RICacheEventDispatcher<K, V>();
+      recordWrite(key);
 
       Object internalKey = keyConverter.toInternal(key);
       Object internalValue = valueConverter.toInternal(value);
@@ -673,8 +1202,7 @@ public final class RICache<K, V> implements Cache<K, V> {
         writeCacheEntry(entry);
 
         if (isExpired) {
-          V expiredValue = valueConverter.fromInternal(cachedValue.get());
-          processExpiries(key, dispatcher, expiredValue);
+          processExpiries(key, internalKey, dispatcher, cachedValue);
         }
 
         Duration duration;
@@ -687,12 +1215,14 @@ public final class RICache<K, V> implements Cache<K, V> {
 
         cachedValue = new RICachedValue(internalValue, now, expiryTime);
         if (cachedValue.isExpiredAt(now)) {
-          processExpiries(key, dispatcher, value);
+          processExpiries(key, internalKey, dispatcher, value);
         } else {
-          entries.put(internalKey, cachedValue);
+          addEntry(internalKey, cachedValue);
           putCount++;
-          dispatcher.addEvent(CacheEntryCreatedListener.class,
-              new RICacheEntryEvent<K, V>(this, key, value, CREATED));
+          if (isListening(CacheEntryCreatedListener.class)) {
+            dispatcher.addEvent(CacheEntryCreatedListener.class,
+                new RICacheEntryEvent<K, V>(this, key, value, CREATED));
+          }
         }
 
       } else {
@@ -704,23 +1234,26 @@ public final class RICache<K, V> implements Cache<K, V> {
           Duration duration = expiryPolicy.getExpiryForUpdate();
           if (duration != null) {
             long expiryTime = duration.getAdjustedTime(now);
-            cachedValue.setExpiryTime(expiryTime);
+            setExpiryTime(internalKey, cachedValue, expiryTime);
           }
         } catch (Throwable t) {
           //leave the expiry time untouched when we can't determine a duration
         }
-        cachedValue.setInternalValue(internalValue, now);
+        setInternalValue(internalKey, cachedValue, internalValue, now);
         putCount++;
         result = oldValue;
 
-        dispatcher.addEvent(CacheEntryUpdatedListener.class, new RICacheEntryEvent<K, V>(this, key, value, oldValue, UPDATED));
+        if (isListening(CacheEntryUpdatedListener.class)) {
+          dispatcher.addEvent(CacheEntryUpdatedListener.class, new RICacheEntryEvent<K, V>(this, key, value, oldValue, UPDATED));
+        }
       }
 
-      dispatcher.dispatch(listenerRegistrations);
+      turn = reserveTurn(key, dispatcher);
 
     } finally {
       lockManager.unLock(key);
     }
+    dispatch(dispatcher, turn);
     if (statisticsEnabled()) {
 
       if (result == null) {
@@ -728,11 +1261,11 @@ public final class RICache<K, V> implements Cache<K, V> {
       } else {
         statistics.increaseCacheHits(1);
       }
-      statistics.addGetTimeNano(System.nanoTime() - start);
+      statistics.addGetTimeNano(clock.nanoTime() - start);
 
       if (putCount > 0) {
         statistics.increaseCachePuts(putCount);
-        statistics.addPutTimeNano(System.nanoTime() - start);
+        statistics.addPutTimeNano(clock.nanoTime() - start);
       }
     }
 
@@ -767,9 +1300,9 @@ public final class RICache<K, V> implements Cache<K, V> {
                      final boolean replaceExistingValues,
                      boolean useWriteThrough) {
     ensureOpen();
-    long start = statisticsEnabled() ? System.nanoTime() : 0;
+    long start = statisticsEnabled() ? clock.nanoTime() : 0;
 
-    long now = System.currentTimeMillis();
+    long now = clock.currentTimeMillis();
     int putCount = 0;
 
     if (map.containsKey(null)) {
@@ -778,13 +1311,24 @@ public final class RICache<K, V> implements Cache<K, V> {
 
     CacheWriterException exception = null;
 
-    RICacheEventDispatcher<K, V> dispatcher = new RICacheEventDispatcher<K, V>();
+    RICacheEventDispatcher<K, V> dispatcher = acquireDispatcher();
+
+    for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+      if (entry.getValue() == null) {
+        throw new NullPointerException("key " + entry.getKey() + " has a null value");
+      }
+    }
 
+    //lock all of the keys in the map
+    LockManager.Turn turn;
+    lockManager.lockAll(map.keySet());
     try {
+      for (K key : map.keySet()) {
+        recordWrite(key);
+      }
       boolean isWriteThrough = configuration.isWriteThrough() && cacheWriter !=
           null && useWriteThrough;
 
-      //lock all of the keys in the map
       ArrayList<Cache.Entry<? extends K, ? extends V>> entriesToWrite = new
           ArrayList<Cache.Entry<? extends K, ? extends V>>();
       HashSet<K> keysToPut = new HashSet<K>();
@@ -792,12 +1336,6 @@ public final class RICache<K, V> implements Cache<K, V> {
         K key = entry.getKey();
         V value = entry.getValue();
 
-        if (value == null) {
-          throw new NullPointerException("key " + key + " has a null value");
-        }
-
-        lockManager.lock(key);
-
         keysToPut.add(key);
 
         if (isWriteThrough) {
@@ -807,12 +1345,17 @@ public final class RICache<K, V> implements Cache<K, V> {
 
       //write the entries
       if (isWriteThrough) {
+        long writeStart = statisticsEnabled() ? clock.nanoTime() : 0;
         try {
           cacheWriter.writeAll(entriesToWrite);
         } catch (Exception e) {
           if (!(e instanceof CacheWriterException)) {
             exception = new CacheWriterException("Exception during write", e);
           }
+        } finally {
+          if (statisticsEnabled()) {
+            statistics.addWriteTimeNano(clock.nanoTime() - writeStart);
+          }
         }
 
         for (Entry entry : entriesToWrite) {
@@ -833,8 +1376,7 @@ public final class RICache<K, V> implements Cache<K, V> {
         if (cachedValue == null || isExpired) {
 
           if (isExpired) {
-            V expiredValue = valueConverter.fromInternal(cachedValue.get());
-            processExpiries(key, dispatcher, expiredValue);
+            processExpiries(key, internalKey, dispatcher, cachedValue);
           }
 
           Duration duration;
@@ -847,12 +1389,14 @@ public final class RICache<K, V> implements Cache<K, V> {
 
           cachedValue = new RICachedValue(internalValue, now, expiryTime);
           if (cachedValue.isExpiredAt(now)) {
-            processExpiries(key, dispatcher, value);
+            processExpiries(key, internalKey, dispatcher, value);
           } else {
-            entries.put(internalKey, cachedValue);
+            addEntry(internalKey, cachedValue);
 
-            dispatcher.addEvent(CacheEntryCreatedListener.class,
-                new RICacheEntryEvent<K, V>(this, key, value, CREATED));
+            if (isListening(CacheEntryCreatedListener.class)) {
+              dispatcher.addEvent(CacheEntryCreatedListener.class,
+                  new RICacheEntryEvent<K, V>(this, key, value, CREATED));
+            }
 
             // this method called from loadAll when useWriteThrough is false. do
             // not count loads as puts per statistics
@@ -862,19 +1406,19 @@ public final class RICache<K, V> implements Cache<K, V> {
             }
           }
         } else if (replaceExistingValues) {
-          V oldValue = valueConverter.fromInternal(cachedValue.get());
+          V oldValue = getOldValue(cachedValue, CacheEntryUpdatedListener.class);
 
           try {
             Duration duration = expiryPolicy.getExpiryForUpdate();
             if (duration != null) {
               long expiryTime = duration.getAdjustedTime(now);
-              cachedValue.setExpiryTime(expiryTime);
+              setExpiryTime(internalKey, cachedValue, expiryTime);
             }
           } catch (Throwable t) {
             //leave the expiry time untouched when we can't determine a duration
           }
 
-          cachedValue.setInternalValue(internalValue, now);
+          setInternalValue(internalKey, cachedValue, internalValue, now);
 
           // do not count loadAll calls as puts. useWriteThrough is false when
           // called from loadAll.
@@ -882,26 +1426,24 @@ public final class RICache<K, V> implements Cache<K, V> {
             putCount++;
           }
 
-          dispatcher.addEvent(CacheEntryUpdatedListener.class,
-              new RICacheEntryEvent<K, V>(this, key, value, oldValue, UPDATED));
+          if (isListening(CacheEntryUpdatedListener.class)) {
+            dispatcher.addEvent(CacheEntryUpdatedListener.class,
+                new RICacheEntryEvent<K, V>(this, key, value, oldValue, UPDATED));
+          }
         }
       }
+      turn = reserveTurn(map.keySet(), dispatcher);
     } finally {
       //unlock all of the keys
-      for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
-        K key = entry.getKey();
-        V value = entry.getValue();
-
-        lockManager.unLock(key);
-      }
+      lockManager.unLockAll(map.keySet());
     }
 
     //dispatch events
-    dispatcher.dispatch(listenerRegistrations);
+    dispatch(dispatcher, turn);
 
     if (statisticsEnabled() && putCount > 0) {
       statistics.increaseCachePuts(putCount);
-      statistics.addPutTimeNano(System.nanoTime() - start);
+      statistics.addPutTimeNano(clock.nanoTime() - start);
     }
 
     if (exception != null) {
@@ -921,14 +1463,16 @@ public final class RICache<K, V> implements Cache<K, V> {
 
     checkTypesAgainstConfiguredTypes(key, value);
 
-    long start = statisticsEnabled() ? System.nanoTime() : 0;
+    long start = statisticsEnabled() ? clock.nanoTime() : 0;
 
-    long now = System.currentTimeMillis();
+    long now = clock.currentTimeMillis();
 
     boolean result;
+    RICacheEventDispatcher<K, V> dispatcher = acquireDispatcher();
+    LockManager.Turn turn;
     lockManager.lock(key);
     try {
-      RICacheEventDispatcher<K, V> dispatcher = new RICacheEventDispatcher<K, V>();
+      recordWrite(key);
 
       Object internalKey = keyConverter.toInternal(key);
       Object internalValue = valueConverter.toInternal(value);
@@ -942,8 +1486,7 @@ public final class RICache<K, V> implements Cache<K, V> {
         writeCacheEntry(entry);
 
         if (isExpired) {
-          V expiredValue = valueConverter.fromInternal(cachedValue.get());
-          processExpiries(key, dispatcher, expiredValue);
+          processExpiries(key, internalKey, dispatcher, cachedValue);
         }
 
         Duration duration;
@@ -956,27 +1499,30 @@ public final class RICache<K, V> implements Cache<K, V> {
 
         cachedValue = new RICachedValue(internalValue, now, expiryTime);
         if (cachedValue.isExpiredAt(now)) {
-          processExpiries(key, dispatcher, value);
+          processExpiries(key, internalKey, dispatcher, value);
 
           // no expiry event for created entry that expires before put in cache.
           // do not put entry in cache.
           result = false;
         } else {
-          entries.put(internalKey, cachedValue);
+          addEntry(internalKey, cachedValue);
           result = true;
 
-          dispatcher.addEvent(CacheEntryCreatedListener.class,
-              new RICacheEntryEvent<K, V>(this, key, value, CREATED));
+          if (isListening(CacheEntryCreatedListener.class)) {
+            dispatcher.addEvent(CacheEntryCreatedListener.class,
+                new RICacheEntryEvent<K, V>(this, key, value, CREATED));
+          }
         }
       } else {
         result = false;
       }
 
-      dispatcher.dispatch(listenerRegistrations);
+      turn = reserveTurn(key, dispatcher);
 
     } finally {
       lockManager.unLock(key);
     }
+    dispatch(dispatcher, turn);
 
     if (statisticsEnabled()) {
 
@@ -984,7 +1530,7 @@ public final class RICache<K, V> implements Cache<K, V> {
         //this means that there was no key in the Cache and the put succeeded
         statistics.increaseCachePuts(1);
         statistics.increaseCacheMisses(1);
-        statistics.addPutTimeNano(System.nanoTime() - start);
+        statistics.addPutTimeNano(clock.nanoTime() - start);
       } else {
         //this means that there was a key in the Cache and the put did not succeed
         statistics.increaseCacheHits(1);
@@ -993,11 +1539,38 @@ public final class RICache<K, V> implements Cache<K, V> {
     return result;
   }
 
-  private void processExpiries(K key, RICacheEventDispatcher<K, V> dispatcher,
+  /**
+   * Removes an expired Cache Entry, adding the expiry event to be dispatched
+   * with the expired value when a listener requires it.
+   *
+   * @param key         the key of the expired entry
+   * @param internalKey the internal representation of the key
+   * @param dispatcher  the {@link RICacheEventDispatcher} for the event
+   * @param cachedValue the {@link RICachedValue} of the expired entry
+   */
+  private void processExpiries(K key, Object internalKey, RICacheEventDispatcher<K, V> dispatcher,
+                               RICachedValue cachedValue) {
+    processExpiries(key, internalKey, dispatcher, getOldValue(cachedValue, CacheEntryExpiredListener.class));
+  }
+
+  /**
+   * Removes an expired Cache Entry, adding the expiry event to be dispatched.
+   *
+   * @param key          the key of the expired entry
+   * @param internalKey  the internal representation of the key
+   * @param dispatcher   the {@link RICacheEventDispatcher} for the event
+   * @param expiredValue the expired value
+   */
+  private void processExpiries(K key, Object internalKey, RICacheEventDispatcher<K, V> dispatcher,
                                V expiredValue) {
-    entries.remove(key);
-    dispatcher.addEvent(CacheEntryExpiredListener.class,
-        new RICacheEntryEvent<K, V>(this, key, expiredValue, expiredValue, EXPIRED));
+    removeEntry(internalKey);
+    if (statisticsEnabled()) {
+      statistics.increaseCacheExpiries(1);
+    }
+    if (isListening(CacheEntryExpiredListener.class)) {
+      dispatcher.addEvent(CacheEntryExpiredListener.class,
+          new RICacheEntryEvent<K, V>(this, key, expiredValue, expiredValue, EXPIRED));
+    }
   }
 
   /**
@@ -1006,16 +1579,21 @@ public final class RICache<K, V> implements Cache<K, V> {
   @Override
   public boolean remove(K key) {
     ensureOpen();
-    long start = statisticsEnabled() ? System.nanoTime() : 0;
+    long start = statisticsEnabled() ? clock.nanoTime() : 0;
 
-    long now = System.currentTimeMillis();
+    long now = clock.currentTimeMillis();
 
     boolean result;
+    RICacheEventDispatcher<K, V> dispatcher = null;
+    LockManager.Turn turn = null;
     lockManager.lock(key);
     try {
+      recordWrite(key);
       deleteCacheEntry(key);
 
       Object internalKey = keyConverter.toInternal(key);
+      //a value being loaded predates the removal, even of a key that is missing
+      invalidateLoad(internalKey);
       RICachedValue cachedValue = entries.get(internalKey);
 
       if (cachedValue == null) {
@@ -1023,23 +1601,25 @@ public final class RICache<K, V> implements Cache<K, V> {
       } else if (cachedValue.isExpiredAt(now)) {
         result = false;
       } else {
-        entries.remove(internalKey);
-        V value = valueConverter.fromInternal(cachedValue.get());
+        removeEntry(internalKey);
 
-        RICacheEventDispatcher<K, V> dispatcher = new RICacheEventDispatcher<K,
-            V>();
-        dispatcher.addEvent(CacheEntryRemovedListener.class,
-            new RICacheEntryEvent<K, V>(this, key, value, value, REMOVED));
-        dispatcher.dispatch(listenerRegistrations);
+        if (isListening(CacheEntryRemovedListener.class)) {
+          V value = getOldValue(cachedValue, CacheEntryRemovedListener.class);
+          dispatcher = acquireDispatcher();
+          dispatcher.addEvent(CacheEntryRemovedListener.class,
+              new RICacheEntryEvent<K, V>(this, key, value, value, REMOVED));
+          turn = reserveTurn(key, dispatcher);
+        }
 
         result = true;
       }
     } finally {
       lockManager.unLock(key);
     }
+    dispatch(dispatcher, turn);
     if (result && statisticsEnabled()) {
       statistics.increaseCacheRemovals(1);
-      statistics.addRemoveTimeNano(System.nanoTime() - start);
+      statistics.addRemoveTimeNano(clock.nanoTime() - start);
     }
     return result;
   }
@@ -1054,13 +1634,16 @@ public final class RICache<K, V> implements Cache<K, V> {
       throw new NullPointerException("null oldValue specified for key " + key);
     }
 
-    long now = System.currentTimeMillis();
+    long now = clock.currentTimeMillis();
     long hitCount = 0;
 
-    long start = statisticsEnabled() ? System.nanoTime() : 0;
+    long start = statisticsEnabled() ? clock.nanoTime() : 0;
     boolean result;
+    RICacheEventDispatcher<K, V> dispatcher = null;
+    LockManager.Turn turn = null;
     lockManager.lock(key);
     try {
+      recordWrite(key);
       Object internalKey = keyConverter.toInternal(key);
       RICachedValue cachedValue = entries.get(internalKey);
       if (cachedValue == null || cachedValue.isExpiredAt(now)) {
@@ -1074,13 +1657,14 @@ public final class RICache<K, V> implements Cache<K, V> {
         if (internalValue.equals(oldInternalValue)) {
           deleteCacheEntry(key);
 
-          entries.remove(internalKey);
+          removeEntry(internalKey);
 
-          RICacheEventDispatcher<K, V> dispatcher = new
-              RICacheEventDispatcher<K, V>();
-          dispatcher.addEvent(CacheEntryRemovedListener.class,
-              new RICacheEntryEvent<K, V>(this, key, oldValue, oldValue, REMOVED));
-          dispatcher.dispatch(listenerRegistrations);
+          if (isListening(CacheEntryRemovedListener.class)) {
+            dispatcher = acquireDispatcher();
+            dispatcher.addEvent(CacheEntryRemovedListener.class,
+                new RICacheEntryEvent<K, V>(this, key, oldValue, oldValue, REMOVED));
+            turn = reserveTurn(key, dispatcher);
+          }
 
           result = true;
         } else {
@@ -1088,7 +1672,7 @@ public final class RICache<K, V> implements Cache<K, V> {
             Duration duration = expiryPolicy.getExpiryForAccess();
             if (duration != null) {
               long expiryTime = duration.getAdjustedTime(now);
-              cachedValue.setExpiryTime(expiryTime);
+              setExpiryTime(internalKey, cachedValue, expiryTime);
             }
           } catch (Throwable t) {
             //leave the expiry time untouched when we can't determine a duration
@@ -1100,12 +1684,13 @@ public final class RICache<K, V> implements Cache<K, V> {
     } finally {
       lockManager.unLock(key);
     }
+    dispatch(dispatcher, turn);
     if (statisticsEnabled()) {
       if (result) {
         statistics.increaseCacheRemovals(1);
-        statistics.addRemoveTimeNano(System.nanoTime() - start);
+        statistics.addRemoveTimeNano(clock.nanoTime() - start);
       }
-      statistics.addGetTimeNano(System.nanoTime() - start);
+      statistics.addGetTimeNano(clock.nanoTime() - start);
       if (hitCount == 1) {
         statistics.increaseCacheHits(hitCount);
       } else {
@@ -1122,37 +1707,44 @@ public final class RICache<K, V> implements Cache<K, V> {
   public V getAndRemove(K key) {
     ensureOpen();
 
-    long now = System.currentTimeMillis();
-    long start = statisticsEnabled() ? System.nanoTime() : 0;
+    long now = clock.currentTimeMillis();
+    long start = statisticsEnabled() ? clock.nanoTime() : 0;
 
     V result;
+    RICacheEventDispatcher<K, V> dispatcher = null;
+    LockManager.Turn turn = null;
     lockManager.lock(key);
     try {
+      recordWrite(key);
       deleteCacheEntry(key);
 
       Object internalKey = keyConverter.toInternal(key);
+      //a value being loaded predates the removal, even of a key that is missing
+      invalidateLoad(internalKey);
       RICachedValue cachedValue = entries.get(internalKey);
       if (cachedValue == null || cachedValue.isExpiredAt(now)) {
         result = null;
       } else {
-        entries.remove(internalKey);
+        removeEntry(internalKey);
         result = valueConverter.fromInternal(cachedValue.getInternalValue(now));
 
-        RICacheEventDispatcher<K, V> dispatcher = new RICacheEventDispatcher<K,
-            V>();
-        dispatcher.addEvent(CacheEntryRemovedListener.class,
-            new RICacheEntryEvent<K, V>(this, key, result, result, REMOVED));
-        dispatcher.dispatch(listenerRegistrations);
+        if (isListening(CacheEntryRemovedListener.class)) {
+          dispatcher = acquireDispatcher();
+          dispatcher.addEvent(CacheEntryRemovedListener.class,
+              new RICacheEntryEvent<K, V>(this, key, result, result, REMOVED));
+          turn = reserveTurn(key, dispatcher);
+        }
       }
     } finally {
       lockManager.unLock(key);
     }
+    dispatch(dispatcher, turn);
     if (statisticsEnabled()) {
-      statistics.addGetTimeNano(System.nanoTime() - start);
+      statistics.addGetTimeNano(clock.nanoTime() - start);
       if (result != null) {
         statistics.increaseCacheHits(1);
         statistics.increaseCacheRemovals(1);
-        statistics.addRemoveTimeNano(System.nanoTime() - start);
+        statistics.addRemoveTimeNano(clock.nanoTime() - start);
       } else {
         statistics.increaseCacheMisses(1);
       }
@@ -1174,13 +1766,16 @@ public final class RICache<K, V> implements Cache<K, V> {
       throw new NullPointerException("null oldValue specified for key " + key);
     }
 
-    long now = System.currentTimeMillis();
-    long start = statisticsEnabled() ? System.nanoTime() : 0;
+    long now = clock.currentTimeMillis();
+    long start = statisticsEnabled() ? clock.nanoTime() : 0;
     long hitCount = 0;
 
     boolean result;
+    RICacheEventDispatcher<K, V> dispatcher = null;
+    LockManager.Turn turn = null;
     lockManager.lock(key);
     try {
+      recordWrite(key);
       Object internalKey = keyConverter.toInternal(key);
       RICachedValue cachedValue = entries.get(internalKey);
       if (cachedValue == null || cachedValue.isExpiredAt(now)) {
@@ -1199,20 +1794,21 @@ public final class RICache<K, V> implements Cache<K, V> {
             Duration duration = expiryPolicy.getExpiryForUpdate();
             if (duration != null) {
               long expiryTime = duration.getAdjustedTime(now);
-              cachedValue.setExpiryTime(expiryTime);
+              setExpiryTime(internalKey, cachedValue, expiryTime);
             }
           } catch (Throwable t) {
             //leave the expiry time untouched when we can't determine a duration
           }
 
           Object newInternalValue = valueConverter.toInternal(newValue);
-          cachedValue.setInternalValue(newInternalValue, now);
+          setInternalValue(internalKey, cachedValue, newInternalValue, now);
 
-          RICacheEventDispatcher<K, V> dispatcher = new
-              RICacheEventDispatcher<K, V>();
-          dispatcher.addEvent(CacheEntryUpdatedListener.class,
-              new RICacheEntryEvent<K, V>(this, key, newValue, oldValue, UPDATED));
-          dispatcher.dispatch(listenerRegistrations);
+          if (isListening(CacheEntryUpdatedListener.class)) {
+            dispatcher = acquireDispatcher();
+            dispatcher.addEvent(CacheEntryUpdatedListener.class,
+                new RICacheEntryEvent<K, V>(this, key, newValue, oldValue, UPDATED));
+            turn = reserveTurn(key, dispatcher);
+          }
 
           result = true;
         } else {
@@ -1221,7 +1817,7 @@ public final class RICache<K, V> implements Cache<K, V> {
             Duration duration = expiryPolicy.getExpiryForAccess();
             if (duration != null) {
               long expiryTime = duration.getAdjustedTime(now);
-              cachedValue.setExpiryTime(expiryTime);
+              setExpiryTime(internalKey, cachedValue, expiryTime);
             }
           } catch (Throwable t) {
             //leave the expiry time untouched when we can't determine a duration
@@ -1233,12 +1829,13 @@ public final class RICache<K, V> implements Cache<K, V> {
     } finally {
       lockManager.unLock(key);
     }
+    dispatch(dispatcher, turn);
     if (statisticsEnabled()) {
       if (result) {
         statistics.increaseCachePuts(1);
-        statistics.addPutTimeNano(System.nanoTime() - start);
+        statistics.addPutTimeNano(clock.nanoTime() - start);
       }
-      statistics.addGetTimeNano(System.nanoTime() - start);
+      statistics.addGetTimeNano(clock.nanoTime() - start);
       if (hitCount == 1) {
           statistics.increaseCacheHits(hitCount);
       } else {
@@ -1258,17 +1855,20 @@ public final class RICache<K, V> implements Cache<K, V> {
       throw new NullPointerException("null value specified for key " + key);
     }
 
-    long now = System.currentTimeMillis();
-    long start = statisticsEnabled() ? System.nanoTime() : 0;
+    long now = clock.currentTimeMillis();
+    long start = statisticsEnabled() ? clock.nanoTime() : 0;
     boolean result;
+    RICacheEventDispatcher<K, V> dispatcher = null;
+    LockManager.Turn turn = null;
     lockManager.lock(key);
     try {
+      recordWrite(key);
       Object internalKey = keyConverter.toInternal(key);
       RICachedValue cachedValue = entries.get(internalKey);
       if (cachedValue == null || cachedValue.isExpiredAt(now)) {
         result = false;
       } else {
-        V oldValue = valueConverter.fromInternal(cachedValue.get());
+        V oldValue = getOldValue(cachedValue, CacheEntryUpdatedListener.class);
 
         RIEntry<K, V> entry = new RIEntry<K, V>(key, value, oldValue);
         writeCacheEntry(entry);
@@ -1277,32 +1877,34 @@ public final class RICache<K, V> implements Cache<K, V> {
           Duration duration = expiryPolicy.getExpiryForUpdate();
           if (duration != null) {
             long expiryTime = duration.getAdjustedTime(now);
-            cachedValue.setExpiryTime(expiryTime);
+            setExpiryTime(internalKey, cachedValue, expiryTime);
           }
         } catch (Throwable t) {
           //leave the expiry time untouched when we can't determine a duration
         }
 
         Object internalValue = valueConverter.toInternal(value);
-        cachedValue.setInternalValue(internalValue, now);
+        setInternalValue(internalKey, cachedValue, internalValue, now);
 
-        RICacheEventDispatcher<K, V> dispatcher = new RICacheEventDispatcher<K,
-            V>();
-        dispatcher.addEvent(CacheEntryUpdatedListener.class,
-            new RICacheEntryEvent<K, V>(this, key, value, oldValue, UPDATED));
-        dispatcher.dispatch(listenerRegistrations);
+        if (isListening(CacheEntryUpdatedListener.class)) {
+          dispatcher = acquireDispatcher();
+          dispatcher.addEvent(CacheEntryUpdatedListener.class,
+              new RICacheEntryEvent<K, V>(this, key, value, oldValue, UPDATED));
+          turn = reserveTurn(key, dispatcher);
+        }
 
         result = true;
       }
     } finally {
       lockManager.unLock(key);
     }
+    dispatch(dispatcher, turn);
     if (statisticsEnabled()) {
-        statistics.addGetTimeNano(System.nanoTime() - start);
+        statistics.addGetTimeNano(clock.nanoTime() - start);
         if (result) {
           statistics.increaseCachePuts(1);
           statistics.increaseCacheHits(1);
-          statistics.addPutTimeNano(System.nanoTime() - start);
+          statistics.addPutTimeNano(clock.nanoTime() - start);
       } else {
         statistics.increaseCacheMisses(1);
       }
@@ -1320,12 +1922,15 @@ public final class RICache<K, V> implements Cache<K, V> {
       throw new NullPointerException("null value specified for key " + key);
     }
 
-    long now = System.currentTimeMillis();
-    long start = statisticsEnabled() ? System.nanoTime() : 0;
+    long now = clock.currentTimeMillis();
+    long start = statisticsEnabled() ? clock.nanoTime() : 0;
 
     V result;
+    RICacheEventDispatcher<K, V> dispatcher = null;
+    LockManager.Turn turn = null;
     lockManager.lock(key);
     try {
+      recordWrite(key);
       Object internalKey = keyConverter.toInternal(key);
       RICachedValue cachedValue = entries.get(internalKey);
       if (cachedValue == null || cachedValue.isExpiredAt(now)) {
@@ -1339,32 +1944,34 @@ public final class RICache<K, V> implements Cache<K, V> {
           Duration duration = expiryPolicy.getExpiryForUpdate();
           if (duration != null) {
             long expiryTime = duration.getAdjustedTime(now);
-            cachedValue.setExpiryTime(expiryTime);
+            setExpiryTime(internalKey, cachedValue, expiryTime);
           }
         } catch (Throwable t) {
           //leave the expiry time untouched when we can't determine a duration
         }
 
         Object internalValue = valueConverter.toInternal(value);
-        cachedValue.setInternalValue(internalValue, now);
+        setInternalValue(internalKey, cachedValue, internalValue, now);
 
-        RICacheEventDispatcher<K, V> dispatcher = new RICacheEventDispatcher<K,
-            V>();
-        dispatcher.addEvent(CacheEntryUpdatedListener.class,
-            new RICacheEntryEvent<K, V>(this, key, value, oldValue, UPDATED));
-        dispatcher.dispatch(listenerRegistrations);
+        if (isListening(CacheEntryUpdatedListener.class)) {
+          dispatcher = acquireDispatcher();
+          dispatcher.addEvent(CacheEntryUpdatedListener.class,
+              new RICacheEntryEvent<K, V>(this, key, value, oldValue, UPDATED));
+          turn = reserveTurn(key, dispatcher);
+        }
 
         result = oldValue;
       }
     } finally {
       lockManager.unLock(key);
     }
+    dispatch(dispatcher, turn);
     if (statisticsEnabled()) {
-      statistics.addGetTimeNano(System.nanoTime() - start);
+      statistics.addGetTimeNano(clock.nanoTime() - start);
       if (result != null) {
         statistics.increaseCacheHits(1);
         statistics.increaseCachePuts(1);
-        statistics.addPutTimeNano(System.nanoTime() - start);
+        statistics.addPutTimeNano(clock.nanoTime() - start);
       } else {
         statistics.increaseCacheMisses(1);
       }
@@ -1378,15 +1985,17 @@ public final class RICache<K, V> implements Cache<K, V> {
   @Override
   public void removeAll(Set<? extends K> keys) {
     ensureOpen();
+    long start = statisticsEnabled() ? clock.nanoTime() : 0;
 
-    long now = System.currentTimeMillis();
+    long now = clock.currentTimeMillis();
 
     CacheException exception = null;
     HashSet<K> lockedKeys = new HashSet<K>();
     HashSet<K> cacheWriterKeys = new HashSet<K>();
     cacheWriterKeys.addAll(keys);
 
-    RICacheEventDispatcher<K, V> dispatcher = new RICacheEventDispatcher<K, V>();
+    RICacheEventDispatcher<K, V> dispatcher = acquireDispatcher();
+    LockManager.Turn turn;
 
     try {
       boolean isWriteThrough = configuration.isWriteThrough() && cacheWriter != null;
@@ -1396,19 +2005,25 @@ public final class RICache<K, V> implements Cache<K, V> {
 
 
       //lock the keys
+      lockManager.lockAll(keys);
+      lockedKeys.addAll(keys);
       for (K key : keys) {
-        lockManager.lock(key);
-        lockedKeys.add(key);
+        recordWrite(key);
       }
 
       //call write-through on deleted entries
       if (isWriteThrough) {
+        long writeStart = statisticsEnabled() ? clock.nanoTime() : 0;
         try {
           cacheWriter.deleteAll(cacheWriterKeys);
         } catch (Exception e) {
           if (!(e instanceof CacheWriterException)) {
             exception = new CacheWriterException("Exception during write", e);
           }
+        } finally {
+          if (statisticsEnabled()) {
+            statistics.addWriteTimeNano(clock.nanoTime() - writeStart);
+          }
         }
 
         //At this point, cacheWriterKeys will contain only those that were _not_ written
@@ -1417,15 +2032,15 @@ public final class RICache<K, V> implements Cache<K, V> {
           //only delete those keys that the writer deleted. per CacheWriter spec.
           if (!cacheWriterKeys.contains(key)) {
             Object internalKey = keyConverter.toInternal(key);
+            invalidateLoad(internalKey);
             if (entries.containsKey(internalKey)) {
-              RICachedValue cachedValue = entries.remove(internalKey);
+              RICachedValue cachedValue = removeEntry(internalKey);
               deletedKeys.add(key);
 
-              V value = valueConverter.fromInternal(cachedValue.get());
-
               if (cachedValue.isExpiredAt(now)) {
-                processExpiries(key, dispatcher, value);
-              } else {
+                processExpiries(key, internalKey, dispatcher, cachedValue);
+              } else if (isListening(CacheEntryRemovedListener.class)) {
+                V value = getOldValue(cachedValue, CacheEntryRemovedListener.class);
                 dispatcher.addEvent(CacheEntryRemovedListener.class,
                     new RICacheEntryEvent<K, V>(this, key, value, value, REMOVED));
               }
@@ -1440,15 +2055,15 @@ public final class RICache<K, V> implements Cache<K, V> {
         for (K key : lockedKeys) {
           //only delete those keys that the writer deleted. per CacheWriter spec.
           Object internalKey = keyConverter.toInternal(key);
+          invalidateLoad(internalKey);
           if (entries.containsKey(internalKey)) {
-            RICachedValue cachedValue = entries.remove(internalKey);
+            RICachedValue cachedValue = removeEntry(internalKey);
             deletedKeys.add(key);
 
-            V value = valueConverter.fromInternal(cachedValue.get());
-
             if (cachedValue.isExpiredAt(now)) {
-              processExpiries(key, dispatcher, value);
-            } else {
+              processExpiries(key, internalKey, dispatcher, cachedValue);
+            } else if (isListening(CacheEntryRemovedListener.class)) {
+              V value = getOldValue(cachedValue, CacheEntryRemovedListener.class);
               dispatcher.addEvent(CacheEntryRemovedListener.class,
                   new RICacheEntryEvent<K, V>(this, key, value, value, REMOVED));
             }
@@ -1462,16 +2077,17 @@ public final class RICache<K, V> implements Cache<K, V> {
         statistics.increaseCacheRemovals(deletedKeys.size());
       }
 
-
+      turn = reserveTurn(lockedKeys, dispatcher);
     } finally {
       //unlock all of the keys
-      for (K key : lockedKeys) {
-        lockManager.unLock(key);
-      }
+      lockManager.unLockAll(lockedKeys);
     }
 
-    dispatcher.dispatch(listenerRegistrations);
+    dispatch(dispatcher, turn);
 
+    if (statisticsEnabled()) {
+      statistics.addRemoveTimeNano(clock.nanoTime() - start);
+    }
 
     if (exception != null) {
       throw exception;
@@ -1484,15 +2100,17 @@ public final class RICache<K, V> implements Cache<K, V> {
   @Override
   public void removeAll() {
     ensureOpen();
+    long start = statisticsEnabled() ? clock.nanoTime() : 0;
 
     int size = 0;
 
-    long now = System.currentTimeMillis();
+    long now = clock.currentTimeMillis();
 
     CacheException exception = null;
     HashSet<K> lockedKeys = new HashSet<K>();
 
-    RICacheEventDispatcher<K, V> dispatcher = new RICacheEventDispatcher<K, V>();
+    RICacheEventDispatcher<K, V> dispatcher = acquireDispatcher();
+    LockManager.Turn turn;
 
     try {
       boolean isWriteThrough = configuration.isWriteThrough() && cacheWriter != null;
@@ -1500,27 +2118,30 @@ public final class RICache<K, V> implements Cache<K, V> {
       //lock all of the keys
       HashSet<K> keysToDelete = new HashSet<K>();
 
+      HashSet<K> keys = new HashSet<K>();
       for (Map.Entry<Object, RICachedValue> entry : entries) {
-        Object internalKey = entry.getKey();
-        K key = keyConverter.fromInternal(internalKey);
-
-        lockManager.lock(key);
-
-        lockedKeys.add(key);
+        keys.add(keyConverter.fromInternal(entry.getKey()));
+      }
+      lockManager.lockAll(keys);
+      lockedKeys.addAll(keys);
 
-        if (isWriteThrough) {
-          keysToDelete.add(key);
-        }
+      if (isWriteThrough) {
+        keysToDelete.addAll(keys);
       }
 
       //delete the entries (when there are some)
       if (isWriteThrough && keysToDelete.size() > 0) {
+        long writeStart = statisticsEnabled() ? clock.nanoTime() : 0;
         try {
           cacheWriter.deleteAll(keysToDelete);
         } catch (Exception e) {
           if (!(e instanceof CacheWriterException)) {
             exception = new CacheWriterException("Exception during write", e);
           }
+        } finally {
+          if (statisticsEnabled()) {
+            statistics.addWriteTimeNano(clock.nanoTime() - writeStart);
+          }
         }
       }
 
@@ -1528,32 +2149,36 @@ public final class RICache<K, V> implements Cache<K, V> {
       for (K key : lockedKeys) {
         if (!keysToDelete.contains(key)) {
           Object internalKey = keyConverter.toInternal(key);
-          RICachedValue cachedValue = entries.remove(internalKey);
-
-          V value = valueConverter.fromInternal(cachedValue.get());
-
+          RICachedValue cachedValue = removeEntry(internalKey);
+          if (cachedValue == null) {
+            //removed since the keys were locked
+            continue;
+          }
 
           if (cachedValue.isExpiredAt(now)) {
-            processExpiries(key, dispatcher, value);
+            processExpiries(key, internalKey, dispatcher, cachedValue);
           } else {
-            dispatcher.addEvent(CacheEntryRemovedListener.class,
-                new RICacheEntryEvent<K, V>(this, key, value, value, REMOVED));
+            if (isListening(CacheEntryRemovedListener.class)) {
+              V value = getOldValue(cachedValue, CacheEntryRemovedListener.class);
+              dispatcher.addEvent(CacheEntryRemovedListener.class,
+                  new RICacheEntryEvent<K, V>(this, key, value, value, REMOVED));
+            }
             size++;
           }
         }
       }
 
+      turn = reserveTurn(lockedKeys, dispatcher);
     } finally {
       //unlock all of the keys
-      for (K key : lockedKeys) {
-        lockManager.unLock(key);
-      }
+      lockManager.unLockAll(lockedKeys);
     }
 
-    dispatcher.dispatch(listenerRegistrations);
+    dispatch(dispatcher, turn);
 
     if (statisticsEnabled()) {
       statistics.increaseCacheRemovals(size);
+      statistics.addRemoveTimeNano(clock.nanoTime() - start);
     }
 
     if (exception != null) {
@@ -1576,7 +2201,7 @@ public final class RICache<K, V> implements Cache<K, V> {
 
       lockManager.lock(key);
       try {
-        iterator.remove();
+        removeEntry(internalKey);
       } finally {
         lockManager.unLock(key);
       }
@@ -1597,23 +2222,24 @@ public final class RICache<K, V> implements Cache<K, V> {
       throw new NullPointerException();
     }
 
-    long start = statisticsEnabled() ? System.nanoTime() : 0;
+    long invokeStart = statisticsEnabled() ? clock.nanoTime() : 0;
+    long start = invokeStart;
 
 
     T result = null;
+    RICacheEventDispatcher<K, V> dispatcher = acquireDispatcher();
+    LockManager.Turn turn;
     lockManager.lock(key);
     try {
-      long now = System.currentTimeMillis();
-
-      RICacheEventDispatcher<K, V> dispatcher = new RICacheEventDispatcher<K, V>();
+      recordWrite(key);
+      long now = clock.currentTimeMillis();
 
       Object internalKey = keyConverter.toInternal(key);
       RICachedValue cachedValue = entries.get(internalKey);
       boolean isExpired = cachedValue != null && cachedValue.isExpiredAt(now);
 
       if (isExpired) {
-        V expiredValue = valueConverter.fromInternal(cachedValue.get());
-        processExpiries(key, dispatcher, expiredValue);
+        processExpiries(key, internalKey, dispatcher, cachedValue);
       }
       if (statisticsEnabled()) {
         if (cachedValue == null || isExpired) {
@@ -1623,10 +2249,10 @@ public final class RICache<K, V> implements Cache<K, V> {
         }
       }
       if (statisticsEnabled()) {
-        statistics.addGetTimeNano(System.nanoTime() - start);
+        statistics.addGetTimeNano(clock.nanoTime() - start);
       }
       //restart start as fetch finished
-      start = statisticsEnabled() ? System.nanoTime() : 0;
+      start = statisticsEnabled() ? clock.nanoTime() : 0;
 
       EntryProcessorEntry<K, V> entry = new EntryProcessorEntry<>(valueConverter, key,
           cachedValue, now, dispatcher, configuration.isReadThrough() ? cacheLoader : null);
@@ -1649,7 +2275,7 @@ public final class RICache<K, V> implements Cache<K, V> {
             duration = expiryPolicy.getExpiryForAccess();
             if (duration != null) {
               long expiryTime1 = duration.getAdjustedTime(now);
-              cachedValue.setExpiryTime(expiryTime1);
+              setExpiryTime(internalKey, cachedValue, expiryTime1);
             }
           } catch (Throwable t) {
             //leave the expiry time untouched when we can't determine a duration
@@ -1676,26 +2302,27 @@ public final class RICache<K, V> implements Cache<K, V> {
               now, expiryTime);
 
           if (cachedValue.isExpiredAt(now)) {
-            V previousValue = valueConverter.fromInternal(cachedValue.get());
-            processExpiries(key, dispatcher, previousValue);
+            processExpiries(key, internalKey, dispatcher, cachedValue);
           } else {
-            entries.put(internalKey, cachedValue);
+            addEntry(internalKey, cachedValue);
 
-            dispatcher.addEvent(CacheEntryCreatedListener.class,
-                new RICacheEntryEvent<K, V>(this, key, entry.getValue(), CREATED));
+            if (isListening(CacheEntryCreatedListener.class)) {
+              dispatcher.addEvent(CacheEntryCreatedListener.class,
+                  new RICacheEntryEvent<K, V>(this, key, entry.getValue(), CREATED));
+            }
 
             // do not count LOAD as a put for cache statistics.
             if (statisticsEnabled() && entry.getOperation() ==
                 MutableEntryOperation.CREATE) {
               statistics.increaseCachePuts(1);
-              statistics.addPutTimeNano(System.nanoTime() - start);
+              statistics.addPutTimeNano(clock.nanoTime() - start);
             }
           }
 
           break;
 
         case UPDATE:
-          V oldValue = valueConverter.fromInternal(cachedValue.get());
+          V oldValue = getOldValue(cachedValue, CacheEntryUpdatedListener.class);
 
           e = new RIEntry<K, V>(key, entry.getValue(), oldValue);
           writeCacheEntry(e);
@@ -1704,21 +2331,23 @@ public final class RICache<K, V> implements Cache<K, V> {
             duration = expiryPolicy.getExpiryForUpdate();
             if (duration != null) {
               expiryTime = duration.getAdjustedTime(now);
-              cachedValue.setExpiryTime(expiryTime);
+              setExpiryTime(internalKey, cachedValue, expiryTime);
             }
           } catch (Throwable t) {
             //leave the expiry time untouched when we can't determine a duration
           }
 
-          cachedValue.setInternalValue(valueConverter.toInternal(entry.getValue()), now);
+          setInternalValue(internalKey, cachedValue, valueConverter.toInternal(entry.getValue()), now);
 
-          dispatcher.addEvent(CacheEntryUpdatedListener.class,
-              new RICacheEntryEvent<K, V>(this, key, entry.getValue(), oldValue,
-                  UPDATED));
+          if (isListening(CacheEntryUpdatedListener.class)) {
+            dispatcher.addEvent(CacheEntryUpdatedListener.class,
+                new RICacheEntryEvent<K, V>(this, key, entry.getValue(), oldValue,
+                    UPDATED));
+          }
 
           if (statisticsEnabled()) {
             statistics.increaseCachePuts(1);
-            statistics.addPutTimeNano(System.nanoTime() - start);
+            statistics.addPutTimeNano(clock.nanoTime() - start);
           }
 
           break;
@@ -1726,14 +2355,16 @@ public final class RICache<K, V> implements Cache<K, V> {
         case REMOVE:
           deleteCacheEntry(key);
 
-          oldValue = cachedValue == null ? null : valueConverter.fromInternal(cachedValue.get());
-          entries.remove(internalKey);
+          oldValue = cachedValue == null ? null : getOldValue(cachedValue, CacheEntryRemovedListener.class);
+          removeEntry(internalKey);
 
-          dispatcher.addEvent(CacheEntryRemovedListener.class, new RICacheEntryEvent<K, V>(this, key, oldValue, oldValue, REMOVED));
+          if (isListening(CacheEntryRemovedListener.class)) {
+            dispatcher.addEvent(CacheEntryRemovedListener.class, new RICacheEntryEvent<K, V>(this, key, oldValue, oldValue, REMOVED));
+          }
 
           if (statisticsEnabled()) {
             statistics.increaseCacheRemovals(1);
-            statistics.addRemoveTimeNano(System.nanoTime() - start);
+            statistics.addRemoveTimeNano(clock.nanoTime() - start);
           }
 
           break;
@@ -1742,11 +2373,15 @@ public final class RICache<K, V> implements Cache<K, V> {
           break;
       }
 
-      dispatcher.dispatch(listenerRegistrations);
+      turn = reserveTurn(key, dispatcher);
 
     } finally {
       lockManager.unLock(key);
     }
+    dispatch(dispatcher, turn);
+    if (statisticsEnabled()) {
+      statistics.addInvokeTimeNano(clock.nanoTime() - invokeStart);
+    }
     return result;
   }
 
@@ -1765,7 +2400,27 @@ public final class RICache<K, V> implements Cache<K, V> {
       throw new NullPointerException();
     }
 
+    if (invokeAllBatchSize > 0 && keys.size() > invokeAllBatchSize) {
+      return invokeAllInParallel(new ArrayList<K>(keys), entryProcessor, arguments);
+    }
+
     HashMap<K, EntryProcessorResult<T>> map = new HashMap<>();
+    invokeEach(keys, entryProcessor, arguments, map);
+    return map;
+  }
+
+  /**
+   * Invokes an {@link EntryProcessor} against each of the specified keys in
+   * turn, collecting the results.
+   *
+   * @param keys           the keys
+   * @param entryProcessor the {@link EntryProcessor} to invoke
+   * @param arguments      the arguments of the {@link EntryProcessor}
+   * @param results        the map to which the results are added
+   * @param <T>            the type of the results
+   */
+  private <T> void invokeEach(Iterable<? extends K> keys, EntryProcessor<K, V, T> entryProcessor,
+                              Object[] arguments, Map<K, EntryProcessorResult<T>> results) {
     for (K key : keys) {
       RIEntryProcessorResult<T> result = null;
       try {
@@ -1775,11 +2430,46 @@ public final class RICache<K, V> implements Cache<K, V> {
         result = new RIEntryProcessorResult<T>(e);
       }
       if (result != null) {
-        map.put(key, result);
+        results.put(key, result);
       }
     }
+  }
 
-    return map;
+  /**
+   * Invokes an {@link EntryProcessor} against batches of the specified keys in
+   * parallel, using the {@link RICacheManager} executor and the calling
+   * thread.
+   * <p>
+   * Batches are claimed in turn by whichever thread is free, so the calling
+   * thread processes those the executor hasn't started and only waits for
+   * batches that are being processed, never for work that is queued behind
+   * other work.
+   * </p>
+   *
+   * @param keys           the keys
+   * @param entryProcessor the {@link EntryProcessor} to invoke
+   * @param arguments      the arguments of the {@link EntryProcessor}
+   * @param <T>            the type of the results
+   * @return the results
+   */
+  private <T> Map<K, EntryProcessorResult<T>> invokeAllInParallel(List<K> keys,
+                                                                 EntryProcessor<K, V, T> entryProcessor,
+                                                                 Object[] arguments) {
+    int batchCount = (keys.size() + invokeAllBatchSize - 1) / invokeAllBatchSize;
+    InvokeAllBatches<T> batches = new InvokeAllBatches<T>(keys, batchCount, entryProcessor, arguments);
+
+    int helpers = Math.min(batchCount - 1, Runtime.getRuntime().availableProcessors());
+    try {
+      for (int i = 0; i < helpers; i++) {
+        executor.execute(batches);
+      }
+    } catch (RejectedExecutionException e) {
+      //the calling thread processes the remaining batches
+    }
+
+    batches.run();
+
+    return batches.getResults();
   }
 
   /**
@@ -1789,7 +2479,7 @@ public final class RICache<K, V> implements Cache<K, V> {
   public Iterator<Entry<K, V>> iterator() {
     ensureOpen();
 
-    long now = System.currentTimeMillis();
+    long now = clock.currentTimeMillis();
 
     return new RIEntryIterator(entries.iterator(), now);
   }
@@ -1811,14 +2501,33 @@ public final class RICache<K, V> implements Cache<K, V> {
   }
 
 
+  /**
+   * @return the management bean of the latencies of operations
+   */
+  public CacheLatencyMXBean getCacheLatencyMXBean() {
+    return statistics.getCacheLatencyMXBean();
+  }
+
+  /**
+   * @return the management bean of the most often accessed keys, or
+   *         <code>null</code> when hot keys are not tracked
+   * @see RIProperties#HOT_KEYS
+   */
+  public CacheHotKeysMXBean getCacheHotKeysMXBean() {
+    return hotKeys;
+  }
+
+
   /**
    * Sets statistics
    */
   public void setStatisticsEnabled(boolean enabled) {
     if (enabled) {
       MBeanServerRegistrationUtility.registerCacheObject(this, Statistics);
+      MBeanServerRegistrationUtility.registerCacheObject(this, Latency);
     } else {
       MBeanServerRegistrationUtility.unregisterCacheObject(this, Statistics);
+      MBeanServerRegistrationUtility.unregisterCacheObject(this, Latency);
     }
     configuration.setStatisticsEnabled(enabled);
   }
@@ -1832,12 +2541,40 @@ public final class RICache<K, V> implements Cache<K, V> {
   public void setManagementEnabled(boolean enabled) {
     if (enabled) {
       MBeanServerRegistrationUtility.registerCacheObject(this, Configuration);
+      if (hotKeys != null) {
+        MBeanServerRegistrationUtility.registerCacheObject(this, HotKeys);
+      }
     } else {
       MBeanServerRegistrationUtility.unregisterCacheObject(this, Configuration);
+      if (hotKeys != null) {
+        MBeanServerRegistrationUtility.unregisterCacheObject(this, HotKeys);
+      }
     }
     configuration.setManagementEnabled(enabled);
   }
 
+  /**
+   * Records a read of a key, when hot keys are tracked.
+   *
+   * @param key the key
+   */
+  private void recordRead(K key) {
+    if (hotKeys != null) {
+      hotKeys.recordRead(key);
+    }
+  }
+
+  /**
+   * Records a write of a key, when hot keys are tracked.
+   *
+   * @param key the key
+   */
+  private void recordWrite(K key) {
+    if (hotKeys != null) {
+      hotKeys.recordWrite(key);
+    }
+  }
+
   private void ensureOpen() {
     if (isClosed()) {
       throw new IllegalStateException("Cache operations can not be performed. " +
@@ -1855,6 +2592,142 @@ public final class RICache<K, V> implements Cache<K, V> {
         "supported by this implementation");
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RIListenableFuture<V> getAsync(final K key) {
+    ensureOpen();
+    if (key == null) {
+      throw new NullPointerException();
+    }
+
+    Callable<V> task = new Callable<V>() {
+      @Override
+      public V call() {
+        return get(key);
+      }
+    };
+    return isReadingThrough() && !isCached(key) ? submit(task) : complete(task);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RIListenableFuture<Map<K, V>> getAllAsync(final Set<? extends K> keys) {
+    ensureOpen();
+    if (keys.contains(null)) {
+      throw new NullPointerException("key");
+    }
+
+    Callable<Map<K, V>> task = new Callable<Map<K, V>>() {
+      @Override
+      public Map<K, V> call() {
+        return getAll(keys);
+      }
+    };
+    if (isReadingThrough()) {
+      for (K key : keys) {
+        if (!isCached(key)) {
+          return submit(task);
+        }
+      }
+    }
+    return complete(task);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RIListenableFuture<Void> putAsync(final K key, final V value) {
+    ensureOpen();
+    if (key == null || value == null) {
+      throw new NullPointerException();
+    }
+
+    Callable<Void> task = new Callable<Void>() {
+      @Override
+      public Void call() {
+        put(key, value);
+        return null;
+      }
+    };
+    return isWritingThrough() ? submit(task) : complete(task);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RIListenableFuture<Boolean> removeAsync(final K key) {
+    ensureOpen();
+    if (key == null) {
+      throw new NullPointerException();
+    }
+
+    Callable<Boolean> task = new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return remove(key);
+      }
+    };
+    return isWritingThrough() ? submit(task) : complete(task);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public <T> RIListenableFuture<T> invokeAsync(final K key, final EntryProcessor<K, V, T> entryProcessor,
+                                   final Object... arguments) {
+    ensureOpen();
+    if (key == null || entryProcessor == null) {
+      throw new NullPointerException();
+    }
+
+    Callable<T> task = new Callable<T>() {
+      @Override
+      public T call() {
+        return invoke(key, entryProcessor, arguments);
+      }
+    };
+    return isReadingThrough() || isWritingThrough() ? submit(task) : complete(task);
+  }
+
+  /**
+   * Determines if the Cache reads-through with a {@link CacheLoader}.
+   *
+   * @return true if misses are loaded
+   */
+  private boolean isReadingThrough() {
+    return configuration.isReadThrough() && cacheLoader != null;
+  }
+
+  /**
+   * Determines if the Cache writes-through with a {@link CacheWriter} as
+   * part of each operation, rather than writing behind.
+   *
+   * @return true if operations wait for the {@link CacheWriter}
+   */
+  private boolean isWritingThrough() {
+    return configuration.isWriteThrough() && cacheWriter != null
+        && !(cacheWriter instanceof RIWriteBehindCacheWriter);
+  }
+
+  /**
+   * Determines if there's an entry for a key that hasn't expired, without
+   * locking the key or accessing the entry.
+   *
+   * @param key the key
+   * @return true if there is an entry for the key
+   */
+  private boolean isCached(K key) {
+    RICachedValue cachedValue = entries.get(keyConverter.toInternal(key));
+    return cachedValue != null && !cachedValue.isExpiredAt(clock.currentTimeMillis());
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -1879,145 +2752,794 @@ public final class RICache<K, V> implements Cache<K, V> {
   }
 
   /**
-   * Writes the Cache Entry to the configured CacheWriter.  Does nothing if
-   * write-through is not configured.
+   * Replaces the internal value of an entry, putting the {@link RICachedValue}
+   * back into the entries so that a bounded {@link RIInternalMap} accounts
+   * for the new value.
    *
-   * @param entry the Cache Entry to write
+   * @param internalKey   the internal representation of the key
+   * @param cachedValue   the {@link RICachedValue} of the entry
+   * @param internalValue the new internal value
+   * @param now           the time of the modification
    */
-  private void writeCacheEntry(RIEntry<K, V> entry) {
-    if (configuration.isWriteThrough()) {
-      try {
-        cacheWriter.write(entry);
-      } catch (Exception e) {
-        if (!(e instanceof CacheWriterException)) {
-          throw new CacheWriterException("Exception in CacheWriter", e);
-        } else {
-          throw e;
-        }
-      }
-    }
+  private void setInternalValue(Object internalKey, RICachedValue cachedValue,
+                                Object internalValue, long now) {
+    cachedValue.setInternalValue(internalValue, now);
+    entries.put(internalKey, cachedValue);
+    invalidateLoad(internalKey);
   }
 
   /**
-   * Deletes the Cache Entry using the configued CacheWriter.  Does nothing
-   * if write-through is not configued.
+   * Adds a new Cache Entry, scheduling its removal once it expires.
    *
-   * @param key
+   * @param internalKey the internal representation of the key
+   * @param cachedValue the {@link RICachedValue} of the entry
    */
-  private void deleteCacheEntry(K key) {
-    if (configuration.isWriteThrough()) {
-      try {
-        cacheWriter.delete(key);
-      } catch (Exception e) {
-        if (!(e instanceof CacheWriterException)) {
-          throw new CacheWriterException("Exception in CacheWriter", e);
-        } else {
-          throw e;
-        }
-      }
+  private void addEntry(Object internalKey, RICachedValue cachedValue) {
+    entries.put(internalKey, cachedValue);
+    invalidateLoad(internalKey);
+    if (expiryWheel != null && cachedValue.getExpiryTime() > -1) {
+      expiryWheel.schedule(internalKey, cachedValue, cachedValue.getExpiryTime());
     }
   }
 
   /**
-   * Gets the value for the specified key from the underlying cache, including
-   * attempting to load it if a CacheLoader is configured (with read-through).
-   * <p>
-   * Any events that need to be raised are added to the specified dispatcher.
-   * </p>
-   * @param key        the key of the entry to get from the cache
-   * @param dispatcher the dispatcher for events
-   * @return the value loaded
+   * Removes a Cache Entry, no longer scheduling its removal.
+   *
+   * @param internalKey the internal representation of the key
+   * @return the {@link RICachedValue} of the removed entry or
+   *         <code>null</code> if there was no entry
    */
-  private V getValue(K key, RICacheEventDispatcher<K, V> dispatcher) {
-    long now = System.currentTimeMillis();
-    long start = statisticsEnabled() ? System.nanoTime() : 0;
-
-    Object internalKey = keyConverter.toInternal(key);
-    RICachedValue cachedValue = null;
-    V value = null;
-    lockManager.lock(key);
-    try {
-      cachedValue = entries.get(internalKey);
+  private RICachedValue removeEntry(Object internalKey) {
+    RICachedValue cachedValue = entries.remove(internalKey);
+    cancelExpiry(cachedValue);
+    invalidateLoad(internalKey);
+    return cachedValue;
+  }
 
-      boolean isExpired = cachedValue != null && cachedValue.isExpiredAt(now);
+  /**
+   * Sets the time when a Cache Entry expires.  The removal of the entry is
+   * only scheduled again when the time is brought forward, as an entry is
+   * checked and rescheduled when its previous time is reached.
+   *
+   * @param internalKey the internal representation of the key
+   * @param cachedValue the {@link RICachedValue} of the entry
+   * @param expiryTime  the time when the entry should expire
+   */
+  private void setExpiryTime(Object internalKey, RICachedValue cachedValue, long expiryTime) {
+    long previousExpiryTime = cachedValue.getExpiryTime();
+    cachedValue.setExpiryTime(expiryTime);
+    if (expiryWheel != null && expiryTime > -1
+        && (previousExpiryTime == -1 || expiryTime < previousExpiryTime)) {
+      expiryWheel.schedule(internalKey, cachedValue, expiryTime);
+    }
+  }
 
-      if (cachedValue == null || isExpired) {
+  /**
+   * Determines if events should be raised for a class of
+   * {@link CacheEntryListener}, as a registered listener implements it.
+   *
+   * @param listenerClass the class of {@link CacheEntryListener}
+   * @return true if events for the listener class should be raised
+   */
+  private boolean isListening(Class<?> listenerClass) {
+    return RICacheEventDispatcher.isListening(listenerMask, listenerClass);
+  }
 
-        V expiredValue = isExpired ? valueConverter.fromInternal(cachedValue.get()) : null;
+  /**
+   * Obtains the value of a Cache Entry to be supplied as the old value with
+   * the events for a class of {@link CacheEntryListener}, deserializing it
+   * only when a listener requires it.
+   *
+   * @param cachedValue   the {@link RICachedValue} of the entry
+   * @param listenerClass the class of {@link CacheEntryListener}
+   * @return the value or <code>null</code> if no listener requires it
+   */
+  private V getOldValue(RICachedValue cachedValue, Class<?> listenerClass) {
+    return RICacheEventDispatcher.isListening(oldValueMask, listenerClass)
+        ? valueConverter.fromInternal(cachedValue.get())
+        : null;
+  }
 
-        if (isExpired) {
-          processExpiries(key, dispatcher, expiredValue);
-        }
+  /**
+   * Obtains an empty {@link RICacheEventDispatcher} for the events of an
+   * operation, reusing the spare of the thread when there is one.
+   *
+   * @return an empty {@link RICacheEventDispatcher}
+   * @see #dispatch(RICacheEventDispatcher, LockManager.Turn)
+   */
+  private RICacheEventDispatcher<K, V> acquireDispatcher() {
+    RICacheEventDispatcher<K, V> dispatcher = spareDispatcher.get();
+    if (dispatcher == null) {
+      return new RICacheEventDispatcher<K, V>();
+    } else {
+      spareDispatcher.set(null);
+      return dispatcher;
+    }
+  }
 
-        if (statisticsEnabled()) {
-          statistics.increaseCacheMisses(1);
-        }
+  /**
+   * Reserves the turn to dispatch the events raised for a locked key.
+   *
+   * @param key        the key
+   * @param dispatcher the {@link RICacheEventDispatcher} holding the events
+   * @return the {@link LockManager.Turn} or <code>null</code> if the events
+   *         may be dispatched straight away
+   */
+  private LockManager.Turn reserveTurn(K key, RICacheEventDispatcher<K, V> dispatcher) {
+    return dispatcher == null || dispatcher.isEmpty() ? null : lockManager.reserveTurn(key);
+  }
 
-        if (configuration.isReadThrough() && cacheLoader != null) {
-          try {
-            value = cacheLoader.load(key);
-          } catch (Exception e) {
-            if (!(e instanceof CacheLoaderException)) {
-              throw new CacheLoaderException("Exception in CacheLoader", e);
-            } else {
-              throw e;
-            }
+  /**
+   * Reserves the turn to dispatch the events raised for locked keys.
+   *
+   * @param keys       the keys
+   * @param dispatcher the {@link RICacheEventDispatcher} holding the events
+   * @return the {@link LockManager.Turn} or <code>null</code> if the events
+   *         may be dispatched straight away
+   */
+  private LockManager.Turn reserveTurn(Collection<? extends K> keys, RICacheEventDispatcher<K, V> dispatcher) {
+    return dispatcher == null || dispatcher.isEmpty() ? null : lockManager.reserveTurn(keys);
+  }
+
+  /**
+   * Dispatches the events raised while keys were locked, once the keys have
+   * been unlocked and the events previously raised for the keys have been
+   * dispatched.  Having taken its turn, the thread is held back while the
+   * queues of the listeners that aren't synchronous are over capacity.  The
+   * {@link RICacheEventDispatcher} is then cleared and made the spare of the
+   * thread.
+   *
+   * @param dispatcher the {@link RICacheEventDispatcher} holding the events
+   *                   (may be <code>null</code>)
+   * @param turn       the {@link LockManager.Turn} reserved for the events
+   *                   (may be <code>null</code>)
+   */
+  private void dispatch(RICacheEventDispatcher<K, V> dispatcher, LockManager.Turn turn) {
+    if (dispatcher == null) {
+      return;
+    }
+    try {
+      if (turn == null) {
+        dispatcher.dispatch(listenerRegistrations);
+      } else {
+        lockManager.awaitTurn(turn);
+        try {
+          dispatcher.dispatch(listenerRegistrations);
+        } finally {
+          lockManager.completeTurn(turn);
+        }
+        RICacheEventDispatcher.awaitEventQueues(listenerRegistrations);
+      }
+    } finally {
+      dispatcher.clear();
+      spareDispatcher.set(dispatcher);
+    }
+  }
+
+  /**
+   * No longer schedules the removal of a Cache Entry that has been removed.
+   *
+   * @param cachedValue the {@link RICachedValue} of the removed entry
+   *                    (may be <code>null</code>)
+   */
+  private void cancelExpiry(RICachedValue cachedValue) {
+    if (expiryWheel != null && cachedValue != null && cachedValue.getExpiryTime() > -1) {
+      expiryWheel.cancel(cachedValue);
+    }
+  }
+
+  /**
+   * Removes the Cache Entries that the {@link RITimerWheel} reports have
+   * expired, dispatching their expiry events in batches.  The entries that
+   * have since been accessed or updated are scheduled again.
+   */
+  private void expireEntries() {
+    long now = clock.currentTimeMillis();
+    List<Object> due = expiryWheel.advance(now);
+
+    for (int start = 0; start < due.size() && !isClosed(); start += EXPIRY_BATCH_SIZE) {
+      List<Object> internalKeys = due.subList(start, Math.min(start + EXPIRY_BATCH_SIZE, due.size()));
+      ArrayList<K> keys = new ArrayList<K>(internalKeys.size());
+      for (Object internalKey : internalKeys) {
+        keys.add(keyConverter.fromInternal(internalKey));
+      }
+
+      RICacheEventDispatcher<K, V> dispatcher = acquireDispatcher();
+      LockManager.Turn turn;
+      lockManager.lockAll(keys);
+      try {
+        for (int i = 0; i < keys.size(); i++) {
+          Object internalKey = internalKeys.get(i);
+          RICachedValue cachedValue = entries.get(internalKey);
+          if (cachedValue == null) {
+            continue;
+          } else if (cachedValue.isExpiredAt(now)) {
+            processExpiries(keys.get(i), internalKey, dispatcher, cachedValue);
+          } else if (cachedValue.getExpiryTime() > -1) {
+            expiryWheel.schedule(internalKey, cachedValue, cachedValue.getExpiryTime());
           }
         }
 
-        if (value == null) {
-          return null;
+        turn = reserveTurn(keys, dispatcher);
+      } finally {
+        lockManager.unLockAll(keys);
+      }
+      dispatch(dispatcher, turn);
+    }
+  }
+
+  /**
+   * Writes the Cache Entry to the configured CacheWriter.  Does nothing if
+   * write-through is not configured.
+   *
+   * @param entry the Cache Entry to write
+   */
+  private void writeCacheEntry(RIEntry<K, V> entry) {
+    if (configuration.isWriteThrough()) {
+      long start = statisticsEnabled() ? clock.nanoTime() : 0;
+      try {
+        cacheWriter.write(entry);
+      } catch (Exception e) {
+        if (!(e instanceof CacheWriterException)) {
+          throw new CacheWriterException("Exception in CacheWriter", e);
+        } else {
+          throw e;
         }
+      } finally {
+        if (statisticsEnabled()) {
+          statistics.addWriteTimeNano(clock.nanoTime() - start);
+        }
+      }
+    }
+  }
 
-        Duration duration;
-        try {
-          duration = expiryPolicy.getExpiryForCreation();
-        } catch (Throwable t) {
-          duration = getDefaultDuration();
+  /**
+   * Deletes the Cache Entry using the configued CacheWriter.  Does nothing
+   * if write-through is not configued.
+   *
+   * @param key
+   */
+  private void deleteCacheEntry(K key) {
+    if (configuration.isWriteThrough()) {
+      long start = statisticsEnabled() ? clock.nanoTime() : 0;
+      try {
+        cacheWriter.delete(key);
+      } catch (Exception e) {
+        if (!(e instanceof CacheWriterException)) {
+          throw new CacheWriterException("Exception in CacheWriter", e);
+        } else {
+          throw e;
         }
-        long expiryTime = duration.getAdjustedTime(now);
+      } finally {
+        if (statisticsEnabled()) {
+          statistics.addWriteTimeNano(clock.nanoTime() - start);
+        }
+      }
+    }
+  }
 
-        Object internalValue = valueConverter.toInternal(value);
-        cachedValue = new RICachedValue(internalValue, now, expiryTime);
+  /**
+   * Gets the value for the specified key from the underlying cache, including
+   * attempting to load it if a CacheLoader is configured (with read-through).
+   * <p>
+   * Any events that need to be raised are dispatched once the key is unlocked.
+   * The key isn't locked while loading, and concurrent misses for the key share
+   * a single load (see {@link InFlightLoad}).
+   * </p>
+   * @param key        the key of the entry to get from the cache
+   * @return the value loaded
+   */
+  private V getValue(K key) {
+    long now = clock.currentTimeMillis();
+    long start = statisticsEnabled() ? clock.nanoTime() : 0;
 
-        if (cachedValue.isExpiredAt(now)) {
-          return null;
+    try {
+      Object internalKey = keyConverter.toInternal(key);
+      RICachedValue cachedValue = entries.get(internalKey);
+      if (cachedValue != null && !cachedValue.isExpiredAt(now)) {
+        //a hit only updates the access metadata, so it's served without locking the key
+        return getHit(key, internalKey, cachedValue, now);
+      }
+
+      V value = null;
+      InFlightLoad load = null;
+      boolean isLoading = false;
+      RICacheEventDispatcher<K, V> dispatcher = acquireDispatcher();
+      LockManager.Turn turn;
+      lockManager.lock(key);
+      try {
+        cachedValue = entries.get(internalKey);
+
+        boolean isExpired = cachedValue != null && cachedValue.isExpiredAt(now);
+
+        if (cachedValue == null || isExpired) {
+
+          if (isExpired) {
+            processExpiries(key, internalKey, dispatcher, cachedValue);
+          }
+
+          if (statisticsEnabled()) {
+            statistics.increaseCacheMisses(1);
+          }
+
+          if (configuration.isReadThrough() && cacheLoader != null) {
+            load = loads.get(internalKey);
+            if (load == null) {
+              load = new InFlightLoad();
+              loads.put(internalKey, load);
+              isLoading = true;
+            }
+          }
         } else {
-          entries.put(internalKey, cachedValue);
+          value = getHit(key, internalKey, cachedValue, now);
+        }
 
-          dispatcher.addEvent(CacheEntryCreatedListener.class,
-              new RICacheEntryEvent<K, V>(this, key, value, CREATED));
+        turn = reserveTurn(key, dispatcher);
 
-          // do not consider a load as a put for cache statistics.
+      } finally {
+        lockManager.unLock(key);
+      }
+      dispatch(dispatcher, turn);
+
+      if (isLoading) {
+        value = load(key, internalKey, load);
+      } else if (load != null) {
+        if (load.isLoadedBy(Thread.currentThread())) {
+          throw new CacheLoaderException("The CacheLoader attempted to get the key " + key + " it is loading");
         }
+        value = valueConverter.fromInternal(load.await());
+      }
+      return value;
+    } finally {
+      if (statisticsEnabled()) {
+        statistics.addGetTimeNano(clock.nanoTime() - start);
+      }
+    }
+  }
+
+  /**
+   * Gets the value of a key missed by {@link #getAll}, should an entry have
+   * since been added, or otherwise registers an {@link InFlightLoad} for the
+   * key or notes the one that is already loading it.
+   *
+   * @param key             the key
+   * @param now             the time of the access
+   * @param keysToLoad      the keys for which loads have been registered
+   * @param loadsToComplete the {@link InFlightLoad}s registered for those keys
+   * @param loadsToAwait    the {@link InFlightLoad}s of other threads, by key
+   * @return the value of the entry or <code>null</code> if there is none
+   */
+  private V getOrLoad(K key, long now, List<K> keysToLoad, List<InFlightLoad> loadsToComplete,
+                      Map<K, InFlightLoad> loadsToAwait) {
+    Object internalKey = keyConverter.toInternal(key);
+    V value = null;
+    RICacheEventDispatcher<K, V> dispatcher = acquireDispatcher();
+    LockManager.Turn turn;
+    lockManager.lock(key);
+    try {
+      RICachedValue cachedValue = entries.get(internalKey);
+      if (cachedValue != null && !cachedValue.isExpiredAt(now)) {
+        value = getHit(key, internalKey, cachedValue, now);
       } else {
-        value = valueConverter.fromInternal(cachedValue.getInternalValue(now));
-        RIEntry<K, V> entry = new RIEntry<K, V>(key, value);
+        if (cachedValue != null) {
+          processExpiries(key, internalKey, dispatcher, cachedValue);
+        }
+        if (statisticsEnabled()) {
+          statistics.increaseCacheMisses(1);
+        }
 
-        try {
-          Duration duration = expiryPolicy.getExpiryForAccess();
-          if (duration != null) {
-            long expiryTime = duration.getAdjustedTime(now);
-            cachedValue.setExpiryTime(expiryTime);
+        InFlightLoad load = loads.get(internalKey);
+        if (load == null) {
+          load = new InFlightLoad();
+          loads.put(internalKey, load);
+          keysToLoad.add(key);
+          loadsToComplete.add(load);
+        } else {
+          loadsToAwait.put(key, load);
+        }
+      }
+
+      turn = reserveTurn(key, dispatcher);
+    } finally {
+      lockManager.unLock(key);
+    }
+    dispatch(dispatcher, turn);
+    return value;
+  }
+
+  /**
+   * Loads the values of keys with as few calls to
+   * {@link CacheLoader#loadAll} as allowed, completing the
+   * {@link InFlightLoad}s registered for them in the same way as
+   * {@link #load}.  Should the {@link CacheLoader} fail, the loads that
+   * remain are failed too.
+   *
+   * @param keys     the keys
+   * @param keyLoads the {@link InFlightLoad}s registered for the keys
+   * @param values   the map to which to add the values of the keys
+   * @throws CacheLoaderException should the {@link CacheLoader} fail
+   */
+  private void loadAll(List<K> keys, List<InFlightLoad> keyLoads, Map<K, V> values) {
+    int batchSize = loaderBatchSize > 0 ? loaderBatchSize : Math.max(1, keys.size());
+    //the index of the first load that has neither completed nor failed
+    int next = 0;
+    try {
+      while (next < keys.size()) {
+        int to = Math.min(keys.size(), next + batchSize);
+        for (InFlightLoad load : keyLoads.subList(next, to)) {
+          load.start();
+        }
+        Map<? extends K, ? extends V> loaded = loadAllFromCacheLoader(keys.subList(next, to));
+
+        while (next < to) {
+          K key = keys.get(next);
+          InFlightLoad load = keyLoads.get(next++);
+          V value = completeLoad(key, keyConverter.toInternal(key), load, loaded == null ? null : loaded.get(key));
+          if (value != null) {
+            values.put(key, value);
           }
-        } catch (Throwable t) {
-          //leave the expiry time untouched when we can't determine a duration
         }
+      }
+    } catch (Throwable t) {
+      //release the threads waiting for the keys that remain, whatever the failure
+      RuntimeException failure = t instanceof RuntimeException ?
+          (RuntimeException) t : new CacheLoaderException("Error in CacheLoader", t);
+      for (int i = next; i < keys.size(); i++) {
+        loads.remove(keyConverter.toInternal(keys.get(i)), keyLoads.get(i));
+        keyLoads.get(i).fail(failure);
+      }
+      throw t;
+    }
+  }
 
-        if (statisticsEnabled()) {
-          statistics.increaseCacheHits(1);
+  /**
+   * Loads the value of a key with the {@link CacheLoader}, without holding the
+   * lock for the key, and then adds it as a new Cache Entry (or replaces the
+   * value of an entry being refreshed) unless the key was written while
+   * loading.  The {@link InFlightLoad} is completed for the threads that are
+   * waiting for it.
+   *
+   * @param key         the key
+   * @param internalKey the internal representation of the key
+   * @param load        the {@link InFlightLoad} registered for the key
+   * @return the loaded value or <code>null</code> if there is none
+   * @throws CacheLoaderException should the {@link CacheLoader} fail
+   */
+  private V load(K key, Object internalKey, InFlightLoad load) {
+    load.start();
+    V value;
+    try {
+      value = loadFromCacheLoader(key);
+    } catch (Throwable t) {
+      //release the waiting threads whatever the failure
+      loads.remove(internalKey, load);
+      load.fail(t instanceof RuntimeException ? (RuntimeException) t : new CacheLoaderException("Error in CacheLoader", t));
+      throw t;
+    }
+    return completeLoad(key, internalKey, load, value);
+  }
+
+  /**
+   * Adds a value loaded by the {@link CacheLoader} as a new Cache Entry (or
+   * replaces the value of an entry being refreshed) unless the key was
+   * written while loading, and completes the {@link InFlightLoad} for the
+   * threads that are waiting for it.
+   *
+   * @param key         the key
+   * @param internalKey the internal representation of the key
+   * @param load        the {@link InFlightLoad} registered for the key
+   * @param value       the loaded value or <code>null</code> if there is none
+   * @return the value of the key or <code>null</code> if there is none
+   */
+  private V completeLoad(K key, Object internalKey, InFlightLoad load, V value) {
+    Object internalValue = null;
+    RICacheEventDispatcher<K, V> dispatcher = acquireDispatcher();
+    LockManager.Turn turn;
+    lockManager.lock(key);
+    try {
+      loads.remove(internalKey, load);
+
+      long now = clock.currentTimeMillis();
+      RICachedValue cachedValue = entries.get(internalKey);
+      if (!load.isInvalidated() && cachedValue != null && !cachedValue.isExpiredAt(now)) {
+        //the entry was refreshed ahead of its expiry
+        if (value != null) {
+          internalValue = valueConverter.toInternal(value);
+          replaceLoadedValue(key, internalKey, cachedValue, value, internalValue, now, dispatcher);
+        } else {
+          internalValue = cachedValue.getInternalValue(now);
+          value = valueConverter.fromInternal(internalValue);
+        }
+      } else if (!load.isInvalidated()) {
+        if (cachedValue != null) {
+          processExpiries(key, internalKey, dispatcher, cachedValue);
+        }
+        if (value != null) {
+          value = addLoadedEntry(key, internalKey, value, now, dispatcher);
+        }
+        internalValue = value == null ? null : valueConverter.toInternal(value);
+      } else {
+        //the key was written while loading, so the written value is newer
+        if (cachedValue != null && !cachedValue.isExpiredAt(now)) {
+          internalValue = cachedValue.getInternalValue(now);
+          value = valueConverter.fromInternal(internalValue);
+        } else {
+          internalValue = value == null ? null : valueConverter.toInternal(value);
         }
       }
 
+      turn = reserveTurn(key, dispatcher);
+    } catch (RuntimeException e) {
+      load.fail(e);
+      throw e;
     } finally {
       lockManager.unLock(key);
+    }
+    load.complete(internalValue);
+    dispatch(dispatcher, turn);
+    return value;
+  }
+
+  /**
+   * Notes that a key has been written, so that a value being loaded for the
+   * key isn't added to the Cache.  Must be called while holding the lock for
+   * the key.
+   *
+   * @param internalKey the internal representation of the key
+   */
+  private void invalidateLoad(Object internalKey) {
+    if (!loads.isEmpty()) {
+      InFlightLoad load = loads.get(internalKey);
+      if (load != null) {
+        load.invalidate();
+      }
+    }
+  }
+
+  /**
+   * Adds a new Cache Entry for a value loaded by the {@link CacheLoader},
+   * unless it would already have expired.  Must be called while holding the
+   * lock for the key.
+   *
+   * @param key         the key
+   * @param internalKey the internal representation of the key
+   * @param value       the loaded value
+   * @param now         the time of the load
+   * @param dispatcher  the {@link RICacheEventDispatcher} for the created event
+   * @return the value, or <code>null</code> if it has already expired
+   */
+  private V addLoadedEntry(K key, Object internalKey, V value, long now, RICacheEventDispatcher<K, V> dispatcher) {
+    Duration duration;
+    try {
+      duration = expiryPolicy.getExpiryForCreation();
+    } catch (Throwable t) {
+      duration = getDefaultDuration();
+    }
+    long expiryTime = duration.getAdjustedTime(now);
+
+    Object internalValue = valueConverter.toInternal(value);
+    RICachedValue cachedValue = new RICachedValue(internalValue, now, expiryTime);
+
+    if (cachedValue.isExpiredAt(now)) {
+      return null;
+    }
+
+    addEntry(internalKey, cachedValue);
+
+    if (isListening(CacheEntryCreatedListener.class)) {
+      dispatcher.addEvent(CacheEntryCreatedListener.class,
+          new RICacheEntryEvent<K, V>(this, key, value, CREATED));
+    }
+
+    // do not consider a load as a put for cache statistics.
+    return value;
+  }
+
+  /**
+   * Replaces the value of a Cache Entry with a value reloaded by the
+   * {@link CacheLoader}, starting a new lifetime for the entry.  Must be
+   * called while holding the lock for the key.
+   *
+   * @param key           the key
+   * @param internalKey   the internal representation of the key
+   * @param cachedValue   the {@link RICachedValue} of the entry
+   * @param value         the reloaded value
+   * @param internalValue the internal representation of the reloaded value
+   * @param now           the time of the load
+   * @param dispatcher    the {@link RICacheEventDispatcher} for the updated
+   *                      event
+   */
+  private void replaceLoadedValue(K key, Object internalKey, RICachedValue cachedValue, V value,
+                                  Object internalValue, long now, RICacheEventDispatcher<K, V> dispatcher) {
+    V oldValue = getOldValue(cachedValue, CacheEntryUpdatedListener.class);
+
+    Duration duration;
+    try {
+      duration = expiryPolicy.getExpiryForCreation();
+    } catch (Throwable t) {
+      duration = getDefaultDuration();
+    }
+
+    setExpiryTime(internalKey, cachedValue, duration.getAdjustedTime(now));
+    setInternalValue(internalKey, cachedValue, internalValue, now);
+
+    if (isListening(CacheEntryUpdatedListener.class)) {
+      dispatcher.addEvent(CacheEntryUpdatedListener.class,
+          new RICacheEntryEvent<K, V>(this, key, value, oldValue, UPDATED));
+    }
+  }
+
+  /**
+   * Loads the value of the specified key with the {@link CacheLoader}.
+   *
+   * @param key the key to load
+   * @return the loaded value or <code>null</code> if there is none
+   * @throws CacheLoaderException should the {@link CacheLoader} fail
+   */
+  private V loadFromCacheLoader(K key) {
+    long start = statisticsEnabled() ? clock.nanoTime() : 0;
+    try {
+      return cacheLoader.load(key);
+    } catch (Exception e) {
+      if (!(e instanceof CacheLoaderException)) {
+        throw new CacheLoaderException("Exception in CacheLoader", e);
+      } else {
+        throw (CacheLoaderException) e;
+      }
+    } finally {
       if (statisticsEnabled()) {
-        statistics.addGetTimeNano(System.nanoTime() - start);
+        statistics.addLoadTimeNano(clock.nanoTime() - start);
       }
     }
+  }
+
+  /**
+   * Loads the values of the specified keys with the {@link CacheLoader}.
+   *
+   * @param keys the keys to load
+   * @return the loaded values, keyed by key
+   * @throws CacheLoaderException should the {@link CacheLoader} fail
+   */
+  private Map<? extends K, ? extends V> loadAllFromCacheLoader(Iterable<? extends K> keys) {
+    long start = statisticsEnabled() ? clock.nanoTime() : 0;
+    try {
+      return cacheLoader.loadAll(keys);
+    } catch (Exception e) {
+      if (!(e instanceof CacheLoaderException)) {
+        throw new CacheLoaderException("Exception in CacheLoader", e);
+      } else {
+        throw (CacheLoaderException) e;
+      }
+    } finally {
+      if (statisticsEnabled()) {
+        statistics.addLoadTimeNano(clock.nanoTime() - start);
+      }
+    }
+  }
+
+  /**
+   * Gets the value of an entry that has not expired, updating its access
+   * metadata and expiry time.
+   * <p>
+   * This doesn't require the key to be locked, as {@link RICachedValue}
+   * updates the access metadata without locking.  Should the entry
+   * concurrently be updated, either value may be returned.
+   * </p>
+   * <p>
+   * An entry that is due to be refreshed ahead of its expiry is reloaded in
+   * the background.
+   * </p>
+   *
+   * @param key         the key of the entry
+   * @param internalKey the internal key of the entry
+   * @param cachedValue the {@link RICachedValue} of the entry
+   * @param now         the time of the access
+   * @return the value
+   */
+  private V getHit(K key, Object internalKey, RICachedValue cachedValue, long now) {
+    boolean isRefreshDue = isRefreshDue(cachedValue, now);
+    V value = valueConverter.fromInternal(cachedValue.getInternalValue(now));
+
+    try {
+      Duration duration = expiryPolicy.getExpiryForAccess();
+      if (duration != null) {
+        long expiryTime = duration.getAdjustedTime(now);
+        setExpiryTime(internalKey, cachedValue, expiryTime);
+      }
+    } catch (Throwable t) {
+      //leave the expiry time untouched when we can't determine a duration
+    }
+
+    if (statisticsEnabled()) {
+      statistics.increaseCacheHits(1);
+    }
+
+    if (isRefreshDue) {
+      refreshAhead(key, internalKey);
+    }
     return value;
   }
 
+  /**
+   * Determines whether an entry is due to be refreshed ahead of its expiry,
+   * having been read after the {@link RIProperties#REFRESH_AHEAD_FACTOR} of
+   * its lifetime.
+   *
+   * @param cachedValue the {@link RICachedValue} of the entry
+   * @param now         the time of the access
+   * @return true if the entry should be reloaded
+   */
+  private boolean isRefreshDue(RICachedValue cachedValue, long now) {
+    if (refreshAheadFactor == 0 || !configuration.isReadThrough() || cacheLoader == null) {
+      return false;
+    }
+    long expiryTime = cachedValue.getExpiryTime();
+    long modificationTime = cachedValue.getModificationTime();
+    return expiryTime > -1 && now - modificationTime >= (expiryTime - modificationTime) * refreshAheadFactor;
+  }
+
+  /**
+   * Reloads an entry in the background with the {@link CacheLoader}, unless
+   * the key is already being loaded or refreshed.  Once started, the reload
+   * is registered as an {@link InFlightLoad}, so that it is abandoned should
+   * the key be written, and so that reads missing the key wait for it.
+   *
+   * @param key         the key of the entry
+   * @param internalKey the internal key of the entry
+   */
+  private void refreshAhead(final K key, final Object internalKey) {
+    if (loads.containsKey(internalKey) || refreshes.putIfAbsent(internalKey, Boolean.TRUE) != null) {
+      return;
+    }
+
+    try {
+      submit(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            InFlightLoad load = startRefresh(key, internalKey);
+            if (load != null) {
+              load(key, internalKey, load);
+            }
+          } catch (RuntimeException e) {
+            Logger.getLogger(getName()).log(Level.WARNING, "Problem refreshing the key " + key, e);
+          }
+        }
+      });
+    } catch (RuntimeException e) {
+      refreshes.remove(internalKey);
+    }
+  }
+
+  /**
+   * Registers the {@link InFlightLoad} of a submitted refresh as it starts,
+   * unless the entry has since been written, removed or expired, or the key
+   * is already being loaded.
+   *
+   * @param key         the key of the entry
+   * @param internalKey the internal key of the entry
+   * @return the {@link InFlightLoad} or <code>null</code> if the entry no
+   *         longer needs to be refreshed
+   */
+  private InFlightLoad startRefresh(K key, Object internalKey) {
+    lockManager.lock(key);
+    try {
+      refreshes.remove(internalKey);
+      long now = clock.currentTimeMillis();
+      RICachedValue cachedValue = entries.get(internalKey);
+      if (cachedValue == null || cachedValue.isExpiredAt(now) || !isRefreshDue(cachedValue, now)
+          || loads.containsKey(internalKey)) {
+        return null;
+      }
+      InFlightLoad load = new InFlightLoad();
+      loads.put(internalKey, load);
+      return load;
+    } finally {
+      lockManager.unLock(key);
+    }
+  }
+
+
   /**
    * Returns the size of the cache.
    *
@@ -2028,6 +3550,240 @@ public final class RICache<K, V> implements Cache<K, V> {
   }
 
 
+  /**
+   * The load of a key by the {@link CacheLoader} that the threads missing the
+   * key while it is being loaded wait for, rather than loading the key again.
+   * <p>
+   * A load is invalidated should the key be written while it is being
+   * loaded, in which case the loaded value isn't added to the Cache.  The
+   * waiting threads are given the internal value, so that each converts
+   * its own copy.
+   * </p>
+   */
+  private static final class InFlightLoad {
+
+    /**
+     * Released once the load completes.
+     */
+    private final CountDownLatch completed = new CountDownLatch(1);
+
+    /**
+     * The thread loading the key, once it has started.
+     */
+    private volatile Thread loader;
+
+    /**
+     * Whether the key has been written while loading.
+     */
+    private volatile boolean isInvalidated;
+
+    /**
+     * The internal value of the key once loaded, or <code>null</code> if
+     * there is none.
+     */
+    private Object internalValue;
+
+    /**
+     * The failure of the load.
+     */
+    private RuntimeException failure;
+
+    /**
+     * Notes that the key has been written while loading.
+     */
+    private void invalidate() {
+      isInvalidated = true;
+    }
+
+    /**
+     * Determines whether the key has been written while loading.
+     *
+     * @return true if the key has been written
+     */
+    private boolean isInvalidated() {
+      return isInvalidated;
+    }
+
+    /**
+     * Notes that the calling thread has started loading the key.
+     */
+    private void start() {
+      loader = Thread.currentThread();
+    }
+
+    /**
+     * Determines whether the key is being loaded by the specified thread.
+     *
+     * @param thread the thread
+     * @return true if the thread is loading the key
+     */
+    private boolean isLoadedBy(Thread thread) {
+      return loader == thread;
+    }
+
+    /**
+     * Completes the load with the internal value of the key.
+     *
+     * @param internalValue the internal value or <code>null</code> if there
+     *                      is none
+     */
+    private void complete(Object internalValue) {
+      this.internalValue = internalValue;
+      completed.countDown();
+    }
+
+    /**
+     * Completes the load with a failure.
+     *
+     * @param failure the failure
+     */
+    private void fail(RuntimeException failure) {
+      this.failure = failure;
+      completed.countDown();
+    }
+
+    /**
+     * Waits for the load to complete.
+     *
+     * @return the internal value or <code>null</code> if there is none
+     * @throws RuntimeException the failure of the load
+     */
+    private Object await() {
+      boolean isInterrupted = false;
+      while (true) {
+        try {
+          completed.await();
+          break;
+        } catch (InterruptedException e) {
+          isInterrupted = true;
+        }
+      }
+      if (isInterrupted) {
+        Thread.currentThread().interrupt();
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      return internalValue;
+    }
+  }
+
+  /**
+   * The batches of keys of a parallel {@link #invokeAll}, each being
+   * processed by the first thread to claim it.
+   *
+   * @param <T> the type of the results
+   */
+  private final class InvokeAllBatches<T> implements Runnable {
+
+    /**
+     * The keys.
+     */
+    private final List<K> keys;
+
+    /**
+     * The {@link EntryProcessor} to invoke.
+     */
+    private final EntryProcessor<K, V, T> entryProcessor;
+
+    /**
+     * The arguments of the {@link EntryProcessor}.
+     */
+    private final Object[] arguments;
+
+    /**
+     * The number of batches.
+     */
+    private final int batchCount;
+
+    /**
+     * The index of the next batch to claim.
+     */
+    private final AtomicInteger nextBatch = new AtomicInteger();
+
+    /**
+     * The results of the batches that have been processed, guarding the
+     * progress of the batches.
+     */
+    private final HashMap<K, EntryProcessorResult<T>> results = new HashMap<K, EntryProcessorResult<T>>();
+
+    /**
+     * The number of batches that have been processed.
+     */
+    private int completedBatches;
+
+    /**
+     * The first unexpected failure of a batch.
+     */
+    private Throwable failure;
+
+    /**
+     * Constructs an {@link InvokeAllBatches}.
+     *
+     * @param keys           the keys
+     * @param batchCount     the number of batches
+     * @param entryProcessor the {@link EntryProcessor} to invoke
+     * @param arguments      the arguments of the {@link EntryProcessor}
+     */
+    private InvokeAllBatches(List<K> keys, int batchCount, EntryProcessor<K, V, T> entryProcessor,
+                             Object[] arguments) {
+      this.keys = keys;
+      this.batchCount = batchCount;
+      this.entryProcessor = entryProcessor;
+      this.arguments = arguments;
+    }
+
+    /**
+     * Processes batches until none remain to be claimed.
+     */
+    @Override
+    public void run() {
+      for (int batch = nextBatch.getAndIncrement(); batch < batchCount; batch = nextBatch.getAndIncrement()) {
+        int start = batch * invokeAllBatchSize;
+        HashMap<K, EntryProcessorResult<T>> batchResults = new HashMap<K, EntryProcessorResult<T>>();
+        Throwable batchFailure = null;
+        try {
+          invokeEach(keys.subList(start, Math.min(keys.size(), start + invokeAllBatchSize)),
+              entryProcessor, arguments, batchResults);
+        } catch (Throwable t) {
+          batchFailure = t;
+        } finally {
+          synchronized (results) {
+            results.putAll(batchResults);
+            if (failure == null) {
+              failure = batchFailure;
+            }
+            completedBatches++;
+            results.notifyAll();
+          }
+        }
+      }
+    }
+
+    /**
+     * Waits for every batch to be processed and gets the results.
+     *
+     * @return the results
+     * @throws CacheException should a batch fail unexpectedly or the calling
+     *                        thread be interrupted
+     */
+    private HashMap<K, EntryProcessorResult<T>> getResults() {
+      synchronized (results) {
+        while (completedBatches < batchCount) {
+          try {
+            results.wait();
+          } catch (InterruptedException e) {
+            throw new CacheException(e);
+          }
+        }
+        if (failure != null) {
+          throw new CacheException("Failed to invoke the EntryProcessor", failure);
+        }
+        return results;
+      }
+    }
+  }
+
   /**
    * An {@link Iterator} over Cache {@link Entry}s that lazily converts
    * from internal value representation to natural value representation on
@@ -2075,7 +3831,7 @@ public final class RICache<K, V> implements Cache<K, V> {
      * iterator.
      */
     private void fetch() {
-      long start = statisticsEnabled() ? System.nanoTime() : 0;
+      long start = statisticsEnabled() ? clock.nanoTime() : 0;
       while (nextEntry == null && iterator.hasNext()) {
 
         Map.Entry<Object, RICachedValue> entry = iterator.next();
@@ -2093,7 +3849,7 @@ public final class RICache<K, V> implements Cache<K, V> {
               Duration duration = expiryPolicy.getExpiryForAccess();
               if (duration != null) {
                 long expiryTime = duration.getAdjustedTime(now);
-                cachedValue.setExpiryTime(expiryTime);
+                setExpiryTime(entry.getKey(), cachedValue, expiryTime);
               }
             } catch (Throwable t) {
               //leave the expiry time untouched when we can't determine a duration
@@ -2103,7 +3859,7 @@ public final class RICache<K, V> implements Cache<K, V> {
           lockManager.unLock(key);
           if (statisticsEnabled() && nextEntry != null) {
             statistics.increaseCacheHits(1);
-            statistics.addGetTimeNano(System.nanoTime() - start);
+            statistics.addGetTimeNano(clock.nanoTime() - start);
           }
         }
       }
@@ -2148,8 +3904,11 @@ public final class RICache<K, V> implements Cache<K, V> {
         throw new IllegalStateException("Must progress to the next entry to " +
             "remove");
       } else {
-        long start = statisticsEnabled() ? System.nanoTime() : 0;
-        lockManager.lock(lastEntry.getKey());
+        long start = statisticsEnabled() ? clock.nanoTime() : 0;
+        K key = lastEntry.getKey();
+        RICacheEventDispatcher<K, V> dispatcher = null;
+        LockManager.Turn turn = null;
+        lockManager.lock(key);
         try {
           deleteCacheEntry(lastEntry.getKey());
 
@@ -2159,28 +3918,31 @@ public final class RICache<K, V> implements Cache<K, V> {
           // retrieved it.
 
           //we simply don't care here as multiple-threads are ok to remove and see
-          //such side-effects
-          iterator.remove();
+          //such side-effects.  the entry is removed by its key as the
+          //underlying iterator may have already moved past it
+          removeEntry(keyConverter.toInternal(key));
           cacheRemovals++;
 
           //raise "remove" event
-          RICacheEventDispatcher<K, V> dispatcher = new
-              RICacheEventDispatcher<K, V>();
-          dispatcher.addEvent(CacheEntryRemovedListener.class,
-              new RICacheEntryEvent<K, V>(RICache.this, lastEntry.getKey(),
-                  lastEntry.getValue(), lastEntry.getValue(), REMOVED));
-          dispatcher.dispatch(listenerRegistrations);
+          if (isListening(CacheEntryRemovedListener.class)) {
+            dispatcher = acquireDispatcher();
+            dispatcher.addEvent(CacheEntryRemovedListener.class,
+                new RICacheEntryEvent<K, V>(RICache.this, key,
+                    lastEntry.getValue(), lastEntry.getValue(), REMOVED));
+            turn = reserveTurn(key, dispatcher);
+          }
 
         } finally {
-          lockManager.unLock(lastEntry.getKey());
+          lockManager.unLock(key);
 
           //reset lastEntry (we can't attempt to remove it again)
           lastEntry = null;
           if (statisticsEnabled() && cacheRemovals > 0) {
             statistics.increaseCacheRemovals(cacheRemovals);
-            statistics.addRemoveTimeNano(System.nanoTime() - start);
+            statistics.addRemoveTimeNano(clock.nanoTime() - start);
           }
         }
+        dispatch(dispatcher, turn);
       }
     }
   }
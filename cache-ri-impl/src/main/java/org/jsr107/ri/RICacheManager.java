@@ -25,6 +25,8 @@ import javax.cache.CacheManager;
 import javax.cache.configuration.CompleteConfiguration;
 import javax.cache.configuration.Configuration;
 import javax.cache.spi.CachingProvider;
+import java.io.Closeable;
+import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.net.URI;
 import java.util.ArrayList;
@@ -32,6 +34,14 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -45,6 +55,18 @@ import java.util.logging.Logger;
 public class RICacheManager implements CacheManager {
 
   private static final Logger LOGGER = Logger.getLogger("javax.cache");
+
+  /**
+   * The value of the {@link RIProperties#EXECUTOR} property requesting
+   * virtual threads.
+   */
+  private static final String VIRTUAL_THREADS = "virtual";
+
+  /**
+   * The time in seconds that an idle thread of the executor is kept.
+   */
+  private static final long EXECUTOR_KEEP_ALIVE = 60;
+
   private final HashMap<String, RICache<?, ?>> caches = new HashMap<String, RICache<?, ?>>();
 
   private final RICachingProvider cachingProvider;
@@ -55,6 +77,41 @@ public class RICacheManager implements CacheManager {
 
   private volatile boolean isClosed;
 
+  /**
+   * The {@link ScheduledExecutorService} performing the periodic background
+   * work of the caches, created when first required.
+   */
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * The {@link ExecutorService} delivering events to the listeners that aren't
+   * synchronous, created when first required.
+   */
+  private ExecutorService listenerExecutor;
+
+  /**
+   * The {@link ExecutorService} on which the caches perform asynchronous
+   * work, resolved when first required.
+   */
+  private ExecutorService executor;
+
+  /**
+   * Whether the {@link #executor} was created by (and is shut down with) the
+   * CacheManager.
+   */
+  private boolean isExecutorOwned;
+
+  /**
+   * The {@link RIClock} of the caches, resolved when first required.
+   */
+  private RIClock clock;
+
+  /**
+   * Whether the {@link RIClock} was created by (and is closed with) the
+   * CacheManager.
+   */
+  private boolean isClockOwned;
+
   /**
    * Constructs a new RICacheManager with the specified name.
    *
@@ -102,27 +159,186 @@ public class RICacheManager implements CacheManager {
    * {@inheritDoc}
    */
   @Override
-  public synchronized void close() {
-    if (!isClosed()) {
+  public void close() {
+    ArrayList<Cache<?, ?>> cacheList;
+    synchronized (this) {
+      if (isClosed()) {
+        return;
+      }
       //first releaseCacheManager the CacheManager from the CacheProvider so that
       //future requests for this CacheManager won't return this one
       cachingProvider.releaseCacheManager(getURI(), getClassLoader());
 
       isClosed = true;
 
-      ArrayList<Cache<?, ?>> cacheList;
       synchronized (caches) {
         cacheList = new ArrayList<Cache<?, ?>>(caches.values());
         caches.clear();
       }
-      for (Cache<?, ?> cache : cacheList) {
+    }
+
+    //the caches wait for their pending work, which mustn't wait for the CacheManager
+    for (Cache<?, ?> cache : cacheList) {
+      try {
+        cache.close();
+      } catch (Exception e) {
+        getLogger().log(Level.WARNING, "Error stopping cache: " + cache, e);
+      }
+    }
+
+    synchronized (this) {
+      if (scheduler != null) {
+        scheduler.shutdownNow();
+      }
+
+      if (listenerExecutor != null) {
+        //deliver the events that have already been raised
+        listenerExecutor.shutdown();
+      }
+
+      if (isExecutorOwned) {
+        //the caches have already waited for their work to complete
+        executor.shutdown();
+      }
+
+      if (isClockOwned && clock instanceof Closeable) {
+        try {
+          ((Closeable) clock).close();
+        } catch (IOException e) {
+          getLogger().log(Level.WARNING, "Error closing clock: " + clock, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the {@link ScheduledExecutorService} on which the caches perform
+   * periodic background work, using a single daemon thread.
+   *
+   * @return the {@link ScheduledExecutorService}
+   */
+  synchronized ScheduledExecutorService getScheduler() {
+    if (scheduler == null) {
+      ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "RICacheManager-scheduler-" + uri);
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      //forget the tasks of closed caches
+      executor.setRemoveOnCancelPolicy(true);
+      scheduler = executor;
+    }
+    return scheduler;
+  }
+
+  /**
+   * Gets the {@link ExecutorService} delivering events to the listeners that
+   * aren't synchronous, using as many daemon threads as there are listeners
+   * with events to deliver.
+   *
+   * @return the {@link ExecutorService}
+   */
+  synchronized ExecutorService getListenerExecutor() {
+    if (listenerExecutor == null) {
+      listenerExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "RICacheManager-listener-" + uri);
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return listenerExecutor;
+  }
+
+  /**
+   * Gets the {@link ExecutorService} on which the caches perform asynchronous
+   * work, as specified by the {@link RIProperties#EXECUTOR} and
+   * {@link RIProperties#EXECUTOR_THREADS} properties.
+   *
+   * @return the {@link ExecutorService}
+   * @throws CacheException if the specified {@link ExecutorService} can't be
+   *                        created
+   */
+  synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      Object value = properties.get(RIProperties.EXECUTOR);
+      if (value == null) {
+        value = System.getProperty(RIProperties.EXECUTOR);
+      }
+
+      if (value instanceof ExecutorService) {
+        executor = (ExecutorService) value;
+      } else if (value == null || value.toString().trim().isEmpty()) {
+        int threads = (int) Math.min(Integer.MAX_VALUE, RIProperties.getLong(properties, null,
+            RIProperties.EXECUTOR_THREADS, Runtime.getRuntime().availableProcessors()));
+        if (threads <= 0) {
+          throw new IllegalArgumentException("The property " + RIProperties.EXECUTOR_THREADS +
+              " must be positive but was " + threads);
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, EXECUTOR_KEEP_ALIVE, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+              @Override
+              public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "RICacheManager-executor-" + uri);
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
+        //don't keep threads for caches that are idle
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+        isExecutorOwned = true;
+      } else if (VIRTUAL_THREADS.equalsIgnoreCase(value.toString().trim())) {
+        try {
+          //virtual threads aren't available on the platform the RI is built for
+          executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+          isExecutorOwned = true;
+        } catch (Exception e) {
+          throw new CacheException("Virtual threads, as specified by the property " +
+              RIProperties.EXECUTOR + ", require Java 21 or later", e);
+        }
+      } else {
+        throw new CacheException("The property " + RIProperties.EXECUTOR + " must be an ExecutorService or \"" +
+            VIRTUAL_THREADS + "\" but was [" + value + "]");
+      }
+    }
+    return executor;
+  }
+
+  /**
+   * Gets the {@link RIClock} of the caches, as specified by the
+   * {@link RIProperties#CLOCK} property.
+   *
+   * @return the {@link RIClock}
+   * @throws CacheException if the specified {@link RIClock} can't be created
+   */
+  synchronized RIClock getClock() {
+    if (clock == null) {
+      Object value = properties.get(RIProperties.CLOCK);
+      if (value == null) {
+        value = System.getProperty(RIProperties.CLOCK);
+      }
+
+      if (value instanceof RIClock) {
+        clock = (RIClock) value;
+      } else if (value == null || value.toString().trim().isEmpty()) {
+        clock = RISystemClock.INSTANCE;
+      } else {
+        String className = value.toString().trim();
         try {
-          cache.close();
+          clock = (RIClock) Class.forName(className, true, getClassLoader()).newInstance();
+          isClockOwned = true;
         } catch (Exception e) {
-          getLogger().log(Level.WARNING, "Error stopping cache: " + cache, e);
+          throw new CacheException("Failed to create the RIClock " + className, e);
         }
       }
     }
+    return clock;
   }
 
   /**
@@ -0,0 +1,110 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import java.io.Closeable;
+
+/**
+ * An {@link RIClock} whose time in milliseconds is read from the system clock
+ * every millisecond by a background daemon thread, rather than by every
+ * operation of a Cache.
+ * <p>
+ * The time may lag the system clock by a millisecond or so, which is well
+ * within the resolution expected of expiry.  Durations measured for the
+ * statistics still use {@link System#nanoTime()}, as they are commonly
+ * shorter than a millisecond.
+ * </p>
+ * The thread stops when the {@link RICachedClock} is closed, after which the
+ * time no longer advances.
+ */
+public final class RICachedClock implements RIClock, Closeable {
+
+  /**
+   * The number of milliseconds between reads of the system clock.
+   */
+  private static final long RESOLUTION = 1;
+
+  /**
+   * The time last read from the system clock.
+   */
+  private volatile long currentTimeMillis;
+
+  /**
+   * Whether the {@link RICachedClock} has been closed.
+   */
+  private volatile boolean isClosed;
+
+  /**
+   * The thread reading the system clock.
+   */
+  private final Thread thread;
+
+  /**
+   * Constructs an {@link RICachedClock}, starting its thread.
+   */
+  public RICachedClock() {
+    this.currentTimeMillis = System.currentTimeMillis();
+    this.thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        tick();
+      }
+    }, "RICachedClock");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long currentTimeMillis() {
+    return currentTimeMillis;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long nanoTime() {
+    return System.nanoTime();
+  }
+
+  /**
+   * Stops the thread reading the system clock.
+   */
+  @Override
+  public void close() {
+    isClosed = true;
+    thread.interrupt();
+  }
+
+  /**
+   * Reads the system clock until closed.
+   */
+  private void tick() {
+    while (!isClosed) {
+      currentTimeMillis = System.currentTimeMillis();
+      try {
+        Thread.sleep(RESOLUTION);
+      } catch (InterruptedException e) {
+        //closed
+        return;
+      }
+    }
+  }
+}
@@ -16,6 +16,8 @@
  */
 package org.jsr107.ri;
 
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
 /**
  * Represents the internal Cache Entry Value with in an {@link RICache}.
  * <p>
@@ -24,18 +26,35 @@ package org.jsr107.ri;
  * </p>
  * {@link RICachedValue}s additionally store and provide meta information about
  * Cache Entry Values, including information for dealing with expiry.
+ * <p>
+ * The value and its access metadata may be read, and the access metadata
+ * updated, without holding the lock of the Cache Entry, so that cache hits
+ * need not lock.  All other changes must be made while holding the lock.
+ * </p>
  *
  * @author Brian Oliver
  * @see RIInternalConverter
  */
 public class RICachedValue {
 
+  /**
+   * The updater of the {@link #accessTime}.
+   */
+  private static final AtomicLongFieldUpdater<RICachedValue> ACCESS_TIME =
+      AtomicLongFieldUpdater.newUpdater(RICachedValue.class, "accessTime");
+
+  /**
+   * The updater of the {@link #accessCount}.
+   */
+  private static final AtomicLongFieldUpdater<RICachedValue> ACCESS_COUNT =
+      AtomicLongFieldUpdater.newUpdater(RICachedValue.class, "accessCount");
+
   /**
    * The internal representation of the Cache Entry value.
    *
    * @see RIInternalConverter
    */
-  private Object internalValue;
+  private volatile Object internalValue;
 
   /**
    * The time (since the Epoc) in milliseconds since the internal value was created.
@@ -46,12 +65,12 @@ public class RICachedValue {
    * The time (since the Epoc) in milliseconds since the internal value was
    * last accessed.
    */
-  private long accessTime;
+  private volatile long accessTime;
 
   /**
    * The number of times the interval value has been accessed.
    */
-  private long accessCount;
+  private volatile long accessCount;
 
   /**
    * The time (since the Epoc) in milliseconds since the internal value was
@@ -71,7 +90,13 @@ public class RICachedValue {
    * A value of -1 indicates that the Cache Entry should never expire.
    * </p>
    */
-  private long expiryTime;
+  private volatile long expiryTime;
+
+  /**
+   * The {@link RITimerWheel.Timer} scheduling the expiry of the Cache Entry,
+   * or <code>null</code> if it has never been scheduled.
+   */
+  private volatile RITimerWheel.Timer timer;
 
   /**
    * Constructs an {@link RICachedValue} with the creation, access and
@@ -91,6 +116,29 @@ public class RICachedValue {
     this.modificationCount = 0;
   }
 
+  /**
+   * Constructs an {@link RICachedValue} restoring the times and counts of a
+   * previously stored value.
+   *
+   * @param internalValue     the internal representation of the value
+   * @param creationTime      the time when the cache entry was created
+   * @param accessTime        the time when the cache entry was last accessed
+   * @param accessCount       the number of times the value has been accessed
+   * @param modificationTime  the time when the cache entry was last modified
+   * @param modificationCount the number of times the value has been modified
+   * @param expiryTime        the time when the cache entry should expire
+   */
+  RICachedValue(Object internalValue, long creationTime, long accessTime, long accessCount,
+                long modificationTime, long modificationCount, long expiryTime) {
+    this.internalValue = internalValue;
+    this.creationTime = creationTime;
+    this.accessTime = accessTime;
+    this.accessCount = accessCount;
+    this.modificationTime = modificationTime;
+    this.modificationCount = modificationCount;
+    this.expiryTime = expiryTime;
+  }
+
   /**
    * Gets the time (since the Epoc) in milliseconds since the internal value
    * was created.
@@ -191,13 +239,21 @@ public class RICachedValue {
   /**
    * Gets the internal value with the side-effect of updating the access time
    * to that which is specified and incrementing the access count.
+   * <p>
+   * The access metadata is lazily set rather than atomically updated, so that
+   * concurrent hits don't contend for it.  Any of the concurrent accesses may
+   * be considered the last, while the access count, being a statistic, may
+   * miss some of them.  The access time is only written when it changes.
+   * </p>
    *
    * @param accessTime the time when the internal value was accessed
    * @return the internal value
    */
   public Object getInternalValue(long accessTime) {
-    this.accessTime = accessTime;
-    this.accessCount++;
+    if (this.accessTime != accessTime) {
+      ACCESS_TIME.lazySet(this, accessTime);
+    }
+    ACCESS_COUNT.lazySet(this, accessCount + 1);
     return internalValue;
   }
 
@@ -214,4 +270,25 @@ public class RICachedValue {
     this.internalValue = internalValue;
     this.modificationCount++;
   }
+
+  /**
+   * Gets the {@link RITimerWheel.Timer} scheduling the expiry of the Cache
+   * Entry.
+   *
+   * @return the {@link RITimerWheel.Timer} or <code>null</code> if the entry
+   *         has never been scheduled
+   */
+  RITimerWheel.Timer getTimer() {
+    return timer;
+  }
+
+  /**
+   * Sets the {@link RITimerWheel.Timer} scheduling the expiry of the Cache
+   * Entry.
+   *
+   * @param timer the {@link RITimerWheel.Timer}
+   */
+  void setTimer(RITimerWheel.Timer timer) {
+    this.timer = timer;
+  }
 }
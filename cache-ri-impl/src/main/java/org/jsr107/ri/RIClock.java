@@ -0,0 +1,47 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+/**
+ * The source of the times used by the caches of an {@link RICacheManager},
+ * both to timestamp and expire entries and to measure the durations reported
+ * by the statistics.
+ * <p>
+ * The {@link RISystemClock} is used unless an {@link RIClock} is specified
+ * with the {@link RIProperties#CLOCK} property, for example the
+ * {@link RICachedClock} that avoids reading the system clock on every
+ * operation, or an {@link RIVirtualClock} controlled by a test.
+ * </p>
+ * Implementations must be thread-safe.
+ */
+public interface RIClock {
+
+  /**
+   * Gets the current time, as used to timestamp and expire entries.
+   *
+   * @return the time in milliseconds (since the Epoc)
+   */
+  long currentTimeMillis();
+
+  /**
+   * Gets the current value of a time source with nanosecond precision, only
+   * meaningful as the difference between two values.
+   *
+   * @return the time in nanoseconds (from an arbitrary origin)
+   */
+  long nanoTime();
+}
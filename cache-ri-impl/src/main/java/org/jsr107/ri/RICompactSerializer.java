@@ -0,0 +1,296 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import javax.cache.CacheException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * An {@link RISerializer} with compact encodings for the types commonly used
+ * as keys and values, falling back to another {@link RISerializer} (by
+ * default the {@link RIJavaSerializer}) for all other types.
+ * <p>
+ * Strings, boxed primitives, byte arrays, {@link UUID}s, {@link Date}s,
+ * {@link BigInteger}s and {@link BigDecimal}s are encoded as a single tag
+ * byte followed by their raw content, rather than the class descriptors and
+ * stream headers of Java serialization.  Subclasses of these types are left
+ * to the fallback so that they are deserialized as the same class.
+ * </p>
+ * <p>
+ * When the fallback is the {@link RIJavaSerializer}, it writes the tag ahead
+ * of the serialized form and reads the serialized form in place after the
+ * tag, so that the fallback path copies the bytes no more than Java
+ * serialization itself does.
+ * </p>
+ */
+public final class RICompactSerializer implements RISerializer {
+
+  /**
+   * The tag of a value serialized by the fallback {@link RISerializer}.
+   */
+  private static final byte FALLBACK = 0;
+
+  /**
+   * The tag of a String consisting only of ASCII characters, one byte each.
+   */
+  private static final byte ASCII_STRING = 1;
+
+  /**
+   * The tag of any other String, as UTF-16 characters of two bytes each.
+   */
+  private static final byte STRING = 2;
+
+  /**
+   * The tag of {@link Boolean#FALSE}.
+   */
+  private static final byte FALSE = 3;
+
+  /**
+   * The tag of {@link Boolean#TRUE}.
+   */
+  private static final byte TRUE = 4;
+
+  /**
+   * The tag of a {@link Byte}.
+   */
+  private static final byte BYTE = 5;
+
+  /**
+   * The tag of a {@link Short}.
+   */
+  private static final byte SHORT = 6;
+
+  /**
+   * The tag of a {@link Character}.
+   */
+  private static final byte CHARACTER = 7;
+
+  /**
+   * The tag of an {@link Integer}.
+   */
+  private static final byte INTEGER = 8;
+
+  /**
+   * The tag of a {@link Long}.
+   */
+  private static final byte LONG = 9;
+
+  /**
+   * The tag of a {@link Float}.
+   */
+  private static final byte FLOAT = 10;
+
+  /**
+   * The tag of a {@link Double}.
+   */
+  private static final byte DOUBLE = 11;
+
+  /**
+   * The tag of a byte array.
+   */
+  private static final byte BYTES = 12;
+
+  /**
+   * The tag of a {@link UUID}.
+   */
+  private static final byte UUID_VALUE = 13;
+
+  /**
+   * The tag of a {@link Date}.
+   */
+  private static final byte DATE = 14;
+
+  /**
+   * The tag of a {@link BigInteger}.
+   */
+  private static final byte BIG_INTEGER = 15;
+
+  /**
+   * The tag of a {@link BigDecimal}, being its scale and unscaled value.
+   */
+  private static final byte BIG_DECIMAL = 16;
+
+  /**
+   * The {@link RISerializer} for the types without a compact encoding.
+   */
+  private final RISerializer fallback;
+
+  /**
+   * Constructs an {@link RICompactSerializer} falling back to Java
+   * serialization.
+   */
+  public RICompactSerializer() {
+    this(RIJavaSerializer.INSTANCE);
+  }
+
+  /**
+   * Constructs an {@link RICompactSerializer}.
+   *
+   * @param fallback the {@link RISerializer} for the types without a compact
+   *                 encoding
+   */
+  public RICompactSerializer(RISerializer fallback) {
+    if (fallback == null) {
+      throw new NullPointerException("The fallback RISerializer can't be null");
+    }
+    this.fallback = fallback;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public byte[] serialize(Object value) {
+    Class<?> type = value.getClass();
+    if (type == String.class) {
+      return serializeString((String) value);
+    } else if (type == Integer.class) {
+      return allocate(INTEGER, 4).putInt((Integer) value).array();
+    } else if (type == Long.class) {
+      return allocate(LONG, 8).putLong((Long) value).array();
+    } else if (type == Boolean.class) {
+      return new byte[]{(Boolean) value ? TRUE : FALSE};
+    } else if (type == Byte.class) {
+      return new byte[]{BYTE, (Byte) value};
+    } else if (type == Short.class) {
+      return allocate(SHORT, 2).putShort((Short) value).array();
+    } else if (type == Character.class) {
+      return allocate(CHARACTER, 2).putChar((Character) value).array();
+    } else if (type == Float.class) {
+      return allocate(FLOAT, 4).putInt(Float.floatToIntBits((Float) value)).array();
+    } else if (type == Double.class) {
+      return allocate(DOUBLE, 8).putLong(Double.doubleToLongBits((Double) value)).array();
+    } else if (type == byte[].class) {
+      byte[] bytes = (byte[]) value;
+      return allocate(BYTES, bytes.length).put(bytes).array();
+    } else if (type == UUID.class) {
+      UUID uuid = (UUID) value;
+      return allocate(UUID_VALUE, 16).putLong(uuid.getMostSignificantBits())
+          .putLong(uuid.getLeastSignificantBits()).array();
+    } else if (type == Date.class) {
+      return allocate(DATE, 8).putLong(((Date) value).getTime()).array();
+    } else if (type == BigInteger.class) {
+      byte[] bytes = ((BigInteger) value).toByteArray();
+      return allocate(BIG_INTEGER, bytes.length).put(bytes).array();
+    } else if (type == BigDecimal.class) {
+      BigDecimal decimal = (BigDecimal) value;
+      byte[] bytes = decimal.unscaledValue().toByteArray();
+      return allocate(BIG_DECIMAL, 4 + bytes.length).putInt(decimal.scale()).put(bytes).array();
+    } else if (fallback instanceof RIJavaSerializer) {
+      return ((RIJavaSerializer) fallback).serialize(FALLBACK, value);
+    } else {
+      byte[] bytes = fallback.serialize(value);
+      return allocate(FALLBACK, bytes.length).put(bytes).array();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object deserialize(byte[] bytes, ClassLoader classLoader) {
+    if (bytes.length == 0) {
+      throw new CacheException("Failed to deserialize: no bytes");
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+    switch (bytes[0]) {
+      case FALLBACK:
+        return fallback instanceof RIJavaSerializer
+            ? ((RIJavaSerializer) fallback).deserialize(bytes, 1, classLoader)
+            : fallback.deserialize(Arrays.copyOfRange(bytes, 1, bytes.length), classLoader);
+      case ASCII_STRING:
+        return new String(bytes, 1, bytes.length - 1, StandardCharsets.US_ASCII);
+      case STRING:
+        char[] chars = new char[(bytes.length - 1) / 2];
+        buffer.asCharBuffer().get(chars);
+        return new String(chars);
+      case FALSE:
+        return Boolean.FALSE;
+      case TRUE:
+        return Boolean.TRUE;
+      case BYTE:
+        return buffer.get();
+      case SHORT:
+        return buffer.getShort();
+      case CHARACTER:
+        return buffer.getChar();
+      case INTEGER:
+        return buffer.getInt();
+      case LONG:
+        return buffer.getLong();
+      case FLOAT:
+        return Float.intBitsToFloat(buffer.getInt());
+      case DOUBLE:
+        return Double.longBitsToDouble(buffer.getLong());
+      case BYTES:
+        return Arrays.copyOfRange(bytes, 1, bytes.length);
+      case UUID_VALUE:
+        return new UUID(buffer.getLong(), buffer.getLong());
+      case DATE:
+        return new Date(buffer.getLong());
+      case BIG_INTEGER:
+        return new BigInteger(Arrays.copyOfRange(bytes, 1, bytes.length));
+      case BIG_DECIMAL:
+        int scale = buffer.getInt();
+        return new BigDecimal(new BigInteger(Arrays.copyOfRange(bytes, 5, bytes.length)), scale);
+      default:
+        throw new CacheException("Failed to deserialize: unknown tag " + bytes[0]);
+    }
+  }
+
+  /**
+   * Serializes a String, using a single byte per character when the String
+   * only contains ASCII characters.
+   *
+   * @param string the String
+   * @return the serialized form of the String
+   */
+  private static byte[] serializeString(String string) {
+    int length = string.length();
+    byte[] bytes = new byte[1 + length];
+    bytes[0] = ASCII_STRING;
+    for (int i = 0; i < length; i++) {
+      char c = string.charAt(i);
+      if (c >= 0x80) {
+        ByteBuffer buffer = allocate(STRING, 2 * length);
+        buffer.asCharBuffer().put(string);
+        return buffer.array();
+      }
+      bytes[i + 1] = (byte) c;
+    }
+    return bytes;
+  }
+
+  /**
+   * Allocates a {@link ByteBuffer} for a serialized value, with the tag
+   * already written.
+   *
+   * @param tag    the tag of the value
+   * @param length the number of bytes following the tag
+   * @return the {@link ByteBuffer}
+   */
+  private static ByteBuffer allocate(byte tag, int length) {
+    return ByteBuffer.allocate(1 + length).put(tag);
+  }
+}
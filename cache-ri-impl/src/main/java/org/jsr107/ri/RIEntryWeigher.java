@@ -0,0 +1,83 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+/**
+ * An {@link RIWeigher} for the internal representation of cache entries, as
+ * held by the {@link RIInternalMap} of an {@link RICache}.
+ * <p>
+ * Serialized keys and values weigh the number of bytes of their serialized
+ * form, while immutable keys and values stored by reference weigh an
+ * estimate of it (see {@link RISerializingInternalConverter#sizeOf(Object)}).
+ * Otherwise the weight is determined by an application provided
+ * {@link RIWeigher}.
+ * </p>
+ */
+class RIEntryWeigher implements RIWeigher<Object, RICachedValue> {
+
+  /**
+   * The {@link RISerializingInternalConverter} for keys (may be <code>null</code>).
+   */
+  private final RISerializingInternalConverter<?> keyConverter;
+
+  /**
+   * The {@link RISerializingInternalConverter} for values (may be <code>null</code>).
+   */
+  private final RISerializingInternalConverter<?> valueConverter;
+
+  /**
+   * The application provided {@link RIWeigher} (may be <code>null</code>).
+   */
+  private final RIWeigher<Object, Object> weigher;
+
+  /**
+   * Constructs an {@link RIEntryWeigher} for serialized entries.
+   *
+   * @param keyConverter   the {@link RISerializingInternalConverter} for keys
+   * @param valueConverter the {@link RISerializingInternalConverter} for values
+   */
+  RIEntryWeigher(RISerializingInternalConverter<?> keyConverter,
+                 RISerializingInternalConverter<?> valueConverter) {
+    this.keyConverter = keyConverter;
+    this.valueConverter = valueConverter;
+    this.weigher = null;
+  }
+
+  /**
+   * Constructs an {@link RIEntryWeigher} for entries stored by reference.
+   *
+   * @param weigher the application provided {@link RIWeigher}
+   */
+  RIEntryWeigher(RIWeigher<Object, Object> weigher) {
+    this.keyConverter = null;
+    this.valueConverter = null;
+    this.weigher = weigher;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int weigh(Object internalKey, RICachedValue cachedValue) {
+    if (weigher == null) {
+      long weight = (long) keyConverter.sizeOf(internalKey) + valueConverter.sizeOf(cachedValue.get());
+      return (int) Math.min(weight, Integer.MAX_VALUE);
+    } else {
+      return weigher.weigh(internalKey, cachedValue.get());
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+/**
+ * Receives the entries an {@link RIInternalMap} has evicted to remain
+ * within its bounds.
+ *
+ * @param <K> the type of keys stored
+ * @param <V> the type of values stored
+ */
+interface RIEvictionListener<K, V> {
+
+  /**
+   * Invoked as an entry is evicted, while the {@link RIInternalMap} holds
+   * the lock guarding the entry and before the entry ceases to be readable
+   * from the map, so that the entry can be moved elsewhere without ever
+   * being missing.  Implementations must be quick and must not use the map.
+   *
+   * @param key   the key of the evicted entry
+   * @param value the value of the evicted entry
+   */
+  void onEviction(K key, V value);
+}
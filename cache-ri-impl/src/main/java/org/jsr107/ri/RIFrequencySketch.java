@@ -0,0 +1,194 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+/**
+ * A probabilistic estimate of how often keys have been used, as required
+ * by the TinyLFU admission policy of the {@link RIBoundedInternalMap}.
+ * <p>
+ * The sketch is a count-min sketch of four rows of 4-bit counters, packed
+ * sixteen to a long.  Once the number of recorded uses reaches the sample size
+ * every counter is halved, so that the estimates favour recent history.
+ * </p>
+ * This class is not thread-safe.
+ */
+final class RIFrequencySketch {
+
+  /**
+   * The seeds used to derive the counter index in each row.
+   */
+  private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+  /**
+   * A mask that clears the most significant bit of every counter after a shift.
+   */
+  private static final long RESET_MASK = 0x7777777777777777L;
+
+  /**
+   * A mask that selects the least significant bit of every counter.
+   */
+  private static final long ONE_MASK = 0x1111111111111111L;
+
+  /**
+   * The largest number of longs allocated for counters.
+   */
+  private static final int MAXIMUM_TABLE_SIZE = 1 << 24;
+
+  /**
+   * The counters, sixteen per long.
+   */
+  private long[] table;
+
+  /**
+   * The number of uses recorded before the counters are aged.
+   */
+  private int sampleSize;
+
+  /**
+   * The number of uses recorded since the counters were last aged.
+   */
+  private int size;
+
+  /**
+   * Constructs a {@link RIFrequencySketch} sized for the specified number
+   * of entries.
+   *
+   * @param maximumSize the maximum number of entries being tracked
+   */
+  RIFrequencySketch(long maximumSize) {
+    this.table = new long[0];
+    ensureCapacity(maximumSize);
+  }
+
+  /**
+   * Grows the sketch so that it can track the specified number of entries.
+   * Growing forgets all recorded uses.
+   *
+   * @param maximumSize the maximum number of entries being tracked
+   */
+  void ensureCapacity(long maximumSize) {
+    int capacity = (int) Math.min(Math.max(maximumSize, 8), MAXIMUM_TABLE_SIZE);
+    if (capacity > table.length) {
+      table = new long[Integer.highestOneBit(capacity - 1) << 1];
+      sampleSize = (int) Math.min(10L * capacity, Integer.MAX_VALUE);
+      size = 0;
+    }
+  }
+
+  /**
+   * Gets the estimated number of times the key has been used, up to 15.
+   *
+   * @param key the key
+   * @return the estimated frequency
+   */
+  int frequency(Object key) {
+    int hash = spread(key.hashCode());
+    int start = (hash & 3) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Records a use of the key, aging all counters when the sample size has
+   * been reached.
+   *
+   * @param key the key
+   */
+  void increment(Object key) {
+    int hash = spread(key.hashCode());
+    int start = (hash & 3) << 2;
+
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+
+    if (added && ++size == sampleSize) {
+      reset();
+    }
+  }
+
+  /**
+   * Forgets all recorded uses.
+   */
+  void clear() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = 0L;
+    }
+    size = 0;
+  }
+
+  /**
+   * Increments a counter unless it is saturated.
+   *
+   * @param index   the index of the long holding the counter
+   * @param counter the counter (0 to 15) within the long
+   * @return true if the counter was incremented
+   */
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Halves every counter.
+   */
+  private void reset() {
+    int odd = 0;
+    for (int i = 0; i < table.length; i++) {
+      odd += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size = (size >>> 1) - (odd >>> 2);
+  }
+
+  /**
+   * Determines the index of the long holding the counter for a row.
+   *
+   * @param hash the spread hash of the key
+   * @param row  the row
+   * @return the index into the table
+   */
+  private int indexOf(int hash, int row) {
+    long h = (hash + SEEDS[row]) * SEEDS[row];
+    h += h >>> 32;
+    return ((int) h) & (table.length - 1);
+  }
+
+  /**
+   * Applies a supplemental hash to defend against poor hash functions.
+   *
+   * @param hash the hash code of a key
+   * @return the spread hash
+   */
+  private static int spread(int hash) {
+    int h = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    h = ((h >>> 16) ^ h) * 0x45d9f3b;
+    return (h >>> 16) ^ h;
+  }
+}
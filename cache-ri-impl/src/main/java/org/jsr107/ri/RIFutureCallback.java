@@ -0,0 +1,47 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+/**
+ * A callback notified once an {@link RIListenableFuture} completes.
+ * <p>
+ * Callbacks are invoked by the thread completing the operation, or by the
+ * thread adding the callback if the operation has already completed, so they
+ * should be quick and must not wait for other operations of the Cache.
+ * </p>
+ *
+ * @param <T> the type of the result
+ * @see RIListenableFuture#addCallback(RIFutureCallback)
+ */
+public interface RIFutureCallback<T> {
+
+  /**
+   * Invoked when the operation completed successfully.
+   *
+   * @param result the result of the operation
+   */
+  void onSuccess(T result);
+
+  /**
+   * Invoked when the operation failed or was cancelled.
+   *
+   * @param failure the cause of the failure, or a
+   *                {@link java.util.concurrent.CancellationException} if the
+   *                operation was cancelled
+   */
+  void onFailure(Throwable failure);
+}
@@ -0,0 +1,86 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Determines which types of keys and values are immutable, and may thus be
+ * stored by reference by caches that store-by-value without an application
+ * observing the difference.
+ * <p>
+ * A type is immutable when it's one of the built-in immutable types of the
+ * platform, an enum, annotated with {@link RIImmutable} or named by the
+ * {@link RIProperties#IMMUTABLE_TYPES} property.  Only exact classes are
+ * considered, as a subclass of an immutable class may itself be mutable.
+ * </p>
+ */
+final class RIImmutableTypes {
+
+  /**
+   * The names of the built-in immutable types.  The java.time types are
+   * named so that they're recognised on platforms that provide them.
+   */
+  private static final Set<String> BUILT_IN = new HashSet<String>(Arrays.asList(
+      "java.lang.String", "java.lang.Boolean", "java.lang.Byte", "java.lang.Short",
+      "java.lang.Character", "java.lang.Integer", "java.lang.Long", "java.lang.Float",
+      "java.lang.Double", "java.math.BigInteger", "java.math.BigDecimal", "java.util.UUID",
+      "java.util.Locale", "java.net.URI", "java.io.File",
+      "java.time.Duration", "java.time.Instant", "java.time.LocalDate", "java.time.LocalDateTime",
+      "java.time.LocalTime", "java.time.MonthDay", "java.time.OffsetDateTime", "java.time.OffsetTime",
+      "java.time.Period", "java.time.Year", "java.time.YearMonth", "java.time.ZonedDateTime",
+      "java.time.ZoneOffset"));
+
+  /**
+   * The names of the additional immutable types.
+   */
+  private final Set<String> typeNames;
+
+  /**
+   * Whether each type that has been tested is immutable.
+   */
+  private final ClassValue<Boolean> immutability = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      return BUILT_IN.contains(type.getName()) || typeNames.contains(type.getName())
+          || Enum.class.isAssignableFrom(type) || type.isAnnotationPresent(RIImmutable.class);
+    }
+  };
+
+  /**
+   * Constructs an {@link RIImmutableTypes}.
+   *
+   * @param typeNames the names of the types to consider immutable in addition
+   *                  to the built-in types
+   */
+  RIImmutableTypes(Set<String> typeNames) {
+    this.typeNames = typeNames == null ? Collections.<String>emptySet() : typeNames;
+  }
+
+  /**
+   * Determines if a value is of an immutable type.
+   *
+   * @param value the value
+   * @return true if the value is immutable
+   */
+  boolean isImmutable(Object value) {
+    return immutability.get(value.getClass());
+  }
+}
@@ -0,0 +1,163 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import javax.cache.CacheException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+
+/**
+ * An {@link RISerializer} using Java serialization, capable of serializing
+ * any {@link java.io.Serializable} value.
+ */
+public final class RIJavaSerializer implements RISerializer {
+
+  /**
+   * The {@link RIJavaSerializer}.
+   */
+  public static final RIJavaSerializer INSTANCE = new RIJavaSerializer();
+
+  /**
+   * Constructs an {@link RIJavaSerializer}.
+   */
+  public RIJavaSerializer() {
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public byte[] serialize(Object value) {
+    return serialize(value, new ByteArrayOutputStream());
+  }
+
+  /**
+   * Serializes a value following a tag byte, so that the
+   * {@link RICompactSerializer} needn't copy the serialized form to prefix it.
+   *
+   * @param tag   the tag byte
+   * @param value the value
+   * @return the tag byte followed by the serialized form of the value
+   */
+  byte[] serialize(byte tag, Object value) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    bos.write(tag);
+    return serialize(value, bos);
+  }
+
+  /**
+   * Serializes a value to the end of a stream.
+   *
+   * @param value the value
+   * @param bos   the {@link ByteArrayOutputStream} to write to
+   * @return the content of the stream
+   */
+  private static byte[] serialize(Object value, ByteArrayOutputStream bos) {
+    try {
+      ObjectOutputStream oos = new ObjectOutputStream(bos);
+      oos.writeObject(value);
+      oos.flush();
+      return bos.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed to serialize: " + value + " due to " + e.getMessage(), e);
+    } finally {
+      try {
+        bos.close();
+      } catch (IOException e) {
+        // eat this up
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object deserialize(byte[] bytes, ClassLoader classLoader) {
+    return deserialize(bytes, 0, classLoader);
+  }
+
+  /**
+   * Deserializes a value from the end of an array, so that the
+   * {@link RICompactSerializer} needn't copy the serialized form to remove
+   * its tag byte.
+   *
+   * @param bytes       the array containing the serialized form
+   * @param offset      the offset of the serialized form in the array
+   * @param classLoader the {@link ClassLoader} to resolve classes
+   * @return the value
+   */
+  Object deserialize(byte[] bytes, int offset, ClassLoader classLoader) {
+    ByteArrayInputStream bos = new ByteArrayInputStream(bytes, offset, bytes.length - offset);
+    ObjectInputStream ois;
+    try {
+      ois = new CustomizedClassLoaderObjectInputStream(bos, classLoader);
+      return ois.readObject();
+    } catch (IOException e) {
+      throw new CacheException("Failed to deserialize: " + e.getMessage(), e);
+    } catch (ClassNotFoundException e) {
+      throw new CacheException("Failed to resolve a deserialized class: " + e.getMessage(), e);
+    } finally {
+      try {
+        bos.close();
+      } catch (IOException e) {
+        // eat this up
+      }
+    }
+  }
+
+  /**
+   * An {@link ObjectInputStream} that uses a specific {@link ClassLoader}.
+   */
+  private static final class CustomizedClassLoaderObjectInputStream extends ObjectInputStream {
+
+    /**
+     * The {@link ClassLoader} to use.
+     */
+    private final ClassLoader classloader;
+
+    /**
+     * Constructs a {@link CustomizedClassLoaderObjectInputStream}.
+     *
+     * @param in          the {@link InputStream}
+     * @param classloader the {@link ClassLoader}
+     * @throws IOException should the stream not be created
+     */
+    private CustomizedClassLoaderObjectInputStream(InputStream in, ClassLoader classloader) throws IOException {
+      super(in);
+      this.classloader = classloader;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+      String name = desc.getName();
+      try {
+        return Class.forName(name, false, classloader);
+      } catch (ClassNotFoundException ex) {
+        return super.resolveClass(desc);
+      }
+    }
+  }
+}
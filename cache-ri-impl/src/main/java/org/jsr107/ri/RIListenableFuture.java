@@ -0,0 +1,40 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import java.util.concurrent.Future;
+
+/**
+ * A {@link Future} that notifies callbacks once it completes, so that the
+ * result of an asynchronous operation can be handled without a thread
+ * waiting for it.
+ *
+ * @param <T> the type of the result
+ * @see RIAsyncCache
+ */
+public interface RIListenableFuture<T> extends Future<T> {
+
+  /**
+   * Adds a callback to be notified once the {@link Future} completes, or
+   * straight away if it has already completed.  Each callback is notified
+   * exactly once.
+   *
+   * @param callback the {@link RIFutureCallback}
+   * @throws NullPointerException if the callback is null
+   */
+  void addCallback(RIFutureCallback<? super T> callback);
+}
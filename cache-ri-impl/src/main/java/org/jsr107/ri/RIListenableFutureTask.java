@@ -0,0 +1,129 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link FutureTask} that is an {@link RIListenableFuture}, notifying its
+ * callbacks as it completes.
+ *
+ * @param <T> the type of the result
+ */
+class RIListenableFutureTask<T> extends FutureTask<T> implements RIListenableFuture<T> {
+
+  /**
+   * The callbacks yet to be notified, or <code>null</code> once the task has
+   * completed.  Guarded by the task.
+   */
+  private List<RIFutureCallback<? super T>> callbacks = new ArrayList<RIFutureCallback<? super T>>(1);
+
+  /**
+   * Constructs an {@link RIListenableFutureTask}.
+   *
+   * @param task the {@link Callable} to be performed
+   */
+  RIListenableFutureTask(Callable<T> task) {
+    super(task);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void addCallback(RIFutureCallback<? super T> callback) {
+    if (callback == null) {
+      throw new NullPointerException("callback can't be null");
+    }
+    synchronized (this) {
+      //the task may have completed without having notified the callbacks yet
+      if (callbacks != null && !isDone()) {
+        callbacks.add(callback);
+        return;
+      }
+    }
+    notifyCallback(callback);
+  }
+
+  /**
+   * Notifies the callbacks, once the task has completed.  Subclasses must
+   * call this method when overriding it.
+   */
+  @Override
+  protected void done() {
+    List<RIFutureCallback<? super T>> completed;
+    synchronized (this) {
+      completed = callbacks;
+      callbacks = null;
+    }
+    for (RIFutureCallback<? super T> callback : completed) {
+      notifyCallback(callback);
+    }
+  }
+
+  /**
+   * Notifies a callback of the outcome of the completed task.  A callback
+   * that fails is logged, so that it affects neither the task nor the
+   * other callbacks.
+   *
+   * @param callback the {@link RIFutureCallback}
+   */
+  private void notifyCallback(RIFutureCallback<? super T> callback) {
+    T result;
+    try {
+      result = get();
+    } catch (ExecutionException e) {
+      notifyFailure(callback, e.getCause());
+      return;
+    } catch (CancellationException e) {
+      notifyFailure(callback, e);
+      return;
+    } catch (InterruptedException e) {
+      //can't happen as the task has completed
+      Thread.currentThread().interrupt();
+      notifyFailure(callback, e);
+      return;
+    }
+
+    try {
+      callback.onSuccess(result);
+    } catch (RuntimeException e) {
+      Logger.getLogger("javax.cache").log(Level.WARNING, "Problem notifying " + callback, e);
+    }
+  }
+
+  /**
+   * Notifies a callback that the task failed.
+   *
+   * @param callback the {@link RIFutureCallback}
+   * @param failure  the cause of the failure
+   */
+  private static void notifyFailure(RIFutureCallback<?> callback, Throwable failure) {
+    try {
+      callback.onFailure(failure);
+    } catch (RuntimeException e) {
+      Logger.getLogger("javax.cache").log(Level.WARNING, "Problem notifying " + callback, e);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import javax.cache.CacheException;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A temporary file on local disk providing the slabs of an
+ * {@link RIOffHeapInternalMap} as memory-mapped regions.
+ * <p>
+ * The file grows as slabs are first mapped and is deleted when closed.  Its
+ * contents do not survive the Cache, as the index of the map is on the heap.
+ * </p>
+ */
+final class RIMappedFile implements RIOffHeapInternalMap.SlabAllocator, Closeable {
+
+  /**
+   * The file.
+   */
+  private final File file;
+
+  /**
+   * The {@link RandomAccessFile} for the file.
+   */
+  private final RandomAccessFile randomAccessFile;
+
+  /**
+   * The {@link FileChannel} through which regions are mapped.
+   */
+  private final FileChannel channel;
+
+  /**
+   * Constructs an {@link RIMappedFile}, creating a new file.
+   *
+   * @param directory the directory in which to create the file or
+   *                  <code>null</code> for the temporary directory
+   * @param cacheName the name of the Cache the file is for
+   * @throws CacheException if the file can't be created
+   */
+  RIMappedFile(File directory, String cacheName) {
+    try {
+      this.file = File.createTempFile("cache-" + cacheName.replaceAll("[^A-Za-z0-9.-]", "_") + "-",
+          ".overflow", directory);
+      this.file.deleteOnExit();
+      this.randomAccessFile = new RandomAccessFile(file, "rw");
+      this.channel = randomAccessFile.getChannel();
+    } catch (IOException e) {
+      throw new CacheException("Failed to create an overflow file for the cache " + cacheName +
+          " in " + directory, e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ByteBuffer allocate(long position, int size) {
+    try {
+      return channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+    } catch (IOException e) {
+      throw new CacheException("Failed to map " + size + " bytes at " + position + " of " + file, e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      channel.close();
+      randomAccessFile.close();
+    } finally {
+      //a region that remains mapped keeps the disk space until it is collected
+      file.delete();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return getClass().getName() + "{file=" + file + "}";
+  }
+}
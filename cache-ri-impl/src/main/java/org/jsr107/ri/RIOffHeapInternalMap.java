@@ -0,0 +1,1104 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import org.jsr107.ri.RISerializingInternalConverter.Serialized;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An implementation of a {@link RIInternalMap} for caches that store-by-value,
+ * keeping the serialized keys and values, together with their
+ * {@link RICachedValue} times and counts, outside of the Java heap in direct
+ * {@link ByteBuffer}s.
+ * <p>
+ * The map is divided into segments, each with its own lock.  A segment
+ * appends records to a ring of fixed size slabs and locates them with an
+ * open addressing index of primitive arrays, so the heap used by an entry is
+ * little more than two ints.  Replacing or removing an entry simply leaves
+ * its previous record behind as garbage.
+ * </p>
+ * <p>
+ * When a segment has filled all of its slabs the oldest slab is reclaimed,
+ * discarding the garbage and evicting the entries still living in it, other
+ * than those read since their record was written.  These are given a second
+ * chance, being compacted to the start of the slab and so becoming the most
+ * recently written.  The map is therefore bounded by its capacity and evicts
+ * the entries that were least recently written and have not been read since.
+ * An entry larger than a slab is evicted as soon as it is put.
+ * </p>
+ * <p>
+ * The {@link RICachedValue}s returned by the map are copies.  Changes to their
+ * access and expiry times are written back to the records they were read
+ * from, while a new internal value must be put into the map.
+ * </p>
+ * <p>
+ * Slabs are allocated by a {@link SlabAllocator}, so they may equally be
+ * regions of a memory-mapped file.
+ * </p>
+ */
+final class RIOffHeapInternalMap implements RIInternalMap<Object, RICachedValue> {
+
+  /**
+   * The number of segments, which must be a power of two.
+   */
+  private static final int SEGMENT_COUNT = 16;
+
+  /**
+   * The number of bits of a spread hash used to choose the segment.
+   */
+  private static final int SEGMENT_SHIFT = 32 - Integer.numberOfTrailingZeros(SEGMENT_COUNT);
+
+  /**
+   * The number of slabs a segment is divided into, unless that would make
+   * the slabs smaller than the minimum or larger than the maximum slab size.
+   */
+  private static final int SLABS_PER_SEGMENT = 16;
+
+  /**
+   * The smallest size of a slab in bytes.
+   */
+  private static final int MINIMUM_SLAB_SIZE = 1 << 12;
+
+  /**
+   * The largest size of a slab in bytes, which is also the largest record
+   * that may be stored.
+   */
+  private static final int MAXIMUM_SLAB_SIZE = 1 << 24;
+
+  /**
+   * The largest capacity of a segment in bytes.  Records are aligned to eight
+   * bytes so that their positions can be indexed by an int.
+   */
+  private static final long MAXIMUM_SEGMENT_CAPACITY = (long) (Integer.MAX_VALUE - 1) << 3;
+
+  /**
+   * The initial number of slots of the index of a segment.
+   */
+  private static final int INITIAL_INDEX_CAPACITY = 16;
+
+  /**
+   * The offset of the length of the serialized key in a record.
+   */
+  private static final int KEY_LENGTH_OFFSET = 0;
+
+  /**
+   * The offset of the length of the serialized value in a record.
+   */
+  private static final int VALUE_LENGTH_OFFSET = 4;
+
+  /**
+   * The offset of the hashcode of the key in a record.
+   */
+  private static final int KEY_HASH_OFFSET = 8;
+
+  /**
+   * The offset of the hashcode of the value in a record.
+   */
+  private static final int VALUE_HASH_OFFSET = 12;
+
+  /**
+   * The offset of the creation time in a record.
+   */
+  private static final int CREATION_TIME_OFFSET = 16;
+
+  /**
+   * The offset of the access time in a record.
+   */
+  private static final int ACCESS_TIME_OFFSET = 24;
+
+  /**
+   * The offset of the access count in a record.
+   */
+  private static final int ACCESS_COUNT_OFFSET = 32;
+
+  /**
+   * The offset of the modification time in a record.
+   */
+  private static final int MODIFICATION_TIME_OFFSET = 40;
+
+  /**
+   * The offset of the modification count in a record.
+   */
+  private static final int MODIFICATION_COUNT_OFFSET = 48;
+
+  /**
+   * The offset of the expiry time in a record.
+   */
+  private static final int EXPIRY_TIME_OFFSET = 56;
+
+  /**
+   * The offset of the flag set when a record is read after being written.
+   */
+  private static final int REFERENCED_OFFSET = 64;
+
+  /**
+   * The size of the header of a record, after which the serialized key and
+   * then the serialized value are stored.
+   */
+  private static final int HEADER_SIZE = 68;
+
+  /**
+   * The {@link SlabAllocator} allocating direct {@link ByteBuffer}s.
+   */
+  static final SlabAllocator DIRECT = new SlabAllocator() {
+    @Override
+    public ByteBuffer allocate(long position, int size) {
+      return ByteBuffer.allocateDirect(size);
+    }
+  };
+
+  /**
+   * The segments of the map.
+   */
+  private final Segment[] segments;
+
+  /**
+   * The {@link RIEvictionListener} to notify of evictions.
+   */
+  private final RIEvictionListener<Object, RICachedValue> evictionListener;
+
+  /**
+   * Constructs an {@link RIOffHeapInternalMap} using direct memory.
+   *
+   * @param capacity         the number of bytes of direct memory the map may use
+   * @param evictionListener the {@link RIEvictionListener} to notify of evictions
+   * @throws IllegalArgumentException if the capacity is too large
+   */
+  RIOffHeapInternalMap(long capacity, RIEvictionListener<Object, RICachedValue> evictionListener) {
+    this(capacity, DIRECT, evictionListener);
+  }
+
+  /**
+   * Constructs an {@link RIOffHeapInternalMap}.
+   *
+   * @param capacity         the number of bytes the map may use
+   * @param slabAllocator    the {@link SlabAllocator} for the slabs
+   * @param evictionListener the {@link RIEvictionListener} to notify of evictions
+   * @throws IllegalArgumentException if the capacity is too large
+   */
+  RIOffHeapInternalMap(long capacity, SlabAllocator slabAllocator,
+                       RIEvictionListener<Object, RICachedValue> evictionListener) {
+    long segmentCapacity = capacity / SEGMENT_COUNT;
+    int slabSize = Integer.highestOneBit((int) Math.min(MAXIMUM_SLAB_SIZE,
+        Math.max(MINIMUM_SLAB_SIZE, segmentCapacity / SLABS_PER_SEGMENT)));
+    long slabCount = Math.max(2, segmentCapacity / slabSize);
+    if (slabCount * slabSize > MAXIMUM_SEGMENT_CAPACITY) {
+      throw new IllegalArgumentException("The off-heap capacity of " + capacity + " bytes is too large");
+    }
+
+    this.evictionListener = evictionListener;
+    this.segments = new Segment[SEGMENT_COUNT];
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new Segment(slabAllocator, i * slabCount * slabSize, (int) slabCount, slabSize);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RICachedValue get(Object key) {
+    if (!(key instanceof Serialized)) {
+      return null;
+    }
+    Serialized<?> serializedKey = (Serialized<?>) key;
+    int hash = spread(serializedKey.hashCode());
+    Segment segment = segmentFor(hash);
+
+    segment.lock.lock();
+    try {
+      int slot = segment.find(hash, serializedKey);
+      return slot < 0 ? null : segment.readValue(hash, segment.refs[slot]);
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean containsKey(Object key) {
+    if (!(key instanceof Serialized)) {
+      return false;
+    }
+    Serialized<?> serializedKey = (Serialized<?>) key;
+    int hash = spread(serializedKey.hashCode());
+    Segment segment = segmentFor(hash);
+
+    segment.lock.lock();
+    try {
+      return segment.find(hash, serializedKey) >= 0;
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void put(Object key, RICachedValue value) {
+    put(key, value, false);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RICachedValue getAndPut(Object key, RICachedValue value) {
+    return put(key, value, true);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RICachedValue remove(Object key) {
+    if (!(key instanceof Serialized)) {
+      return null;
+    }
+    Serialized<?> serializedKey = (Serialized<?>) key;
+    int hash = spread(serializedKey.hashCode());
+    Segment segment = segmentFor(hash);
+
+    segment.lock.lock();
+    try {
+      int slot = segment.find(hash, serializedKey);
+      if (slot < 0) {
+        return null;
+      }
+      RICachedValue value = segment.readValue(hash, segment.refs[slot]);
+      segment.delete(slot);
+      return value;
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The slabs of the map are released, so that direct memory is freed once
+   * they have been garbage collected.
+   * </p>
+   */
+  @Override
+  public void clear() {
+    for (Segment segment : segments) {
+      segment.lock.lock();
+      try {
+        segment.reset();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.count;
+    }
+    return size;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Iterator<Map.Entry<Object, RICachedValue>> iterator() {
+    return new EntryIterator();
+  }
+
+  /**
+   * Stores an entry.
+   *
+   * @param key       the internal representation of the key
+   * @param value     the {@link RICachedValue}
+   * @param returnOld whether the previous value should be returned
+   * @return the previous value or <code>null</code> if there was no previous
+   *         value or it was not requested
+   */
+  private RICachedValue put(Object key, RICachedValue value, boolean returnOld) {
+    if (!(key instanceof Serialized) || !(value.get() instanceof Serialized)) {
+      throw new IllegalArgumentException("An off-heap map may only contain serialized keys and values");
+    }
+    Serialized<?> serializedKey = (Serialized<?>) key;
+    Serialized<?> serializedValue = (Serialized<?>) value.get();
+    int hash = spread(serializedKey.hashCode());
+    Segment segment = segmentFor(hash);
+    long recordSize = recordSize(serializedKey.length(), serializedValue.length());
+
+    RICachedValue oldValue = null;
+    ArrayList<Map.Entry<Object, RICachedValue>> evicted;
+
+    segment.lock.lock();
+    try {
+      int slot = segment.find(hash, serializedKey);
+      if (slot >= 0) {
+        if (returnOld) {
+          oldValue = segment.readValue(hash, segment.refs[slot]);
+        }
+        segment.delete(slot);
+      }
+
+      if (recordSize > segment.slabSize) {
+        segment.evicted(new AbstractMap.SimpleImmutableEntry<Object, RICachedValue>(key, value));
+      } else {
+        int ref = segment.allocate((int) recordSize);
+        segment.write(ref, serializedKey, serializedValue, value);
+        segment.insert(hash, ref);
+        if (value instanceof OffHeapCachedValue) {
+          ((OffHeapCachedValue) value).moveTo(segment, hash, ref);
+        }
+      }
+      //notify while holding the lock, so that readers never miss an evicted entry
+      evicted = segment.drainEvicted();
+      if (evicted != null) {
+        for (Map.Entry<Object, RICachedValue> entry : evicted) {
+          evictionListener.onEviction(entry.getKey(), entry.getValue());
+        }
+      }
+    } finally {
+      segment.lock.unlock();
+    }
+
+    return oldValue;
+  }
+
+  /**
+   * Determines the segment for a spread hash.
+   *
+   * @param hash the spread hash of a key
+   * @return the {@link Segment}
+   */
+  private Segment segmentFor(int hash) {
+    return segments[hash >>> SEGMENT_SHIFT];
+  }
+
+  /**
+   * Determines the number of bytes of a record, rounded up to a multiple of
+   * eight.
+   *
+   * @param keyLength   the length of the serialized key
+   * @param valueLength the length of the serialized value
+   * @return the size of the record
+   */
+  private static long recordSize(int keyLength, int valueLength) {
+    return (HEADER_SIZE + (long) keyLength + valueLength + 7) & ~7L;
+  }
+
+  /**
+   * Applies a supplemental hash to defend against poor hash functions.
+   *
+   * @param hash the hash code of a key
+   * @return the spread hash
+   */
+  static int spread(int hash) {
+    int h = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    h = ((h >>> 16) ^ h) * 0x45d9f3b;
+    return (h >>> 16) ^ h;
+  }
+
+  /**
+   * Allocates the slabs of an {@link RIOffHeapInternalMap}.
+   */
+  interface SlabAllocator {
+
+    /**
+     * Allocates a slab.  A slab that is released when the map is cleared may
+     * later be allocated again.
+     *
+     * @param position the position of the slab within the capacity of the map
+     * @param size     the size of the slab in bytes
+     * @return a {@link ByteBuffer} of the requested size
+     */
+    ByteBuffer allocate(long position, int size);
+  }
+
+  /**
+   * A segment of the map, guarded by its own lock.
+   * <p>
+   * Records are referred to by an int "ref", being the position of the record
+   * within the segment divided by eight, plus one so that zero marks an empty
+   * slot of the index.
+   * </p>
+   */
+  private static final class Segment {
+
+    /**
+     * The lock guarding the segment.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The {@link SlabAllocator} for the slabs.
+     */
+    private final SlabAllocator slabAllocator;
+
+    /**
+     * The position of the first slab within the capacity of the map.
+     */
+    private final long base;
+
+    /**
+     * The size of each slab in bytes (a power of two).
+     */
+    private final int slabSize;
+
+    /**
+     * The number of bits of a position addressing a byte within a slab.
+     */
+    private final int slabShift;
+
+    /**
+     * The ring of slabs, allocated as they are first used.
+     */
+    private ByteBuffer[] slabs;
+
+    /**
+     * The number of bytes of each slab containing records.
+     */
+    private final int[] slabLimits;
+
+    /**
+     * The slab to which records are being appended.
+     */
+    private int head;
+
+    /**
+     * The spread hashes of the keys in the index.
+     */
+    private int[] hashes;
+
+    /**
+     * The refs of the records in the index, zero for an empty slot.
+     */
+    private int[] refs;
+
+    /**
+     * The number of entries in the segment.
+     */
+    private volatile int count;
+
+    /**
+     * The entries evicted while the lock is held, to be notified before it is
+     * released.
+     */
+    private ArrayList<Map.Entry<Object, RICachedValue>> evicted;
+
+    /**
+     * Constructs a {@link Segment}.
+     *
+     * @param slabAllocator the {@link SlabAllocator} for the slabs
+     * @param base          the position of the first slab within the map
+     * @param slabCount     the number of slabs
+     * @param slabSize      the size of each slab in bytes
+     */
+    private Segment(SlabAllocator slabAllocator, long base, int slabCount, int slabSize) {
+      this.slabAllocator = slabAllocator;
+      this.base = base;
+      this.slabSize = slabSize;
+      this.slabShift = Integer.numberOfTrailingZeros(slabSize);
+      this.slabs = new ByteBuffer[slabCount];
+      this.slabLimits = new int[slabCount];
+      this.hashes = new int[INITIAL_INDEX_CAPACITY];
+      this.refs = new int[INITIAL_INDEX_CAPACITY];
+    }
+
+    /**
+     * Finds the slot of the index for a key.
+     *
+     * @param hash the spread hash of the key
+     * @param key  the serialized key
+     * @return the slot or -1 if the key is not in the segment
+     */
+    private int find(int hash, Serialized<?> key) {
+      int mask = refs.length - 1;
+      for (int slot = hash & mask; refs[slot] != 0; slot = (slot + 1) & mask) {
+        if (hashes[slot] == hash && matches(refs[slot], key)) {
+          return slot;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Finds the slot of the index referring to a record, which is only present
+     * while the record holds the current value of its key.
+     *
+     * @param hash the spread hash of the key of the record
+     * @param ref  the ref of the record
+     * @return the slot or -1 if the record is no longer current
+     */
+    private int find(int hash, int ref) {
+      int mask = refs.length - 1;
+      for (int slot = hash & mask; refs[slot] != 0; slot = (slot + 1) & mask) {
+        if (refs[slot] == ref && hashes[slot] == hash) {
+          return slot;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Adds a record to the index, growing the index when it is three
+     * quarters full.
+     *
+     * @param hash the spread hash of the key of the record
+     * @param ref  the ref of the record
+     */
+    private void insert(int hash, int ref) {
+      if (count >= refs.length - (refs.length >>> 2)) {
+        int[] oldHashes = hashes;
+        int[] oldRefs = refs;
+        hashes = new int[oldRefs.length << 1];
+        refs = new int[oldRefs.length << 1];
+        for (int i = 0; i < oldRefs.length; i++) {
+          if (oldRefs[i] != 0) {
+            place(oldHashes[i], oldRefs[i]);
+          }
+        }
+      }
+      place(hash, ref);
+      count++;
+    }
+
+    /**
+     * Places a record in the first free slot of the index.
+     *
+     * @param hash the spread hash of the key of the record
+     * @param ref  the ref of the record
+     */
+    private void place(int hash, int ref) {
+      int mask = refs.length - 1;
+      int slot = hash & mask;
+      while (refs[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      hashes[slot] = hash;
+      refs[slot] = ref;
+    }
+
+    /**
+     * Removes a slot from the index, shifting back the slots that follow it
+     * so that no lookup passes over the free slot.
+     *
+     * @param slot the slot
+     */
+    private void delete(int slot) {
+      int mask = refs.length - 1;
+      int free = slot;
+      for (int next = (free + 1) & mask; refs[next] != 0; next = (next + 1) & mask) {
+        int home = hashes[next] & mask;
+        if (((next - home) & mask) >= ((next - free) & mask)) {
+          hashes[free] = hashes[next];
+          refs[free] = refs[next];
+          free = next;
+        }
+      }
+      hashes[free] = 0;
+      refs[free] = 0;
+      count--;
+    }
+
+    /**
+     * Reserves space for a record at the head of the ring of slabs, moving to
+     * the next slab when the head slab is full.  Reusing a slab evicts the
+     * entries whose current records it contains.
+     *
+     * @param size the size of the record, no larger than a slab
+     * @return the ref of the reserved space
+     */
+    private int allocate(int size) {
+      if (slabs[head] == null) {
+        allocateSlab(head);
+      }
+      //the records given a second chance may leave no room, but only once
+      while (slabLimits[head] + size > slabSize) {
+        head = (head + 1) % slabs.length;
+        if (slabs[head] == null) {
+          allocateSlab(head);
+        } else {
+          reclaim(head);
+        }
+      }
+      int offset = slabLimits[head];
+      slabLimits[head] = offset + size;
+      return (int) ((((long) head << slabShift) + offset) >>> 3) + 1;
+    }
+
+    /**
+     * Allocates a slab.
+     *
+     * @param slab the index of the slab
+     */
+    private void allocateSlab(int slab) {
+      slabs[slab] = slabAllocator.allocate(base + ((long) slab << slabShift), slabSize)
+          .order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Empties a slab for reuse, evicting the entries whose current records it
+     * contains unless they have been read since being written.  The records
+     * of those are compacted to the start of the slab, no longer marked as
+     * read, so they are evicted the next time unless read again.
+     *
+     * @param slab the index of the slab
+     */
+    private void reclaim(int slab) {
+      ByteBuffer buffer = slabs[slab];
+      int offset = 0;
+      int limit = 0;
+      while (offset < slabLimits[slab]) {
+        int ref = (int) ((((long) slab << slabShift) + offset) >>> 3) + 1;
+        int hash = spread(buffer.getInt(offset + KEY_HASH_OFFSET));
+        int size = (int) recordSize(buffer.getInt(offset + KEY_LENGTH_OFFSET),
+            buffer.getInt(offset + VALUE_LENGTH_OFFSET));
+        int slot = find(hash, ref);
+        if (slot >= 0 && buffer.getInt(offset + REFERENCED_OFFSET) != 0) {
+          if (limit != offset) {
+            byte[] record = new byte[size];
+            buffer.position(offset);
+            buffer.get(record);
+            buffer.position(limit);
+            buffer.put(record);
+          }
+          buffer.putInt(limit + REFERENCED_OFFSET, 0);
+          refs[slot] = (int) ((((long) slab << slabShift) + limit) >>> 3) + 1;
+          limit += size;
+        } else if (slot >= 0) {
+          evicted(new AbstractMap.SimpleImmutableEntry<Object, RICachedValue>(readKey(ref),
+              readValue(hash, ref)));
+          delete(slot);
+        }
+        offset += size;
+      }
+      slabLimits[slab] = limit;
+    }
+
+    /**
+     * Records that an entry has been evicted.
+     *
+     * @param entry the evicted entry
+     */
+    private void evicted(Map.Entry<Object, RICachedValue> entry) {
+      if (evicted == null) {
+        evicted = new ArrayList<Map.Entry<Object, RICachedValue>>();
+      }
+      evicted.add(entry);
+    }
+
+    /**
+     * Takes the entries evicted since the last call.
+     *
+     * @return the evicted entries or <code>null</code> if there are none
+     */
+    private ArrayList<Map.Entry<Object, RICachedValue>> drainEvicted() {
+      ArrayList<Map.Entry<Object, RICachedValue>> drained = evicted;
+      evicted = null;
+      return drained;
+    }
+
+    /**
+     * Discards all entries, releasing the slabs.
+     */
+    private void reset() {
+      slabs = new ByteBuffer[slabs.length];
+      for (int i = 0; i < slabLimits.length; i++) {
+        slabLimits[i] = 0;
+      }
+      head = 0;
+      hashes = new int[INITIAL_INDEX_CAPACITY];
+      refs = new int[INITIAL_INDEX_CAPACITY];
+      count = 0;
+    }
+
+    /**
+     * Gets the slab containing a record.
+     *
+     * @param ref the ref of the record
+     * @return the slab
+     */
+    private ByteBuffer slabOf(int ref) {
+      return slabs[(int) (((long) (ref - 1) << 3) >>> slabShift)];
+    }
+
+    /**
+     * Gets the offset of a record within its slab.
+     *
+     * @param ref the ref of the record
+     * @return the offset
+     */
+    private int offsetOf(int ref) {
+      return (int) (((long) (ref - 1) << 3) & (slabSize - 1));
+    }
+
+    /**
+     * Determines if a record is for a key.
+     *
+     * @param ref the ref of the record
+     * @param key the serialized key
+     * @return true if the record has the same serialized key
+     */
+    private boolean matches(int ref, Serialized<?> key) {
+      ByteBuffer slab = slabOf(ref);
+      int offset = offsetOf(ref);
+      byte[] bytes = key.getBytes();
+      if (slab.getInt(offset + KEY_LENGTH_OFFSET) != bytes.length
+          || slab.getInt(offset + KEY_HASH_OFFSET) != key.hashCode()) {
+        return false;
+      }
+      offset += HEADER_SIZE;
+      for (int i = 0; i < bytes.length; i++) {
+        if (slab.get(offset + i) != bytes[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Writes a record.
+     *
+     * @param ref         the ref of the space reserved for the record
+     * @param key         the serialized key
+     * @param value       the serialized value
+     * @param cachedValue the {@link RICachedValue} of the value
+     */
+    private void write(int ref, Serialized<?> key, Serialized<?> value, RICachedValue cachedValue) {
+      ByteBuffer slab = slabOf(ref);
+      int offset = offsetOf(ref);
+      slab.putInt(offset + KEY_LENGTH_OFFSET, key.length());
+      slab.putInt(offset + VALUE_LENGTH_OFFSET, value.length());
+      slab.putInt(offset + KEY_HASH_OFFSET, key.hashCode());
+      slab.putInt(offset + VALUE_HASH_OFFSET, value.hashCode());
+      slab.putLong(offset + CREATION_TIME_OFFSET, cachedValue.getCreationTime());
+      slab.putLong(offset + MODIFICATION_TIME_OFFSET, cachedValue.getModificationTime());
+      slab.putLong(offset + MODIFICATION_COUNT_OFFSET, cachedValue.getModificationCount());
+      writeAccess(slab, offset, cachedValue);
+      slab.putInt(offset + REFERENCED_OFFSET, 0);
+
+      slab.position(offset + HEADER_SIZE);
+      slab.put(key.getBytes());
+      slab.put(value.getBytes());
+    }
+
+    /**
+     * Writes the access time, access count and expiry time of a record.
+     *
+     * @param slab        the slab containing the record
+     * @param offset      the offset of the record
+     * @param cachedValue the {@link RICachedValue} of the record
+     */
+    private void writeAccess(ByteBuffer slab, int offset, RICachedValue cachedValue) {
+      slab.putLong(offset + ACCESS_TIME_OFFSET, cachedValue.getAccessTime());
+      slab.putLong(offset + ACCESS_COUNT_OFFSET, cachedValue.getAccessCount());
+      slab.putLong(offset + EXPIRY_TIME_OFFSET, cachedValue.getExpiryTime());
+    }
+
+    /**
+     * Writes the access time, access count and expiry time of a value back to
+     * its record, provided the record is still current, marking the record
+     * as read.
+     *
+     * @param hash        the spread hash of the key of the record
+     * @param ref         the ref of the record
+     * @param cachedValue the {@link RICachedValue} read from the record
+     */
+    private void update(int hash, int ref, RICachedValue cachedValue) {
+      lock.lock();
+      try {
+        if (find(hash, ref) >= 0) {
+          ByteBuffer slab = slabOf(ref);
+          int offset = offsetOf(ref);
+          writeAccess(slab, offset, cachedValue);
+          slab.putInt(offset + REFERENCED_OFFSET, 1);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Reads the key of a record.
+     *
+     * @param ref the ref of the record
+     * @return the serialized key
+     */
+    private Serialized<?> readKey(int ref) {
+      ByteBuffer slab = slabOf(ref);
+      int offset = offsetOf(ref);
+      byte[] bytes = new byte[slab.getInt(offset + KEY_LENGTH_OFFSET)];
+      slab.position(offset + HEADER_SIZE);
+      slab.get(bytes);
+      return new Serialized<Object>(bytes, slab.getInt(offset + KEY_HASH_OFFSET));
+    }
+
+    /**
+     * Reads the value of a record.
+     *
+     * @param hash the spread hash of the key of the record
+     * @param ref  the ref of the record
+     * @return an {@link RICachedValue} that writes changes back to the record
+     */
+    private RICachedValue readValue(int hash, int ref) {
+      ByteBuffer slab = slabOf(ref);
+      int offset = offsetOf(ref);
+      byte[] bytes = new byte[slab.getInt(offset + VALUE_LENGTH_OFFSET)];
+      slab.position(offset + HEADER_SIZE + slab.getInt(offset + KEY_LENGTH_OFFSET));
+      slab.get(bytes);
+
+      OffHeapCachedValue value = new OffHeapCachedValue(
+          new Serialized<Object>(bytes, slab.getInt(offset + VALUE_HASH_OFFSET)),
+          slab.getLong(offset + CREATION_TIME_OFFSET),
+          slab.getLong(offset + ACCESS_TIME_OFFSET),
+          slab.getLong(offset + ACCESS_COUNT_OFFSET),
+          slab.getLong(offset + MODIFICATION_TIME_OFFSET),
+          slab.getLong(offset + MODIFICATION_COUNT_OFFSET),
+          slab.getLong(offset + EXPIRY_TIME_OFFSET));
+      value.moveTo(this, hash, ref);
+      return value;
+    }
+  }
+
+  /**
+   * An {@link RICachedValue} read from a record, writing changes to its
+   * access and expiry times back to the record.
+   * <p>
+   * Instances are read and updated both by threads holding the lock for the
+   * key in the Cache and by cache hits that don't lock.  Writing back is safe
+   * either way, as each write takes the lock of the segment and is dropped
+   * unless the record is still the current one for the key.
+   * </p>
+   * <p>
+   * A hit only writes back when it changes the access time (at most once per
+   * tick of the clock) or the expiry time, so that most hits take the lock of
+   * the segment just once, to read the record.  The access count of the
+   * record is therefore only advanced by the hits that change the access
+   * time.
+   * </p>
+   */
+  private static final class OffHeapCachedValue extends RICachedValue {
+
+    /**
+     * The segment containing the record.
+     */
+    private Segment segment;
+
+    /**
+     * The spread hash of the key.
+     */
+    private int hash;
+
+    /**
+     * The ref of the record.
+     */
+    private int ref;
+
+    /**
+     * Constructs an {@link OffHeapCachedValue}.
+     *
+     * @param internalValue     the serialized value
+     * @param creationTime      the time when the cache entry was created
+     * @param accessTime        the time when the cache entry was last accessed
+     * @param accessCount       the number of times the value has been accessed
+     * @param modificationTime  the time when the cache entry was last modified
+     * @param modificationCount the number of times the value has been modified
+     * @param expiryTime        the time when the cache entry should expire
+     */
+    private OffHeapCachedValue(Object internalValue, long creationTime, long accessTime, long accessCount,
+                               long modificationTime, long modificationCount, long expiryTime) {
+      super(internalValue, creationTime, accessTime, accessCount, modificationTime, modificationCount, expiryTime);
+    }
+
+    /**
+     * Changes the record to which changes are written.
+     *
+     * @param segment the segment containing the record
+     * @param hash    the spread hash of the key
+     * @param ref     the ref of the record
+     */
+    private void moveTo(Segment segment, int hash, int ref) {
+      this.segment = segment;
+      this.hash = hash;
+      this.ref = ref;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getInternalValue(long accessTime) {
+      boolean isChanged = accessTime != getAccessTime();
+      Object internalValue = super.getInternalValue(accessTime);
+      if (isChanged) {
+        segment.update(hash, ref, this);
+      }
+      return internalValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setExpiryTime(long expiryTime) {
+      if (expiryTime != getExpiryTime()) {
+        super.setExpiryTime(expiryTime);
+        segment.update(hash, ref, this);
+      }
+    }
+  }
+
+  /**
+   * An {@link Iterator} over the entries of the map, taking a snapshot of the
+   * index of one segment at a time and skipping the entries that have since
+   * been removed, or replaced or compacted into new records.
+   */
+  private final class EntryIterator implements Iterator<Map.Entry<Object, RICachedValue>> {
+
+    /**
+     * The index of the segment being iterated.
+     */
+    private int segmentIndex = -1;
+
+    /**
+     * The spread hashes of the snapshot of the segment.
+     */
+    private int[] hashes = new int[0];
+
+    /**
+     * The refs of the snapshot of the segment.
+     */
+    private int[] refs = new int[0];
+
+    /**
+     * The position within the snapshot.
+     */
+    private int position;
+
+    /**
+     * The next entry to return.
+     */
+    private Map.Entry<Object, RICachedValue> nextEntry;
+
+    /**
+     * The last returned entry (so we can allow for removal).
+     */
+    private Map.Entry<Object, RICachedValue> lastEntry;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+      while (nextEntry == null) {
+        if (position == refs.length) {
+          if (segmentIndex + 1 == segments.length) {
+            return false;
+          }
+          snapshot(segments[++segmentIndex]);
+        } else {
+          nextEntry = read(segments[segmentIndex], hashes[position], refs[position]);
+          position++;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map.Entry<Object, RICachedValue> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      lastEntry = nextEntry;
+      nextEntry = null;
+      return lastEntry;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove() {
+      if (lastEntry == null) {
+        throw new IllegalStateException("Must progress to the next entry to remove");
+      }
+      RIOffHeapInternalMap.this.remove(lastEntry.getKey());
+      lastEntry = null;
+    }
+
+    /**
+     * Takes a snapshot of the index of a segment.
+     *
+     * @param segment the {@link Segment}
+     */
+    private void snapshot(Segment segment) {
+      segment.lock.lock();
+      try {
+        hashes = new int[segment.count];
+        refs = new int[segment.count];
+        int i = 0;
+        for (int slot = 0; slot < segment.refs.length; slot++) {
+          if (segment.refs[slot] != 0) {
+            hashes[i] = segment.hashes[slot];
+            refs[i] = segment.refs[slot];
+            i++;
+          }
+        }
+        position = 0;
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+
+    /**
+     * Reads an entry from the snapshot.
+     *
+     * @param segment the {@link Segment}
+     * @param hash    the spread hash of the key
+     * @param ref     the ref of the record
+     * @return the entry or <code>null</code> if the record is no longer current
+     */
+    private Map.Entry<Object, RICachedValue> read(Segment segment, int hash, int ref) {
+      segment.lock.lock();
+      try {
+        return segment.find(hash, ref) < 0 ? null
+            : new AbstractMap.SimpleImmutableEntry<Object, RICachedValue>(segment.readKey(ref),
+            segment.readValue(hash, ref));
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,355 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.jsr107.ri;
+
+import java.util.Properties;
+
+/**
+ * The vendor specific {@link Properties} understood by the reference
+ * implementation.
+ * <p>
+ * Properties are provided when acquiring a {@link RICacheManager} and apply to
+ * every Cache it creates.  A property may be scoped to a single Cache by
+ * appending "." and the name of the Cache, for example
+ * "org.jsr107.ri.maximumSize.orders".  When a property is not defined by the
+ * {@link RICacheManager}, a System property of the same name is used.
+ * </p>
+ */
+public final class RIProperties {
+
+  /**
+   * The maximum number of entries a Cache may hold before entries are
+   * evicted.  When not specified (or zero) a Cache is unbounded.
+   */
+  public static final String MAXIMUM_SIZE = "org.jsr107.ri.maximumSize";
+
+  /**
+   * The maximum total weight of the entries a Cache may hold before entries
+   * are evicted, taking precedence over {@link #MAXIMUM_SIZE}.  The weight of
+   * an entry is the number of bytes of its serialized key and value for
+   * caches that store-by-value, and is otherwise determined by the
+   * {@link #WEIGHER}.  A suffix of "k", "m" or "g" may be used.
+   */
+  public static final String MAXIMUM_WEIGHT = "org.jsr107.ri.maximumWeight";
+
+  /**
+   * The class name of the {@link RIWeigher} used to weigh the entries of
+   * caches that store-by-reference.
+   */
+  public static final String WEIGHER = "org.jsr107.ri.weigher";
+
+  /**
+   * The class name of the {@link RISerializer} used to serialize the keys and
+   * values of caches that store-by-value.  When not specified the
+   * {@link RICompactSerializer} is used, falling back to Java serialization
+   * for types without a compact encoding.
+   */
+  public static final String SERIALIZER = "org.jsr107.ri.serializer";
+
+  /**
+   * The comma separated class names of the types that caches that
+   * store-by-value may store by reference, as their instances are immutable.
+   * These are in addition to strings, boxed primitives, enums, the other
+   * immutable types of the platform and classes annotated with
+   * {@link RIImmutable}.  Caches kept off-heap or overflowing to disk always
+   * serialize their entries.
+   */
+  public static final String IMMUTABLE_TYPES = "org.jsr107.ri.immutableTypes";
+
+  /**
+   * The number of bytes of direct memory in which a Cache that stores-by-value
+   * keeps its entries, outside of the Java heap.  Once full, entries are
+   * evicted in the order they were written, other than those read since then,
+   * which are kept as though they had just been written.  A suffix of "k", "m"
+   * or "g" may be used.  When not specified (or zero) entries are kept on the
+   * heap.
+   */
+  public static final String OFF_HEAP_SIZE = "org.jsr107.ri.offHeapSize";
+
+  /**
+   * The number of bytes of local disk to which a Cache that stores-by-value
+   * spills the entries evicted from memory, faulting them back in when they
+   * are next read.  The Cache must also be bounded in memory with
+   * {@link #MAXIMUM_SIZE}, {@link #MAXIMUM_WEIGHT} or {@link #OFF_HEAP_SIZE}.
+   * A suffix of "k", "m" or "g" may be used.  When not specified (or zero)
+   * evicted entries are discarded.
+   */
+  public static final String OVERFLOW_SIZE = "org.jsr107.ri.overflowSize";
+
+  /**
+   * The directory in which the memory-mapped files of the
+   * {@link #OVERFLOW_SIZE} overflow are created.  When not specified the
+   * temporary directory of the platform is used.
+   */
+  public static final String OVERFLOW_DIRECTORY = "org.jsr107.ri.overflowDirectory";
+
+  /**
+   * The interval in milliseconds at which a Cache removes the entries that
+   * have expired, rather than waiting for them to be accessed.  Expired
+   * entries are found using a timer wheel with a resolution of about one
+   * second.  When not specified the interval is one second, while zero only
+   * removes expired entries when they are accessed.
+   */
+  public static final String EXPIRY_INTERVAL = "org.jsr107.ri.expiryInterval";
+
+  /**
+   * The number of locks guarding the entries of a Cache, rounded up to a
+   * power of two.  Keys are mapped onto the locks by their hash code.  When
+   * not specified sixteen locks per available processor are used.
+   */
+  public static final String LOCK_STRIPES = "org.jsr107.ri.lockStripes";
+
+  /**
+   * The time in milliseconds that the writes and deletes of a write-through
+   * Cache may be queued before its {@link javax.cache.integration.CacheWriter}
+   * performs them in the background.  Operations on the same key are
+   * coalesced, the last being performed, and operations are performed in
+   * batches with {@link javax.cache.integration.CacheWriter#writeAll} and
+   * {@link javax.cache.integration.CacheWriter#deleteAll}.  As cache
+   * operations no longer wait for the CacheWriter, its failures are logged
+   * rather than thrown.  When not specified (or zero) the CacheWriter is
+   * called as part of each cache operation.
+   */
+  public static final String WRITE_BEHIND_DELAY = "org.jsr107.ri.writeBehindDelay";
+
+  /**
+   * The maximum number of operations a write-behind CacheWriter (see
+   * {@link #WRITE_BEHIND_DELAY}) performs together, a full batch being
+   * performed without waiting for the delay.  When not specified batches have
+   * up to 100 operations.
+   */
+  public static final String WRITE_BEHIND_BATCH_SIZE = "org.jsr107.ri.writeBehindBatchSize";
+
+  /**
+   * The number of times a write-behind CacheWriter (see
+   * {@link #WRITE_BEHIND_DELAY}) retries a failed operation, after the delay,
+   * before discarding it.  When not specified operations are retried three
+   * times.
+   */
+  public static final String WRITE_BEHIND_RETRIES = "org.jsr107.ri.writeBehindRetries";
+
+  /**
+   * The maximum number of operations a write-behind CacheWriter (see
+   * {@link #WRITE_BEHIND_DELAY}) queues, before cache operations wait for
+   * the queue to be flushed.  When not specified up to 10000 operations are
+   * queued.
+   */
+  public static final String WRITE_BEHIND_QUEUE_SIZE = "org.jsr107.ri.writeBehindQueueSize";
+
+  /**
+   * The fraction of the lifetime of an entry of a read-through Cache after
+   * which reading the entry reloads it in the background, using the executor
+   * of the {@link RICacheManager} (see {@link #EXECUTOR}).  The lifetime is
+   * measured from when the entry was last loaded or written until it expires,
+   * so for example 0.75 refreshes an entry read during the last quarter of its
+   * lifetime, while the current value is returned.  When not specified (or
+   * zero) entries are only loaded once they are missing.
+   */
+  public static final String REFRESH_AHEAD_FACTOR = "org.jsr107.ri.refreshAheadFactor";
+
+  /**
+   * The maximum number of keys passed to a single
+   * {@link javax.cache.integration.CacheLoader#loadAll} when
+   * {@link javax.cache.Cache#getAll} loads the keys missing from a
+   * read-through Cache.  When not specified (or zero) the missing keys are
+   * loaded with a single call.
+   */
+  public static final String LOADER_BATCH_SIZE = "org.jsr107.ri.loaderBatchSize";
+
+  /**
+   * The number of keys of a batch of {@link javax.cache.Cache#invokeAll}, when
+   * the keys are processed in parallel by the executor of the
+   * {@link RICacheManager} (see {@link #EXECUTOR}).  Each key is still
+   * processed atomically, but the keys are no longer processed in the order
+   * of iteration, nor are their events raised on the calling thread.  When
+   * not specified (or zero) the keys are processed one at a time by the
+   * calling thread.
+   */
+  public static final String INVOKE_ALL_BATCH_SIZE = "org.jsr107.ri.invokeAllBatchSize";
+
+  /**
+   * The number of the most often read and the most often written keys of a
+   * Cache to report through its
+   * {@link org.jsr107.ri.management.CacheHotKeysMXBean}, which is registered
+   * whenever management is enabled.  Accesses are sampled (see
+   * {@link #HOT_KEYS_SAMPLE_RATE}) and counted with a sketch of fixed size.
+   * When not specified (or zero) hot keys are not tracked.
+   */
+  public static final String HOT_KEYS = "org.jsr107.ri.hotKeys";
+
+  /**
+   * The number of accesses of which one is sampled when tracking hot keys
+   * (see {@link #HOT_KEYS}), with 1 sampling every access.  When not
+   * specified one access in 16 is sampled.
+   */
+  public static final String HOT_KEYS_SAMPLE_RATE = "org.jsr107.ri.hotKeysSampleRate";
+
+  /**
+   * The number of batches of events that may be queued for each listener
+   * that isn't synchronous, beyond which the operations raising events wait
+   * for the queue to be delivered (delivering it themselves when no other
+   * thread is) before returning.  When not specified 1024 batches may be
+   * queued.
+   */
+  public static final String LISTENER_QUEUE_SIZE = "org.jsr107.ri.listenerQueueSize";
+
+  /**
+   * The executor on which the caches of an {@link RICacheManager} perform
+   * asynchronous work, such as loading entries for
+   * {@link javax.cache.Cache#loadAll}.  It is given either as an
+   * {@link java.util.concurrent.ExecutorService} instance, which the
+   * {@link RICacheManager} doesn't shut down, or as "virtual" to run each
+   * task on a new virtual thread (requiring Java 21 or later).  This property
+   * can't be scoped to a single Cache.  When not specified a pool of
+   * {@link #EXECUTOR_THREADS} daemon threads is shared by the caches.
+   */
+  public static final String EXECUTOR = "org.jsr107.ri.executor";
+
+  /**
+   * The maximum number of threads of the pool shared by the caches of an
+   * {@link RICacheManager} for asynchronous work, when no {@link #EXECUTOR}
+   * is specified.  Threads are created as required and retired when idle.
+   * This property can't be scoped to a single Cache.  When not specified
+   * there is a thread per available processor.
+   */
+  public static final String EXECUTOR_THREADS = "org.jsr107.ri.executorThreads";
+
+  /**
+   * The {@link RIClock} used by the caches of an {@link RICacheManager}, given
+   * either as an instance or as the class name of an implementation with a
+   * public no-argument constructor, for example "org.jsr107.ri.RICachedClock".
+   * This property can't be scoped to a single Cache.  When not specified the
+   * {@link RISystemClock} is used.
+   */
+  public static final String CLOCK = "org.jsr107.ri.clock";
+
+  /**
+   * Prevent construction.
+   */
+  private RIProperties() {
+  }
+
+  /**
+   * Gets the value of a property for a Cache.
+   *
+   * @param properties the {@link RICacheManager} properties
+   * @param cacheName  the name of the Cache or <code>null</code> for a
+   *                   property that can't be scoped to a single Cache
+   * @param name       the name of the property
+   * @return the value or <code>null</code> if the property is not defined
+   */
+  static String getProperty(Properties properties, String cacheName, String name) {
+    String value = cacheName == null ? null : properties.getProperty(name + "." + cacheName);
+    if (value == null) {
+      value = properties.getProperty(name);
+    }
+    if (value == null) {
+      value = System.getProperty(name);
+    }
+    return value == null ? null : value.trim();
+  }
+
+  /**
+   * Gets the value of a numeric property for a Cache.
+   *
+   * @param properties   the {@link RICacheManager} properties
+   * @param cacheName    the name of the Cache or <code>null</code> for a
+   *                     property that can't be scoped to a single Cache
+   * @param name         the name of the property
+   * @param defaultValue the value to use when the property is not defined
+   * @return the value of the property
+   * @throws IllegalArgumentException if the value is not a number
+   */
+  static long getLong(Properties properties, String cacheName, String name, long defaultValue) {
+    String value = getProperty(properties, cacheName, name);
+    if (value == null || value.isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("The property " + name +
+          (cacheName == null ? "" : " for the cache " + cacheName) + " must be a number but was [" + value + "]", e);
+    }
+  }
+
+  /**
+   * Gets the value of a fractional property for a Cache.
+   *
+   * @param properties   the {@link RICacheManager} properties
+   * @param cacheName    the name of the Cache
+   * @param name         the name of the property
+   * @param defaultValue the value to use when the property is not defined
+   * @return the value of the property
+   * @throws IllegalArgumentException if the value is not a number
+   */
+  static double getDouble(Properties properties, String cacheName, String name, double defaultValue) {
+    String value = getProperty(properties, cacheName, name);
+    if (value == null || value.isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("The property " + name + " for the cache " +
+          cacheName + " must be a number but was [" + value + "]", e);
+    }
+  }
+
+  /**
+   * Gets the value of a property specifying a number of bytes for a Cache,
+   * optionally using a suffix of "k", "m" or "g".
+   *
+   * @param properties   the {@link RICacheManager} properties
+   * @param cacheName    the name of the Cache
+   * @param name         the name of the property
+   * @param defaultValue the value to use when the property is not defined
+   * @return the number of bytes
+   * @throws IllegalArgumentException if the value is not a number of bytes
+   */
+  static long getBytes(Properties properties, String cacheName, String name, long defaultValue) {
+    String value = getProperty(properties, cacheName, name);
+    if (value == null || value.isEmpty()) {
+      return defaultValue;
+    }
+
+    String digits = value.toLowerCase();
+    if (digits.endsWith("b")) {
+      digits = digits.substring(0, digits.length() - 1);
+    }
+
+    long multiplier = 1;
+    if (digits.endsWith("k")) {
+      multiplier = 1L << 10;
+    } else if (digits.endsWith("m")) {
+      multiplier = 1L << 20;
+    } else if (digits.endsWith("g")) {
+      multiplier = 1L << 30;
+    }
+    if (multiplier > 1) {
+      digits = digits.substring(0, digits.length() - 1);
+    }
+
+    try {
+      return Long.parseLong(digits.trim()) * multiplier;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("The property " + name + " for the cache " +
+          cacheName + " must be a number of bytes but was [" + value + "]", e);
+    }
+  }
+}
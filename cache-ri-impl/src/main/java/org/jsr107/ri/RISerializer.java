@@ -0,0 +1,50 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+/**
+ * Converts the keys and values of caches that store-by-value to and from
+ * their serialized form.
+ * <p>
+ * The {@link RICompactSerializer} is used unless an {@link RISerializer} is
+ * specified with the {@link RIProperties#SERIALIZER} property, in which case
+ * the implementation must provide a public no-argument constructor.
+ * </p>
+ * Implementations must be thread-safe.  Equal keys must serialize to equal
+ * bytes, as serialized keys are compared by their bytes.
+ */
+public interface RISerializer {
+
+  /**
+   * Serializes a value.
+   *
+   * @param value the value to serialize (not <code>null</code>)
+   * @return the serialized form of the value
+   * @throws IllegalArgumentException if the value can't be serialized
+   */
+  byte[] serialize(Object value);
+
+  /**
+   * Deserializes a value.
+   *
+   * @param bytes       the serialized form of the value
+   * @param classLoader the {@link ClassLoader} to use for resolving classes
+   * @return the value
+   * @throws javax.cache.CacheException if the value can't be deserialized
+   */
+  Object deserialize(byte[] bytes, ClassLoader classLoader);
+}
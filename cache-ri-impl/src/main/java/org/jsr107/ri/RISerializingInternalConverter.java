@@ -17,20 +17,17 @@
 
 package org.jsr107.ri;
 
-import javax.cache.CacheException;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.ObjectStreamClass;
 import java.lang.ref.WeakReference;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An {@link RIInternalConverter} that converts values to and from their
- * serialized representation.
+ * serialized representation, as produced by an {@link RISerializer}.
+ * <p>
+ * Values of the {@link RIImmutableTypes}, when provided, are their own
+ * internal representation, as they can't be changed by the application.
+ * </p>
  *
  * @param <T> the type of value to serialize
  * @author Brian Oliver
@@ -46,14 +43,52 @@ class RISerializingInternalConverter<T> implements RIInternalConverter<T> {
   private WeakReference<ClassLoader> classLoaderReference;
 
   /**
-   * Constructs a {@link RISerializingInternalConverter}.
+   * The {@link RISerializer} producing the serialized representations.
+   */
+  private final RISerializer serializer;
+
+  /**
+   * The {@link RIImmutableTypes} that aren't serialized (may be <code>null</code>).
+   */
+  private final RIImmutableTypes immutableTypes;
+
+  /**
+   * The estimated size of the serialized form of the values of each immutable
+   * type, measured from the first value of the type to be weighed (-1 until
+   * then).
+   */
+  private final ClassValue<AtomicInteger> immutableSizes = new ClassValue<AtomicInteger>() {
+    @Override
+    protected AtomicInteger computeValue(Class<?> type) {
+      return new AtomicInteger(-1);
+    }
+  };
+
+  /**
+   * Constructs a {@link RISerializingInternalConverter} using Java
+   * serialization.
    *
    * @param classLoader the {@link ClassLoader} to use for locating classes
    *                    when deserializing
    */
   public RISerializingInternalConverter(ClassLoader classLoader) {
+    this(classLoader, RIJavaSerializer.INSTANCE, null);
+  }
 
+  /**
+   * Constructs a {@link RISerializingInternalConverter}.
+   *
+   * @param classLoader    the {@link ClassLoader} to use for locating classes
+   *                       when deserializing
+   * @param serializer     the {@link RISerializer}
+   * @param immutableTypes the {@link RIImmutableTypes} that needn't be
+   *                       serialized (<code>null</code> to serialize all values)
+   */
+  RISerializingInternalConverter(ClassLoader classLoader, RISerializer serializer,
+                                 RIImmutableTypes immutableTypes) {
     this.classLoaderReference = new WeakReference<ClassLoader>(classLoader);
+    this.serializer = serializer;
+    this.immutableTypes = immutableTypes;
   }
 
   /**
@@ -71,7 +106,10 @@ class RISerializingInternalConverter<T> implements RIInternalConverter<T> {
    */
   @Override
   public Object toInternal(T value) {
-    return new Serialized<T>(value);
+    if (value != null && immutableTypes != null && immutableTypes.isImmutable(value)) {
+      return value;
+    }
+    return new Serialized<T>(value, serializer);
   }
 
   /**
@@ -82,7 +120,41 @@ class RISerializingInternalConverter<T> implements RIInternalConverter<T> {
     if (internal == null) {
       return null;
     } else if (internal instanceof Serialized) {
-      return (T) ((Serialized) internal).deserialize(getClassLoader());
+      return (T) ((Serialized) internal).deserialize(getClassLoader(), serializer);
+    } else if (immutableTypes != null) {
+      //only the immutable values passed to toInternal are stored by reference
+      @SuppressWarnings("unchecked")
+      T value = (T) internal;
+      return value;
+    } else {
+      throw new IllegalArgumentException("internal value is not a Serialized instance [" + internal + "]");
+    }
+  }
+
+  /**
+   * Gets the number of bytes of the serialized form of an internal value.
+   * <p>
+   * Immutable values aren't serialized just to be weighed.  A String is
+   * estimated from its length, as one byte per character plus a tag, while
+   * other immutable values are estimated to be the size of the first value
+   * of their type to be weighed.
+   * </p>
+   *
+   * @param internal the internal representation of the value
+   * @return the number of bytes
+   */
+  public int sizeOf(Object internal) {
+    if (internal instanceof Serialized) {
+      return ((Serialized) internal).length();
+    } else if (immutableTypes != null) {
+      if (internal instanceof String) {
+        return 1 + ((String) internal).length();
+      }
+      AtomicInteger size = immutableSizes.get(internal.getClass());
+      if (size.get() < 0) {
+        size.set(serializer.serialize(internal).length);
+      }
+      return size.get();
     } else {
       throw new IllegalArgumentException("internal value is not a Serialized instance [" + internal + "]");
     }
@@ -93,7 +165,7 @@ class RISerializingInternalConverter<T> implements RIInternalConverter<T> {
    *
    * @param <V> the type of value that was serialized
    */
-  private static class Serialized<V> {
+  static class Serialized<V> {
 
     /**
      * The serialized form of the value.
@@ -108,57 +180,59 @@ class RISerializingInternalConverter<T> implements RIInternalConverter<T> {
     /**
      * Constructs a {@link Serialized} representation of a value.
      *
-     * @param value the value to be serialized (in a serialized form)
+     * @param value      the value to be serialized (in a serialized form)
+     * @param serializer the {@link RISerializer} to serialize the value
      */
-    Serialized(V value) {
+    Serialized(V value, RISerializer serializer) {
       if (value == null) {
         this.hashCode = 0;
         this.bytes = null;
       } else {
         this.hashCode = value.hashCode();
-
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        try {
-          ObjectOutputStream oos = new ObjectOutputStream(bos);
-          oos.writeObject(value);
-          bos.flush();
-          this.bytes = bos.toByteArray();
-        } catch (IOException e) {
-          throw new IllegalArgumentException("Failed to serialize: " + value + " due to " + e.getMessage(), e);
-        } finally {
-          try {
-            bos.close();
-          } catch (IOException e) {
-            // eat this up
-          }
-        }
+        this.bytes = serializer.serialize(value);
       }
     }
 
+    /**
+     * Constructs a {@link Serialized} representation from the bytes of a
+     * previously serialized value.
+     *
+     * @param bytes    the serialized form of the value
+     * @param hashCode the hashcode of the value
+     */
+    Serialized(byte[] bytes, int hashCode) {
+      this.bytes = bytes;
+      this.hashCode = hashCode;
+    }
+
+    /**
+     * Gets the serialized form of the value.  The returned array must not be
+     * modified.
+     *
+     * @return the serialized form of the value
+     */
+    byte[] getBytes() {
+      return bytes;
+    }
+
+    /**
+     * Gets the number of bytes of the serialized form of the value.
+     *
+     * @return the number of bytes
+     */
+    public int length() {
+      return bytes == null ? 0 : bytes.length;
+    }
+
     /**
      * Deserialize the {@link Serialized} value.
      *
      * @param classLoader the {@link ClassLoader} to use for resolving classes
+     * @param serializer  the {@link RISerializer} that serialized the value
      */
-    public V deserialize(ClassLoader classLoader) {
-      ByteArrayInputStream bos = new ByteArrayInputStream(bytes);
-      ObjectInputStream ois;
-      try {
-        ois = new CustomizedClassLoaderObjectInputStream(bos, classLoader);
-
-        //this must fail if the types are incompatible
-        return (V) ois.readObject();
-      } catch (IOException e) {
-        throw new CacheException("Failed to deserialize: " + e.getMessage(), e);
-      } catch (ClassNotFoundException e) {
-        throw new CacheException("Failed to resolve a deserialized class: " + e.getMessage(), e);
-      } finally {
-        try {
-          bos.close();
-        } catch (IOException e) {
-          // eat this up
-        }
-      }
+    public V deserialize(ClassLoader classLoader, RISerializer serializer) {
+      //this must fail if the types are incompatible
+      return (V) serializer.deserialize(bytes, classLoader);
     }
 
     /**
@@ -193,40 +267,4 @@ class RISerializingInternalConverter<T> implements RIInternalConverter<T> {
       return hashCode;
     }
   }
-
-  /**
-   * An {@link ObjectInputStream} that uses a specific {@link ClassLoader}.
-   */
-  private static final class CustomizedClassLoaderObjectInputStream extends ObjectInputStream {
-
-    /**
-     * The {@link ClassLoader} to use.
-     */
-    private final ClassLoader classloader;
-
-    /**
-     * Constructs a {@link CustomizedClassLoaderObjectInputStream}.
-     *
-     * @param in          the {@link InputStream}
-     * @param classloader the {@link ClassLoader}
-     * @throws IOException should the stream not be created
-     */
-    private CustomizedClassLoaderObjectInputStream(InputStream in, ClassLoader classloader) throws IOException {
-      super(in);
-      this.classloader = classloader;
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
-      String name = desc.getName();
-      try {
-        return Class.forName(name, false, classloader);
-      } catch (ClassNotFoundException ex) {
-        return super.resolveClass(desc);
-      }
-    }
-  }
 }
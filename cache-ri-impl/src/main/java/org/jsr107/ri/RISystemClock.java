@@ -0,0 +1,50 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+/**
+ * The {@link RIClock} reading the system clock on every call.
+ */
+public final class RISystemClock implements RIClock {
+
+  /**
+   * The {@link RISystemClock}.
+   */
+  public static final RISystemClock INSTANCE = new RISystemClock();
+
+  /**
+   * Constructs an {@link RISystemClock}.
+   */
+  public RISystemClock() {
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long nanoTime() {
+    return System.nanoTime();
+  }
+}
@@ -0,0 +1,472 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An {@link RIInternalMap} made of a bounded primary tier in memory and an
+ * overflow tier, usually a memory-mapped file on local disk.
+ * <p>
+ * Entries evicted from the primary tier are spilled to the overflow tier
+ * rather than being lost, and are faulted back into the primary tier when
+ * they are next read.  An entry is held by at most one of the tiers, other
+ * than while it is being spilled.
+ * Only the entries evicted from the overflow tier are evicted from the map.
+ * </p>
+ * <p>
+ * Reads that hit the primary tier are made without locking.  Writes, and
+ * reads that need the overflow tier, hold the lock of the key so that an
+ * entry can't be observed while moving between the tiers.  Keys are mapped
+ * onto a fixed table of locks by their hash code, so that operations on
+ * unrelated keys rarely wait for each other.
+ * </p>
+ * <p>
+ * The primary tier may evict the entry of any key, so evicted entries are
+ * held by the {@link Spill} until the thread that caused their eviction has
+ * released its lock and can take the lock of each evicted key to move its
+ * entry to the overflow tier.  Meanwhile they remain visible through the
+ * {@link Spill}.
+ * </p>
+ */
+final class RITieredInternalMap implements RIInternalMap<Object, RICachedValue>, Closeable {
+
+  /**
+   * The number of locks, which must be a power of two.
+   */
+  private static final int LOCK_STRIPES = 64;
+
+  /**
+   * The primary tier.
+   */
+  private final RIInternalMap<Object, RICachedValue> primary;
+
+  /**
+   * The {@link Spill} receiving the entries evicted from the primary tier.
+   */
+  private final Spill spill;
+
+  /**
+   * The overflow tier.
+   */
+  private final RIInternalMap<Object, RICachedValue> overflow;
+
+  /**
+   * The storage of the overflow tier, closed with the map.
+   */
+  private final Closeable overflowStorage;
+
+  /**
+   * The locks guarding the movement of entries between the tiers, by key.
+   */
+  private final ReentrantLock[] locks;
+
+  /**
+   * Constructs an {@link RITieredInternalMap}.
+   *
+   * @param primary         the primary tier, which must notify the spill of
+   *                        the entries it evicts
+   * @param spill           the {@link Spill} of the primary tier
+   * @param overflow        the overflow tier
+   * @param overflowStorage the storage of the overflow tier
+   */
+  RITieredInternalMap(RIInternalMap<Object, RICachedValue> primary, Spill spill,
+                      RIInternalMap<Object, RICachedValue> overflow, Closeable overflowStorage) {
+    this.primary = primary;
+    this.spill = spill;
+    this.overflow = overflow;
+    this.overflowStorage = overflowStorage;
+    this.locks = new ReentrantLock[LOCK_STRIPES];
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new ReentrantLock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RICachedValue get(Object key) {
+    RICachedValue value = primary.get(key);
+    if (value != null) {
+      return value;
+    }
+
+    ReentrantLock lock = lockOf(key);
+    lock.lock();
+    try {
+      value = primary.get(key);
+      if (value == null) {
+        value = spill.take(key);
+        if (value == null) {
+          value = overflow.remove(key);
+          if (value != null) {
+            //detach the value from the record it was read from
+            value = new RICachedValue(value.get(), value.getCreationTime(), value.getAccessTime(),
+                value.getAccessCount(), value.getModificationTime(), value.getModificationCount(),
+                value.getExpiryTime());
+          }
+        }
+        if (value != null) {
+          primary.put(key, value);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    spillEvicted();
+    return value;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean containsKey(Object key) {
+    if (primary.containsKey(key)) {
+      return true;
+    }
+
+    ReentrantLock lock = lockOf(key);
+    lock.lock();
+    try {
+      return primary.containsKey(key) || spill.contains(key) || overflow.containsKey(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void put(Object key, RICachedValue value) {
+    getAndPut(key, value);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RICachedValue getAndPut(Object key, RICachedValue value) {
+    RICachedValue oldValue;
+
+    ReentrantLock lock = lockOf(key);
+    lock.lock();
+    try {
+      RICachedValue spilledValue = spill.take(key);
+      RICachedValue overflowValue = overflow.remove(key);
+      oldValue = primary.getAndPut(key, value);
+      if (oldValue == null && spilledValue == null) {
+        //the old value may have been evicted just before the new one was put
+        spilledValue = spill.takeUnless(key, value);
+      }
+      if (oldValue == null) {
+        oldValue = spilledValue == null ? overflowValue : spilledValue;
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    spillEvicted();
+    return oldValue;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RICachedValue remove(Object key) {
+    ReentrantLock lock = lockOf(key);
+    lock.lock();
+    try {
+      //an entry evicted from the primary tier is in the spill once it has gone
+      RICachedValue oldValue = primary.remove(key);
+      RICachedValue spilledValue = spill.take(key);
+      RICachedValue overflowValue = overflow.remove(key);
+      if (oldValue == null) {
+        oldValue = spilledValue == null ? overflowValue : spilledValue;
+      }
+      return oldValue;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void clear() {
+    for (ReentrantLock lock : locks) {
+      lock.lock();
+    }
+    try {
+      primary.clear();
+      spill.clear();
+      overflow.clear();
+    } finally {
+      for (ReentrantLock lock : locks) {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int size() {
+    return primary.size() + spill.size() + overflow.size();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Iterator<Map.Entry<Object, RICachedValue>> iterator() {
+    return new EntryIterator();
+  }
+
+  /**
+   * Closes the storage of the overflow tier.
+   *
+   * @throws IOException should the storage fail to close
+   */
+  @Override
+  public void close() throws IOException {
+    overflowStorage.close();
+  }
+
+  /**
+   * Moves the entries evicted from the primary tier to the overflow tier,
+   * taking the lock of each.  Must be called without holding any lock.
+   */
+  private void spillEvicted() {
+    if (spill.isEmpty()) {
+      return;
+    }
+    for (Object key : spill.keys()) {
+      ReentrantLock lock = lockOf(key);
+      lock.lock();
+      try {
+        spill.moveTo(key, overflow);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Determines the lock of a key.
+   *
+   * @param key the key
+   * @return the {@link ReentrantLock}
+   */
+  private ReentrantLock lockOf(Object key) {
+    int h = key.hashCode();
+    h ^= (h >>> 20) ^ (h >>> 12);
+    h ^= (h >>> 7) ^ (h >>> 4);
+    return locks[h & (locks.length - 1)];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return getClass().getName() + "{primary=" + primary + ", overflow=" + overflowStorage + "}";
+  }
+
+  /**
+   * The {@link RIEvictionListener} of the primary tier, holding the entries
+   * it evicts until they are spilled to the overflow tier.
+   * <p>
+   * The primary tier notifies the spill before an evicted entry ceases to be
+   * readable from it, so that the entry is never missing from both.
+   * </p>
+   */
+  static final class Spill implements RIEvictionListener<Object, RICachedValue> {
+
+    /**
+     * The evicted entries.
+     */
+    private final ConcurrentHashMap<Object, RICachedValue> evicted =
+        new ConcurrentHashMap<Object, RICachedValue>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onEviction(Object key, RICachedValue value) {
+      evicted.put(key, value);
+    }
+
+    /**
+     * Takes the evicted entry of a key.  Must be called while holding the
+     * lock of the key.
+     *
+     * @param key the key
+     * @return the evicted value or <code>null</code> if there is none
+     */
+    private RICachedValue take(Object key) {
+      return evicted.remove(key);
+    }
+
+    /**
+     * Takes the evicted entry of a key unless its value is that specified,
+     * which has been evicted since being put.  Must be called while holding
+     * the lock of the key.
+     *
+     * @param key   the key
+     * @param value the value to leave
+     * @return the evicted value or <code>null</code> if there is none
+     */
+    private RICachedValue takeUnless(Object key, RICachedValue value) {
+      RICachedValue evictedValue = evicted.get(key);
+      return evictedValue != null && evictedValue != value && evicted.remove(key, evictedValue) ?
+          evictedValue : null;
+    }
+
+    /**
+     * Moves the evicted entry of a key to another map, should it still be
+     * evicted.  Must be called while holding the lock of the key.
+     *
+     * @param key the key
+     * @param map the map
+     */
+    private void moveTo(Object key, RIInternalMap<Object, RICachedValue> map) {
+      RICachedValue value = evicted.get(key);
+      if (value != null) {
+        //put before removing so that the entry is never missing from both
+        map.put(key, value);
+        evicted.remove(key, value);
+      }
+    }
+
+    /**
+     * Determines if a key has been evicted.
+     *
+     * @param key the key
+     * @return true if the spill holds an entry for the key
+     */
+    private boolean contains(Object key) {
+      return evicted.containsKey(key);
+    }
+
+    /**
+     * @return the keys of the evicted entries
+     */
+    private Iterable<Object> keys() {
+      return evicted.keySet();
+    }
+
+    /**
+     * @return the entries of the evicted entries
+     */
+    private Iterator<Map.Entry<Object, RICachedValue>> iterator() {
+      return evicted.entrySet().iterator();
+    }
+
+    /**
+     * @return true if there are no evicted entries
+     */
+    private boolean isEmpty() {
+      return evicted.isEmpty();
+    }
+
+    /**
+     * @return the number of evicted entries
+     */
+    private int size() {
+      return evicted.size();
+    }
+
+    /**
+     * Discards the evicted entries.
+     */
+    private void clear() {
+      evicted.clear();
+    }
+  }
+
+  /**
+   * An {@link Iterator} over the entries of the primary tier followed by
+   * those of the spill and then of the overflow tier.  Entries moving between
+   * the tiers during iteration may be missed or returned twice.
+   */
+  private final class EntryIterator implements Iterator<Map.Entry<Object, RICachedValue>> {
+
+    /**
+     * The {@link Iterator} over the current tier.
+     */
+    private Iterator<Map.Entry<Object, RICachedValue>> iterator = primary.iterator();
+
+    /**
+     * The current tier, counting the spill as a tier.
+     */
+    private int tier;
+
+    /**
+     * The last returned entry (so we can allow for removal).
+     */
+    private Map.Entry<Object, RICachedValue> lastEntry;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+      while (!iterator.hasNext() && tier < 2) {
+        tier++;
+        iterator = tier == 1 ? spill.iterator() : overflow.iterator();
+      }
+      return iterator.hasNext();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map.Entry<Object, RICachedValue> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      lastEntry = iterator.next();
+      return lastEntry;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove() {
+      if (lastEntry == null) {
+        throw new IllegalStateException("Must progress to the next entry to remove");
+      }
+      RITieredInternalMap.this.remove(lastEntry.getKey());
+      lastEntry = null;
+    }
+  }
+}
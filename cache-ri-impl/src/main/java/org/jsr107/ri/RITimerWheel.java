@@ -0,0 +1,441 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A hierarchical timing wheel determining when the keys of a Cache are due
+ * to expire.
+ * <p>
+ * The wheel has five levels of buckets, with each bucket of a level spanning
+ * roughly one second, one minute, one hour, one day and (for the single
+ * bucket of the last level) everything further in the future.  A key is held
+ * in the finest level whose buckets cover its expiry time.  As time advances
+ * the buckets that have been passed are emptied, with the keys that are due
+ * being returned and the others cascading down to finer levels, so that
+ * scheduling and expiring a key takes constant time.
+ * </p>
+ * <p>
+ * The wheel links the {@link Timer} of an {@link RICachedValue}, which is
+ * created when the value is first scheduled and reused thereafter, so the
+ * wheel needs no index of its own.  Any thread may schedule or cancel the
+ * expiry of a value, which records the request in its {@link Timer} and adds
+ * the {@link Timer} to one of a few bounded buffers, unless it is already
+ * waiting in one.  The buffers are drained into the wheel by
+ * {@link #advance(long)}, or by a thread finding its buffer full.
+ * </p>
+ * <p>
+ * An expiry time that is brought forward must be scheduled again, while one
+ * that is pushed back need not be, as the due keys are only candidates that
+ * the caller checks (and schedules again) before expiring them.  Likewise a
+ * value that a map copies rather than holds, as the off-heap and overflow
+ * maps do, leaves its {@link Timer} behind to become due harmlessly.
+ * </p>
+ */
+final class RITimerWheel {
+
+  /**
+   * The number of buckets of each level, each a power of two.
+   */
+  private static final int[] BUCKETS = {64, 64, 32, 8, 1};
+
+  /**
+   * The number of bits of a time in milliseconds ignored by each level, so
+   * that the buckets of a level span 2^shift milliseconds and the buckets of
+   * all but the last level together span one bucket of the next level.
+   */
+  private static final int[] SHIFTS = {10, 16, 22, 27, 30};
+
+  /**
+   * The requested time of a {@link Timer} without a request.
+   */
+  private static final long NO_REQUEST = Long.MIN_VALUE;
+
+  /**
+   * The requested time of a {@link Timer} to be cancelled.
+   */
+  private static final long CANCEL = -1;
+
+  /**
+   * The number of request buffers, being a power of two of at least the
+   * number of processors.
+   */
+  private static final int REQUEST_BUFFERS =
+      Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1;
+
+  /**
+   * The number of {@link Timer}s each request buffer holds, being a power of
+   * two.
+   */
+  private static final int REQUEST_BUFFER_SIZE = 256;
+
+  /**
+   * The buffers of {@link Timer}s with requests yet to be applied to the
+   * wheel.
+   */
+  private final RequestBuffer[] requestBuffers;
+
+  /**
+   * The lock guarding the wheel.
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * The levels of buckets, each bucket being the sentinel of a circular
+   * doubly-linked list of timers.
+   */
+  private final Timer[][] wheel;
+
+  /**
+   * The time in milliseconds to which the wheel has advanced.
+   */
+  private long time;
+
+  /**
+   * Constructs an {@link RITimerWheel}.
+   *
+   * @param now the current time in milliseconds (since the Epoc)
+   */
+  RITimerWheel(long now) {
+    this.time = now;
+    this.requestBuffers = new RequestBuffer[REQUEST_BUFFERS];
+    for (int i = 0; i < REQUEST_BUFFERS; i++) {
+      requestBuffers[i] = new RequestBuffer();
+    }
+    this.wheel = new Timer[BUCKETS.length][];
+    for (int level = 0; level < BUCKETS.length; level++) {
+      wheel[level] = new Timer[BUCKETS[level]];
+      for (int bucket = 0; bucket < BUCKETS[level]; bucket++) {
+        wheel[level][bucket] = new Timer(null);
+      }
+    }
+  }
+
+  /**
+   * Requests that the key of a value becomes due at the specified time,
+   * replacing any time previously requested for the value.
+   *
+   * @param key         the key
+   * @param cachedValue the {@link RICachedValue} of the key
+   * @param expiryTime  the time in milliseconds (since the Epoc)
+   */
+  void schedule(Object key, RICachedValue cachedValue, long expiryTime) {
+    Timer timer = cachedValue.getTimer();
+    if (timer == null) {
+      timer = new Timer(key);
+      cachedValue.setTimer(timer);
+    }
+    if (Timer.REQUESTED_TIME.getAndSet(timer, expiryTime) == NO_REQUEST) {
+      request(timer);
+    }
+  }
+
+  /**
+   * Requests that the key of a value no longer becomes due.
+   *
+   * @param cachedValue the {@link RICachedValue} of the key
+   */
+  void cancel(RICachedValue cachedValue) {
+    Timer timer = cachedValue.getTimer();
+    if (timer != null && Timer.REQUESTED_TIME.getAndSet(timer, CANCEL) == NO_REQUEST) {
+      request(timer);
+    }
+  }
+
+  /**
+   * Applies the requests and advances the wheel to the specified time,
+   * removing the keys that are due.
+   *
+   * @param now the current time in milliseconds (since the Epoc)
+   * @return the keys that are due
+   */
+  List<Object> advance(long now) {
+    ArrayList<Object> due = new ArrayList<Object>();
+    lock.lock();
+    try {
+      applyRequests();
+
+      long previous = time;
+      time = Math.max(previous, now);
+      for (int level = 0; level < SHIFTS.length; level++) {
+        long previousTicks = previous >>> SHIFTS[level];
+        long delta = (time >>> SHIFTS[level]) - previousTicks;
+        if (delta <= 0) {
+          break;
+        }
+        expire(level, previousTicks, delta, due);
+      }
+    } finally {
+      lock.unlock();
+    }
+    return due;
+  }
+
+  /**
+   * Adds a {@link Timer} with a new request to the buffer of the calling
+   * thread, applying the buffered requests should the buffer be full.
+   *
+   * @param timer the {@link Timer}
+   */
+  private void request(Timer timer) {
+    Thread thread = Thread.currentThread();
+    int hash = (int) ((thread.getId() * 0x9E3779B97F4A7C15L) >>> 32);
+    RequestBuffer buffer = requestBuffers[hash & (REQUEST_BUFFERS - 1)];
+    while (!buffer.offer(timer)) {
+      lock.lock();
+      try {
+        applyRequests();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Applies the buffered requests to the wheel.  Must be called while holding
+   * the lock.
+   */
+  private void applyRequests() {
+    for (RequestBuffer buffer : requestBuffers) {
+      buffer.drainTo(this);
+    }
+  }
+
+  /**
+   * Applies the request of a {@link Timer} to the wheel.  Must be called
+   * while holding the lock.
+   *
+   * @param timer the {@link Timer}
+   */
+  private void apply(Timer timer) {
+    long requestedTime = Timer.REQUESTED_TIME.getAndSet(timer, NO_REQUEST);
+    if (requestedTime == CANCEL) {
+      timer.unlink();
+    } else if (requestedTime != timer.time || !timer.isLinked()) {
+      timer.unlink();
+      timer.time = requestedTime;
+      timer.linkBefore(findBucket(requestedTime));
+    }
+  }
+
+  /**
+   * Empties the buckets of a level that have been passed, collecting the
+   * keys that are due and rescheduling the others.
+   *
+   * @param level         the level
+   * @param previousTicks the ticks of the level when it was last advanced
+   * @param delta         the number of ticks the level has advanced
+   * @param due           the keys that are due
+   */
+  private void expire(int level, long previousTicks, long delta, List<Object> due) {
+    Timer[] buckets = wheel[level];
+    int mask = buckets.length - 1;
+    int steps = (int) Math.min(delta + 1, buckets.length);
+    int start = (int) (previousTicks & mask);
+
+    for (int i = start; i < start + steps; i++) {
+      Timer sentinel = buckets[i & mask];
+      Timer timer = sentinel.next;
+      sentinel.previous = sentinel;
+      sentinel.next = sentinel;
+
+      while (timer != sentinel) {
+        Timer next = timer.next;
+        if (timer.time <= time) {
+          timer.previous = timer;
+          timer.next = timer;
+          due.add(timer.key);
+        } else {
+          timer.linkBefore(findBucket(timer.time));
+        }
+        timer = next;
+      }
+    }
+  }
+
+  /**
+   * Determines the bucket for a time, being in the finest level that spans
+   * it.  Times that have passed are placed in the current bucket.
+   *
+   * @param expiryTime the time in milliseconds (since the Epoc)
+   * @return the sentinel of the bucket
+   */
+  private Timer findBucket(long expiryTime) {
+    long bucketTime = Math.max(expiryTime, time);
+    long duration = bucketTime - time;
+    for (int level = 0; level < SHIFTS.length - 1; level++) {
+      if (duration < (1L << SHIFTS[level + 1])) {
+        long ticks = bucketTime >>> SHIFTS[level];
+        return wheel[level][(int) (ticks & (BUCKETS[level] - 1))];
+      }
+    }
+    return wheel[SHIFTS.length - 1][0];
+  }
+
+  /**
+   * The scheduling of the key of an {@link RICachedValue}, linked into a
+   * bucket of the wheel while scheduled.  A {@link Timer} without a key is
+   * the sentinel of a bucket.
+   */
+  static final class Timer {
+
+    /**
+     * The updater of the {@link #requestedTime}.
+     */
+    private static final AtomicLongFieldUpdater<Timer> REQUESTED_TIME =
+        AtomicLongFieldUpdater.newUpdater(Timer.class, "requestedTime");
+
+    /**
+     * The key.
+     */
+    private final Object key;
+
+    /**
+     * The time requested but not yet applied to the wheel, being
+     * {@link #NO_REQUEST} once applied or {@link #CANCEL} to be cancelled.
+     */
+    private volatile long requestedTime = NO_REQUEST;
+
+    /**
+     * The expiry time in milliseconds (since the Epoc) while linked.
+     */
+    private long time;
+
+    /**
+     * The previous timer of the bucket.
+     */
+    private Timer previous;
+
+    /**
+     * The next timer of the bucket.
+     */
+    private Timer next;
+
+    /**
+     * Constructs a {@link Timer}.
+     *
+     * @param key the key (<code>null</code> for a sentinel)
+     */
+    private Timer(Object key) {
+      this.key = key;
+      this.previous = this;
+      this.next = this;
+    }
+
+    /**
+     * Determines if this timer is linked into a bucket.
+     *
+     * @return true if the timer is scheduled
+     */
+    private boolean isLinked() {
+      return next != this;
+    }
+
+    /**
+     * Links this timer as the last of a bucket.
+     *
+     * @param sentinel the sentinel of the bucket
+     */
+    private void linkBefore(Timer sentinel) {
+      previous = sentinel.previous;
+      next = sentinel;
+      sentinel.previous.next = this;
+      sentinel.previous = this;
+    }
+
+    /**
+     * Unlinks this timer from its bucket.
+     */
+    private void unlink() {
+      previous.next = next;
+      next.previous = previous;
+      previous = this;
+      next = this;
+    }
+  }
+
+  /**
+   * A bounded buffer of {@link Timer}s with requests yet to be applied.
+   * Unlike reads, requests can't be dropped, so a full buffer must be
+   * drained before another {@link Timer} is added.
+   */
+  private static final class RequestBuffer {
+
+    /**
+     * The slots holding the {@link Timer}s, reused in turn.
+     */
+    private final AtomicReferenceArray<Timer> slots = new AtomicReferenceArray<Timer>(REQUEST_BUFFER_SIZE);
+
+    /**
+     * The number of {@link Timer}s added.
+     */
+    private final AtomicLong writeCount = new AtomicLong();
+
+    /**
+     * The number of {@link Timer}s drained, only changed while holding the lock.
+     */
+    private volatile long readCount;
+
+    /**
+     * Adds a {@link Timer}, unless the buffer is full.
+     *
+     * @param timer the {@link Timer}
+     * @return false if the buffer is full and must be drained
+     */
+    boolean offer(Timer timer) {
+      while (true) {
+        long writes = writeCount.get();
+        if (writes - readCount >= REQUEST_BUFFER_SIZE) {
+          return false;
+        }
+        if (writeCount.compareAndSet(writes, writes + 1)) {
+          slots.lazySet((int) writes & (REQUEST_BUFFER_SIZE - 1), timer);
+          return true;
+        }
+      }
+    }
+
+    /**
+     * Applies the requests of the buffered {@link Timer}s to a wheel.  Must
+     * be called while holding the lock of the wheel.
+     *
+     * @param wheel the {@link RITimerWheel}
+     */
+    void drainTo(RITimerWheel wheel) {
+      long reads = readCount;
+      long writes = writeCount.get();
+      while (reads < writes) {
+        int index = (int) reads & (REQUEST_BUFFER_SIZE - 1);
+        Timer timer = slots.get(index);
+        if (timer == null) {
+          //the timer is yet to be published
+          break;
+        }
+        slots.lazySet(index, null);
+        wheel.apply(timer);
+        reads++;
+      }
+      readCount = reads;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link RIClock} that only advances when told to, allowing tests to
+ * control the expiry of entries and the durations reported by the statistics.
+ * <p>
+ * To be used by the caches of an {@link RICacheManager}, the instance is
+ * provided as the value of the {@link RIProperties#CLOCK} property.
+ * </p>
+ */
+public final class RIVirtualClock implements RIClock {
+
+  /**
+   * The time in milliseconds (since the Epoc) when the clock was created.
+   */
+  private final long origin;
+
+  /**
+   * The number of nanoseconds the clock has advanced since it was created.
+   */
+  private final AtomicLong elapsed = new AtomicLong();
+
+  /**
+   * Constructs an {@link RIVirtualClock} starting at the current time.
+   */
+  public RIVirtualClock() {
+    this(System.currentTimeMillis());
+  }
+
+  /**
+   * Constructs an {@link RIVirtualClock} starting at the specified time.
+   *
+   * @param currentTimeMillis the time in milliseconds (since the Epoc)
+   */
+  public RIVirtualClock(long currentTimeMillis) {
+    this.origin = currentTimeMillis;
+  }
+
+  /**
+   * Advances the clock.
+   *
+   * @param duration the amount of time to advance by
+   * @param timeUnit the {@link TimeUnit} of the duration
+   * @throws IllegalArgumentException if the duration is negative
+   */
+  public void advance(long duration, TimeUnit timeUnit) {
+    if (duration < 0) {
+      throw new IllegalArgumentException("A clock can't go backwards by " + duration + " " + timeUnit);
+    }
+    elapsed.addAndGet(timeUnit.toNanos(duration));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long currentTimeMillis() {
+    return origin + TimeUnit.NANOSECONDS.toMillis(elapsed.get());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long nanoTime() {
+    return elapsed.get();
+  }
+}
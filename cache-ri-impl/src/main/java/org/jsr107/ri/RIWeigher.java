@@ -0,0 +1,45 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.jsr107.ri;
+
+/**
+ * Determines the weight of a cache entry, counted against the maximum weight
+ * of a Cache.
+ * <p>
+ * Caches that store-by-value weigh entries by the length of their serialized
+ * keys and values.  A {@link RIWeigher} may be specified for caches that
+ * store-by-reference using the {@link RIProperties#WEIGHER} property, in which
+ * case the implementation must provide a public no-argument constructor.
+ * </p>
+ * Implementations must be thread-safe and return the same weight for an
+ * unchanged entry.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public interface RIWeigher<K, V> {
+
+  /**
+   * Determines the weight of an entry.
+   *
+   * @param key   the key of the entry
+   * @param value the value of the entry
+   * @return the weight of the entry, which must not be negative
+   */
+  int weigh(K key, V value);
+}
@@ -0,0 +1,562 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import javax.cache.Cache;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link CacheWriter} that queues the writes and deletes of a Cache and
+ * performs them in the background with another {@link CacheWriter}, so that
+ * cache operations don't wait for the underlying store.
+ * <p>
+ * Operations on the same key are coalesced, with the last one queued being
+ * performed.  Queued operations are performed in batches with
+ * {@link CacheWriter#writeAll} and {@link CacheWriter#deleteAll}, once
+ * there's a full batch or when the oldest queued operation has waited for the
+ * delay.  Operations that fail are retried after the delay, unless the key is
+ * written again, and are discarded (with a warning) once they have failed too
+ * many times.
+ * </p>
+ * <p>
+ * Should the queue be full, operations wait for it to be flushed, the calling
+ * thread flushing a batch itself when no other thread is.  Once a flush has
+ * failed, the calling threads wait for the delay rather than flushing again,
+ * so that they don't spin against a store that is down.  Closing the
+ * {@link RIWriteBehindCacheWriter} flushes the queue.
+ * </p>
+ * <p>
+ * Keys and values are queued in their internal representation, so that
+ * they're not affected by changes made to the objects after being cached.
+ * As the underlying store is only eventually written, a read-through Cache may
+ * load a value that is older than one that is queued.
+ * </p>
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+final class RIWriteBehindCacheWriter<K, V> implements CacheWriter<K, V>, Closeable {
+
+  /**
+   * The queued operation deleting a key.
+   */
+  private static final Object DELETE = new Object();
+
+  /**
+   * The {@link CacheWriter} performing the operations.
+   */
+  private final CacheWriter<K, V> cacheWriter;
+
+  /**
+   * The {@link RIInternalConverter} for keys.
+   */
+  private final RIInternalConverter<K> keyConverter;
+
+  /**
+   * The {@link RIInternalConverter} for values.
+   */
+  private final RIInternalConverter<V> valueConverter;
+
+  /**
+   * The {@link ScheduledExecutorService} scheduling delayed flushes.
+   */
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * The {@link Executor} performing flushes.
+   */
+  private final Executor executor;
+
+  /**
+   * The time in milliseconds an operation may be queued before being
+   * performed.
+   */
+  private final long delay;
+
+  /**
+   * The maximum number of operations performed together.
+   */
+  private final int batchSize;
+
+  /**
+   * The number of times a failed operation is retried.
+   */
+  private final int retries;
+
+  /**
+   * The maximum number of queued operations.
+   */
+  private final int queueSize;
+
+  /**
+   * The name of the Cache, for logging.
+   */
+  private final String cacheName;
+
+  /**
+   * The lock guarding the queue and the state of flushing.
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * Signalled when the queue is no longer full or a flush completes.
+   */
+  private final Condition flushed = lock.newCondition();
+
+  /**
+   * The queued operations, keyed by internal key in the order they were
+   * first queued.
+   */
+  private final LinkedHashMap<Object, Operation> queue = new LinkedHashMap<Object, Operation>();
+
+  /**
+   * The pending delayed flush or <code>null</code> if there is none.
+   */
+  private ScheduledFuture<?> scheduledFlush;
+
+  /**
+   * Whether a thread is flushing.
+   */
+  private boolean isFlushing;
+
+  /**
+   * Whether the {@link RIWriteBehindCacheWriter} has been closed.
+   */
+  private boolean isClosed;
+
+  /**
+   * The time in milliseconds until which threads waiting for the queue don't
+   * flush, as a flush has failed.
+   */
+  private volatile long retryTime;
+
+  /**
+   * Constructs an {@link RIWriteBehindCacheWriter}.
+   *
+   * @param cacheWriter    the {@link CacheWriter} performing the operations
+   * @param keyConverter   the {@link RIInternalConverter} for keys
+   * @param valueConverter the {@link RIInternalConverter} for values
+   * @param scheduler      the {@link ScheduledExecutorService} scheduling
+   *                       delayed flushes
+   * @param executor       the {@link Executor} performing flushes
+   * @param delay          the time in milliseconds an operation may be
+   *                       queued
+   * @param batchSize      the maximum number of operations performed together
+   * @param retries        the number of times a failed operation is retried
+   * @param queueSize      the maximum number of queued operations
+   * @param cacheName      the name of the Cache
+   */
+  RIWriteBehindCacheWriter(CacheWriter<K, V> cacheWriter, RIInternalConverter<K> keyConverter,
+                           RIInternalConverter<V> valueConverter, ScheduledExecutorService scheduler,
+                           Executor executor, long delay, int batchSize, int retries, int queueSize,
+                           String cacheName) {
+    this.cacheWriter = cacheWriter;
+    this.keyConverter = keyConverter;
+    this.valueConverter = valueConverter;
+    this.scheduler = scheduler;
+    this.executor = executor;
+    this.delay = delay;
+    this.batchSize = batchSize;
+    this.retries = retries;
+    this.queueSize = Math.max(queueSize, batchSize);
+    this.cacheName = cacheName;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write(Cache.Entry<? extends K, ? extends V> entry) {
+    enqueue(keyConverter.toInternal(entry.getKey()), valueConverter.toInternal(entry.getValue()));
+  }
+
+  /**
+   * Queues the entries, removing them from the collection as they have all
+   * been accepted.
+   *
+   * @param entries the entries to write
+   */
+  @Override
+  public void writeAll(Collection<Cache.Entry<? extends K, ? extends V>> entries) {
+    for (Iterator<Cache.Entry<? extends K, ? extends V>> iterator = entries.iterator(); iterator.hasNext(); ) {
+      write(iterator.next());
+      iterator.remove();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void delete(Object key) {
+    //the cache only deletes keys of its own type
+    @SuppressWarnings("unchecked")
+    K cacheKey = (K) key;
+    enqueue(keyConverter.toInternal(cacheKey), DELETE);
+  }
+
+  /**
+   * Queues the deletes, removing the keys from the collection as they have
+   * all been accepted.
+   *
+   * @param keys the keys to delete
+   */
+  @Override
+  public void deleteAll(Collection<?> keys) {
+    for (Iterator<?> iterator = keys.iterator(); iterator.hasNext(); ) {
+      delete(iterator.next());
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Flushes the queue and closes the underlying {@link CacheWriter} (when
+   * it's {@link Closeable}).
+   *
+   * @throws IOException should the underlying {@link CacheWriter} fail to
+   *                     close
+   */
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      isClosed = true;
+      if (scheduledFlush != null) {
+        scheduledFlush.cancel(false);
+        scheduledFlush = null;
+      }
+      while (isFlushing) {
+        flushed.awaitUninterruptibly();
+      }
+      isFlushing = true;
+    } finally {
+      lock.unlock();
+    }
+
+    //flush whatever remains, retrying without delay until the operations are discarded
+    try {
+      while (true) {
+        lock.lock();
+        try {
+          if (queue.isEmpty()) {
+            break;
+          }
+        } finally {
+          lock.unlock();
+        }
+        flushBatch();
+      }
+    } finally {
+      lock.lock();
+      try {
+        completeFlush();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    if (cacheWriter instanceof Closeable) {
+      ((Closeable) cacheWriter).close();
+    }
+  }
+
+  /**
+   * Queues an operation, waiting should the queue be full.
+   *
+   * @param internalKey   the internal key
+   * @param internalValue the internal value to write or {@link #DELETE}
+   */
+  private void enqueue(Object internalKey, Object internalValue) {
+    boolean isInterrupted = false;
+    lock.lock();
+    try {
+      while (!isClosed && queue.size() >= queueSize && !queue.containsKey(internalKey)) {
+        long retryDelay = retryTime - System.currentTimeMillis();
+        if (isFlushing) {
+          flushed.awaitUninterruptibly();
+        } else if (retryDelay > 0) {
+          //the store is failing, so wait for the retry rather than flushing again
+          try {
+            flushed.await(retryDelay, TimeUnit.MILLISECONDS);
+          } catch (InterruptedException e) {
+            isInterrupted = true;
+          }
+        } else {
+          //apply back-pressure by flushing on the calling thread
+          isFlushing = true;
+          lock.unlock();
+          try {
+            flushBatch();
+          } finally {
+            lock.lock();
+            completeFlush();
+          }
+        }
+      }
+      if (isInterrupted) {
+        Thread.currentThread().interrupt();
+      }
+
+      Operation operation = queue.get(internalKey);
+      if (operation == null) {
+        queue.put(internalKey, new Operation(internalValue));
+      } else {
+        operation.replace(internalValue);
+      }
+
+      if (isClosed) {
+        return;
+      } else if (queue.size() >= batchSize && !isFlushing) {
+        requestFlush(0);
+      } else if (scheduledFlush == null && !isFlushing) {
+        requestFlush(delay);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Requests that the queue is flushed on the {@link Executor} after a delay.
+   * Must be called while holding the lock.
+   *
+   * @param flushDelay the delay in milliseconds
+   */
+  private void requestFlush(long flushDelay) {
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+    }
+    scheduledFlush = scheduler.schedule(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          executor.execute(new Runnable() {
+            @Override
+            public void run() {
+              flush();
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          //the cache manager is closing, so the cache flushes when closed
+        }
+      }
+    }, flushDelay, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Flushes the queue in batches, unless another thread is flushing.
+   */
+  private void flush() {
+    lock.lock();
+    try {
+      if (isFlushing || isClosed) {
+        return;
+      }
+      isFlushing = true;
+      scheduledFlush = null;
+    } finally {
+      lock.unlock();
+    }
+
+    boolean isFailed = false;
+    try {
+      while (!isFailed) {
+        lock.lock();
+        try {
+          if (queue.isEmpty() || isClosed) {
+            break;
+          }
+        } finally {
+          lock.unlock();
+        }
+        isFailed = !flushBatch();
+      }
+    } finally {
+      lock.lock();
+      try {
+        completeFlush();
+        if (!queue.isEmpty() && !isClosed && scheduledFlush == null) {
+          //retry failed operations (and flush those queued meanwhile) after the delay
+          requestFlush(isFailed || queue.size() < batchSize ? delay : 0);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Notes that the current flush has completed.  Must be called while holding
+   * the lock.
+   */
+  private void completeFlush() {
+    isFlushing = false;
+    flushed.signalAll();
+  }
+
+  /**
+   * Performs a batch of the queued operations.  Must only be called by the
+   * thread that is flushing.
+   *
+   * @return true if every operation was performed
+   */
+  private boolean flushBatch() {
+    LinkedHashMap<Object, Operation> batch = new LinkedHashMap<Object, Operation>();
+    lock.lock();
+    try {
+      Iterator<Map.Entry<Object, Operation>> iterator = queue.entrySet().iterator();
+      while (batch.size() < batchSize && iterator.hasNext()) {
+        Map.Entry<Object, Operation> entry = iterator.next();
+        batch.put(entry.getKey(), entry.getValue());
+        iterator.remove();
+      }
+      flushed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+
+    ArrayList<Cache.Entry<? extends K, ? extends V>> entries = new ArrayList<Cache.Entry<? extends K, ? extends V>>();
+    ArrayList<K> keys = new ArrayList<K>();
+    LinkedHashMap<K, Object> internalKeys = new LinkedHashMap<K, Object>();
+    for (Map.Entry<Object, Operation> entry : batch.entrySet()) {
+      K key = keyConverter.fromInternal(entry.getKey());
+      internalKeys.put(key, entry.getKey());
+      Object internalValue = entry.getValue().internalValue;
+      if (internalValue == DELETE) {
+        keys.add(key);
+      } else {
+        entries.add(new RIEntry<K, V>(key, valueConverter.fromInternal(internalValue)));
+      }
+    }
+
+    Exception failure = null;
+    if (!entries.isEmpty()) {
+      try {
+        cacheWriter.writeAll(entries);
+        entries.clear();
+      } catch (Exception e) {
+        failure = e;
+      }
+    }
+    if (!keys.isEmpty()) {
+      try {
+        cacheWriter.deleteAll(keys);
+        keys.clear();
+      } catch (Exception e) {
+        failure = failure == null ? e : failure;
+      }
+    }
+    if (failure == null) {
+      retryTime = 0;
+      return true;
+    }
+
+    //requeue the operations that weren't performed, unless the keys were since written again
+    int discarded = 0;
+    lock.lock();
+    try {
+      ArrayList<K> failedKeys = new ArrayList<K>(keys);
+      for (Cache.Entry<? extends K, ? extends V> entry : entries) {
+        failedKeys.add(entry.getKey());
+      }
+      for (K key : failedKeys) {
+        Object internalKey = internalKeys.get(key);
+        Operation operation = batch.get(internalKey);
+        if (operation != null && ++operation.failures <= retries) {
+          if (!queue.containsKey(internalKey)) {
+            queue.put(internalKey, operation);
+          }
+        } else {
+          discarded++;
+        }
+      }
+      retryTime = System.currentTimeMillis() + delay;
+    } finally {
+      lock.unlock();
+    }
+
+    Exception exception = failure instanceof CacheWriterException ? failure : new CacheWriterException(failure);
+    if (discarded > 0) {
+      Logger.getLogger(cacheName).log(Level.WARNING, "Problem writing behind the cache " + cacheName +
+          ", discarding " + discarded + " operations after " + (retries + 1) + " attempts", exception);
+    } else {
+      Logger.getLogger(cacheName).log(Level.FINE, "Problem writing behind the cache " + cacheName +
+          ", retrying", exception);
+    }
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return getClass().getName() + "{cacheWriter=" + cacheWriter + "}";
+  }
+
+  /**
+   * A queued operation.
+   */
+  private static final class Operation {
+
+    /**
+     * The internal value to write or {@link #DELETE}.
+     */
+    private Object internalValue;
+
+    /**
+     * The number of times the operation has failed.
+     */
+    private int failures;
+
+    /**
+     * Constructs an {@link Operation}.
+     *
+     * @param internalValue the internal value to write or {@link #DELETE}
+     */
+    private Operation(Object internalValue) {
+      this.internalValue = internalValue;
+    }
+
+    /**
+     * Replaces the operation with a later one for the same key.
+     *
+     * @param internalValue the internal value to write or {@link #DELETE}
+     */
+    private void replace(Object internalValue) {
+      this.internalValue = internalValue;
+      this.failures = 0;
+    }
+  }
+}
@@ -0,0 +1,261 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.event;
+
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryListener;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A queue of {@link CacheEntryEvent}s awaiting asynchronous delivery to a
+ * {@link CacheEntryListener} that isn't synchronous.
+ * <p>
+ * The events are delivered in the order they were queued by one thread at a
+ * time, normally a task submitted to an {@link Executor} whenever events are
+ * queued and no task is already pending.  As the events of an entry are
+ * queued in the order they occur, the listener observes them in that order.
+ * </p>
+ * <p>
+ * Events are always queued, so that they keep their order, but once more
+ * deliveries than the capacity are queued the threads raising events are
+ * held back by {@link #awaitCapacity()}, which they call once they're no
+ * longer taking a turn to dispatch events.  A held back thread delivers the
+ * queued events itself when no other thread is delivering them, or otherwise
+ * waits for that thread.  Threads delivering events (say from a listener
+ * writing to the Cache) aren't held back, as they may be what the others are
+ * waiting for.
+ * </p>
+ * Exceptions thrown by the listener are logged, as there is no caller to
+ * receive them.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class RICacheEntryEventQueue<K, V> implements Runnable {
+
+  /**
+   * The logger for failed deliveries.
+   */
+  private static final Logger LOGGER = Logger.getLogger("javax.cache");
+
+  /**
+   * The maximum number of deliveries made by a task before it yields its
+   * thread to the other queues.
+   */
+  private static final int MAXIMUM_DRAIN = 64;
+
+  /**
+   * Whether the current thread is delivering the events of a queue.
+   */
+  private static final ThreadLocal<Boolean> IS_DELIVERING = new ThreadLocal<Boolean>();
+
+  /**
+   * The {@link CacheEntryListener} to which events are delivered.
+   */
+  private final CacheEntryListener<? super K, ? super V> listener;
+
+  /**
+   * The {@link Executor} running the tasks that drain the queue.
+   */
+  private final Executor executor;
+
+  /**
+   * The number of deliveries that may be queued before the threads raising
+   * events are held back.
+   */
+  private final int capacity;
+
+  /**
+   * The queued deliveries.
+   */
+  private final BlockingQueue<Delivery<K, V>> queue = new LinkedBlockingQueue<Delivery<K, V>>();
+
+  /**
+   * Whether a task has been submitted to drain the queue and hasn't started.
+   */
+  private final AtomicBoolean isScheduled = new AtomicBoolean();
+
+  /**
+   * Whether a thread is delivering the queued events.  The monitor of the
+   * flag is notified when it's cleared.
+   */
+  private final AtomicBoolean isDraining = new AtomicBoolean();
+
+  /**
+   * Constructs an {@link RICacheEntryEventQueue}.
+   *
+   * @param listener the {@link CacheEntryListener} to which to deliver events
+   * @param executor the {@link Executor} to drain the queue
+   * @param capacity the number of deliveries that may be queued before the
+   *                 threads raising events are held back
+   */
+  public RICacheEntryEventQueue(CacheEntryListener<? super K, ? super V> listener,
+                                Executor executor, int capacity) {
+    this.listener = listener;
+    this.executor = executor;
+    this.capacity = capacity;
+  }
+
+  /**
+   * Queues events for delivery to the listener.
+   *
+   * @param listenerClass the class of {@link CacheEntryListener} that should
+   *                      receive the events
+   * @param events        the events, which must not be changed once queued
+   */
+  public void enqueue(Class<?> listenerClass, List<CacheEntryEvent<K, V>> events) {
+    queue.add(new Delivery<K, V>(listenerClass, events));
+    schedule();
+  }
+
+  /**
+   * Holds back the calling thread while more deliveries than the capacity
+   * are queued, delivering them itself when no other thread is.  The calling
+   * thread must not be taking a turn to dispatch events.
+   */
+  public void awaitCapacity() {
+    if (queue.size() <= capacity || IS_DELIVERING.get() != null) {
+      return;
+    }
+
+    boolean isInterrupted = false;
+    while (queue.size() > capacity) {
+      if (isDraining.compareAndSet(false, true)) {
+        drain(Integer.MAX_VALUE, capacity);
+      } else {
+        synchronized (isDraining) {
+          while (isDraining.get() && queue.size() > capacity) {
+            try {
+              isDraining.wait();
+            } catch (InterruptedException e) {
+              isInterrupted = true;
+            }
+          }
+        }
+      }
+    }
+    if (isInterrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Delivers the queued events, unless another thread is.
+   */
+  @Override
+  public void run() {
+    isScheduled.set(false);
+    if (isDraining.compareAndSet(false, true)) {
+      drain(MAXIMUM_DRAIN, 0);
+    }
+  }
+
+  /**
+   * Delivers queued events in order, the calling thread having set the
+   * draining flag, which is then cleared.
+   *
+   * @param maximum   the maximum number of deliveries to make
+   * @param remaining the number of deliveries to leave queued
+   */
+  private void drain(int maximum, int remaining) {
+    IS_DELIVERING.set(Boolean.TRUE);
+    try {
+      for (int i = 0; i < maximum && queue.size() > remaining; i++) {
+        Delivery<K, V> delivery = queue.poll();
+        if (delivery == null) {
+          break;
+        }
+        deliver(delivery.listenerClass, delivery.events);
+      }
+    } finally {
+      IS_DELIVERING.remove();
+      synchronized (isDraining) {
+        isDraining.set(false);
+        isDraining.notifyAll();
+      }
+      if (!queue.isEmpty()) {
+        schedule();
+      }
+    }
+  }
+
+  /**
+   * Delivers events to the listener, logging any exception it throws.
+   *
+   * @param listenerClass the class of {@link CacheEntryListener} that should
+   *                      receive the events
+   * @param events        the events
+   */
+  private void deliver(Class<?> listenerClass, List<CacheEntryEvent<K, V>> events) {
+    try {
+      RICacheEventDispatcher.notifyListener(listener, listenerClass, events);
+    } catch (RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Exception on asynchronous listener execution: " + listener, e);
+    }
+  }
+
+  /**
+   * Submits a task to drain the queue, unless one is already pending.
+   */
+  private void schedule() {
+    if (isScheduled.compareAndSet(false, true)) {
+      try {
+        executor.execute(this);
+      } catch (RejectedExecutionException e) {
+        //the executor has been shutdown, so deliver on the calling thread
+        run();
+      }
+    }
+  }
+
+  /**
+   * Events to deliver to a type of {@link CacheEntryListener}.
+   *
+   * @param <K> the type of keys
+   * @param <V> the type of values
+   */
+  private static final class Delivery<K, V> {
+
+    /**
+     * The class of {@link CacheEntryListener} that should receive the events.
+     */
+    private final Class<?> listenerClass;
+
+    /**
+     * The events.
+     */
+    private final List<CacheEntryEvent<K, V>> events;
+
+    /**
+     * Constructs a {@link Delivery}.
+     *
+     * @param listenerClass the class of {@link CacheEntryListener}
+     * @param events        the events
+     */
+    private Delivery(Class<?> listenerClass, List<CacheEntryEvent<K, V>> events) {
+      this.listenerClass = listenerClass;
+      this.events = events;
+    }
+  }
+}
@@ -21,6 +21,7 @@ import javax.cache.configuration.CacheEntryListenerConfiguration;
 import javax.cache.event.CacheEntryEvent;
 import javax.cache.event.CacheEntryEventFilter;
 import javax.cache.event.CacheEntryListener;
+import java.util.concurrent.Executor;
 
 /**
  * An internal structure to represent the registration of a {@link CacheEntryListener}.
@@ -38,11 +39,35 @@ public class RICacheEntryListenerRegistration<K, V> {
   private boolean isSynchronous;
 
   /**
-   * Constructs an {@link RICacheEntryListenerRegistration}.
+   * The {@link RICacheEntryEventQueue} of an asynchronous listener.
+   */
+  private final RICacheEntryEventQueue<K, V> eventQueue;
+
+  /**
+   * Constructs an {@link RICacheEntryListenerRegistration} that notifies the
+   * listener on the thread dispatching the events, even if it's not
+   * synchronous.
    *
    * @param configuration  the {@link CacheEntryListenerConfiguration} to be registered
    */
   public RICacheEntryListenerRegistration(CacheEntryListenerConfiguration<K, V> configuration) {
+    this(configuration, null, 0);
+  }
+
+  /**
+   * Constructs an {@link RICacheEntryListenerRegistration}, notifying a
+   * listener that isn't synchronous through an {@link RICacheEntryEventQueue}.
+   *
+   * @param configuration  the {@link CacheEntryListenerConfiguration} to be registered
+   * @param executor       the {@link Executor} delivering events to a listener
+   *                       that isn't synchronous (<code>null</code> to notify it
+   *                       on the dispatching thread)
+   * @param queueCapacity  the number of deliveries that may be queued for a
+   *                       listener that isn't synchronous before the threads
+   *                       raising events are held back
+   */
+  public RICacheEntryListenerRegistration(CacheEntryListenerConfiguration<K, V> configuration,
+                                          Executor executor, int queueCapacity) {
     this.configuration = configuration;
     this.listener = configuration.getCacheEntryListenerFactory().create();
     this.filter = configuration.getCacheEntryEventFilterFactory() == null
@@ -50,6 +75,9 @@ public class RICacheEntryListenerRegistration<K, V> {
                   : configuration.getCacheEntryEventFilterFactory().create();
     this.isOldValueRequired = configuration.isOldValueRequired();
     this.isSynchronous = configuration.isSynchronous();
+    this.eventQueue = isSynchronous || executor == null
+                      ? null
+                      : new RICacheEntryEventQueue<K, V>(listener, executor, queueCapacity);
   }
 
   /**
@@ -89,6 +117,17 @@ public class RICacheEntryListenerRegistration<K, V> {
     return isSynchronous;
   }
 
+  /**
+   * Obtains the {@link RICacheEntryEventQueue} through which events are
+   * delivered asynchronously.
+   *
+   * @return the {@link RICacheEntryEventQueue} or <code>null</code> if events
+   *         are delivered on the dispatching thread
+   */
+  public RICacheEntryEventQueue<K, V> getEventQueue() {
+    return eventQueue;
+  }
+
   /**
    * {@inheritDoc}
    */
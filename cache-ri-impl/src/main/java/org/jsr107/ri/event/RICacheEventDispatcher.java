@@ -28,11 +28,16 @@ import javax.cache.event.CacheEntryUpdatedListener;
 import javax.cache.event.EventType;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Collects and appropriately dispatches {@link CacheEntryEvent}s to
  * {@link CacheEntryListener}s.
+ * <p>
+ * An {@link RICacheEventDispatcher} may be {@link #clear() cleared} once its
+ * events have been dispatched and then reused, keeping the lists it has
+ * allocated for events.  Listeners are notified with copies of the events
+ * rather than those lists, so that they may retain them.
+ * </p>
  *
  * @param <K> the type of keys
  * @param <V> the type of values
@@ -41,18 +46,120 @@ import java.util.concurrent.ConcurrentHashMap;
 public class RICacheEventDispatcher<K, V> {
 
   /**
-   * The map of {@link CacheEntryEvent}s to deliver, keyed by the class of
-   * {@link CacheEntryListener} to which they should be dispatched.
+   * The classes of {@link CacheEntryListener} to which events may be
+   * dispatched, in the order in which they are dispatched.
    */
-  private ConcurrentHashMap<Class<? extends CacheEntryListener>,
-      ArrayList<CacheEntryEvent<K, V>>> eventMap;
+  private static final Class<?>[] LISTENER_CLASSES = {
+      CacheEntryExpiredListener.class, CacheEntryCreatedListener.class,
+      CacheEntryUpdatedListener.class, CacheEntryRemovedListener.class};
+
+  /**
+   * The number of events a list may have held and still be kept when the
+   * {@link RICacheEventDispatcher} is cleared.
+   */
+  private static final int MAXIMUM_RETAINED_EVENTS = 64;
+
+  /**
+   * The lists of {@link CacheEntryEvent}s to deliver, indexed by the class of
+   * {@link CacheEntryListener} to which they should be dispatched, each
+   * being allocated when first needed.
+   */
+  private final ArrayList<CacheEntryEvent<K, V>>[] eventLists;
+
+  /**
+   * The number of events that have been added.
+   */
+  private int eventCount;
 
   /**
    * Constructs an {@link RICacheEventDispatcher}.
    */
   public RICacheEventDispatcher() {
-    this.eventMap = new ConcurrentHashMap<Class<? extends CacheEntryListener>,
-        ArrayList<CacheEntryEvent<K, V>>>();
+    //generic arrays can't be created, but each list only holds events of this dispatcher
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ArrayList<CacheEntryEvent<K, V>>[] eventLists = new ArrayList[LISTENER_CLASSES.length];
+    this.eventLists = eventLists;
+  }
+
+  /**
+   * Determines the classes of {@link CacheEntryListener} that are implemented
+   * by registered listeners, so that events need only be raised for them.
+   *
+   * @param registrations the {@link RICacheEntryListenerRegistration}s
+   * @return a mask of the classes of {@link CacheEntryListener} to test with
+   *         {@link #isListening(int, Class)}
+   */
+  public static int getListenerMask(Iterable<? extends RICacheEntryListenerRegistration<?, ?>> registrations) {
+    return getMask(registrations, false);
+  }
+
+  /**
+   * Determines the classes of {@link CacheEntryListener} for which the old
+   * values of entries should be supplied with events, being those that are
+   * implemented by a registered listener that requires old values or whose
+   * filter may inspect them.
+   *
+   * @param registrations the {@link RICacheEntryListenerRegistration}s
+   * @return a mask of the classes of {@link CacheEntryListener} to test with
+   *         {@link #isListening(int, Class)}
+   */
+  public static int getOldValueMask(Iterable<? extends RICacheEntryListenerRegistration<?, ?>> registrations) {
+    return getMask(registrations, true);
+  }
+
+  /**
+   * Determines the classes of {@link CacheEntryListener} implemented by
+   * registered listeners.
+   *
+   * @param registrations      the {@link RICacheEntryListenerRegistration}s
+   * @param isOldValueRequired whether to only consider the registrations
+   *                           that may need old values
+   * @return a mask of the classes of {@link CacheEntryListener}
+   */
+  private static int getMask(Iterable<? extends RICacheEntryListenerRegistration<?, ?>> registrations,
+                             boolean isOldValueRequired) {
+    int mask = 0;
+    for (RICacheEntryListenerRegistration<?, ?> registration : registrations) {
+      if (!isOldValueRequired || registration.isOldValueRequired() || registration.getCacheEntryFilter() != null) {
+        CacheEntryListener<?, ?> listener = registration.getCacheEntryListener();
+        for (int i = 0; i < LISTENER_CLASSES.length; i++) {
+          if (LISTENER_CLASSES[i].isInstance(listener)) {
+            mask |= 1 << i;
+          }
+        }
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * Determines if a class of {@link CacheEntryListener} is implemented by a
+   * registered listener.
+   *
+   * @param listenerMask  the mask returned by {@link #getListenerMask(Iterable)}
+   * @param listenerClass the class of {@link CacheEntryListener}
+   * @return true if events for the listener class should be raised
+   */
+  public static boolean isListening(int listenerMask, Class<?> listenerClass) {
+    return (listenerMask & (1 << indexOf(listenerClass))) != 0;
+  }
+
+  /**
+   * Determines the index of a class of {@link CacheEntryListener}.
+   *
+   * @param listenerClass the class of {@link CacheEntryListener}
+   * @return the index of the class in {@link #LISTENER_CLASSES}
+   */
+  private static int indexOf(Class<?> listenerClass) {
+    if (listenerClass == null) {
+      throw new NullPointerException("listenerClass can't be null");
+    }
+    for (int i = 0; i < LISTENER_CLASSES.length; i++) {
+      if (LISTENER_CLASSES[i] == listenerClass) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("listenerClass must be an CacheEntryListener interface");
   }
 
   /**
@@ -65,34 +172,58 @@ public class RICacheEventDispatcher<K, V> {
    */
   public void addEvent(Class<? extends CacheEntryListener> listenerClass,
                        CacheEntryEvent<K, V> event) {
-    if (listenerClass == null) {
-      throw new NullPointerException("listenerClass can't be null");
-    }
+    int index = indexOf(listenerClass);
 
     if (event == null) {
       throw new NullPointerException("event can't be null");
     }
 
-    if (!listenerClass.isInterface() || !CacheEntryListener.class.isAssignableFrom(listenerClass)) {
-      throw new IllegalArgumentException("listenerClass must be an CacheEntryListener interface");
-    }
-
     //for safety
-    ArrayList<CacheEntryEvent<K, V>> eventList;
     synchronized (this) {
-      eventList = eventMap.get(listenerClass);
+      ArrayList<CacheEntryEvent<K, V>> eventList = eventLists[index];
       if (eventList == null) {
         eventList = new ArrayList<CacheEntryEvent<K, V>>();
-        eventMap.put(listenerClass, eventList);
+        eventLists[index] = eventList;
       }
+      eventList.add(event);
+      eventCount++;
     }
+  }
 
-    eventList.add(event);
+  /**
+   * Determines if no events have been added.
+   *
+   * @return true if there are no events to dispatch
+   */
+  public synchronized boolean isEmpty() {
+    return eventCount == 0;
+  }
+
+  /**
+   * Removes the added events so that the {@link RICacheEventDispatcher} may
+   * be reused.  Lists that have grown large are released rather than kept.
+   */
+  public synchronized void clear() {
+    if (eventCount > 0) {
+      for (int i = 0; i < eventLists.length; i++) {
+        ArrayList<CacheEntryEvent<K, V>> eventList = eventLists[i];
+        if (eventList != null) {
+          if (eventList.size() > MAXIMUM_RETAINED_EVENTS) {
+            eventLists[i] = null;
+          } else {
+            eventList.clear();
+          }
+        }
+      }
+      eventCount = 0;
+    }
   }
 
   /**
    * Dispatches the added events to the listeners defined by the specified
-   * {@link CacheEntryListenerConfiguration}s.
+   * {@link CacheEntryListenerConfiguration}s.  Synchronous listeners are
+   * notified on the calling thread, while the events for other listeners are
+   * queued on their {@link RICacheEntryEventQueue}.
    *
    * @param registrations the {@link RICacheEntryListenerRegistration}s defining
    *                      {@link CacheEntryListener}s to which to dispatch events
@@ -100,86 +231,118 @@ public class RICacheEventDispatcher<K, V> {
    */
   public void dispatch(Iterable<RICacheEntryListenerRegistration<K, V>> registrations) {
 
-    //TODO: we could really optimize this implementation
-
-    //TODO: we need to handle exceptions here
-
-    //TODO: we need to work out which events should be raised synchronously or asynchronously
-
     //TODO: we need to remove/hide old values appropriately
 
-    Iterable<CacheEntryEvent<K, V>> events;
+    if (isEmpty()) {
+      return;
+    }
 
     try {
-
-      //notify expiry listeners
-      events = eventMap.get(CacheEntryExpiredListener.class);
-      if (events != null) {
-        for (RICacheEntryListenerRegistration<K, V> registration : registrations) {
-          CacheEntryEventFilter<? super K, ? super V> filter = registration.getCacheEntryFilter();
-          Iterable<CacheEntryEvent<K, V>> iterable =
-              filter == null ? events : new RICacheEntryEventFilteringIterable<K, V>(events, filter);
-
-          CacheEntryListener<? super K, ? super V> listener = registration.getCacheEntryListener();
-          if (listener instanceof CacheEntryExpiredListener) {
-            ((CacheEntryExpiredListener) listener).onExpired(cloneEvents(registration, iterable));
-          }
-        }
+      dispatch(registrations, CacheEntryExpiredListener.class);
+      dispatch(registrations, CacheEntryCreatedListener.class);
+      dispatch(registrations, CacheEntryUpdatedListener.class);
+      dispatch(registrations, CacheEntryRemovedListener.class);
+    } catch (Exception e) {
+      if (!(e instanceof CacheEntryListenerException)) {
+        throw new CacheEntryListenerException("Exception on listener execution", e);
+      } else {
+        throw e;
       }
+    }
+  }
 
-      //notify create listeners
-      events = eventMap.get(CacheEntryCreatedListener.class);
-      if (events != null) {
-        for (RICacheEntryListenerRegistration<K, V> registration : registrations) {
-          CacheEntryEventFilter<? super K, ? super V> filter = registration.getCacheEntryFilter();
-          Iterable<CacheEntryEvent<K, V>> iterable =
-              filter == null ? events : new RICacheEntryEventFilteringIterable<K, V>(events, filter);
-
-          CacheEntryListener<? super K, ? super V> listener = registration.getCacheEntryListener();
-          if (listener instanceof CacheEntryCreatedListener) {
-            ((CacheEntryCreatedListener) listener).onCreated(iterable);
-          }
-        }
-      }
+  /**
+   * Dispatches the added events for a type of listener.
+   *
+   * @param registrations the {@link RICacheEntryListenerRegistration}s defining
+   *                      {@link CacheEntryListener}s to which to dispatch events
+   * @param listenerClass the class of {@link CacheEntryListener} to notify
+   */
+  private void dispatch(Iterable<RICacheEntryListenerRegistration<K, V>> registrations,
+                        Class<?> listenerClass) {
+    ArrayList<CacheEntryEvent<K, V>> events = eventLists[indexOf(listenerClass)];
+    if (events == null || events.isEmpty()) {
+      return;
+    }
 
-      //notify update listeners
-      events = eventMap.get(CacheEntryUpdatedListener.class);
-      if (events != null) {
-        for (RICacheEntryListenerRegistration<K, V> registration : registrations) {
-          CacheEntryEventFilter<? super K, ? super V> filter = registration.getCacheEntryFilter();
-          Iterable<CacheEntryEvent<K, V>> iterable =
-              filter == null ? events : new RICacheEntryEventFilteringIterable<K, V>(events, filter);
-
-          CacheEntryListener<? super K, ? super V> listener = registration.getCacheEntryListener();
-          if (listener instanceof CacheEntryUpdatedListener) {
-            ((CacheEntryUpdatedListener) listener).onUpdated(cloneEvents(registration, iterable));
-          }
-        }
-      }
+    for (RICacheEntryListenerRegistration<K, V> registration : registrations) {
+      CacheEntryListener<? super K, ? super V> listener = registration.getCacheEntryListener();
+      if (listenerClass.isInstance(listener)) {
+        CacheEntryEventFilter<? super K, ? super V> filter = registration.getCacheEntryFilter();
+        Iterable<CacheEntryEvent<K, V>> iterable =
+            filter == null ? events : new RICacheEntryEventFilteringIterable<K, V>(events, filter);
 
-      //notify remove listeners
-      events = eventMap.get(CacheEntryRemovedListener.class);
-      if (events != null) {
-        for (RICacheEntryListenerRegistration<K, V> registration : registrations) {
-          CacheEntryEventFilter<? super K, ? super V> filter = registration.getCacheEntryFilter();
-          Iterable<CacheEntryEvent<K, V>> iterable =
-              filter == null ? events : new RICacheEntryEventFilteringIterable<K, V>(events, filter);
-
-          CacheEntryListener<? super K, ? super V> listener = registration.getCacheEntryListener();
-          if (listener instanceof CacheEntryRemovedListener) {
-            ((CacheEntryRemovedListener) listener).onRemoved(cloneEvents(registration, iterable));
+        RICacheEntryEventQueue<K, V> eventQueue = registration.getEventQueue();
+        if (eventQueue == null) {
+          notifyListener(listener, listenerClass, listenerClass == CacheEntryCreatedListener.class
+              ? copyEvents(iterable) : cloneEvents(registration, iterable));
+        } else {
+          List<CacheEntryEvent<K, V>> dispatchedEvents = listenerClass == CacheEntryCreatedListener.class
+              ? copyEvents(iterable) : cloneEvents(registration, iterable);
+          if (!dispatchedEvents.isEmpty()) {
+            eventQueue.enqueue(listenerClass, dispatchedEvents);
           }
         }
       }
-    } catch (Exception e) {
-      if (!(e instanceof CacheEntryListenerException)) {
-        throw new CacheEntryListenerException("Exception on listener execution", e);
-      } else {
-        throw e;
+    }
+  }
+
+  /**
+   * Holds back the calling thread while the queues of the listeners that
+   * aren't synchronous are over capacity.  The calling thread must not be
+   * taking a turn to dispatch events.
+   *
+   * @param registrations the {@link RICacheEntryListenerRegistration}s
+   * @see RICacheEntryEventQueue#awaitCapacity()
+   */
+  public static <K, V> void awaitEventQueues(Iterable<RICacheEntryListenerRegistration<K, V>> registrations) {
+    for (RICacheEntryListenerRegistration<K, V> registration : registrations) {
+      RICacheEntryEventQueue<K, V> eventQueue = registration.getEventQueue();
+      if (eventQueue != null) {
+        eventQueue.awaitCapacity();
       }
     }
   }
 
+  /**
+   * Notifies a listener of events.
+   *
+   * @param listener      the {@link CacheEntryListener}
+   * @param listenerClass the class of {@link CacheEntryListener} that should
+   *                      receive the events
+   * @param events        the events
+   * @param <K>           the type of keys
+   * @param <V>           the type of values
+   */
+  static <K, V> void notifyListener(CacheEntryListener<? super K, ? super V> listener,
+                                    Class<?> listenerClass,
+                                    Iterable<CacheEntryEvent<K, V>> events) {
+    if (listenerClass == CacheEntryExpiredListener.class) {
+      ((CacheEntryExpiredListener) listener).onExpired(events);
+    } else if (listenerClass == CacheEntryCreatedListener.class) {
+      ((CacheEntryCreatedListener) listener).onCreated(events);
+    } else if (listenerClass == CacheEntryUpdatedListener.class) {
+      ((CacheEntryUpdatedListener) listener).onUpdated(events);
+    } else if (listenerClass == CacheEntryRemovedListener.class) {
+      ((CacheEntryRemovedListener) listener).onRemoved(events);
+    }
+  }
+
+  /**
+   * Copies events, so that they're not affected by the reuse of the
+   * {@link RICacheEventDispatcher}.
+   *
+   * @param events the events
+   * @return a new list of the events
+   */
+  private List<CacheEntryEvent<K, V>> copyEvents(Iterable<CacheEntryEvent<K, V>> events) {
+    List<CacheEntryEvent<K, V>> dispatchedEvents = new ArrayList<CacheEntryEvent<K, V>>();
+    for (CacheEntryEvent<K, V> event : events) {
+      dispatchedEvents.add(event);
+    }
+    return dispatchedEvents;
+  }
+
   private List<CacheEntryEvent<K, V>> cloneEvents(RICacheEntryListenerRegistration<K, V> registration,
                                                   Iterable<CacheEntryEvent<K, V>> events) {
     List<CacheEntryEvent<K, V>> dispatchedEvents = new ArrayList<CacheEntryEvent<K, V>>();
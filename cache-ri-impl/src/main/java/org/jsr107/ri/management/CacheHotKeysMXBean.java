@@ -0,0 +1,56 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.management;
+
+/**
+ * A management bean exposing the keys of a Cache that are read and written
+ * most often, so that the keys responsible for a busy Cache can be found.
+ * <p>
+ * Accesses are sampled and counted with a count-min sketch whose counts are
+ * periodically halved, so the reported counts are recent estimates.  Keys are
+ * reported by their string representation.
+ * </p>
+ */
+public interface CacheHotKeysMXBean {
+
+  /**
+   * Clears the counted accesses.
+   */
+  void clear();
+
+  /**
+   * The keys read most often, by get, getAll and containsKey.
+   *
+   * @return the {@link RIHotKey}s, the most often read first
+   */
+  RIHotKey[] getMostReadKeys();
+
+  /**
+   * The keys written most often, by the operations that put, replace or
+   * remove values or invoke entry processors.
+   *
+   * @return the {@link RIHotKey}s, the most often written first
+   */
+  RIHotKey[] getMostWrittenKeys();
+
+  /**
+   * The number of accesses of which one is sampled.
+   *
+   * @return the sample rate
+   */
+  int getSampleRate();
+}
@@ -0,0 +1,78 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.jsr107.ri.management;
+
+/**
+ * A management bean exposing the distribution of the latencies of the
+ * operations of a Cache, complementing the averages of the
+ * {@link javax.cache.management.CacheStatisticsMXBean}.
+ * <p>
+ * Latencies are recorded while statistics are enabled for the Cache and are
+ * cleared along with its statistics.
+ * </p>
+ */
+public interface CacheLatencyMXBean {
+
+  /**
+   * Clears the recorded latencies.
+   */
+  void clear();
+
+  /**
+   * The latencies of the operations that get values, including those that
+   * get and then put, replace or remove them.
+   *
+   * @return the {@link RILatencySummary}
+   */
+  RILatencySummary getGetLatency();
+
+  /**
+   * The latencies of the operations that put values.
+   *
+   * @return the {@link RILatencySummary}
+   */
+  RILatencySummary getPutLatency();
+
+  /**
+   * The latencies of the operations that remove values.
+   *
+   * @return the {@link RILatencySummary}
+   */
+  RILatencySummary getRemoveLatency();
+
+  /**
+   * The latencies of invoking entry processors.
+   *
+   * @return the {@link RILatencySummary}
+   */
+  RILatencySummary getInvokeLatency();
+
+  /**
+   * The latencies of the calls made to the CacheLoader.
+   *
+   * @return the {@link RILatencySummary}
+   */
+  RILatencySummary getLoadLatency();
+
+  /**
+   * The latencies of the calls made to the CacheWriter.
+   *
+   * @return the {@link RILatencySummary}
+   */
+  RILatencySummary getWriteLatency();
+}
@@ -53,7 +53,19 @@ public final class MBeanServerRegistrationUtility {
     /**
      * Cache Configuration
      */
-    Configuration
+    Configuration,
+
+    /**
+     * Cache Latency, registered in the domain of the RI rather than that of
+     * the specification
+     */
+    Latency,
+
+    /**
+     * Cache Hot Keys, registered in the domain of the RI rather than that of
+     * the specification
+     */
+    HotKeys
 
   }
 
@@ -81,6 +93,14 @@ public final class MBeanServerRegistrationUtility {
         if (!isRegistered(cache, objectNameType)) {
           mBeanServer.registerMBean(cache.getCacheStatisticsMXBean(), registeredObjectName);
         }
+      } else if (objectNameType.equals(ObjectNameType.Latency)) {
+        if (!isRegistered(cache, objectNameType)) {
+          mBeanServer.registerMBean(cache.getCacheLatencyMXBean(), registeredObjectName);
+        }
+      } else if (objectNameType.equals(ObjectNameType.HotKeys)) {
+        if (!isRegistered(cache, objectNameType)) {
+          mBeanServer.registerMBean(cache.getCacheHotKeysMXBean(), registeredObjectName);
+        }
       }
     } catch (Exception e) {
       throw new CacheException("Error registering cache MXBeans for CacheManager "
@@ -132,13 +152,16 @@ public final class MBeanServerRegistrationUtility {
   /**
    * Creates an object name using the scheme
    * "javax.cache:type=Cache&lt;Statistics|Configuration&gt;,CacheManager=&lt;cacheManagerName&gt;,name=&lt;cacheName&gt;"
+   * or, for latencies and hot keys, "org.jsr107.ri:type=Cache&lt;Latency|HotKeys&gt;,..."
    */
   private static ObjectName calculateObjectName(Cache cache, ObjectNameType objectNameType) {
     String cacheManagerName = mbeanSafe(cache.getCacheManager().getURI().toString());
     String cacheName = mbeanSafe(cache.getName());
 
     try {
-      return new ObjectName("javax.cache:type=Cache" + objectNameType + ",CacheManager="
+      String domain = objectNameType == ObjectNameType.Latency || objectNameType == ObjectNameType.HotKeys
+          ? "org.jsr107.ri" : "javax.cache";
+      return new ObjectName(domain + ":type=Cache" + objectNameType + ",CacheManager="
           + cacheManagerName + ",Cache=" + cacheName);
     } catch (MalformedObjectNameException e) {
       throw new CacheException("Illegal ObjectName for Management Bean. " +
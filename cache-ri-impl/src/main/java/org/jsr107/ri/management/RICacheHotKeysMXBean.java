@@ -0,0 +1,108 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.management;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The reference implementation of {@link CacheHotKeysMXBean}.
+ */
+public class RICacheHotKeysMXBean implements CacheHotKeysMXBean {
+
+  private final int sampleRate;
+  private final RIHotKeySketch reads;
+  private final RIHotKeySketch writes;
+
+  /**
+   * Constructs an {@link RICacheHotKeysMXBean}.
+   *
+   * @param capacity   the number of hottest keys to report
+   * @param sampleRate the number of accesses of which one is sampled
+   */
+  public RICacheHotKeysMXBean(int capacity, int sampleRate) {
+    this.sampleRate = sampleRate;
+    this.reads = new RIHotKeySketch(capacity);
+    this.writes = new RIHotKeySketch(capacity);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void clear() {
+    reads.clear();
+    writes.clear();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RIHotKey[] getMostReadKeys() {
+    List<RIHotKey> keys = reads.getHottest(sampleRate);
+    return keys.toArray(new RIHotKey[keys.size()]);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RIHotKey[] getMostWrittenKeys() {
+    List<RIHotKey> keys = writes.getHottest(sampleRate);
+    return keys.toArray(new RIHotKey[keys.size()]);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * Records a read of a key, should it be sampled.
+   *
+   * @param key the key
+   */
+  public void recordRead(Object key) {
+    if (isSampled()) {
+      reads.record(key);
+    }
+  }
+
+  /**
+   * Records a write of a key, should it be sampled.
+   *
+   * @param key the key
+   */
+  public void recordWrite(Object key) {
+    if (isSampled()) {
+      writes.record(key);
+    }
+  }
+
+  /**
+   * Determines whether to sample an access.
+   *
+   * @return true if the access should be sampled
+   */
+  private boolean isSampled() {
+    return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+  }
+}
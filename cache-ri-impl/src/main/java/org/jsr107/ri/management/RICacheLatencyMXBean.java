@@ -0,0 +1,152 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.jsr107.ri.management;
+
+import java.io.Serializable;
+
+/**
+ * The reference implementation of {@link CacheLatencyMXBean}.
+ */
+public class RICacheLatencyMXBean implements CacheLatencyMXBean, Serializable {
+
+  private static final long serialVersionUID = 2940381576240158347L;
+
+  private final RILatencyHistogram getLatency = new RILatencyHistogram();
+  private final RILatencyHistogram putLatency = new RILatencyHistogram();
+  private final RILatencyHistogram removeLatency = new RILatencyHistogram();
+  private final RILatencyHistogram invokeLatency = new RILatencyHistogram();
+  private final RILatencyHistogram loadLatency = new RILatencyHistogram();
+  private final RILatencyHistogram writeLatency = new RILatencyHistogram();
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void clear() {
+    getLatency.reset();
+    putLatency.reset();
+    removeLatency.reset();
+    invokeLatency.reset();
+    loadLatency.reset();
+    writeLatency.reset();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RILatencySummary getGetLatency() {
+    return getLatency.summarize();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RILatencySummary getPutLatency() {
+    return putLatency.summarize();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RILatencySummary getRemoveLatency() {
+    return removeLatency.summarize();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RILatencySummary getInvokeLatency() {
+    return invokeLatency.summarize();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RILatencySummary getLoadLatency() {
+    return loadLatency.summarize();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RILatencySummary getWriteLatency() {
+    return writeLatency.summarize();
+  }
+
+  //package local recorders
+
+  /**
+   * Records the latency of a get.
+   *
+   * @param duration the time taken in nanoseconds
+   */
+  void recordGet(long duration) {
+    getLatency.record(duration);
+  }
+
+  /**
+   * Records the latency of a put.
+   *
+   * @param duration the time taken in nanoseconds
+   */
+  void recordPut(long duration) {
+    putLatency.record(duration);
+  }
+
+  /**
+   * Records the latency of a remove.
+   *
+   * @param duration the time taken in nanoseconds
+   */
+  void recordRemove(long duration) {
+    removeLatency.record(duration);
+  }
+
+  /**
+   * Records the latency of an invocation of an entry processor.
+   *
+   * @param duration the time taken in nanoseconds
+   */
+  void recordInvoke(long duration) {
+    invokeLatency.record(duration);
+  }
+
+  /**
+   * Records the latency of a call to the CacheLoader.
+   *
+   * @param duration the time taken in nanoseconds
+   */
+  void recordLoad(long duration) {
+    loadLatency.record(duration);
+  }
+
+  /**
+   * Records the latency of a call to the CacheWriter.
+   *
+   * @param duration the time taken in nanoseconds
+   */
+  void recordWrite(long duration) {
+    writeLatency.record(duration);
+  }
+}
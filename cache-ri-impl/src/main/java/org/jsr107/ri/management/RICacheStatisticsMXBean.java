@@ -22,7 +22,6 @@ import org.jsr107.ri.RICache;
 import javax.cache.Cache;
 import javax.cache.management.CacheStatisticsMXBean;
 import java.io.Serializable;
-import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -38,15 +37,16 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
 
   private transient Cache<?, ?> cache;
 
-  private final AtomicLong cacheRemovals = new AtomicLong();
-  private final AtomicLong cacheExpiries = new AtomicLong();
-  private final AtomicLong cachePuts = new AtomicLong();
-  private final AtomicLong cacheHits = new AtomicLong();
-  private final AtomicLong cacheMisses = new AtomicLong();
-  private final AtomicLong cacheEvictions = new AtomicLong();
-  private final AtomicLong cachePutTimeTakenNanos = new AtomicLong();
-  private final AtomicLong cacheGetTimeTakenNanos = new AtomicLong();
-  private final AtomicLong cacheRemoveTimeTakenNanos = new AtomicLong();
+  private final RIStripedCounter cacheRemovals = new RIStripedCounter();
+  private final RIStripedCounter cacheExpiries = new RIStripedCounter();
+  private final RIStripedCounter cachePuts = new RIStripedCounter();
+  private final RIStripedCounter cacheHits = new RIStripedCounter();
+  private final RIStripedCounter cacheMisses = new RIStripedCounter();
+  private final RIStripedCounter cacheEvictions = new RIStripedCounter();
+  private final RIStripedCounter cachePutTimeTakenNanos = new RIStripedCounter();
+  private final RIStripedCounter cacheGetTimeTakenNanos = new RIStripedCounter();
+  private final RIStripedCounter cacheRemoveTimeTakenNanos = new RIStripedCounter();
+  private final RICacheLatencyMXBean latency = new RICacheLatencyMXBean();
 
   /**
    * Constructs a cache statistics object
@@ -65,15 +65,24 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    */
   @Override
   public void clear() {
-    cachePuts.set(0);
-    cacheMisses.set(0);
-    cacheRemovals.set(0);
-    cacheExpiries.set(0);
-    cacheHits.set(0);
-    cacheEvictions.set(0);
-    cacheGetTimeTakenNanos.set(0);
-    cachePutTimeTakenNanos.set(0);
-    cacheRemoveTimeTakenNanos.set(0);
+    cachePuts.reset();
+    cacheMisses.reset();
+    cacheRemovals.reset();
+    cacheExpiries.reset();
+    cacheHits.reset();
+    cacheEvictions.reset();
+    cacheGetTimeTakenNanos.reset();
+    cachePutTimeTakenNanos.reset();
+    cacheRemoveTimeTakenNanos.reset();
+    latency.clear();
+  }
+
+  /**
+   * @return the {@link CacheLatencyMXBean} recording the latencies of the
+   *         operations counted by these statistics
+   */
+  public RICacheLatencyMXBean getCacheLatencyMXBean() {
+    return latency;
   }
 
   /**
@@ -88,7 +97,7 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    */
   @Override
   public long getCacheHits() {
-    return cacheHits.longValue();
+    return cacheHits.sum();
   }
 
   /**
@@ -98,11 +107,11 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    */
   @Override
   public float getCacheHitPercentage() {
-    Long hits = getCacheHits();
+    long hits = getCacheHits();
     if (hits == 0) {
       return 0;
     }
-    return (float) hits / getCacheGets() * 100.0f;
+    return (float) hits / (hits + getCacheMisses()) * 100.0f;
   }
 
   /**
@@ -110,7 +119,7 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    */
   @Override
   public long getCacheMisses() {
-    return cacheMisses.longValue();
+    return cacheMisses.sum();
   }
 
   /**
@@ -120,11 +129,11 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    */
   @Override
   public float getCacheMissPercentage() {
-    Long misses = getCacheMisses();
+    long misses = getCacheMisses();
     if (misses == 0) {
       return 0;
     }
-    return (float) misses / getCacheGets() * 100.0f;
+    return (float) misses / (getCacheHits() + misses) * 100.0f;
   }
 
   /**
@@ -148,7 +157,7 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    */
   @Override
   public long getCachePuts() {
-    return cachePuts.longValue();
+    return cachePuts.sum();
   }
 
   /**
@@ -161,7 +170,7 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    */
   @Override
   public long getCacheRemovals() {
-    return cacheRemovals.longValue();
+    return cacheRemovals.sum();
   }
 
   /**
@@ -169,46 +178,52 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    */
   @Override
   public long getCacheEvictions() {
-    return cacheEvictions.longValue();
+    return cacheEvictions.sum();
   }
 
   /**
    * The mean time to execute gets.
    *
-   * @return the time in milliseconds
+   * @return the time in microseconds
    */
   @Override
   public float getAverageGetTime() {
-    if (cacheGetTimeTakenNanos.longValue() == 0 || getCacheGets() == 0) {
+    long timeTakenNanos = cacheGetTimeTakenNanos.sum();
+    long gets = getCacheGets();
+    if (timeTakenNanos == 0 || gets == 0) {
       return 0;
     }
-    return (cacheGetTimeTakenNanos.longValue() / getCacheGets()) / NANOSECONDS_IN_A_MICROSECOND;
+    return (float) timeTakenNanos / gets / NANOSECONDS_IN_A_MICROSECOND;
   }
 
   /**
    * The mean time to execute puts.
    *
-   * @return the time in milliseconds
+   * @return the time in microseconds
    */
   @Override
   public float getAveragePutTime() {
-    if (cachePutTimeTakenNanos.longValue() == 0 || getCacheGets() == 0) {
+    long timeTakenNanos = cachePutTimeTakenNanos.sum();
+    long puts = getCachePuts();
+    if (timeTakenNanos == 0 || puts == 0) {
       return 0;
     }
-    return (cachePutTimeTakenNanos.longValue() / getCacheGets()) / NANOSECONDS_IN_A_MICROSECOND;
+    return (float) timeTakenNanos / puts / NANOSECONDS_IN_A_MICROSECOND;
   }
 
   /**
    * The mean time to execute removes.
    *
-   * @return the time in milliseconds
+   * @return the time in microseconds
    */
   @Override
   public float getAverageRemoveTime() {
-    if (cacheRemoveTimeTakenNanos.longValue() == 0 || getCacheGets() == 0) {
+    long timeTakenNanos = cacheRemoveTimeTakenNanos.sum();
+    long removals = getCacheRemovals();
+    if (timeTakenNanos == 0 || removals == 0) {
       return 0;
     }
-    return (cacheRemoveTimeTakenNanos.longValue() / getCacheGets()) / NANOSECONDS_IN_A_MICROSECOND;
+    return (float) timeTakenNanos / removals / NANOSECONDS_IN_A_MICROSECOND;
   }
 
   //package local incrementers
@@ -219,7 +234,7 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    * @param number the number to increase the counter by
    */
   public void increaseCacheRemovals(long number) {
-    cacheRemovals.getAndAdd(number);
+    cacheRemovals.add(number);
   }
 
   /**
@@ -228,7 +243,7 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    * @param number the number to increase the counter by
    */
   public void increaseCacheExpiries(long number) {
-    cacheExpiries.getAndAdd(number);
+    cacheExpiries.add(number);
   }
 
   /**
@@ -237,7 +252,7 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    * @param number the number to increase the counter by
    */
   public void increaseCachePuts(long number) {
-    cachePuts.getAndAdd(number);
+    cachePuts.add(number);
   }
 
   /**
@@ -246,7 +261,7 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    * @param number the number to increase the counter by
    */
   public void increaseCacheHits(long number) {
-    cacheHits.getAndAdd(number);
+    cacheHits.add(number);
   }
 
   /**
@@ -255,7 +270,7 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    * @param number the number to increase the counter by
    */
   public void increaseCacheMisses(long number) {
-    cacheMisses.getAndAdd(number);
+    cacheMisses.add(number);
   }
 
   /**
@@ -264,7 +279,7 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    * @param number the number to increase the counter by
    */
   public void increaseCacheEvictions(long number) {
-    cacheEvictions.getAndAdd(number);
+    cacheEvictions.add(number);
   }
 
   /**
@@ -273,9 +288,8 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    * @param duration the time taken in nanoseconds
    */
   public void addGetTimeNano(long duration) {
-    if (cacheGetTimeTakenNanos.get() <= Long.MAX_VALUE - duration) {
-      cacheGetTimeTakenNanos.addAndGet(duration);
-    } else {
+    latency.recordGet(duration);
+    if (cacheGetTimeTakenNanos.add(duration) < 0) {
       //counter full. Just reset.
       clear();
       cacheGetTimeTakenNanos.set(duration);
@@ -289,9 +303,8 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    * @param duration the time taken in nanoseconds
    */
   public void addPutTimeNano(long duration) {
-    if (cachePutTimeTakenNanos.get() <= Long.MAX_VALUE - duration) {
-      cachePutTimeTakenNanos.addAndGet(duration);
-    } else {
+    latency.recordPut(duration);
+    if (cachePutTimeTakenNanos.add(duration) < 0) {
       //counter full. Just reset.
       clear();
       cachePutTimeTakenNanos.set(duration);
@@ -304,13 +317,39 @@ public class RICacheStatisticsMXBean implements CacheStatisticsMXBean, Serializa
    * @param duration the time taken in nanoseconds
    */
   public void addRemoveTimeNano(long duration) {
-    if (cacheRemoveTimeTakenNanos.get() <= Long.MAX_VALUE - duration) {
-      cacheRemoveTimeTakenNanos.addAndGet(duration);
-    } else {
+    latency.recordRemove(duration);
+    if (cacheRemoveTimeTakenNanos.add(duration) < 0) {
       //counter full. Just reset.
       clear();
       cacheRemoveTimeTakenNanos.set(duration);
     }
   }
 
+  /**
+   * Records the time taken to invoke an entry processor
+   *
+   * @param duration the time taken in nanoseconds
+   */
+  public void addInvokeTimeNano(long duration) {
+    latency.recordInvoke(duration);
+  }
+
+  /**
+   * Records the time taken by a call to the CacheLoader
+   *
+   * @param duration the time taken in nanoseconds
+   */
+  public void addLoadTimeNano(long duration) {
+    latency.recordLoad(duration);
+  }
+
+  /**
+   * Records the time taken by a call to the CacheWriter
+   *
+   * @param duration the time taken in nanoseconds
+   */
+  public void addWriteTimeNano(long duration) {
+    latency.recordWrite(duration);
+  }
+
 }
@@ -0,0 +1,63 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.management;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A key of a Cache that is accessed often, as exposed by a
+ * {@link CacheHotKeysMXBean}.
+ */
+public final class RIHotKey {
+
+  private final String key;
+  private final long count;
+
+  /**
+   * Constructs an {@link RIHotKey}.
+   *
+   * @param key   the string representation of the key
+   * @param count the estimated number of recent accesses
+   */
+  @ConstructorProperties({"key", "count"})
+  public RIHotKey(String key, long count) {
+    this.key = key;
+    this.count = count;
+  }
+
+  /**
+   * @return the string representation of the key
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * @return the estimated number of recent accesses
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return key + "=" + count;
+  }
+}
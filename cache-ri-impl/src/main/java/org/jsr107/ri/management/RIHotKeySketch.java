@@ -0,0 +1,274 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.management;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A count-min sketch of the sampled accesses of keys, tracking the keys with
+ * the highest estimates.
+ * <p>
+ * The sketch has four rows of counters, each key being counted in one counter
+ * of each row and estimated by the least of them.  Counting is conservative,
+ * only the counters holding the estimate being incremented, and relaxed, the
+ * counters being set rather than atomically incremented, so that concurrent
+ * accesses of a hot key don't contend for its counters (at the cost of
+ * missing some of them).  Once the number of sampled accesses, kept by an
+ * {@link RIStripedCounter}, reaches the sample size every count is halved, so
+ * that the estimates favour recent accesses.  The hottest keys are tracked as
+ * they are counted, a key displacing the coolest tracked key once its
+ * estimate is higher.
+ * </p>
+ * <p>
+ * The tracked keys are identified by their spread hash, which is all the
+ * sketch counts them by, and only their string representation is retained.
+ * Their estimates are read from the counters when reported.  Counting doesn't
+ * lock, and neither does tracking unless a key that isn't tracked is
+ * estimated higher than the coolest tracked key was last found to be.
+ * </p>
+ */
+final class RIHotKeySketch {
+
+  /**
+   * The seeds used to derive the counter index in each row.
+   */
+  private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+  /**
+   * The number of counters in each row, being a power of two.
+   */
+  private static final int WIDTH = 1 << 12;
+
+  /**
+   * The number of sampled accesses after which the counts are halved.
+   */
+  private static final int SAMPLE_SIZE = 10 * WIDTH;
+
+  /**
+   * The number of samples counted by a stripe of {@link #samples} between
+   * checks of whether the counts should be halved, being a power of two.
+   */
+  private static final int AGE_CHECK_INTERVAL = 64;
+
+  /**
+   * Orders hot keys by descending count.
+   */
+  private static final Comparator<RIHotKey> HOTTEST_FIRST = new Comparator<RIHotKey>() {
+    @Override
+    public int compare(RIHotKey key, RIHotKey other) {
+      return Long.compare(other.getCount(), key.getCount());
+    }
+  };
+
+  /**
+   * The counters, row by row.
+   */
+  private final AtomicIntegerArray counters = new AtomicIntegerArray(SEEDS.length * WIDTH);
+
+  /**
+   * The number of sampled accesses since the counts were last halved.
+   */
+  private final RIStripedCounter samples = new RIStripedCounter();
+
+  /**
+   * The number of keys tracked.
+   */
+  private final int capacity;
+
+  /**
+   * The string representations of the hottest keys, keyed by spread hash.
+   * Only changed while holding the monitor of the sketch.
+   */
+  private final ConcurrentHashMap<Integer, String> hottest = new ConcurrentHashMap<Integer, String>();
+
+  /**
+   * The estimate a key must exceed to be tracked, being the estimate of the
+   * coolest tracked key when last determined, or 0 while fewer keys than the
+   * capacity are tracked.
+   */
+  private volatile long threshold;
+
+  /**
+   * Constructs an {@link RIHotKeySketch}.
+   *
+   * @param capacity the number of hottest keys to track
+   */
+  RIHotKeySketch(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Counts a sampled access of a key.
+   *
+   * @param key the key
+   */
+  void record(Object key) {
+    int hash = spread(key.hashCode());
+    int estimate = (int) estimate(hash);
+    for (int row = 0; row < SEEDS.length; row++) {
+      int index = row * WIDTH + indexOf(hash, row);
+      if (counters.get(index) == estimate) {
+        counters.lazySet(index, estimate + 1);
+      }
+    }
+    estimate++;
+
+    if ((samples.add(1) & (AGE_CHECK_INTERVAL - 1)) == 0 && samples.sum() >= SAMPLE_SIZE) {
+      age();
+    }
+    if (estimate > threshold && !hottest.containsKey(hash)) {
+      track(key, hash, estimate);
+    }
+  }
+
+  /**
+   * Gets the hottest keys.
+   *
+   * @param scale the number of accesses represented by each sampled access
+   * @return the keys, the hottest first
+   */
+  synchronized List<RIHotKey> getHottest(int scale) {
+    ArrayList<RIHotKey> keys = new ArrayList<RIHotKey>(hottest.size());
+    for (Map.Entry<Integer, String> entry : hottest.entrySet()) {
+      keys.add(new RIHotKey(entry.getValue(), estimate(entry.getKey()) * scale));
+    }
+    Collections.sort(keys, HOTTEST_FIRST);
+    return keys;
+  }
+
+  /**
+   * Clears the counts and the tracked keys.
+   */
+  synchronized void clear() {
+    for (int i = 0; i < counters.length(); i++) {
+      counters.set(i, 0);
+    }
+    samples.reset();
+    hottest.clear();
+    threshold = 0;
+  }
+
+  /**
+   * Tracks a key that isn't tracked, should it be among the hottest.
+   *
+   * @param key      the key
+   * @param hash     the spread hash of the key
+   * @param estimate the estimated number of accesses of the key
+   */
+  private synchronized void track(Object key, int hash, long estimate) {
+    if (hottest.containsKey(hash)) {
+      return;
+    }
+    if (hottest.size() < capacity) {
+      hottest.put(hash, String.valueOf(key));
+      if (hottest.size() == capacity) {
+        threshold = estimate(coolest());
+      }
+      return;
+    }
+
+    int coolest = coolest();
+    if (estimate > estimate(coolest)) {
+      hottest.remove(coolest);
+      hottest.put(hash, String.valueOf(key));
+      coolest = coolest();
+    }
+    threshold = estimate(coolest);
+  }
+
+  /**
+   * Determines the tracked key with the lowest estimate.  Must be called
+   * while holding the monitor of the sketch, with at least one key tracked.
+   *
+   * @return the spread hash of the key
+   */
+  private int coolest() {
+    int coolest = 0;
+    long coolestEstimate = Long.MAX_VALUE;
+    for (int hash : hottest.keySet()) {
+      long estimate = estimate(hash);
+      if (estimate < coolestEstimate) {
+        coolest = hash;
+        coolestEstimate = estimate;
+      }
+    }
+    return coolest;
+  }
+
+  /**
+   * Halves every count, and so the threshold to be tracked, unless another
+   * thread just has.  Accesses counted concurrently may be lost, which only
+   * affects the accuracy of the estimates.
+   */
+  private synchronized void age() {
+    if (samples.sum() < SAMPLE_SIZE) {
+      return;
+    }
+    for (int i = 0; i < counters.length(); i++) {
+      counters.set(i, counters.get(i) >>> 1);
+    }
+    threshold >>>= 1;
+    samples.reset();
+  }
+
+  /**
+   * Estimates the number of accesses of a key from the counters.
+   *
+   * @param hash the spread hash of the key
+   * @return the estimate
+   */
+  private long estimate(int hash) {
+    int estimate = Integer.MAX_VALUE;
+    for (int row = 0; row < SEEDS.length; row++) {
+      estimate = Math.min(estimate, counters.get(row * WIDTH + indexOf(hash, row)));
+    }
+    return estimate;
+  }
+
+  /**
+   * Determines the index of the counter of a row for a hash.
+   *
+   * @param hash the spread hash of the key
+   * @param row  the row
+   * @return the index within the row
+   */
+  private static int indexOf(int hash, int row) {
+    long h = (hash + SEEDS[row]) * SEEDS[row];
+    h += h >>> 32;
+    return (int) h & (WIDTH - 1);
+  }
+
+  /**
+   * Applies a supplemental hash so that hash codes that differ only in their
+   * upper bits are distributed.
+   *
+   * @param hash the hash code of the key
+   * @return the spread hash
+   */
+  private static int spread(int hash) {
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    return (hash >>> 16) ^ hash;
+  }
+}
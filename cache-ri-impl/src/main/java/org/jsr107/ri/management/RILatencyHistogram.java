@@ -0,0 +1,287 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.jsr107.ri.management;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A histogram of latencies in nanoseconds that many threads may record to
+ * without locking.
+ * <p>
+ * Latencies are counted in logarithmic buckets, each power of two being
+ * divided into sixteen linear sub-buckets, so that a percentile is reported
+ * within about 6% of the latency actually recorded.  Latencies of more than
+ * 2^41 nanoseconds (about 36 minutes) are counted in the last bucket, while
+ * the maximum is recorded exactly.
+ * </p>
+ * <p>
+ * As with {@link RIStripedCounter}, latencies are counted in a single set of
+ * buckets until two threads collide, after which each thread counts in one
+ * of a number of sets of buckets, chosen by the identity of the thread and
+ * allocated when first used.  The sets are merged when summarized.
+ * </p>
+ */
+final class RILatencyHistogram implements Serializable {
+
+  private static final long serialVersionUID = -3412847026893405181L;
+
+  /**
+   * The number of bits of a latency determining its sub-bucket.
+   */
+  private static final int SUB_BUCKET_BITS = 4;
+
+  /**
+   * The number of sub-buckets of each power of two.
+   */
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * The highest power of two with its own buckets.
+   */
+  private static final int MAXIMUM_EXPONENT = 40;
+
+  /**
+   * The number of buckets.
+   */
+  private static final int BUCKETS = (MAXIMUM_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  /**
+   * The counts of the buckets or <code>null</code> if nothing has been
+   * recorded.
+   */
+  private volatile AtomicLongArray counts;
+
+  /**
+   * The striped counts of the buckets, each stripe being <code>null</code>
+   * until used, or <code>null</code> if threads are yet to collide.
+   */
+  private volatile AtomicReferenceArray<AtomicLongArray> stripes;
+
+  /**
+   * The maximum latency recorded.
+   */
+  private final AtomicLong maximum = new AtomicLong();
+
+  /**
+   * Records a latency.
+   *
+   * @param nanos the latency in nanoseconds
+   */
+  void record(long nanos) {
+    int index = indexOf(nanos);
+    AtomicReferenceArray<AtomicLongArray> cells = stripes;
+    if (cells == null) {
+      AtomicLongArray buckets = counts;
+      if (buckets == null) {
+        buckets = allocate();
+      }
+      long count = buckets.get(index);
+      if (!buckets.compareAndSet(index, count, count + 1)) {
+        stripeOf(inflate()).incrementAndGet(index);
+      }
+    } else {
+      stripeOf(cells).incrementAndGet(index);
+    }
+
+    long current = maximum.get();
+    while (nanos > current && !maximum.compareAndSet(current, nanos)) {
+      current = maximum.get();
+    }
+  }
+
+  /**
+   * Discards the recorded latencies.  Latencies recorded concurrently may
+   * be lost.
+   */
+  void reset() {
+    reset(counts);
+    AtomicReferenceArray<AtomicLongArray> cells = stripes;
+    if (cells != null) {
+      for (int i = 0; i < cells.length(); i++) {
+        reset(cells.get(i));
+      }
+    }
+    maximum.set(0);
+  }
+
+  /**
+   * Summarizes the recorded latencies.
+   *
+   * @return an {@link RILatencySummary}
+   */
+  RILatencySummary summarize() {
+    AtomicLongArray buckets = counts;
+    if (buckets == null) {
+      return new RILatencySummary(0, 0, 0, 0, 0);
+    }
+
+    long[] snapshot = new long[BUCKETS];
+    addTo(snapshot, buckets);
+    AtomicReferenceArray<AtomicLongArray> cells = stripes;
+    if (cells != null) {
+      for (int i = 0; i < cells.length(); i++) {
+        addTo(snapshot, cells.get(i));
+      }
+    }
+    long count = 0;
+    for (long bucketCount : snapshot) {
+      count += bucketCount;
+    }
+    long max = maximum.get();
+
+    return new RILatencySummary(count, toMicros(percentile(snapshot, count, 0.5, max)),
+        toMicros(percentile(snapshot, count, 0.99, max)),
+        toMicros(percentile(snapshot, count, 0.999, max)), toMicros(max));
+  }
+
+  /**
+   * Determines a percentile of a snapshot of the counts.
+   *
+   * @param snapshot   the counts of the buckets
+   * @param count      the sum of the counts
+   * @param percentile the percentile, between 0 and 1
+   * @param max        the maximum latency
+   * @return the highest latency of the bucket holding the percentile, being
+   *         at most the maximum
+   */
+  private static long percentile(long[] snapshot, long count, double percentile, long max) {
+    long rank = (long) Math.ceil(percentile * count);
+    long seen = 0;
+    for (int i = 0; i < snapshot.length; i++) {
+      seen += snapshot[i];
+      if (seen >= rank && seen > 0) {
+        return Math.min(highestOf(i), max);
+      }
+    }
+    return max;
+  }
+
+  /**
+   * Converts nanoseconds to microseconds.
+   *
+   * @param nanos the nanoseconds
+   * @return the microseconds
+   */
+  private static float toMicros(long nanos) {
+    return nanos / 1000f;
+  }
+
+  /**
+   * Allocates the counts when a latency is first recorded.
+   *
+   * @return the counts
+   */
+  private synchronized AtomicLongArray allocate() {
+    if (counts == null) {
+      counts = new AtomicLongArray(BUCKETS);
+    }
+    return counts;
+  }
+
+  /**
+   * Allocates the stripes once threads have collided.
+   *
+   * @return the stripes
+   */
+  private synchronized AtomicReferenceArray<AtomicLongArray> inflate() {
+    if (stripes == null) {
+      stripes = new AtomicReferenceArray<AtomicLongArray>(RIStripedCounter.STRIPES);
+    }
+    return stripes;
+  }
+
+  /**
+   * Obtains the counts of the stripe used by the current thread, allocating
+   * them when first used.
+   *
+   * @param cells the stripes
+   * @return the counts of the stripe
+   */
+  private static AtomicLongArray stripeOf(AtomicReferenceArray<AtomicLongArray> cells) {
+    int stripe = RIStripedCounter.stripeOf(Thread.currentThread());
+    AtomicLongArray buckets = cells.get(stripe);
+    if (buckets == null) {
+      cells.compareAndSet(stripe, null, new AtomicLongArray(BUCKETS));
+      buckets = cells.get(stripe);
+    }
+    return buckets;
+  }
+
+  /**
+   * Adds counts to a snapshot.
+   *
+   * @param snapshot the snapshot
+   * @param buckets  the counts (may be <code>null</code>)
+   */
+  private static void addTo(long[] snapshot, AtomicLongArray buckets) {
+    if (buckets != null) {
+      for (int i = 0; i < BUCKETS; i++) {
+        snapshot[i] += buckets.get(i);
+      }
+    }
+  }
+
+  /**
+   * Resets counts to zero.
+   *
+   * @param buckets the counts (may be <code>null</code>)
+   */
+  private static void reset(AtomicLongArray buckets) {
+    if (buckets != null) {
+      for (int i = 0; i < BUCKETS; i++) {
+        buckets.set(i, 0);
+      }
+    }
+  }
+
+  /**
+   * Determines the bucket counting a latency.
+   *
+   * @param nanos the latency in nanoseconds
+   * @return the index of the bucket
+   */
+  static int indexOf(long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return nanos < 0 ? 0 : (int) nanos;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+    if (exponent > MAXIMUM_EXPONENT) {
+      return BUCKETS - 1;
+    }
+    int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Determines the highest latency counted by a bucket.
+   *
+   * @param index the index of the bucket
+   * @return the latency in nanoseconds
+   */
+  static long highestOf(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.jsr107.ri.management;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A summary of the latencies of a type of cache operation, as exposed by a
+ * {@link CacheLatencyMXBean}.  Percentiles are approximate, being reported
+ * to within about 6% of the latency actually recorded.
+ */
+public final class RILatencySummary {
+
+  private final long count;
+  private final float p50;
+  private final float p99;
+  private final float p999;
+  private final float max;
+
+  /**
+   * Constructs an {@link RILatencySummary}.
+   *
+   * @param count the number of latencies recorded
+   * @param p50   the median latency in microseconds
+   * @param p99   the 99th percentile latency in microseconds
+   * @param p999  the 99.9th percentile latency in microseconds
+   * @param max   the maximum latency in microseconds
+   */
+  @ConstructorProperties({"count", "p50", "p99", "p999", "max"})
+  public RILatencySummary(long count, float p50, float p99, float p999, float max) {
+    this.count = count;
+    this.p50 = p50;
+    this.p99 = p99;
+    this.p999 = p999;
+    this.max = max;
+  }
+
+  /**
+   * @return the number of latencies recorded
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return the median latency in microseconds
+   */
+  public float getP50() {
+    return p50;
+  }
+
+  /**
+   * @return the 99th percentile latency in microseconds
+   */
+  public float getP99() {
+    return p99;
+  }
+
+  /**
+   * @return the 99.9th percentile latency in microseconds
+   */
+  public float getP999() {
+    return p999;
+  }
+
+  /**
+   * @return the maximum latency in microseconds
+   */
+  public float getMax() {
+    return max;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return "RILatencySummary{count=" + count + ", p50=" + p50 + ", p99=" + p99 + ", p999=" + p999
+        + ", max=" + max + "}";
+  }
+}
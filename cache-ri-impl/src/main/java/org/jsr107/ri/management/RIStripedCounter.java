@@ -0,0 +1,161 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.jsr107.ri.management;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that many threads may increase without contending for the same
+ * cache line.
+ * <p>
+ * Increases are made to a single base value until two threads collide, after
+ * which each thread increases one of a number of padded stripes, chosen by
+ * the identity of the thread.  The value of the counter is the sum of the
+ * base and the stripes, so reading it is more costly than increasing it and
+ * reads that race with increases see any of them or none.
+ * </p>
+ */
+final class RIStripedCounter implements Serializable {
+
+  private static final long serialVersionUID = 4166314212880146335L;
+
+  /**
+   * The number of longs between the stripes, so that each is on its own
+   * cache line.
+   */
+  private static final int PADDING = 8;
+
+  /**
+   * The number of stripes, being a power of two of at least twice the
+   * number of processors.
+   */
+  static final int STRIPES =
+      Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+
+  /**
+   * The base value, increased until threads collide.
+   */
+  private final AtomicLong base = new AtomicLong();
+
+  /**
+   * The padded stripes or <code>null</code> if threads are yet to collide.
+   */
+  private volatile AtomicLongArray stripes;
+
+  /**
+   * Increases the counter.
+   *
+   * @param number the number to increase the counter by
+   * @return the value of the base or stripe that was increased, being
+   *         negative should it overflow
+   */
+  long add(long number) {
+    AtomicLongArray cells = stripes;
+    if (cells == null) {
+      long value = base.get();
+      if (base.compareAndSet(value, value + number)) {
+        return value + number;
+      }
+      cells = inflate();
+    }
+    return cells.addAndGet(indexOf(Thread.currentThread()), number);
+  }
+
+  /**
+   * Obtains the value of the counter.
+   *
+   * @return the sum of the base and the stripes
+   */
+  long sum() {
+    long sum = base.get();
+    AtomicLongArray cells = stripes;
+    if (cells != null) {
+      for (int i = 0; i < cells.length(); i += PADDING) {
+        sum += cells.get(i);
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Resets the counter to zero.  Increases made concurrently may be lost.
+   */
+  void reset() {
+    base.set(0);
+    AtomicLongArray cells = stripes;
+    if (cells != null) {
+      for (int i = 0; i < cells.length(); i += PADDING) {
+        cells.set(i, 0);
+      }
+    }
+  }
+
+  /**
+   * Sets the value of the counter.  Increases made concurrently may be lost.
+   *
+   * @param value the value
+   */
+  void set(long value) {
+    reset();
+    base.set(value);
+  }
+
+  /**
+   * Allocates the stripes once threads have collided.
+   *
+   * @return the stripes
+   */
+  private synchronized AtomicLongArray inflate() {
+    if (stripes == null) {
+      stripes = new AtomicLongArray(STRIPES * PADDING);
+    }
+    return stripes;
+  }
+
+  /**
+   * Determines the index of the stripe increased by a thread.
+   *
+   * @param thread the {@link Thread}
+   * @return the index in the stripes
+   */
+  private static int indexOf(Thread thread) {
+    return stripeOf(thread) * PADDING;
+  }
+
+  /**
+   * Determines the stripe used by a thread, spreading the threads over the
+   * stripes by their identity.
+   *
+   * @param thread the {@link Thread}
+   * @return the stripe, less than {@link #STRIPES}
+   */
+  static int stripeOf(Thread thread) {
+    int hash = (int) ((thread.getId() * 0x9E3779B97F4A7C15L) >>> 32);
+    return hash & (STRIPES - 1);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return Long.toString(sum());
+  }
+}
@@ -0,0 +1,165 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryUpdatedListener;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link LockManager}.
+ */
+public class LockManagerTest {
+
+  @Test
+  public void turnsAreTakenInTheOrderTheyWereReserved() throws Exception {
+    final LockManager<Integer> lockManager = new LockManager<Integer>(16);
+    final List<String> dispatched = Collections.synchronizedList(new ArrayList<String>());
+
+    lockManager.lock(1);
+    final LockManager.Turn first = lockManager.reserveTurn(1);
+    lockManager.unLock(1);
+
+    final CountDownLatch reserved = new CountDownLatch(1);
+    Thread second = new Thread() {
+      @Override
+      public void run() {
+        lockManager.lock(1);
+        LockManager.Turn turn = lockManager.reserveTurn(1);
+        lockManager.unLock(1);
+        reserved.countDown();
+        lockManager.awaitTurn(turn);
+        dispatched.add("second");
+        lockManager.completeTurn(turn);
+      }
+    };
+    second.start();
+    assertTrue(reserved.await(10, TimeUnit.SECONDS));
+
+    lockManager.awaitTurn(first);
+    Thread.sleep(50);
+    dispatched.add("first");
+    lockManager.completeTurn(first);
+    second.join(10000);
+
+    assertEquals(Arrays.asList("first", "second"), dispatched);
+  }
+
+  @Test
+  public void nestedEventsAreDispatchedWithinTheTurn() {
+    LockManager<Integer> lockManager = new LockManager<Integer>(16);
+
+    lockManager.lock(1);
+    LockManager.Turn turn = lockManager.reserveTurn(1);
+    lockManager.unLock(1);
+    assertNotNull(turn);
+
+    lockManager.awaitTurn(turn);
+    lockManager.lockAll(Arrays.asList(2, 3));
+    assertNull(lockManager.reserveTurn(Arrays.asList(2, 3)));
+    lockManager.unLockAll(Arrays.asList(2, 3));
+    lockManager.completeTurn(turn);
+
+    lockManager.lock(2);
+    assertNotNull(lockManager.reserveTurn(2));
+    lockManager.unLock(2);
+  }
+
+  @Test(timeout = 20000)
+  public void listenersWritingEachOthersKeysDoNotDeadlock() throws Exception {
+    CacheManager cacheManager = Caching.getCachingProvider().getCacheManager(
+        new URI("LockManagerTest"), getClass().getClassLoader());
+    try {
+      final Cache<String, String> cache = cacheManager.createCache("crossing",
+          new MutableConfiguration<String, String>().addCacheEntryListenerConfiguration(
+              new MutableCacheEntryListenerConfiguration<String, String>(
+                  FactoryBuilder.factoryOf(CrossingListener.class), null, false, true)));
+      CrossingListener.cache = cache;
+
+      Thread[] threads = new Thread[2];
+      final String[] keys = {"a", "b"};
+      for (int i = 0; i < threads.length; i++) {
+        final String key = keys[i];
+        threads[i] = new Thread() {
+          @Override
+          public void run() {
+            cache.put(key, "created");
+          }
+        };
+        threads[i].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+
+      assertEquals("updated", cache.get("a"));
+      assertEquals("updated", cache.get("b"));
+    } finally {
+      cacheManager.close();
+    }
+  }
+
+  /**
+   * A synchronous listener that, once both keys have been created, updates
+   * the other key while the creating thread is taking its turn.
+   */
+  public static class CrossingListener implements CacheEntryCreatedListener<String, String>,
+      CacheEntryUpdatedListener<String, String> {
+
+    private static final CyclicBarrier BOTH_CREATED = new CyclicBarrier(2);
+
+    private static volatile Cache<String, String> cache;
+
+    @Override
+    public void onCreated(Iterable<CacheEntryEvent<? extends String, ? extends String>> events) {
+      for (CacheEntryEvent<? extends String, ? extends String> event : events) {
+        try {
+          BOTH_CREATED.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+        cache.put(event.getKey().equals("a") ? "b" : "a", "updated");
+      }
+    }
+
+    @Override
+    public void onUpdated(Iterable<CacheEntryEvent<? extends String, ? extends String>> events) {
+      //the update raises an event that needs a turn on the other key
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.integration.CacheLoader;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link RIAsyncCache} operations of an {@link RICache}.
+ */
+public class RIAsyncCacheTest {
+
+  /**
+   * The {@link CacheManager} of the caches.
+   */
+  private CacheManager cacheManager;
+
+  /**
+   * The {@link RIAsyncCache} of a Cache reading through a {@link GatedLoader}.
+   */
+  private RIAsyncCache<Integer, String> asyncCache;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void createCache() throws Exception {
+    GatedLoader.gate = new CountDownLatch(1);
+    cacheManager = Caching.getCachingProvider().getCacheManager(
+        new URI("RIAsyncCacheTest"), getClass().getClassLoader());
+    Cache<Integer, String> cache = cacheManager.createCache("async",
+        new MutableConfiguration<Integer, String>()
+            .setCacheLoaderFactory(FactoryBuilder.factoryOf(GatedLoader.class))
+            .setReadThrough(true));
+    asyncCache = cache.unwrap(RIAsyncCache.class);
+  }
+
+  @After
+  public void closeCache() {
+    GatedLoader.gate.countDown();
+    cacheManager.close();
+  }
+
+  @Test
+  public void callbacksAreNotifiedOnceALoadCompletes() throws Exception {
+    RIListenableFuture<String> future = asyncCache.getAsync(1);
+    Outcome outcome = new Outcome();
+    future.addCallback(outcome);
+
+    assertFalse(future.isDone());
+    assertTrue(outcome.outcomes.isEmpty());
+    GatedLoader.gate.countDown();
+
+    assertEquals("value-1", outcome.outcomes.poll(10, TimeUnit.SECONDS));
+    assertEquals("value-1", future.get());
+  }
+
+  @Test
+  public void callbacksAddedAfterCompletionAreNotifiedStraightAway() throws Exception {
+    GatedLoader.gate.countDown();
+    RIListenableFuture<String> future = asyncCache.getAsync(2);
+    future.get();
+
+    Outcome outcome = new Outcome();
+    future.addCallback(outcome);
+    assertEquals("value-2", outcome.outcomes.poll());
+
+    //a hit completes on the calling thread
+    RIListenableFuture<String> hit = asyncCache.getAsync(2);
+    assertTrue(hit.isDone());
+    hit.addCallback(outcome);
+    assertEquals("value-2", outcome.outcomes.poll());
+  }
+
+  @Test
+  public void callbacksAreNotifiedOfFailures() throws Exception {
+    GatedLoader.gate.countDown();
+    Outcome outcome = new Outcome();
+    asyncCache.getAsync(-1).addCallback(outcome);
+
+    Object failure = outcome.outcomes.poll(10, TimeUnit.SECONDS);
+    assertTrue(String.valueOf(failure), failure instanceof Throwable);
+  }
+
+  /**
+   * A {@link CacheLoader} that waits for a gate to open before loading.
+   */
+  public static class GatedLoader implements CacheLoader<Integer, String> {
+
+    /**
+     * The gate, opened by the tests.
+     */
+    private static volatile CountDownLatch gate;
+
+    @Override
+    public String load(Integer key) {
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (key < 0) {
+        throw new IllegalArgumentException("negative key " + key);
+      }
+      return "value-" + key;
+    }
+
+    @Override
+    public Map<Integer, String> loadAll(Iterable<? extends Integer> keys) {
+      Map<Integer, String> values = new HashMap<Integer, String>();
+      for (Integer key : keys) {
+        values.put(key, load(key));
+      }
+      return values;
+    }
+  }
+
+  /**
+   * An {@link RIFutureCallback} recording each outcome, being the result or
+   * the failure.
+   */
+  private static final class Outcome implements RIFutureCallback<String> {
+
+    /**
+     * The outcomes.
+     */
+    private final BlockingQueue<Object> outcomes = new ArrayBlockingQueue<Object>(10);
+
+    @Override
+    public void onSuccess(String result) {
+      outcomes.add(result);
+    }
+
+    @Override
+    public void onFailure(Throwable failure) {
+      outcomes.add(failure);
+    }
+  }
+}
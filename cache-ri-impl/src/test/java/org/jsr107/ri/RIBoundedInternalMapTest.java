@@ -0,0 +1,174 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link RIBoundedInternalMap}.
+ */
+public class RIBoundedInternalMapTest {
+
+  @Test
+  public void sizeIsBoundedAndEvictionsAreNotified() {
+    final Map<Integer, Integer> evicted = new ConcurrentHashMap<Integer, Integer>();
+    RIBoundedInternalMap<Integer, Integer> map = new RIBoundedInternalMap<Integer, Integer>(100,
+        new RIEvictionListener<Integer, Integer>() {
+          @Override
+          public void onEviction(Integer key, Integer value) {
+            evicted.put(key, value);
+          }
+        });
+
+    for (int i = 0; i < 1000; i++) {
+      map.put(i, -i);
+    }
+
+    assertEquals(100, map.size());
+    assertEquals(900, evicted.size());
+    for (Map.Entry<Integer, Integer> entry : evicted.entrySet()) {
+      assertEquals(-entry.getKey(), (int) entry.getValue());
+      assertNull(map.get(entry.getKey()));
+    }
+  }
+
+  @Test
+  public void largeMaximumSizeDoesNotAllocateUpFront() {
+    //a sketch sized for the maximum would need gigabytes
+    RIBoundedInternalMap<Integer, Integer> map =
+        new RIBoundedInternalMap<Integer, Integer>(Long.MAX_VALUE, null);
+    map.put(1, 1);
+    assertEquals(1, (int) map.get(1));
+  }
+
+  @Test
+  public void frequentlyReadEntriesSurviveAScan() {
+    RIBoundedInternalMap<Integer, Integer> map = new RIBoundedInternalMap<Integer, Integer>(100, null);
+    for (int i = 0; i < 100; i++) {
+      map.put(i, i);
+    }
+    for (int round = 0; round < 20; round++) {
+      for (int i = 0; i < 50; i++) {
+        map.get(i);
+      }
+    }
+
+    for (int i = 1000; i < 2000; i++) {
+      map.put(i, i);
+    }
+
+    int retained = 0;
+    for (int i = 0; i < 50; i++) {
+      if (map.containsKey(i)) {
+        retained++;
+      }
+    }
+    assertTrue("only " + retained + " hot entries retained", retained >= 45);
+  }
+
+  @Test
+  public void weightIsBounded() {
+    RIBoundedInternalMap<Integer, String> map = new RIBoundedInternalMap<Integer, String>(100,
+        new RIWeigher<Integer, String>() {
+          @Override
+          public int weigh(Integer key, String value) {
+            return value.length();
+          }
+        }, null);
+
+    for (int i = 0; i < 100; i++) {
+      map.put(i, "0123456789");
+    }
+    assertEquals(10, map.size());
+
+    //growing an entry evicts others to make room
+    map.put(99, "01234567890123456789");
+    assertEquals(9, map.size());
+    assertEquals("01234567890123456789", map.get(99));
+  }
+
+  @Test
+  public void concurrentWritesKeepTheMapConsistent() throws Exception {
+    final RIBoundedInternalMap<Integer, Integer> map = new RIBoundedInternalMap<Integer, Integer>(64, null);
+    final int threads = 8;
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(threads);
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    for (int t = 0; t < threads; t++) {
+      new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 100000; i++) {
+              int key = random.nextInt(256);
+              switch (random.nextInt(4)) {
+                case 0:
+                  map.remove(key);
+                  break;
+                case 1:
+                  map.put(key, key);
+                  break;
+                default:
+                  Integer value = map.get(key);
+                  if (value != null && value != key) {
+                    throw new AssertionError("read " + value + " for " + key);
+                  }
+                  break;
+              }
+            }
+          } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+          } finally {
+            done.countDown();
+          }
+        }
+      }.start();
+    }
+    start.countDown();
+    done.await();
+
+    assertNull(failure.get());
+    //once the pending changes are applied by a write the bound holds
+    map.put(-1, -1);
+    assertTrue(map.size() <= 64);
+
+    int count = 0;
+    for (Map.Entry<Integer, Integer> entry : map) {
+      assertEquals(entry.getKey(), map.get(entry.getKey()));
+      count++;
+    }
+    assertEquals(map.size(), count);
+
+    map.clear();
+    assertEquals(0, map.size());
+    map.put(1, 1);
+    assertEquals(1, map.size());
+  }
+}
@@ -0,0 +1,163 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+import javax.cache.processor.MutableEntry;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for processing the keys of {@link RICache#invokeAll} in
+ * parallel batches of four.
+ */
+public class RICacheInvokeAllTest {
+
+  /**
+   * The single thread of the executor of the {@link CacheManager}.
+   */
+  private ExecutorService executor;
+
+  /**
+   * The {@link CacheManager} of the Cache.
+   */
+  private CacheManager cacheManager;
+
+  /**
+   * The Cache.
+   */
+  private Cache<Integer, Integer> cache;
+
+  @Before
+  public void createCache() throws Exception {
+    executor = Executors.newSingleThreadExecutor();
+    Properties properties = new Properties();
+    properties.put(RIProperties.EXECUTOR, executor);
+    properties.setProperty(RIProperties.INVOKE_ALL_BATCH_SIZE, "4");
+    cacheManager = Caching.getCachingProvider().getCacheManager(
+        new URI("RICacheInvokeAllTest"), getClass().getClassLoader(), properties);
+    cache = cacheManager.createCache("invoked", new MutableConfiguration<Integer, Integer>());
+  }
+
+  @After
+  public void closeCache() {
+    cacheManager.close();
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void everyKeyIsProcessedOnce() {
+    Map<Integer, EntryProcessorResult<Integer>> results = cache.invokeAll(keys(), new Increment());
+
+    assertEquals(100, results.size());
+    for (int key = 0; key < 100; key++) {
+      assertEquals(1, (int) results.get(key).get());
+      assertEquals(1, (int) cache.get(key));
+    }
+  }
+
+  @Test
+  public void failuresAreReturnedForTheirKeysAlone() {
+    Map<Integer, EntryProcessorResult<Integer>> results = cache.invokeAll(keys(), new Increment(), 13);
+
+    assertEquals(100, results.size());
+    for (int key = 0; key < 100; key++) {
+      if (key == 13) {
+        try {
+          results.get(key).get();
+          fail();
+        } catch (EntryProcessorException e) {
+          //expected
+        }
+      } else {
+        assertEquals(1, (int) results.get(key).get());
+      }
+    }
+  }
+
+  @Test
+  public void theCallingThreadProcessesTheBatchesOfABusyExecutor() throws Exception {
+    final CountDownLatch gate = new CountDownLatch(1);
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          gate.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+
+    try {
+      assertEquals(100, cache.invokeAll(keys(), new Increment()).size());
+    } finally {
+      gate.countDown();
+    }
+  }
+
+  /**
+   * Creates the keys to process.
+   *
+   * @return the keys 0 to 99
+   */
+  private static Set<Integer> keys() {
+    Set<Integer> keys = new HashSet<Integer>();
+    for (int key = 0; key < 100; key++) {
+      keys.add(key);
+    }
+    return keys;
+  }
+
+  /**
+   * An {@link EntryProcessor} incrementing the value of an entry, failing
+   * for the keys passed as arguments.
+   */
+  private static class Increment implements EntryProcessor<Integer, Integer, Integer> {
+
+    @Override
+    public Integer process(MutableEntry<Integer, Integer> entry, Object... arguments) {
+      for (Object argument : arguments) {
+        if (argument.equals(entry.getKey())) {
+          throw new IllegalStateException("failing " + argument);
+        }
+      }
+      int value = entry.exists() ? entry.getValue() + 1 : 1;
+      entry.setValue(value);
+      return value;
+    }
+  }
+}
@@ -0,0 +1,239 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.integration.CacheLoader;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for loading the entries of a read-through {@link RICache}.
+ * <p>
+ * The Cache named "batched" loads at most two keys with each call to
+ * {@link CacheLoader#loadAll}.
+ * </p>
+ */
+public class RICacheLoadTest {
+
+  /**
+   * The threads reading the Cache concurrently.
+   */
+  private ExecutorService readers;
+
+  /**
+   * The {@link CacheManager} of the Cache.
+   */
+  private CacheManager cacheManager;
+
+  /**
+   * A Cache reading through a {@link GatedLoader}.
+   */
+  private Cache<Integer, String> cache;
+
+  @Before
+  public void createCache() throws Exception {
+    GatedLoader.loads.set(0);
+    GatedLoader.gate = new CountDownLatch(0);
+    GatedLoader.started = new CountDownLatch(1);
+    GatedLoader.batches.clear();
+    readers = Executors.newCachedThreadPool();
+
+    Properties properties = new Properties();
+    properties.setProperty(RIProperties.LOADER_BATCH_SIZE + ".batched", "2");
+    cacheManager = Caching.getCachingProvider().getCacheManager(
+        new URI("RICacheLoadTest"), getClass().getClassLoader(), properties);
+    cache = createCache("loaded");
+  }
+
+  @After
+  public void closeCache() {
+    GatedLoader.gate.countDown();
+    readers.shutdownNow();
+    cacheManager.close();
+  }
+
+  @Test
+  public void concurrentMissesShareTheLoadOfAKey() throws Exception {
+    GatedLoader.gate = new CountDownLatch(1);
+    Future<String> first = readers.submit(new Get(1));
+    assertTrue(GatedLoader.started.await(10, TimeUnit.SECONDS));
+
+    Future<String> second = readers.submit(new Get(1));
+    Thread.sleep(100);
+    assertFalse(second.isDone());
+
+    GatedLoader.gate.countDown();
+    assertEquals("value-1", first.get(10, TimeUnit.SECONDS));
+    assertEquals("value-1", second.get(10, TimeUnit.SECONDS));
+    assertEquals(1, GatedLoader.loads.get());
+  }
+
+  @Test
+  public void otherKeysAreLoadedWhileAKeyIsBeingLoaded() throws Exception {
+    GatedLoader.gate = new CountDownLatch(1);
+    Future<String> blocked = readers.submit(new Get(1));
+    assertTrue(GatedLoader.started.await(10, TimeUnit.SECONDS));
+
+    //the load of the key holds none of the locks of the cache
+    GatedLoader.gate = new CountDownLatch(0);
+    assertEquals("value-2", cache.get(2));
+    assertFalse(blocked.isDone());
+  }
+
+  @Test
+  public void getAllLoadsTheMissesTogether() {
+    cache.put(2, "cached");
+
+    Map<Integer, String> values = cache.getAll(new HashSet<Integer>(Arrays.asList(1, 2, 3)));
+    assertEquals("value-1", values.get(1));
+    assertEquals("cached", values.get(2));
+    assertEquals("value-3", values.get(3));
+    assertEquals(1, GatedLoader.batches.size());
+    assertEquals(new HashSet<Integer>(Arrays.asList(1, 3)), GatedLoader.batches.peek());
+  }
+
+  @Test
+  public void getAllLoadsTheMissesInBatchesWhenConfigured() {
+    Cache<Integer, String> batched = createCache("batched");
+    Set<Integer> keys = new HashSet<Integer>(Arrays.asList(1, 2, 3, 4, 5));
+
+    assertEquals(5, batched.getAll(keys).size());
+    assertEquals(3, GatedLoader.batches.size());
+    Set<Integer> loaded = new HashSet<Integer>();
+    for (Set<Integer> batch : GatedLoader.batches) {
+      assertTrue(batch.size() <= 2);
+      loaded.addAll(batch);
+    }
+    assertEquals(keys, loaded);
+  }
+
+  /**
+   * Creates a Cache reading through a {@link GatedLoader}.
+   *
+   * @param cacheName the name of the Cache
+   * @return the Cache
+   */
+  private Cache<Integer, String> createCache(String cacheName) {
+    return cacheManager.createCache(cacheName,
+        new MutableConfiguration<Integer, String>()
+            .setCacheLoaderFactory(FactoryBuilder.factoryOf(GatedLoader.class))
+            .setReadThrough(true));
+  }
+
+  /**
+   * A read of the Cache.
+   */
+  private final class Get implements Callable<String> {
+
+    /**
+     * The key to read.
+     */
+    private final int key;
+
+    /**
+     * Constructs a {@link Get}.
+     *
+     * @param key the key to read
+     */
+    private Get(int key) {
+      this.key = key;
+    }
+
+    @Override
+    public String call() {
+      return cache.get(key);
+    }
+  }
+
+  /**
+   * A {@link CacheLoader} counting its loads, which wait for a gate to open.
+   */
+  public static class GatedLoader implements CacheLoader<Integer, String> {
+
+    /**
+     * The number of keys loaded.
+     */
+    private static final AtomicInteger loads = new AtomicInteger();
+
+    /**
+     * The gate, opened by the tests.
+     */
+    private static volatile CountDownLatch gate;
+
+    /**
+     * Counted down as a load waits for the gate.
+     */
+    private static volatile CountDownLatch started;
+
+    /**
+     * The keys of each call to {@link #loadAll}.
+     */
+    private static final Queue<Set<Integer>> batches = new ConcurrentLinkedQueue<Set<Integer>>();
+
+    @Override
+    public String load(Integer key) {
+      loads.incrementAndGet();
+      CountDownLatch gate = GatedLoader.gate;
+      started.countDown();
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return "value-" + key;
+    }
+
+    @Override
+    public Map<Integer, String> loadAll(Iterable<? extends Integer> keys) {
+      Set<Integer> batch = new HashSet<Integer>();
+      Map<Integer, String> values = new HashMap<Integer, String>();
+      for (Integer key : keys) {
+        batch.add(key);
+        values.put(key, load(key));
+      }
+      batches.add(batch);
+      return values;
+    }
+  }
+}
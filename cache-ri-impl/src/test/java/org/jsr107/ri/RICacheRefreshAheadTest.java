@@ -0,0 +1,201 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.expiry.Duration;
+import javax.cache.expiry.ModifiedExpiryPolicy;
+import javax.cache.integration.CacheLoader;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for refreshing the entries of a read-through {@link RICache}
+ * ahead of their expiry.
+ * <p>
+ * Time is controlled with an {@link RIVirtualClock}, and refreshes are
+ * performed by a single thread that the tests wait for.
+ * </p>
+ */
+public class RICacheRefreshAheadTest {
+
+  /**
+   * The {@link RIVirtualClock} of the Cache.
+   */
+  private RIVirtualClock clock;
+
+  /**
+   * The single thread performing refreshes.
+   */
+  private ExecutorService executor;
+
+  /**
+   * The {@link CacheManager} of the Cache.
+   */
+  private CacheManager cacheManager;
+
+  /**
+   * A Cache with entries living for ten seconds and refreshed ahead once
+   * half of that has passed.
+   */
+  private Cache<Integer, String> cache;
+
+  @Before
+  public void createCache() throws Exception {
+    CountingLoader.loads.set(0);
+    CountingLoader.gate = null;
+    CountingLoader.started = new CountDownLatch(1);
+    clock = new RIVirtualClock();
+    executor = Executors.newSingleThreadExecutor();
+
+    Properties properties = new Properties();
+    properties.put(RIProperties.CLOCK, clock);
+    properties.put(RIProperties.EXECUTOR, executor);
+    properties.setProperty(RIProperties.REFRESH_AHEAD_FACTOR, "0.5");
+    cacheManager = Caching.getCachingProvider().getCacheManager(
+        new URI("RICacheRefreshAheadTest"), getClass().getClassLoader(), properties);
+    cache = cacheManager.createCache("refreshed",
+        new MutableConfiguration<Integer, String>()
+            .setCacheLoaderFactory(FactoryBuilder.factoryOf(CountingLoader.class))
+            .setExpiryPolicyFactory(ModifiedExpiryPolicy.factoryOf(new Duration(TimeUnit.SECONDS, 10)))
+            .setReadThrough(true));
+  }
+
+  @After
+  public void closeCache() {
+    cacheManager.close();
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void readsEarlyInTheLifetimeDontRefresh() throws Exception {
+    assertEquals("value-1", cache.get(1));
+    clock.advance(4, TimeUnit.SECONDS);
+
+    assertEquals("value-1", cache.get(1));
+    awaitRefreshes();
+    assertEquals(1, CountingLoader.loads.get());
+  }
+
+  @Test
+  public void readsLateInTheLifetimeRefreshInTheBackground() throws Exception {
+    assertEquals("value-1", cache.get(1));
+    clock.advance(6, TimeUnit.SECONDS);
+
+    //the current value is returned while the entry is refreshed
+    assertEquals("value-1", cache.get(1));
+    awaitRefreshes();
+    assertEquals(2, CountingLoader.loads.get());
+    assertEquals("value-2", cache.get(1));
+
+    //the refresh renewed the lifetime of the entry
+    clock.advance(6, TimeUnit.SECONDS);
+    assertEquals("value-2", cache.get(1));
+  }
+
+  @Test
+  public void writesAbandonARefreshInProgress() throws Exception {
+    assertEquals("value-1", cache.get(1));
+    clock.advance(6, TimeUnit.SECONDS);
+    CountingLoader.gate = new CountDownLatch(1);
+
+    assertEquals("value-1", cache.get(1));
+    assertTrue(CountingLoader.started.await(10, TimeUnit.SECONDS));
+    cache.put(1, "written");
+    CountingLoader.gate.countDown();
+    awaitRefreshes();
+
+    assertEquals(2, CountingLoader.loads.get());
+    assertEquals("written", cache.get(1));
+  }
+
+  /**
+   * Waits for the refreshes submitted so far to complete.
+   *
+   * @throws Exception should the wait fail
+   */
+  private void awaitRefreshes() throws Exception {
+    executor.submit(new Runnable() {
+      @Override
+      public void run() {
+      }
+    }).get(10, TimeUnit.SECONDS);
+  }
+
+  /**
+   * A {@link CacheLoader} numbering the values it loads, which may wait for a
+   * gate to open before loading.
+   */
+  public static class CountingLoader implements CacheLoader<Integer, String> {
+
+    /**
+     * The number of values loaded.
+     */
+    private static final AtomicInteger loads = new AtomicInteger();
+
+    /**
+     * The gate, or <code>null</code> to load straight away.
+     */
+    private static volatile CountDownLatch gate;
+
+    /**
+     * Counted down as a load waits for the gate.
+     */
+    private static volatile CountDownLatch started;
+
+    @Override
+    public String load(Integer key) {
+      CountDownLatch gate = CountingLoader.gate;
+      if (gate != null) {
+        started.countDown();
+        try {
+          gate.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return "value-" + loads.incrementAndGet();
+    }
+
+    @Override
+    public Map<Integer, String> loadAll(Iterable<? extends Integer> keys) {
+      Map<Integer, String> values = new HashMap<Integer, String>();
+      for (Integer key : keys) {
+        values.put(key, load(key));
+      }
+      return values;
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link RICachedValue}.
+ */
+public class RICachedValueTest {
+
+  @Test
+  public void hitsUpdateTheAccessMetadata() {
+    Object internalValue = new Object();
+    RICachedValue cachedValue = new RICachedValue(internalValue, 1000, -1);
+
+    assertSame(internalValue, cachedValue.getInternalValue(1000));
+    assertSame(internalValue, cachedValue.getInternalValue(2000));
+
+    assertEquals(2000, cachedValue.getAccessTime());
+    assertEquals(2, cachedValue.getAccessCount());
+    assertEquals(1000, cachedValue.getModificationTime());
+  }
+
+  @Test
+  public void settingTheValueUpdatesTheModificationMetadata() {
+    RICachedValue cachedValue = new RICachedValue("a", 1000, -1);
+
+    cachedValue.setInternalValue("b", 3000);
+
+    assertEquals("b", cachedValue.get());
+    assertEquals(3000, cachedValue.getModificationTime());
+    assertEquals(1, cachedValue.getModificationCount());
+    assertEquals(1000, cachedValue.getAccessTime());
+  }
+
+  @Test
+  public void expiryIsDeterminedByTheExpiryTime() {
+    RICachedValue eternal = new RICachedValue("a", 1000, -1);
+    RICachedValue expiring = new RICachedValue("a", 1000, 2000);
+
+    assertFalse(eternal.isExpiredAt(Long.MAX_VALUE));
+    assertFalse(expiring.isExpiredAt(1999));
+    assertTrue(expiring.isExpiredAt(2000));
+  }
+
+  @Test
+  public void concurrentHitsAllReturnTheValue() throws Exception {
+    final RICachedValue cachedValue = new RICachedValue("a", 0, -1);
+    Thread[] threads = new Thread[4];
+    final boolean[] isCorrect = new boolean[threads.length];
+    for (int i = 0; i < threads.length; i++) {
+      final int index = i;
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          boolean correct = true;
+          for (int j = 0; j < 10000; j++) {
+            correct &= "a".equals(cachedValue.getInternalValue(j));
+          }
+          isCorrect[index] = correct;
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    for (boolean correct : isCorrect) {
+      assertTrue(correct);
+    }
+    //the access count is relaxed, so only some of the hits need be counted
+    assertTrue(cachedValue.getAccessCount() > 0);
+    assertTrue(cachedValue.getAccessCount() <= 40000);
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the {@link RICompactSerializer}.
+ */
+public class RICompactSerializerTest {
+
+  /**
+   * The {@link RICompactSerializer} falling back to Java serialization.
+   */
+  private final RICompactSerializer serializer = new RICompactSerializer();
+
+  @Test
+  public void compactTypesRoundTrip() {
+    Object[] values = {"ascii", "non-ascii \u00e9\u4e2d", "", Boolean.TRUE, Boolean.FALSE, (byte) 7,
+        (short) -3, 'c', 42, -42L, 1.5f, -2.25d, UUID.randomUUID(), new Date(123456789L),
+        new BigInteger("-123456789012345678901234567890"), new BigDecimal("3.14159265358979323846")};
+    for (Object value : values) {
+      byte[] bytes = serializer.serialize(value);
+      assertEquals(value, serializer.deserialize(bytes, getClass().getClassLoader()));
+    }
+
+    byte[] array = {1, 2, 3};
+    assertArrayEquals(array, (byte[]) serializer.deserialize(serializer.serialize(array), null));
+  }
+
+  @Test
+  public void asciiStringsTakeOneBytePerCharacter() {
+    assertEquals(1 + "ascii".length(), serializer.serialize("ascii").length);
+  }
+
+  @Test
+  public void otherTypesFallBackToJavaSerializationAfterATag() {
+    ArrayList<String> list = new ArrayList<String>(Arrays.asList("a", "b"));
+    byte[] bytes = serializer.serialize(list);
+    byte[] javaBytes = RIJavaSerializer.INSTANCE.serialize(list);
+
+    assertEquals(javaBytes.length + 1, bytes.length);
+    assertArrayEquals(javaBytes, Arrays.copyOfRange(bytes, 1, bytes.length));
+    assertEquals(list, serializer.deserialize(bytes, getClass().getClassLoader()));
+  }
+
+  @Test
+  public void otherFallbacksAreGivenTheSerializedFormAlone() {
+    RISerializer fallback = new RISerializer() {
+      @Override
+      public byte[] serialize(Object value) {
+        return RIJavaSerializer.INSTANCE.serialize(value);
+      }
+
+      @Override
+      public Object deserialize(byte[] bytes, ClassLoader classLoader) {
+        return RIJavaSerializer.INSTANCE.deserialize(bytes, classLoader);
+      }
+    };
+    RICompactSerializer compactSerializer = new RICompactSerializer(fallback);
+
+    ArrayList<Integer> list = new ArrayList<Integer>(Arrays.asList(1, 2));
+    assertEquals(list, compactSerializer.deserialize(compactSerializer.serialize(list),
+        getClass().getClassLoader()));
+  }
+}
@@ -0,0 +1,67 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link RIFrequencySketch}.
+ */
+public class RIFrequencySketchTest {
+
+  @Test
+  public void frequenciesAreCountedUpToFifteen() {
+    RIFrequencySketch sketch = new RIFrequencySketch(1024);
+    assertEquals(0, sketch.frequency("a"));
+
+    for (int i = 1; i <= 20; i++) {
+      sketch.increment("a");
+      assertEquals(Math.min(i, 15), sketch.frequency("a"));
+    }
+    assertEquals(0, sketch.frequency("b"));
+  }
+
+  @Test
+  public void frequenciesAreHalvedOnceTheSampleSizeIsReached() {
+    RIFrequencySketch sketch = new RIFrequencySketch(1024);
+    for (int i = 0; i < 15; i++) {
+      sketch.increment("a");
+    }
+
+    //the sample size is ten times the capacity
+    int uses = 0;
+    while (sketch.frequency("a") == 15 && uses < 20480) {
+      sketch.increment(uses++);
+    }
+    assertTrue(uses < 10240);
+    assertEquals(7, sketch.frequency("a"));
+  }
+
+  @Test
+  public void growingForgetsTheFrequencies() {
+    RIFrequencySketch sketch = new RIFrequencySketch(0);
+    sketch.increment("a");
+    sketch.ensureCapacity(4);
+    assertEquals(1, sketch.frequency("a"));
+
+    sketch.ensureCapacity(1024);
+    assertEquals(0, sketch.frequency("a"));
+  }
+}
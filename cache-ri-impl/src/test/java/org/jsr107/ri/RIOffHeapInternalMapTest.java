@@ -0,0 +1,159 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import org.jsr107.ri.RISerializingInternalConverter.Serialized;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link RIOffHeapInternalMap}.
+ */
+public class RIOffHeapInternalMapTest {
+
+  /**
+   * The capacity giving each of the sixteen segments two slabs of 4k.
+   */
+  private static final long CAPACITY = 16 * 2 * 4096;
+
+  /**
+   * The number of 96 byte records filling a slab.
+   */
+  private static final int RECORDS_PER_SLAB = 42;
+
+  @Test
+  public void entriesAreReplacedAndRemoved() {
+    RIOffHeapInternalMap map = new RIOffHeapInternalMap(CAPACITY, new Evictions());
+    List<Serialized<Object>> keys = keysOfOneSegment(10);
+
+    for (Serialized<Object> key : keys) {
+      assertNull(map.getAndPut(key, value(1)));
+    }
+    RICachedValue oldValue = map.getAndPut(keys.get(0), value(2));
+    assertEquals(value(1).get(), oldValue.get());
+    assertEquals(value(2).get(), map.get(keys.get(0)).get());
+    assertEquals(10, map.size());
+
+    assertEquals(value(1).get(), map.remove(keys.get(1)).get());
+    assertFalse(map.containsKey(keys.get(1)));
+    assertEquals(9, map.size());
+
+    map.clear();
+    assertEquals(0, map.size());
+    assertNull(map.get(keys.get(0)));
+  }
+
+  @Test
+  public void entriesReadSinceBeingWrittenAreGivenASecondChance() {
+    Evictions evictions = new Evictions();
+    RIOffHeapInternalMap map = new RIOffHeapInternalMap(CAPACITY, evictions);
+    List<Serialized<Object>> keys = keysOfOneSegment(3 * RECORDS_PER_SLAB + 1);
+
+    //fill the first slab, reading every other entry
+    for (int i = 0; i < RECORDS_PER_SLAB; i++) {
+      map.put(keys.get(i), value(i));
+    }
+    for (int i = 0; i < RECORDS_PER_SLAB; i += 2) {
+      map.get(keys.get(i)).getInternalValue(1);
+    }
+
+    //fill the second slab and then reclaim the first
+    for (int i = RECORDS_PER_SLAB; i <= 3 * RECORDS_PER_SLAB - 1 - RECORDS_PER_SLAB / 2; i++) {
+      map.put(keys.get(i), value(i));
+    }
+
+    for (int i = 0; i < RECORDS_PER_SLAB; i++) {
+      assertEquals(i % 2 == 0, map.containsKey(keys.get(i)));
+      assertEquals(i % 2 == 1, evictions.keys.contains(keys.get(i)));
+    }
+    assertEquals(RECORDS_PER_SLAB / 2, evictions.keys.size());
+
+    //the entries given a second chance keep their values and metadata
+    for (int i = 0; i < RECORDS_PER_SLAB; i += 2) {
+      RICachedValue cachedValue = map.get(keys.get(i));
+      assertEquals(value(i).get(), cachedValue.get());
+      assertEquals(1, cachedValue.getAccessTime());
+    }
+  }
+
+  @Test
+  public void entriesLargerThanASlabAreEvicted() {
+    Evictions evictions = new Evictions();
+    RIOffHeapInternalMap map = new RIOffHeapInternalMap(CAPACITY, evictions);
+    Serialized<Object> key = keysOfOneSegment(1).get(0);
+
+    map.put(key, new RICachedValue(new Serialized<Object>(new byte[8192], 0), 0, -1));
+
+    assertFalse(map.containsKey(key));
+    assertTrue(evictions.keys.contains(key));
+  }
+
+  /**
+   * Creates keys that are all held by the same segment, so that each takes
+   * a record of 96 bytes.
+   *
+   * @param count the number of keys
+   * @return the serialized keys
+   */
+  private static List<Serialized<Object>> keysOfOneSegment(int count) {
+    ArrayList<Serialized<Object>> keys = new ArrayList<Serialized<Object>>();
+    for (int i = 0; keys.size() < count; i++) {
+      if (RIOffHeapInternalMap.spread(i) >>> 28 == 0) {
+        byte[] bytes = {(byte) (i >>> 24), (byte) (i >>> 16), (byte) (i >>> 8), (byte) i};
+        keys.add(new Serialized<Object>(bytes, i));
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Creates a value taking 24 bytes of a record.
+   *
+   * @param i the number of the value
+   * @return a new {@link RICachedValue}
+   */
+  private static RICachedValue value(int i) {
+    byte[] bytes = new byte[24];
+    bytes[0] = (byte) i;
+    return new RICachedValue(new Serialized<Object>(bytes, i), 0, -1);
+  }
+
+  /**
+   * An {@link RIEvictionListener} recording the evicted keys.
+   */
+  private static final class Evictions implements RIEvictionListener<Object, RICachedValue> {
+
+    /**
+     * The evicted keys.
+     */
+    private final Set<Object> keys = new HashSet<Object>();
+
+    @Override
+    public void onEviction(Object key, RICachedValue value) {
+      keys.add(key);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for the {@link RISerializingInternalConverter}.
+ */
+public class RISerializingInternalConverterTest {
+
+  @Test
+  public void serializedValuesWeighTheirSerializedForm() {
+    RISerializingInternalConverter<Object> converter = new RISerializingInternalConverter<Object>(
+        getClass().getClassLoader(), new RICompactSerializer(), null);
+
+    Object internal = converter.toInternal(new StringBuilder("mutable"));
+    assertEquals(new RICompactSerializer().serialize(new StringBuilder("mutable")).length,
+        converter.sizeOf(internal));
+  }
+
+  @Test
+  public void immutableValuesAreWeighedWithoutSerializingEachOne() {
+    CountingSerializer serializer = new CountingSerializer();
+    RISerializingInternalConverter<Object> converter = new RISerializingInternalConverter<Object>(
+        getClass().getClassLoader(), serializer, new RIImmutableTypes(Collections.<String>emptySet()));
+
+    String string = "an ascii string";
+    assertSame(string, converter.toInternal(string));
+    assertEquals(new RICompactSerializer().serialize(string).length, converter.sizeOf(string));
+
+    for (long i = 0; i < 1000; i++) {
+      assertEquals(9, converter.sizeOf(converter.toInternal(i)));
+    }
+    assertEquals(1, serializer.count.get());
+  }
+
+  /**
+   * An {@link RISerializer} counting the values it serializes.
+   */
+  private static final class CountingSerializer implements RISerializer {
+
+    /**
+     * The number of values serialized.
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * The {@link RISerializer} serializing the values.
+     */
+    private final RICompactSerializer serializer = new RICompactSerializer();
+
+    @Override
+    public byte[] serialize(Object value) {
+      count.incrementAndGet();
+      return serializer.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes, ClassLoader classLoader) {
+      return serializer.deserialize(bytes, classLoader);
+    }
+  }
+}
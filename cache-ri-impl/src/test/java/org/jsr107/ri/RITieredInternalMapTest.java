@@ -0,0 +1,144 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link RITieredInternalMap}, with a primary tier of ten
+ * entries and an unbounded overflow tier in memory.
+ */
+public class RITieredInternalMapTest {
+
+  /**
+   * The number of entries held by the primary tier.
+   */
+  private static final int PRIMARY_SIZE = 10;
+
+  /**
+   * The overflow tier.
+   */
+  private RIInternalMap<Object, RICachedValue> overflow;
+
+  /**
+   * The {@link RITieredInternalMap} of a hundred entries.
+   */
+  private RITieredInternalMap map;
+
+  @Before
+  public void createMap() {
+    RITieredInternalMap.Spill spill = new RITieredInternalMap.Spill();
+    overflow = new RISimpleInternalMap<Object, RICachedValue>();
+    map = new RITieredInternalMap(new RIBoundedInternalMap<Object, RICachedValue>(PRIMARY_SIZE, spill),
+        spill, overflow, new Closeable() {
+          @Override
+          public void close() {
+          }
+        });
+    for (int i = 0; i < 100; i++) {
+      map.put(i, value(i));
+    }
+  }
+
+  @Test
+  public void entriesEvictedFromThePrimaryTierSpillToTheOverflowTier() {
+    assertEquals(100, map.size());
+    assertEquals(100 - PRIMARY_SIZE, overflow.size());
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals("value-" + i, map.get(i).get());
+    }
+    assertEquals(100, map.size());
+    assertEquals(100 - PRIMARY_SIZE, overflow.size());
+  }
+
+  @Test
+  public void readsFaultEntriesBackIntoThePrimaryTier() {
+    Object spilledKey = spilledKey();
+    RICachedValue spilledValue = overflow.get(spilledKey);
+
+    RICachedValue value = map.get(spilledKey);
+    assertEquals(spilledValue.get(), value.get());
+    assertEquals(spilledValue.getExpiryTime(), value.getExpiryTime());
+    assertFalse(overflow.containsKey(spilledKey));
+    assertEquals(100, map.size());
+  }
+
+  @Test
+  public void writesReplaceAndRemoveEntriesOfEitherTier() {
+    Object spilledKey = spilledKey();
+    assertEquals("value-" + spilledKey, map.getAndPut(spilledKey, value(-1)).get());
+    assertEquals("value--1", map.get(spilledKey).get());
+
+    Object otherKey = spilledKey();
+    assertEquals("value-" + otherKey, map.remove(otherKey).get());
+    assertFalse(map.containsKey(otherKey));
+    assertNull(map.get(otherKey));
+    assertEquals(99, map.size());
+  }
+
+  @Test
+  public void iterationVisitsEveryEntryOnce() {
+    Set<Object> keys = new HashSet<Object>();
+    for (Iterator<Map.Entry<Object, RICachedValue>> iterator = map.iterator(); iterator.hasNext(); ) {
+      Map.Entry<Object, RICachedValue> entry = iterator.next();
+      assertTrue(keys.add(entry.getKey()));
+      assertEquals("value-" + entry.getKey(), entry.getValue().get());
+    }
+    assertEquals(100, keys.size());
+
+    map.clear();
+    assertEquals(0, map.size());
+    assertFalse(map.iterator().hasNext());
+  }
+
+  /**
+   * Finds a key held by the overflow tier.
+   *
+   * @return the key
+   */
+  private Object spilledKey() {
+    for (int i = 0; i < 100; i++) {
+      if (overflow.containsKey(i)) {
+        return i;
+      }
+    }
+    throw new AssertionError("no entry was spilled");
+  }
+
+  /**
+   * Creates the value of a key.
+   *
+   * @param key the key
+   * @return a new {@link RICachedValue}
+   */
+  private static RICachedValue value(int key) {
+    return new RICachedValue("value-" + key, 0, 1000L + key);
+  }
+}
@@ -0,0 +1,163 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the {@link RITimerWheel}.
+ */
+public class RITimerWheelTest {
+
+  @Test
+  public void keysBecomeDueOnceTheirTimeHasPassed() {
+    RIVirtualClock clock = new RIVirtualClock(1000000000L);
+    RITimerWheel wheel = new RITimerWheel(clock.currentTimeMillis());
+    long now = clock.currentTimeMillis();
+
+    wheel.schedule("second", value(), now + TimeUnit.SECONDS.toMillis(1));
+    wheel.schedule("minutes", value(), now + TimeUnit.MINUTES.toMillis(5));
+    wheel.schedule("days", value(), now + TimeUnit.DAYS.toMillis(2));
+
+    assertDue(wheel, clock);
+    clock.advance(2, TimeUnit.SECONDS);
+    assertDue(wheel, clock, "second");
+    clock.advance(4, TimeUnit.MINUTES);
+    assertDue(wheel, clock);
+    clock.advance(1, TimeUnit.MINUTES);
+    assertDue(wheel, clock, "minutes");
+    clock.advance(1, TimeUnit.DAYS);
+    assertDue(wheel, clock);
+    clock.advance(1, TimeUnit.DAYS);
+    assertDue(wheel, clock, "days");
+    clock.advance(10, TimeUnit.DAYS);
+    assertDue(wheel, clock);
+  }
+
+  @Test
+  public void cancelledKeysNeverBecomeDue() {
+    RIVirtualClock clock = new RIVirtualClock();
+    RITimerWheel wheel = new RITimerWheel(clock.currentTimeMillis());
+    RICachedValue cancelled = value();
+    RICachedValue rescheduled = value();
+
+    wheel.schedule("cancelled", cancelled, clock.currentTimeMillis() + 5000);
+    wheel.schedule("rescheduled", rescheduled, clock.currentTimeMillis() + 5000);
+    assertDue(wheel, clock);
+    wheel.cancel(cancelled);
+    wheel.cancel(rescheduled);
+    wheel.schedule("rescheduled", rescheduled, clock.currentTimeMillis() + 10000);
+
+    clock.advance(6, TimeUnit.SECONDS);
+    assertDue(wheel, clock);
+    clock.advance(5, TimeUnit.SECONDS);
+    assertDue(wheel, clock, "rescheduled");
+  }
+
+  @Test
+  public void keysAreDueAtTheLatestTimeScheduled() {
+    RIVirtualClock clock = new RIVirtualClock();
+    RITimerWheel wheel = new RITimerWheel(clock.currentTimeMillis());
+    RICachedValue forward = value();
+    RICachedValue back = value();
+
+    wheel.schedule("forward", forward, clock.currentTimeMillis() + 60000);
+    wheel.schedule("back", back, clock.currentTimeMillis() + 5000);
+    assertDue(wheel, clock);
+    wheel.schedule("forward", forward, clock.currentTimeMillis() + 5000);
+    wheel.schedule("back", back, clock.currentTimeMillis() + 60000);
+
+    clock.advance(6, TimeUnit.SECONDS);
+    assertDue(wheel, clock, "forward");
+    clock.advance(1, TimeUnit.MINUTES);
+    assertDue(wheel, clock, "back");
+  }
+
+  @Test
+  public void requestsFromManyThreadsOverflowingTheBuffersAreApplied() throws Exception {
+    final RIVirtualClock clock = new RIVirtualClock();
+    final RITimerWheel wheel = new RITimerWheel(clock.currentTimeMillis());
+    final int threads = 4;
+    final int keys = 10000;
+    final CountDownLatch done = new CountDownLatch(threads);
+
+    for (int t = 0; t < threads; t++) {
+      final int thread = t;
+      new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < keys; i++) {
+              RICachedValue cachedValue = value();
+              wheel.schedule(thread + ":" + i, cachedValue, clock.currentTimeMillis() + 1000 + i);
+              if (i % 2 == 1) {
+                wheel.cancel(cachedValue);
+              }
+            }
+          } finally {
+            done.countDown();
+          }
+        }
+      }.start();
+    }
+    done.await();
+
+    clock.advance(1, TimeUnit.MINUTES);
+    List<Object> due = wheel.advance(clock.currentTimeMillis());
+    assertEquals(threads * keys / 2, due.size());
+    assertEquals(due.size(), new HashSet<Object>(due).size());
+  }
+
+  /**
+   * Creates a value to be scheduled.
+   *
+   * @return a new {@link RICachedValue}
+   */
+  private static RICachedValue value() {
+    return new RICachedValue("value", 0, 0);
+  }
+
+  /**
+   * Asserts the keys that are due as the wheel is advanced to the time of a
+   * clock.
+   *
+   * @param wheel the {@link RITimerWheel}
+   * @param clock the {@link RIVirtualClock}
+   * @param keys  the keys expected to be due
+   */
+  private static void assertDue(RITimerWheel wheel, RIVirtualClock clock, String... keys) {
+    List<Object> due = new ArrayList<Object>(wheel.advance(clock.currentTimeMillis()));
+    Collections.sort(due, new Comparator<Object>() {
+      @Override
+      public int compare(Object first, Object second) {
+        return first.toString().compareTo(second.toString());
+      }
+    });
+    assertEquals(Arrays.asList(keys), due);
+  }
+}
@@ -0,0 +1,218 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link RIWriteBehindCacheWriter}.
+ * <p>
+ * Flushes requested in the background are dropped, so that queued
+ * operations are only performed by back-pressure or when the writer is
+ * closed.
+ * </p>
+ */
+public class RIWriteBehindCacheWriterTest {
+
+  /**
+   * The {@link Executor} dropping the flushes requested in the background.
+   */
+  private static final Executor DROPPING_EXECUTOR = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+    }
+  };
+
+  /**
+   * The {@link ScheduledExecutorService} for delayed flushes.
+   */
+  private ScheduledExecutorService scheduler;
+
+  @Before
+  public void createScheduler() {
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @After
+  public void shutdownScheduler() {
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void operationsOnAKeyAreCoalescedIntoTheLast() throws Exception {
+    RecordingWriter recorder = new RecordingWriter(0);
+    RIWriteBehindCacheWriter<String, String> writer = newWriter(recorder, 10, 0, 10);
+
+    writer.write(new RIEntry<String, String>("a", "1"));
+    writer.write(new RIEntry<String, String>("a", "2"));
+    writer.write(new RIEntry<String, String>("b", "1"));
+    writer.delete("b");
+    writer.delete("c");
+    writer.write(new RIEntry<String, String>("c", "1"));
+    assertTrue(recorder.operations.isEmpty());
+
+    writer.close();
+    assertEquals(Arrays.asList("a=2", "c=1", "-b"), recorder.operations);
+  }
+
+  @Test
+  public void aFullQueueIsFlushedByTheCallingThread() throws Exception {
+    RecordingWriter recorder = new RecordingWriter(0);
+    RIWriteBehindCacheWriter<String, String> writer = newWriter(recorder, 2, 0, 2);
+
+    writer.write(new RIEntry<String, String>("a", "1"));
+    writer.write(new RIEntry<String, String>("b", "1"));
+    assertTrue(recorder.operations.isEmpty());
+
+    //a key that is queued doesn't wait for the queue
+    writer.write(new RIEntry<String, String>("b", "2"));
+    assertTrue(recorder.operations.isEmpty());
+
+    writer.write(new RIEntry<String, String>("c", "1"));
+    assertEquals(Arrays.asList("a=1", "b=2"), recorder.operations);
+
+    writer.close();
+    assertEquals(Arrays.asList("a=1", "b=2", "c=1"), recorder.operations);
+  }
+
+  @Test
+  public void failedOperationsAreRetriedThenDiscarded() throws Exception {
+    RecordingWriter recorder = new RecordingWriter(Integer.MAX_VALUE);
+    RIWriteBehindCacheWriter<String, String> writer = newWriter(recorder, 10, 2, 10);
+
+    writer.write(new RIEntry<String, String>("a", "1"));
+    writer.close();
+
+    assertEquals(3, recorder.attempts);
+    assertTrue(recorder.operations.isEmpty());
+  }
+
+  @Test
+  public void operationsSucceedOnceTheStoreRecovers() throws Exception {
+    RecordingWriter recorder = new RecordingWriter(1);
+    RIWriteBehindCacheWriter<String, String> writer = newWriter(recorder, 10, 2, 10);
+
+    writer.write(new RIEntry<String, String>("a", "1"));
+    writer.delete("b");
+    writer.close();
+
+    //the failed write doesn't prevent the delete of its batch
+    assertEquals(Arrays.asList("-b", "a=1"), recorder.operations);
+  }
+
+  /**
+   * Creates an {@link RIWriteBehindCacheWriter} storing keys and values by
+   * reference.
+   *
+   * @param recorder  the {@link RecordingWriter}
+   * @param batchSize the maximum number of operations performed together
+   * @param retries   the number of times a failed operation is retried
+   * @param queueSize the maximum number of queued operations
+   * @return a new {@link RIWriteBehindCacheWriter}
+   */
+  private RIWriteBehindCacheWriter<String, String> newWriter(RecordingWriter recorder, int batchSize,
+                                                             int retries, int queueSize) {
+    return new RIWriteBehindCacheWriter<String, String>(recorder,
+        new RIReferenceInternalConverter<String>(), new RIReferenceInternalConverter<String>(),
+        scheduler, DROPPING_EXECUTOR, 0, batchSize, retries, queueSize, "RIWriteBehindCacheWriterTest");
+  }
+
+  /**
+   * A {@link CacheWriter} recording the operations it performs, after failing
+   * a number of times.
+   */
+  private static class RecordingWriter implements CacheWriter<String, String> {
+
+    /**
+     * The operations performed, as "key=value" for writes and "-key" for
+     * deletes.
+     */
+    private final List<String> operations = new ArrayList<String>();
+
+    /**
+     * The number of calls that fail.
+     */
+    private final int failures;
+
+    /**
+     * The number of calls made.
+     */
+    private int attempts;
+
+    /**
+     * Constructs a {@link RecordingWriter}.
+     *
+     * @param failures the number of calls that fail
+     */
+    private RecordingWriter(int failures) {
+      this.failures = failures;
+    }
+
+    @Override
+    public synchronized void write(Cache.Entry<? extends String, ? extends String> entry) {
+      attempt();
+      operations.add(entry.getKey() + "=" + entry.getValue());
+    }
+
+    @Override
+    public synchronized void writeAll(Collection<Cache.Entry<? extends String, ? extends String>> entries) {
+      attempt();
+      for (Cache.Entry<? extends String, ? extends String> entry : entries) {
+        operations.add(entry.getKey() + "=" + entry.getValue());
+      }
+    }
+
+    @Override
+    public synchronized void delete(Object key) {
+      attempt();
+      operations.add("-" + key);
+    }
+
+    @Override
+    public synchronized void deleteAll(Collection<?> keys) {
+      attempt();
+      for (Object key : keys) {
+        operations.add("-" + key);
+      }
+    }
+
+    /**
+     * Counts a call, failing it while there are failures to come.
+     */
+    private void attempt() {
+      if (++attempts <= failures) {
+        throw new CacheWriterException("failure " + attempts);
+      }
+    }
+  }
+}
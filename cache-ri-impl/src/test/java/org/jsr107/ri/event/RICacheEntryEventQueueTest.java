@@ -0,0 +1,165 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.event;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.EventType;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link RICacheEntryEventQueue}.
+ */
+public class RICacheEntryEventQueueTest {
+
+  private CacheManager cacheManager;
+  private Cache<Integer, Integer> cache;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheManager = Caching.getCachingProvider().getCacheManager(
+        new URI("RICacheEntryEventQueueTest"), getClass().getClassLoader());
+    cache = cacheManager.createCache("source", new MutableConfiguration<Integer, Integer>());
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+    cacheManager.close();
+  }
+
+  @Test
+  public void eventsAreDeliveredInOrder() throws Exception {
+    RecordingListener listener = new RecordingListener(0);
+    RICacheEntryEventQueue<Integer, Integer> queue =
+        new RICacheEntryEventQueue<Integer, Integer>(listener, executor, 1024);
+
+    for (int i = 0; i < 100; i++) {
+      queue.enqueue(CacheEntryCreatedListener.class, events(i));
+    }
+    listener.await(100);
+
+    assertEquals(expected(100), listener.keys);
+  }
+
+  @Test
+  public void fullQueueHoldsBackTheCallerWithoutReorderingEvents() throws Exception {
+    RecordingListener listener = new RecordingListener(1);
+    RICacheEntryEventQueue<Integer, Integer> queue =
+        new RICacheEntryEventQueue<Integer, Integer>(listener, executor, 4);
+
+    for (int i = 0; i < 500; i++) {
+      queue.enqueue(CacheEntryCreatedListener.class, events(i));
+      queue.awaitCapacity();
+    }
+    listener.await(500);
+
+    assertEquals(expected(500), listener.keys);
+    assertEquals(1, listener.maximumConcurrency.get());
+  }
+
+  @Test
+  public void eventsAreDeliveredOnTheCallerOnceTheExecutorIsShutdown() {
+    RecordingListener listener = new RecordingListener(0);
+    RICacheEntryEventQueue<Integer, Integer> queue =
+        new RICacheEntryEventQueue<Integer, Integer>(listener, executor, 4);
+    executor.shutdown();
+
+    queue.enqueue(CacheEntryCreatedListener.class, events(1));
+
+    assertEquals(Collections.singletonList(1), listener.keys);
+  }
+
+  private List<CacheEntryEvent<Integer, Integer>> events(int key) {
+    List<CacheEntryEvent<Integer, Integer>> events = new ArrayList<CacheEntryEvent<Integer, Integer>>();
+    events.add(new RICacheEntryEvent<Integer, Integer>(cache, key, key, EventType.CREATED));
+    return events;
+  }
+
+  private static List<Integer> expected(int count) {
+    List<Integer> keys = new ArrayList<Integer>();
+    for (int i = 0; i < count; i++) {
+      keys.add(i);
+    }
+    return keys;
+  }
+
+  /**
+   * Records the keys of the events it's notified with, noting how many
+   * threads notify it at once.
+   */
+  private static final class RecordingListener implements CacheEntryCreatedListener<Integer, Integer> {
+
+    private final List<Integer> keys = Collections.synchronizedList(new ArrayList<Integer>());
+    private final AtomicInteger concurrency = new AtomicInteger();
+    private final AtomicInteger maximumConcurrency = new AtomicInteger();
+    private final long delay;
+
+    private RecordingListener(long delay) {
+      this.delay = delay;
+    }
+
+    @Override
+    public void onCreated(Iterable<CacheEntryEvent<? extends Integer, ? extends Integer>> events) {
+      int current = concurrency.incrementAndGet();
+      while (true) {
+        int maximum = maximumConcurrency.get();
+        if (current <= maximum || maximumConcurrency.compareAndSet(maximum, current)) {
+          break;
+        }
+      }
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      for (CacheEntryEvent<? extends Integer, ? extends Integer> event : events) {
+        keys.add(event.getKey());
+      }
+      concurrency.decrementAndGet();
+    }
+
+    private void await(int count) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + 10000;
+      while (keys.size() < count && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertTrue("only " + keys.size() + " of " + count + " delivered", keys.size() >= count);
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.event;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryUpdatedListener;
+import javax.cache.event.EventType;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link RICacheEventDispatcher}.
+ */
+public class RICacheEventDispatcherTest {
+
+  private CacheManager cacheManager;
+  private Cache<Integer, Integer> cache;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheManager = Caching.getCachingProvider().getCacheManager(
+        new URI("RICacheEventDispatcherTest"), getClass().getClassLoader());
+    cache = cacheManager.createCache("source", new MutableConfiguration<Integer, Integer>());
+  }
+
+  @After
+  public void tearDown() {
+    cacheManager.close();
+  }
+
+  @Test
+  public void listenersMayRetainEventsOnceTheDispatcherIsReused() {
+    RetainingListener listener = new RetainingListener();
+    List<RICacheEntryListenerRegistration<Integer, Integer>> registrations = registrationsOf(listener);
+    RICacheEventDispatcher<Integer, Integer> dispatcher = new RICacheEventDispatcher<Integer, Integer>();
+
+    dispatcher.addEvent(CacheEntryCreatedListener.class,
+        new RICacheEntryEvent<Integer, Integer>(cache, 1, 1, EventType.CREATED));
+    dispatcher.dispatch(registrations);
+    dispatcher.clear();
+    assertTrue(dispatcher.isEmpty());
+
+    dispatcher.addEvent(CacheEntryCreatedListener.class,
+        new RICacheEntryEvent<Integer, Integer>(cache, 2, 2, EventType.CREATED));
+    dispatcher.addEvent(CacheEntryCreatedListener.class,
+        new RICacheEntryEvent<Integer, Integer>(cache, 3, 3, EventType.CREATED));
+    dispatcher.dispatch(registrations);
+    dispatcher.clear();
+
+    assertEquals(2, listener.retained.size());
+    assertEquals(Collections.singletonList(1), keysOf(listener.retained.get(0)));
+    assertEquals(Arrays.asList(2, 3), keysOf(listener.retained.get(1)));
+  }
+
+  @Test
+  public void eventsAreOnlyDispatchedToTheirClassOfListener() {
+    RetainingListener listener = new RetainingListener();
+    RICacheEventDispatcher<Integer, Integer> dispatcher = new RICacheEventDispatcher<Integer, Integer>();
+
+    dispatcher.addEvent(CacheEntryUpdatedListener.class,
+        new RICacheEntryEvent<Integer, Integer>(cache, 1, 2, 1, EventType.UPDATED));
+    assertFalse(dispatcher.isEmpty());
+    dispatcher.dispatch(registrationsOf(listener));
+
+    assertTrue(listener.retained.isEmpty());
+  }
+
+  @Test
+  public void listenerMaskReflectsTheRegisteredListeners() {
+    int mask = RICacheEventDispatcher.getListenerMask(registrationsOf(new RetainingListener()));
+
+    assertTrue(RICacheEventDispatcher.isListening(mask, CacheEntryCreatedListener.class));
+    assertFalse(RICacheEventDispatcher.isListening(mask, CacheEntryUpdatedListener.class));
+    assertEquals(0, RICacheEventDispatcher.getOldValueMask(registrationsOf(new RetainingListener())));
+  }
+
+  private static List<RICacheEntryListenerRegistration<Integer, Integer>> registrationsOf(
+      RetainingListener listener) {
+    MutableCacheEntryListenerConfiguration<Integer, Integer> configuration =
+        new MutableCacheEntryListenerConfiguration<Integer, Integer>(
+            new FactoryBuilder.SingletonFactory<RetainingListener>(listener), null, false, true);
+    return Collections.singletonList(
+        new RICacheEntryListenerRegistration<Integer, Integer>(configuration, null, 0));
+  }
+
+  private static List<Integer> keysOf(Iterable<CacheEntryEvent<? extends Integer, ? extends Integer>> events) {
+    List<Integer> keys = new ArrayList<Integer>();
+    for (CacheEntryEvent<? extends Integer, ? extends Integer> event : events) {
+      keys.add(event.getKey());
+    }
+    return keys;
+  }
+
+  /**
+   * A synchronous listener that retains the {@link Iterable}s it's notified
+   * with.
+   */
+  private static final class RetainingListener implements CacheEntryCreatedListener<Integer, Integer> {
+
+    private final List<Iterable<CacheEntryEvent<? extends Integer, ? extends Integer>>> retained =
+        new ArrayList<Iterable<CacheEntryEvent<? extends Integer, ? extends Integer>>>();
+
+    @Override
+    public void onCreated(Iterable<CacheEntryEvent<? extends Integer, ? extends Integer>> events) {
+      retained.add(events);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.management;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link RIHotKeySketch}.
+ */
+public class RIHotKeySketchTest {
+
+  @Test
+  public void theHottestKeysAreTrackedHottestFirst() {
+    RIHotKeySketch sketch = new RIHotKeySketch(3);
+    Random random = new Random(1);
+    for (int i = 0; i < 30000; i++) {
+      sketch.record(random.nextInt(4) == 0 ? random.nextInt(10000) : "hot" + random.nextInt(3));
+    }
+
+    List<RIHotKey> hottest = sketch.getHottest(1);
+
+    assertEquals(3, hottest.size());
+    Set<String> keys = new HashSet<String>();
+    for (int i = 0; i < hottest.size(); i++) {
+      keys.add(hottest.get(i).getKey());
+      assertTrue(i == 0 || hottest.get(i - 1).getCount() >= hottest.get(i).getCount());
+    }
+    assertTrue(keys.contains("hot0") && keys.contains("hot1") && keys.contains("hot2"));
+  }
+
+  @Test
+  public void countsAreScaledBySampleRateAndAged() {
+    RIHotKeySketch sketch = new RIHotKeySketch(1);
+    for (int i = 0; i < 1000; i++) {
+      sketch.record("key");
+    }
+    assertEquals(16000, sketch.getHottest(16).get(0).getCount());
+
+    //enough other accesses to halve the counts
+    for (int i = 0; i < 50000; i++) {
+      sketch.record(i);
+    }
+    assertTrue(sketch.getHottest(1).isEmpty() || sketch.getHottest(1).get(0).getCount() < 1000);
+  }
+
+  @Test
+  public void keysAreReportedByTheirStringRepresentation() {
+    RIHotKeySketch sketch = new RIHotKeySketch(1);
+    StringBuilder key = new StringBuilder("before");
+    sketch.record(key);
+    key.setLength(0);
+    key.append("after");
+
+    assertEquals("before", sketch.getHottest(1).get(0).getKey());
+  }
+
+  @Test
+  public void clearingForgetsTheKeys() {
+    RIHotKeySketch sketch = new RIHotKeySketch(2);
+    sketch.record("key");
+    sketch.clear();
+
+    assertTrue(sketch.getHottest(1).isEmpty());
+  }
+}
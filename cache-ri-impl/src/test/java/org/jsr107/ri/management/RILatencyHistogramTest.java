@@ -0,0 +1,85 @@
+/**
+ *  Copyright 2011-2013 Terracotta, Inc.
+ *  Copyright 2011-2013 Oracle America Incorporated
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jsr107.ri.management;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link RILatencyHistogram}.
+ */
+public class RILatencyHistogramTest {
+
+  @Test
+  public void bucketsCoverTheLatenciesTheyCount() {
+    for (long nanos = 1; nanos < (1L << 41); nanos = nanos * 3 + 1) {
+      int index = RILatencyHistogram.indexOf(nanos);
+      assertTrue(nanos <= RILatencyHistogram.highestOf(index));
+      assertTrue(index == 0 || nanos > RILatencyHistogram.highestOf(index - 1));
+    }
+  }
+
+  @Test
+  public void percentilesAreWithinTheResolutionOfTheBuckets() {
+    RILatencyHistogram histogram = new RILatencyHistogram();
+    for (long micros = 1; micros <= 1000; micros++) {
+      histogram.record(micros * 1000);
+    }
+
+    RILatencySummary summary = histogram.summarize();
+
+    assertEquals(1000, summary.getCount());
+    assertEquals(500, summary.getP50(), 500 * 0.07);
+    assertEquals(990, summary.getP99(), 990 * 0.07);
+    assertEquals(1000, summary.getMax(), 0);
+  }
+
+  @Test
+  public void nothingRecordedSummarizesAsZero() {
+    RILatencySummary summary = new RILatencyHistogram().summarize();
+
+    assertEquals(0, summary.getCount());
+    assertEquals(0, summary.getMax(), 0);
+  }
+
+  @Test
+  public void concurrentRecordsAreMergedWhenSummarized() throws Exception {
+    final RILatencyHistogram histogram = new RILatencyHistogram();
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 100000; j++) {
+            histogram.record(1000 + j % 64);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(800000, histogram.summarize().getCount());
+
+    histogram.reset();
+    assertEquals(0, histogram.summarize().getCount());
+  }
+}